@@ -0,0 +1,163 @@
+package org.example.ejei;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Base de datos H2 en memoria, en modo de compatibilidad con MariaDB, para
+ * medir {@link DaoPersona} sin servidor. Apunta el pool de la aplicación a
+ * ella mediante las propiedades {@code ejei.bd.*} y le aplica las
+ * migraciones de {@link EsquemaBBDD}. H2 no admite disparadores escritos en
+ * SQL, así que los de versión, lápidas y registro de cambios se ejecutan
+ * con {@link Disparador}, que hace lo mismo desde Java.
+ */
+public class BaseDatosEmbebida {
+    private static final String URL = "jdbc:h2:mem:personas;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final Pattern DISPARADOR = Pattern.compile(
+            "(CREATE TRIGGER IF NOT EXISTS \\w+ (?:BEFORE|AFTER) \\w+ ON \\w+ FOR EACH ROW) .*", Pattern.DOTALL);
+
+    private BaseDatosEmbebida() {
+    }
+
+    /**
+     * Crea la base de datos vacía, el pool de conexiones que la usa y el
+     * esquema de la aplicación.
+     *
+     * @throws SQLException Si no se puede crear el esquema.
+     */
+    public static void abrir() throws SQLException {
+        System.setProperty("ejei.bd.url", URL);
+        System.setProperty("ejei.bd.usuario", "sa");
+        System.setProperty("ejei.bd.password", "");
+        ConexionBBDD.cerrarPool();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             Statement stmt = conexion.getConexion().createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+        EsquemaBBDD.inicializar(BaseDatosEmbebida::adaptar);
+    }
+
+    /**
+     * Cambia el cuerpo SQL de un disparador de {@link EsquemaBBDD} por la
+     * llamada a {@link Disparador}; las demás sentencias se ejecutan tal cual.
+     */
+    private static String adaptar(String sentencia) {
+        Matcher disparador = DISPARADOR.matcher(sentencia);
+        return disparador.matches()
+                ? disparador.group(1) + " CALL \"" + Disparador.class.getName() + "\""
+                : sentencia;
+    }
+
+    /**
+     * Disparadores de {@link EsquemaBBDD} para H2, por su nombre: numeran
+     * cada alta y modificación con la secuencia de versiones, anotan la
+     * lápida de cada baja y apuntan cada cambio en Persona_cambio. H2 los
+     * ejecuta en el orden en que se crearon, así que el cambio de una baja
+     * encuentra ya su lápida, como con FOLLOWS en MariaDB.
+     */
+    public static class Disparador implements Trigger {
+        private String nombre;
+        private int columnaId;
+        private int columnaVersion;
+
+        @Override
+        public void init(Connection conexion, String esquema, String disparador, String tabla,
+                         boolean antes, int tipo) throws SQLException {
+            nombre = disparador.toLowerCase(Locale.ROOT);
+            columnaId = -1;
+            columnaVersion = -1;
+            try (ResultSet rs = conexion.getMetaData().getColumns(null, esquema, tabla, null)) {
+                while (rs.next()) {
+                    String columna = rs.getString("COLUMN_NAME");
+                    if ("id".equalsIgnoreCase(columna)) {
+                        columnaId = rs.getInt("ORDINAL_POSITION") - 1;
+                    } else if ("version".equalsIgnoreCase(columna)) {
+                        columnaVersion = rs.getInt("ORDINAL_POSITION") - 1;
+                    }
+                }
+            }
+            if (columnaId < 0 || columnaVersion < 0) {
+                throw new SQLException("La tabla " + tabla + " no tiene las columnas id y version");
+            }
+        }
+
+        @Override
+        public void fire(Connection conexion, Object[] anterior, Object[] nueva) throws SQLException {
+            switch (nombre) {
+                case "persona_version_alta", "persona_version_cambio" -> {
+                    try (Statement stmt = conexion.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT NEXT VALUE FOR persona_version")) {
+                        rs.next();
+                        nueva[columnaVersion] = rs.getLong(1);
+                    }
+                }
+                case "persona_version_baja" -> ejecutar(conexion, "MERGE INTO Persona_borrada (id, version) KEY (id) "
+                        + "VALUES (?, NEXT VALUE FOR persona_version)", anterior[columnaId]);
+                case "persona_cambio_alta" -> ejecutar(conexion, "INSERT INTO Persona_cambio (version, id, tipo) "
+                        + "VALUES (?, ?, 'A')", nueva[columnaVersion], nueva[columnaId]);
+                case "persona_cambio_modificacion" -> ejecutar(conexion, "INSERT INTO Persona_cambio (version, id, tipo) "
+                        + "VALUES (?, ?, 'M')", nueva[columnaVersion], nueva[columnaId]);
+                case "persona_cambio_baja" -> ejecutar(conexion, "INSERT INTO Persona_cambio (version, id, tipo) "
+                        + "SELECT version, id, 'B' FROM Persona_borrada WHERE id = ?", anterior[columnaId]);
+                default -> throw new SQLException("Disparador sin equivalente en H2: " + nombre);
+            }
+        }
+
+        private static void ejecutar(Connection conexion, String sql, Object... valores) throws SQLException {
+            try (PreparedStatement pstmt = conexion.prepareStatement(sql)) {
+                for (int i = 0; i < valores.length; i++) {
+                    pstmt.setObject(i + 1, valores[i]);
+                }
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Inserta las primeras personas de {@link DatosPrueba} por lotes,
+     * ignorando las que ya existan. Sirve también para una base de datos externa.
+     *
+     * @param cantidad El número de personas.
+     * @throws SQLException Si falla la inserción.
+     */
+    public static void poblar(int cantidad) throws SQLException {
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(
+                     "INSERT IGNORE INTO Persona (nombre, apellidos, edad) VALUES (?, ?, ?)")) {
+            conexion.getConexion().setAutoCommit(false);
+            for (int i = 0; i < cantidad; i++) {
+                Persona persona = DatosPrueba.persona(i);
+                pstmt.setString(1, persona.getNombre());
+                pstmt.setString(2, persona.getApellidos());
+                pstmt.setInt(3, persona.getEdad());
+                pstmt.addBatch();
+                if (i % 1_000 == 999) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+            conexion.getConexion().commit();
+        }
+    }
+
+    /**
+     * Borra la base de datos y cierra el pool.
+     */
+    public static void cerrar() {
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             Statement stmt = conexion.getConexion().createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        } catch (SQLException e) {
+            System.out.println("Error al borrar la base de datos embebida: " + e.getMessage());
+        }
+        ConexionBBDD.cerrarPool();
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.ejei;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de los benchmarks. Ejecuta los benchmarks que indiquen
+ * los argumentos (todos si no se indica ninguno, con la sintaxis habitual
+ * de JMH) siempre con el perfilador de GC, para registrar la tasa de
+ * asignación de memoria, y guarda los resultados en JSON para comparar
+ * ejecuciones antes y después de un cambio.
+ */
+public class Benchmarks {
+
+    /**
+     * Lanza los benchmarks.
+     *
+     * @param args Argumentos de JMH (filtro de benchmarks, -p, -f, -wi...).
+     * @throws RunnerException            Si falla la ejecución.
+     * @throws CommandLineOptionException Si los argumentos no son válidos.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options opciones = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("ejei.bench.resultado", "jmh-resultados.json"))
+                .build();
+        new Runner(opciones).run();
+    }
+}
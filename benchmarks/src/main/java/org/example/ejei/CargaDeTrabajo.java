@@ -0,0 +1,306 @@
+package org.example.ejei;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de extremo a extremo: llena la base de datos con personas
+ * sintéticas (nombres y apellidos españoles y vascos) y lanza N hilos que
+ * hacen a través de {@link DaoPersona} una mezcla de altas, modificaciones,
+ * bajas y búsquedas durante un tiempo. Mide la latencia de cada operación
+ * con histogramas HdrHistogram y escribe el rendimiento y los percentiles
+ * p50/p90/p99/p99.9 en un fichero JSON para comparar ejecuciones.
+ * <p>
+ * Los argumentos son pares clave=valor:
+ * <ul>
+ *     <li>bd: embebida (H2 en memoria, por defecto) o externa (la de {@code ejei.bd.url}).</li>
+ *     <li>filas: personas iniciales (100000).</li>
+ *     <li>hilos: hilos concurrentes (8).</li>
+ *     <li>segundos: duración de la medición (30).</li>
+ *     <li>calentamiento: segundos previos que no se miden (5).</li>
+ *     <li>mezcla: pesos de alta, modificar, baja y buscar (10,30,10,50).</li>
+ *     <li>ritmo: operaciones por segundo en total; si se indica, cada hilo
+ *         mantiene su cadencia y la latencia incluye la espera acumulada
+ *         (sin omisión coordinada). Por defecto, cada hilo lanza la
+ *         siguiente operación en cuanto termina la anterior.</li>
+ *     <li>salida: fichero de resultados (carga-resultados.json).</li>
+ * </ul>
+ * El tamaño del pool se ajusta con {@code -Dejei.pool.maximo}.
+ */
+public class CargaDeTrabajo {
+    private static final String[] OPERACIONES = {"alta", "modificar", "baja", "buscar"};
+    private static final long LATENCIA_MAXIMA_NS = TimeUnit.MINUTES.toNanos(1);
+    private static final DaoPersona DAO = new DaoPersona();
+
+    private final Map<String, String> parametros;
+    private final int filas;
+    private final int hilos;
+    private final int segundos;
+    private final int calentamiento;
+    private final int[] pesos;
+    private final double ritmo;
+
+    private final AtomicLong sufijos = new AtomicLong(); // Para que las altas no choquen entre sí
+    private final ConcurrentLinkedQueue<Persona> creadas = new ConcurrentLinkedQueue<>(); // Altas que se pueden borrar
+    private List<Persona> iniciales; // Personas de la base de datos tras poblarla, con sus ids reales
+    private volatile boolean midiendo;
+    private volatile boolean terminar;
+
+    private CargaDeTrabajo(Map<String, String> parametros) {
+        this.parametros = parametros;
+        filas = Integer.parseInt(parametros.getOrDefault("filas", "100000"));
+        hilos = Integer.parseInt(parametros.getOrDefault("hilos", "8"));
+        segundos = Integer.parseInt(parametros.getOrDefault("segundos", "30"));
+        calentamiento = Integer.parseInt(parametros.getOrDefault("calentamiento", "5"));
+        String[] mezcla = parametros.getOrDefault("mezcla", "10,30,10,50").split(",");
+        if (mezcla.length != OPERACIONES.length) {
+            throw new IllegalArgumentException("La mezcla necesita " + OPERACIONES.length + " pesos");
+        }
+        pesos = new int[mezcla.length];
+        for (int i = 0; i < mezcla.length; i++) {
+            pesos[i] = Integer.parseInt(mezcla[i].trim()) + (i == 0 ? 0 : pesos[i - 1]); // Pesos acumulados
+        }
+        ritmo = Double.parseDouble(parametros.getOrDefault("ritmo", "0"));
+    }
+
+    /**
+     * Ejecuta la prueba de carga.
+     *
+     * @param args Pares clave=valor (ver la documentación de la clase).
+     * @throws Exception Si falla la preparación de la base de datos o la escritura de resultados.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> parametros = new LinkedHashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual <= 0) {
+                throw new IllegalArgumentException("Argumento no válido (se espera clave=valor): " + arg);
+            }
+            parametros.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        new CargaDeTrabajo(parametros).ejecutar();
+    }
+
+    private void ejecutar() throws SQLException, InterruptedException, IOException {
+        boolean embebida = !"externa".equals(parametros.getOrDefault("bd", "embebida"));
+        if (embebida) {
+            BaseDatosEmbebida.abrir();
+        } else {
+            EsquemaBBDD.inicializar();
+        }
+        System.out.println("Insertando " + filas + " personas...");
+        BaseDatosEmbebida.poblar(filas);
+        iniciales = leerIniciales();
+        if (iniciales.isEmpty()) {
+            throw new IllegalStateException("La base de datos no tiene personas que modificar");
+        }
+
+        List<Histogram[]> porHilo = new ArrayList<>();
+        long[][] fallosPorHilo = new long[hilos][OPERACIONES.length];
+        CountDownLatch fin = new CountDownLatch(hilos);
+        for (int h = 0; h < hilos; h++) {
+            Histogram[] histogramas = new Histogram[OPERACIONES.length];
+            for (int i = 0; i < histogramas.length; i++) {
+                histogramas[i] = new Histogram(LATENCIA_MAXIMA_NS, 3);
+            }
+            porHilo.add(histogramas);
+            long[] fallos = fallosPorHilo[h];
+            Random aleatorio = new Random(h * 7919L + 17);
+            Thread hilo = new Thread(() -> {
+                try {
+                    trabajar(aleatorio, histogramas, fallos);
+                } finally {
+                    fin.countDown();
+                }
+            }, "carga-" + h);
+            hilo.start();
+        }
+
+        System.out.println("Calentando " + calentamiento + " s...");
+        Thread.sleep(TimeUnit.SECONDS.toMillis(calentamiento));
+        midiendo = true; // Hasta ahora los hilos no anotaban nada
+        long inicio = System.nanoTime();
+        System.out.println("Midiendo " + segundos + " s con " + hilos + " hilos...");
+        Thread.sleep(TimeUnit.SECONDS.toMillis(segundos));
+        terminar = true;
+        fin.await();
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+
+        Histogram total = new Histogram(LATENCIA_MAXIMA_NS, 3);
+        Histogram[] porOperacion = new Histogram[OPERACIONES.length];
+        long[] fallos = new long[OPERACIONES.length + 1]; // La última posición es el total
+        for (int i = 0; i < OPERACIONES.length; i++) {
+            porOperacion[i] = new Histogram(LATENCIA_MAXIMA_NS, 3);
+            for (int h = 0; h < hilos; h++) {
+                porOperacion[i].add(porHilo.get(h)[i]);
+                fallos[i] += fallosPorHilo[h][i];
+            }
+            fallos[OPERACIONES.length] += fallos[i];
+            total.add(porOperacion[i]);
+        }
+
+        Path salida = Paths.get(parametros.getOrDefault("salida", "carga-resultados.json"));
+        escribirResultados(salida, transcurrido, total, porOperacion, fallos);
+        imprimir(transcurrido, total, porOperacion, fallos);
+        System.out.println("Resultados guardados en " + salida.toAbsolutePath());
+
+        if (embebida) {
+            BaseDatosEmbebida.cerrar();
+        } else {
+            ConexionBBDD.cerrarPool();
+        }
+    }
+
+    /**
+     * Bucle de un hilo: elige una operación según la mezcla, la ejecuta y
+     * anota su latencia hasta que se pide terminar.
+     */
+    private void trabajar(Random aleatorio, Histogram[] histogramas, long[] fallos) {
+        long intervalo = ritmo > 0 ? (long) (1e9 * hilos / ritmo) : 0; // Cadencia de cada hilo
+        long siguiente = System.nanoTime();
+        while (!terminar) {
+            if (intervalo > 0) {
+                long espera = siguiente - System.nanoTime();
+                if (espera > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(espera);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            int operacion = elegir(aleatorio);
+            long comienzo = intervalo > 0 ? siguiente : System.nanoTime(); // Con ritmo, desde cuando debía empezar
+            boolean correcta = operar(operacion, aleatorio);
+            long latencia = System.nanoTime() - comienzo;
+            siguiente += intervalo;
+
+            if (midiendo) {
+                histogramas[operacion].recordValue(Math.min(latencia, LATENCIA_MAXIMA_NS));
+                if (!correcta) {
+                    fallos[operacion]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee por páginas las personas que hay en la base de datos: los ids no
+     * tienen por qué ser 1..filas (INSERT IGNORE descarta los duplicados y
+     * una base de datos externa puede tener ya personas o ids gastados).
+     */
+    private static List<Persona> leerIniciales() {
+        List<Persona> personas = new ArrayList<>();
+        long ultimoId = 0;
+        while (true) {
+            Pagina pagina = DAO.cargarPagina(ultimoId, 10_000);
+            if (pagina == null) {
+                throw new IllegalStateException("No se pudo leer la página de personas tras el id " + ultimoId);
+            }
+            if (pagina.getPersonas().isEmpty()) {
+                return personas;
+            }
+            personas.addAll(pagina.getPersonas());
+            ultimoId = pagina.getUltimoId();
+        }
+    }
+
+    private int elegir(Random aleatorio) {
+        int valor = aleatorio.nextInt(pesos[pesos.length - 1]);
+        for (int i = 0; i < pesos.length; i++) {
+            if (valor < pesos[i]) {
+                return i;
+            }
+        }
+        return pesos.length - 1;
+    }
+
+    /**
+     * Ejecuta una operación contra el DAO.
+     *
+     * @return false si el DAO informó de un error.
+     */
+    private boolean operar(int operacion, Random aleatorio) {
+        switch (operacion) {
+            case 0: {
+                Persona persona = DatosPrueba.aleatoria(aleatorio, sufijos.incrementAndGet());
+                boolean creada = DAO.crearPersona(persona) == RepositorioPersonas.Alta.CREADA;
+                if (creada) {
+                    creadas.add(persona);
+                }
+                return creada;
+            }
+            case 1: {
+                Persona actual = iniciales.get(aleatorio.nextInt(iniciales.size()));
+                Persona nueva = new Persona(actual.getId(), actual.getNombre(), actual.getApellidos(), aleatorio.nextInt(100));
+                return DAO.modificarPersona(actual, nueva);
+            }
+            case 2: {
+                Persona persona = creadas.poll(); // Solo se borran altas de la propia prueba
+                return persona == null || DAO.eliminarPersona(persona);
+            }
+            default:
+                DAO.buscarPersonas(DatosPrueba.prefijoAleatorio(aleatorio), null, 50);
+                return true;
+        }
+    }
+
+    private void escribirResultados(Path salida, double transcurrido, Histogram total,
+                                    Histogram[] porOperacion, long[] fallos) throws IOException {
+        try (Writer out = Files.newBufferedWriter(salida, StandardCharsets.UTF_8)) {
+            out.write("{\n  \"parametros\": {");
+            out.write(String.format(Locale.ROOT, "\"filas\": %d, \"hilos\": %d, \"segundos\": %d, "
+                            + "\"calentamiento\": %d, \"ritmo\": %.1f, \"poolMaximo\": %d, \"bd\": \"%s\"},\n",
+                    filas, hilos, segundos, calentamiento, ritmo, Integer.getInteger("ejei.pool.maximo", 10),
+                    parametros.getOrDefault("bd", "embebida")));
+            out.write(String.format(Locale.ROOT, "  \"duracionSegundos\": %.3f,\n", transcurrido));
+            out.write("  \"total\": " + json(total, fallos[OPERACIONES.length], transcurrido) + ",\n");
+            out.write("  \"operaciones\": {\n");
+            for (int i = 0; i < OPERACIONES.length; i++) {
+                out.write("    \"" + OPERACIONES[i] + "\": " + json(porOperacion[i], fallos[i], transcurrido)
+                        + (i + 1 < OPERACIONES.length ? ",\n" : "\n"));
+            }
+            out.write("  }\n}\n");
+        }
+    }
+
+    private static String json(Histogram h, long fallos, double segundos) {
+        return String.format(Locale.ROOT, "{\"operaciones\": %d, \"fallos\": %d, \"porSegundo\": %.1f, "
+                        + "\"mediaUs\": %.1f, \"p50Us\": %.1f, \"p90Us\": %.1f, \"p99Us\": %.1f, "
+                        + "\"p999Us\": %.1f, \"maxUs\": %.1f}",
+                h.getTotalCount(), fallos, h.getTotalCount() / segundos, h.getMean() / 1e3,
+                h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(90) / 1e3,
+                h.getValueAtPercentile(99) / 1e3, h.getValueAtPercentile(99.9) / 1e3, h.getMaxValue() / 1e3);
+    }
+
+    private static void imprimir(double transcurrido, Histogram total, Histogram[] porOperacion, long[] fallos) {
+        System.out.printf(Locale.ROOT, "%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operación", "total", "fallos", "op/s", "p50 µs", "p99 µs", "p99.9 µs", "máx µs");
+        for (int i = 0; i <= OPERACIONES.length; i++) {
+            Histogram h = i < OPERACIONES.length ? porOperacion[i] : total;
+            System.out.printf(Locale.ROOT, "%-10s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    i < OPERACIONES.length ? OPERACIONES[i] : "total", h.getTotalCount(),
+                    fallos[i], h.getTotalCount() / transcurrido,
+                    h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(99) / 1e3,
+                    h.getValueAtPercentile(99.9) / 1e3, h.getMaxValue() / 1e3);
+        }
+    }
+}
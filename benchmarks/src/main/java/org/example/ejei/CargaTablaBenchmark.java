@@ -0,0 +1,70 @@
+package org.example.ejei;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga de la tabla entera: con {@link DaoPersona#cargarListadoPersonas()}
+ * en una lista de objetos y por páginas en un {@link AlmacenPersonas},
+ * como hace la tabla en modo en memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CargaTablaBenchmark {
+    private static final DaoPersona DAO = new DaoPersona();
+
+    @Param({"10000", "100000", "1000000"})
+    private int filas;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        BaseDatosEmbebida.abrir();
+        BaseDatosEmbebida.poblar(filas);
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() {
+        BaseDatosEmbebida.cerrar();
+    }
+
+    @Benchmark
+    public List<Persona> cargarListado() {
+        return DAO.cargarListadoPersonas();
+    }
+
+    @Benchmark
+    public AlmacenPersonas cargarEnAlmacen() {
+        AlmacenPersonas almacen = new AlmacenPersonas();
+        long ultimoId = 0;
+        while (true) {
+            Pagina pagina = DAO.cargarPagina(ultimoId, 200);
+            if (pagina == null) {
+                throw new IllegalStateException("No se pudo leer la página de personas tras el id " + ultimoId);
+            }
+            if (pagina.getPersonas().isEmpty()) {
+                return almacen;
+            }
+            almacen.addAll(pagina.getPersonas());
+            ultimoId = pagina.getUltimoId();
+        }
+    }
+}
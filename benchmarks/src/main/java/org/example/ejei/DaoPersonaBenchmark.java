@@ -0,0 +1,108 @@
+package org.example.ejei;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones CRUD de {@link DaoPersona} contra la base de datos embebida,
+ * y de {@link RegistroPersonas} contra un registro en un fichero temporal:
+ * alta y baja, modificación por id, lectura de una página por clave y
+ * búsqueda por prefijo sin caché.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoPersonaBenchmark {
+
+    @Param({"10000", "100000"})
+    private int filas;
+
+    @Param({"baseDeDatos", "registro"})
+    private String repositorio;
+
+    private RepositorioPersonas personas;
+    private Path registro; // Fichero del registro embebido (null con la base de datos)
+
+    private Persona existente; // Persona que se modifica una y otra vez
+    private int contador; // Para dar de alta personas siempre distintas
+    private long siguienteId; // Posición de la próxima página a leer
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException, IOException {
+        if ("registro".equals(repositorio)) {
+            registro = Files.createTempDirectory("ejei-registro").resolve("personas.log");
+            RegistroPersonas abierto = RegistroPersonas.abrir(registro);
+            for (int i = 0; i < filas; i++) {
+                abierto.crearPersona(DatosPrueba.persona(i));
+            }
+            personas = abierto;
+        } else {
+            BaseDatosEmbebida.abrir();
+            BaseDatosEmbebida.poblar(filas);
+            personas = new DaoPersona();
+        }
+        existente = personas.cargarPagina(0, 1).getPersonas().get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        if (personas instanceof RegistroPersonas abierto) {
+            abierto.cerrar();
+            Files.deleteIfExists(registro);
+            Files.deleteIfExists(Paths.get(registro + ".idx"));
+            Files.deleteIfExists(registro.getParent());
+        } else {
+            BaseDatosEmbebida.cerrar();
+        }
+    }
+
+    @Benchmark
+    public boolean altaYBaja() {
+        Persona persona = new Persona("Benchmark", "Alta " + contador++, 30);
+        personas.crearPersona(persona);
+        return personas.eliminarPersona(persona);
+    }
+
+    @Benchmark
+    public boolean modificar() {
+        Persona nueva = new Persona(existente.getId(), existente.getNombre(), existente.getApellidos(),
+                existente.getEdad() == 30 ? 31 : 30);
+        boolean modificada = personas.modificarPersona(existente, nueva);
+        existente.setEdad(nueva.getEdad());
+        return modificada;
+    }
+
+    @Benchmark
+    public Pagina leerPagina() {
+        Pagina pagina = personas.cargarPagina(siguienteId, 200);
+        siguienteId = pagina.getPersonas().size() < 200 ? 0 : pagina.getUltimoId();
+        return pagina;
+    }
+
+    @Benchmark
+    public Pagina buscarPorPrefijo() {
+        DaoPersona.invalidarBusquedas(); // Medir la consulta, no la caché de búsquedas
+        return personas.buscarPersonas("Mar", null, 200);
+    }
+}
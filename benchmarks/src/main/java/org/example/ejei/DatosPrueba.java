@@ -0,0 +1,89 @@
+package org.example.ejei;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Genera personas de prueba deterministas para los benchmarks, con nombres
+ * y apellidos repetidos como en una agenda real. Cada índice da siempre la
+ * misma persona y no hay dos índices con el mismo nombre y apellidos.
+ */
+public class DatosPrueba {
+    private static final String[] NOMBRES = {
+            "María", "José", "Antonio", "Carmen", "Manuel", "Ana", "Francisco", "Isabel", "David", "Laura",
+            "Juan", "Cristina", "Javier", "Marta", "Daniel", "Lucía", "Carlos", "Elena", "Miguel", "Paula",
+            "Alejandro", "Sara", "Rafael", "Pilar", "Pedro", "Raquel", "Pablo", "Nerea", "Ángel", "Ainhoa",
+            "Iker", "Amaia", "Jon", "Leire", "Mikel", "Itziar", "Unai", "Maite", "Asier", "Irati"
+    };
+    private static final String[] APELLIDOS = {
+            "García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez", "Pérez", "Gómez", "Martín",
+            "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez", "Romero", "Alonso", "Gutiérrez",
+            "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos", "Gil", "Ramírez", "Serrano", "Blanco", "Molina",
+            "Morales", "Suárez", "Ortega", "Delgado", "Castro", "Ortiz", "Rubio", "Marín", "Sanz", "Núñez",
+            "Etxeberria", "Aguirre", "Garmendia", "Urrutia", "Zubizarreta", "Goikoetxea", "Arrieta", "Elizondo",
+            "Iturbe", "Olano", "Larrañaga", "Mendizabal", "Azkue", "Ibarra", "Lizarraga", "Uriarte", "Zabala",
+            "Beitia", "Otxoa", "Intxausti"
+    };
+    private static final int COMBINACIONES = NOMBRES.length * APELLIDOS.length * APELLIDOS.length;
+
+    private DatosPrueba() {
+    }
+
+    /**
+     * Devuelve la persona de prueba de un índice.
+     *
+     * @param i El índice (no negativo).
+     * @return Una persona nueva, sin id.
+     */
+    public static Persona persona(int i) {
+        String nombre = NOMBRES[i % NOMBRES.length];
+        int resto = i / NOMBRES.length;
+        String apellidos = APELLIDOS[resto % APELLIDOS.length] + " "
+                + APELLIDOS[(resto / APELLIDOS.length) % APELLIDOS.length];
+        if (i >= COMBINACIONES) {
+            apellidos += " " + (i / COMBINACIONES); // Mantener la clave única en tablas muy grandes
+        }
+        return new Persona(nombre, apellidos, 18 + i % 80);
+    }
+
+    /**
+     * Devuelve una persona aleatoria. El sufijo se añade a los apellidos
+     * para que no choque con ninguna otra (ni con las de {@link #persona(int)}).
+     *
+     * @param aleatorio El generador de números aleatorios.
+     * @param sufijo    Un número distinto para cada llamada.
+     * @return Una persona nueva, sin id.
+     */
+    public static Persona aleatoria(Random aleatorio, long sufijo) {
+        return new Persona(NOMBRES[aleatorio.nextInt(NOMBRES.length)],
+                APELLIDOS[aleatorio.nextInt(APELLIDOS.length)] + " "
+                        + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)] + " #" + sufijo,
+                aleatorio.nextInt(100));
+    }
+
+    /**
+     * Devuelve el principio (de una a tres letras) de un nombre al azar, para búsquedas.
+     *
+     * @param aleatorio El generador de números aleatorios.
+     * @return El prefijo.
+     */
+    public static String prefijoAleatorio(Random aleatorio) {
+        String nombre = NOMBRES[aleatorio.nextInt(NOMBRES.length)];
+        return nombre.substring(0, 1 + aleatorio.nextInt(Math.min(3, nombre.length())));
+    }
+
+    /**
+     * Devuelve las primeras personas de prueba.
+     *
+     * @param cantidad El número de personas.
+     * @return Una lista con las personas de los índices 0 a cantidad - 1.
+     */
+    public static List<Persona> personas(int cantidad) {
+        List<Persona> personas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            personas.add(persona(i));
+        }
+        return personas;
+    }
+}
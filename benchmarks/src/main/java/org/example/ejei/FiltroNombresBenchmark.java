@@ -0,0 +1,84 @@
+package org.example.ejei;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Filtrado por nombre como el de {@link HelloController}: recorriendo todas
+ * las personas (el filtro original) y con {@link IndiceNombres}, tanto la
+ * consulta sobre el índice como aplicar el predicado a los códigos de
+ * nombre de todo el almacén, que es lo que hace {@link VistaPersonas} al
+ * filtrar la tabla.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FiltroNombresBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int filas;
+
+    @Param({"a", "mar", "xyz"})
+    private String texto;
+
+    private List<Persona> lista; // Personas como objetos normales
+    private AlmacenPersonas almacen; // Las mismas personas en el almacén por columnas
+    private IndiceNombres indice;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        lista = DatosPrueba.personas(filas);
+        almacen = new AlmacenPersonas();
+        almacen.addAll(lista);
+        indice = new IndiceNombres(almacen);
+    }
+
+    @Benchmark
+    public int recorridoLineal() {
+        String buscado = texto.toLowerCase(Locale.ROOT);
+        int coincidencias = 0;
+        for (Persona persona : lista) {
+            if (persona.getNombre().toLowerCase(Locale.ROOT).contains(buscado)) {
+                coincidencias++;
+            }
+        }
+        return coincidencias;
+    }
+
+    @Benchmark
+    public IndiceNombres.Resultado consultaIndice() {
+        indice.prepararConsulta(""); // Olvidar la búsqueda anterior para no medir solo el refinamiento
+        return indice.prepararConsulta(texto).ejecutar(() -> false);
+    }
+
+    @Benchmark
+    public int filtradoConIndice() {
+        indice.prepararConsulta("");
+        IntPredicate predicado = indice.buscar(texto);
+        int coincidencias = 0;
+        for (int i = 0; i < almacen.size(); i++) {
+            if (predicado.test(almacen.codigoNombreEn(i))) {
+                coincidencias++;
+            }
+        }
+        return coincidencias;
+    }
+}
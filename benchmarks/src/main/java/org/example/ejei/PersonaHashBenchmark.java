@@ -0,0 +1,78 @@
+package org.example.ejei;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Persona#equals} y {@link Persona#hashCode} dentro de colecciones
+ * hash, comparados con la búsqueda lineal que usaba la comprobación de
+ * duplicados y con {@link IndiceClaves}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonaHashBenchmark {
+
+    @Param({"10000", "100000"})
+    private int tamano;
+
+    private List<Persona> lista;
+    private Set<Persona> conjunto;
+    private IndiceClaves claves;
+    private Persona buscada; // Copia (otro objeto) de una persona de la mitad de la lista
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        lista = DatosPrueba.personas(tamano);
+        conjunto = new HashSet<>(lista);
+        AlmacenPersonas almacen = new AlmacenPersonas();
+        almacen.addAll(lista);
+        claves = new IndiceClaves(almacen);
+        buscada = DatosPrueba.persona(tamano / 2);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Set<Persona> construirHashSet() {
+        return new HashSet<>(lista);
+    }
+
+    @Benchmark
+    public int hashCodeDeUna() {
+        return buscada.hashCode();
+    }
+
+    @Benchmark
+    public boolean contieneHashSet() {
+        return conjunto.contains(buscada);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean contieneLineal() {
+        return lista.contains(buscada);
+    }
+
+    @Benchmark
+    public boolean contieneIndiceClaves() {
+        return claves.contiene(buscada.getNombre(), buscada.getApellidos());
+    }
+}
@@ -2,6 +2,7 @@ module org.example.ejei {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.management;
 
 
     opens org.example.ejei to javafx.fxml;
@@ -0,0 +1,565 @@
+package org.example.ejei;
+
+import javafx.collections.ModifiableObservableListBase;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lista observable de personas guardada por columnas: ids y edades en
+ * arrays de int, y nombres y apellidos como códigos de un
+ * {@link DiccionarioCadenas} compartido, de modo que cada nombre o apellido
+ * repetido ocupa un único String. Las filas se guardan en huecos estables
+ * (que se reutilizan al borrar) y el orden de la lista es un array de huecos.
+ * Los objetos {@link Persona} que devuelve son {@link PersonaAlmacenada}
+ * ligeras que se crean al pedir cada fila y leen y escriben directamente en
+ * las columnas. El almacén solo las recuerda con referencias débiles: una
+ * fila devuelve siempre el mismo objeto mientras alguien lo use (una celda
+ * visible, la selección), pero recorrer la lista no deja en memoria un
+ * objeto por fila ni sus propiedades. Las personas que se añaden se
+ * copian en las columnas; la lista no guarda el objeto recibido.
+ * Las ediciones en sitio (con los setters de esas personas) no cambian la
+ * lista; quien necesite el valor anterior, o seguir las personas por su
+ * hueco, puede registrarse con {@link #escucharHuecos(OyenteHuecos)}.
+ * Debe usarse únicamente desde el hilo de JavaFX.
+ */
+public class AlmacenPersonas extends ModifiableObservableListBase<Persona> {
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private final DiccionarioCadenas cadenas = new DiccionarioCadenas(); // Nombres y apellidos distintos
+
+    // Columnas, indexadas por hueco
+    private int[] ids = new int[CAPACIDAD_INICIAL];
+    private int[] nombres = new int[CAPACIDAD_INICIAL];
+    private int[] apellidos = new int[CAPACIDAD_INICIAL];
+    private int[] edades = new int[CAPACIDAD_INICIAL];
+    private Vista[] vistas = new Vista[CAPACIDAD_INICIAL]; // Personas ya creadas por hueco, mientras se usen
+    private final ReferenceQueue<PersonaAlmacenada> vistasOlvidadas = new ReferenceQueue<>(); // Vistas que ya nadie usa
+    private int huecos; // Huecos usados alguna vez
+
+    private int[] libres = new int[16]; // Huecos borrados, para reutilizarlos
+    private int numLibres;
+
+    private int[] orden = new int[CAPACIDAD_INICIAL]; // Posición en la lista -> hueco
+    private int tamano; // Número de personas
+
+    private final List<OyenteHuecos> oyentesHuecos = new ArrayList<>();
+    private final Columnas columnas = new Columnas() {
+        @Override
+        public int codigoNombreDe(int hueco) {
+            return nombres[hueco];
+        }
+
+        @Override
+        public int codigoApellidosDe(int hueco) {
+            return apellidos[hueco];
+        }
+
+        @Override
+        public int edadDe(int hueco) {
+            return edades[hueco];
+        }
+
+        @Override
+        public String cadena(int codigo) {
+            return cadenas.cadena(codigo);
+        }
+    };
+
+    /**
+     * Lectura por hueco de las columnas de nombres, apellidos y edades, con
+     * las cadenas de sus códigos: la del propio almacén ({@link #columnas()}),
+     * solo desde el hilo de JavaFX, o una copia ({@link #copiarColumnas()})
+     * que puede leerse desde cualquier hilo.
+     */
+    public interface Columnas {
+        /**
+         * @param hueco El hueco.
+         * @return El código del nombre.
+         */
+        int codigoNombreDe(int hueco);
+
+        /**
+         * @param hueco El hueco.
+         * @return El código de los apellidos.
+         */
+        int codigoApellidosDe(int hueco);
+
+        /**
+         * @param hueco El hueco.
+         * @return La edad.
+         */
+        int edadDe(int hueco);
+
+        /**
+         * @param codigo El código de un nombre o unos apellidos.
+         * @return La cadena, o null si el código es -1.
+         */
+        String cadena(int codigo);
+    }
+
+    /**
+     * Copia de las columnas tomada con {@link #copiarColumnas()}; no cambia
+     * con el almacén.
+     */
+    private static class CopiaColumnas implements Columnas {
+        private final int[] nombres;
+        private final int[] apellidos;
+        private final int[] edades;
+        private final String[] cadenas;
+
+        CopiaColumnas(int[] nombres, int[] apellidos, int[] edades, String[] cadenas) {
+            this.nombres = nombres;
+            this.apellidos = apellidos;
+            this.edades = edades;
+            this.cadenas = cadenas;
+        }
+
+        @Override
+        public int codigoNombreDe(int hueco) {
+            return nombres[hueco];
+        }
+
+        @Override
+        public int codigoApellidosDe(int hueco) {
+            return apellidos[hueco];
+        }
+
+        @Override
+        public int edadDe(int hueco) {
+            return edades[hueco];
+        }
+
+        @Override
+        public String cadena(int codigo) {
+            return codigo < 0 ? null : cadenas[codigo];
+        }
+    }
+
+    /**
+     * Recibe, por hueco, las personas que entran y salen del almacén y las
+     * ediciones en sitio de cada columna, con el valor anterior. Se llama durante el cambio, antes que los oyentes de la lista.
+     */
+    public interface OyenteHuecos {
+        /**
+         * Una persona se ha copiado en un hueco.
+         *
+         * @param hueco El hueco.
+         */
+        default void ocupado(int hueco) {
+        }
+
+        /**
+         * Una persona va a salir de un hueco; sus valores aún se pueden leer.
+         *
+         * @param hueco El hueco.
+         */
+        default void liberado(int hueco) {
+        }
+
+        /**
+         * @param hueco    El hueco.
+         * @param anterior El id anterior.
+         * @param nuevo    El id nuevo.
+         */
+        default void idCambiado(int hueco, int anterior, int nuevo) {
+        }
+
+        /**
+         * @param hueco    El hueco.
+         * @param anterior El código del nombre anterior en {@link #getCadenas()}.
+         * @param nuevo    El código del nombre nuevo.
+         */
+        default void nombreCambiado(int hueco, int anterior, int nuevo) {
+        }
+
+        /**
+         * @param hueco    El hueco.
+         * @param anterior La edad anterior.
+         * @param nueva    La edad nueva.
+         */
+        default void edadCambiada(int hueco, int anterior, int nueva) {
+        }
+
+        /**
+         * @param hueco    El hueco.
+         * @param anterior El código de los apellidos anteriores en {@link #getCadenas()}.
+         * @param nuevo    El código de los apellidos nuevos.
+         */
+        default void apellidosCambiados(int hueco, int anterior, int nuevo) {
+        }
+    }
+
+    /**
+     * Obtiene la persona de una posición, creando su objeto ligero si aún no existe.
+     *
+     * @param index La posición.
+     * @return La persona de esa posición.
+     */
+    @Override
+    public Persona get(int index) {
+        return enHueco(orden[Objects.checkIndex(index, tamano)]);
+    }
+
+    /**
+     * Referencia débil a la persona ligera de un hueco, que recuerda el
+     * hueco para quitarla de {@code vistas} cuando ya nadie la usa.
+     */
+    private static class Vista extends WeakReference<PersonaAlmacenada> {
+        private final int hueco;
+
+        Vista(PersonaAlmacenada persona, ReferenceQueue<PersonaAlmacenada> cola) {
+            super(persona, cola);
+            this.hueco = persona.getHueco();
+        }
+    }
+
+    /**
+     * Obtiene la persona de un hueco ocupado: la misma que se devolvió antes
+     * si alguien la sigue usando o, si no, un objeto ligero nuevo.
+     *
+     * @param hueco El hueco.
+     * @return La persona de ese hueco.
+     */
+    Persona enHueco(int hueco) {
+        olvidarVistas();
+        PersonaAlmacenada persona = vistas[hueco] == null ? null : vistas[hueco].get();
+        if (persona == null) {
+            persona = new PersonaAlmacenada(this, hueco);
+            vistas[hueco] = new Vista(persona, vistasOlvidadas);
+        }
+        return persona;
+    }
+
+    /**
+     * Quita de {@code vistas} las referencias a personas que el recolector ya ha liberado.
+     */
+    private void olvidarVistas() {
+        Reference<? extends PersonaAlmacenada> olvidada;
+        while ((olvidada = vistasOlvidadas.poll()) != null) {
+            int hueco = ((Vista) olvidada).hueco;
+            if (vistas[hueco] == olvidada) {
+                vistas[hueco] = null;
+            }
+        }
+    }
+
+    /**
+     * Devuelve el número de personas.
+     *
+     * @return El tamaño de la lista.
+     */
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    /**
+     * Busca una persona. Las personas de este almacén se localizan por su
+     * hueco recorriendo solo el array de orden; las demás se comparan por valor.
+     *
+     * @param o La persona a buscar.
+     * @return Su posición, o -1 si no está.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof PersonaAlmacenada vista && vista.estaEn(this)) {
+            int hueco = vista.getHueco();
+            for (int i = 0; i < tamano; i++) {
+                if (orden[i] == hueco) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        return super.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    protected void doAdd(int index, Persona persona) {
+        Objects.checkIndex(index, tamano + 1);
+        int hueco = reservarHueco();
+        escribir(hueco, persona);
+        avisarOcupado(hueco);
+        if (tamano == orden.length) {
+            orden = Arrays.copyOf(orden, tamano * 2);
+        }
+        System.arraycopy(orden, index, orden, index + 1, tamano - index);
+        orden[index] = hueco;
+        tamano++;
+    }
+
+    @Override
+    protected Persona doSet(int index, Persona persona) {
+        Objects.checkIndex(index, tamano);
+        int hueco = orden[index];
+        avisarLiberado(hueco);
+        Persona anterior = soltar(hueco);
+        escribir(hueco, persona);
+        avisarOcupado(hueco);
+        return anterior;
+    }
+
+    @Override
+    protected Persona doRemove(int index) {
+        Objects.checkIndex(index, tamano);
+        int hueco = orden[index];
+        avisarLiberado(hueco);
+        Persona anterior = soltar(hueco);
+        System.arraycopy(orden, index + 1, orden, index, tamano - index - 1);
+        tamano--;
+        if (numLibres == libres.length) {
+            libres = Arrays.copyOf(libres, numLibres * 2);
+        }
+        libres[numLibres++] = hueco;
+        return anterior;
+    }
+
+    /**
+     * Quita las personas de varios huecos con un único cambio de la lista,
+     * sin crear los objetos de las demás.
+     *
+     * @param quitar Los huecos a quitar; los que no estén ocupados se ignoran.
+     */
+    void quitarHuecos(BitSet quitar) {
+        beginChange();
+        try {
+            for (int i = tamano - 1; i >= 0; i--) {
+                if (quitar.get(orden[i])) {
+                    remove(i);
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * Copia el orden de la lista.
+     *
+     * @return Los huecos de las personas, en el orden de la lista.
+     */
+    int[] huecos() {
+        return Arrays.copyOf(orden, tamano);
+    }
+
+    /**
+     * Obtiene las columnas del almacén, que siguen sus cambios.
+     *
+     * @return Las columnas; solo pueden leerse desde el hilo de JavaFX.
+     */
+    public Columnas columnas() {
+        return columnas;
+    }
+
+    /**
+     * Copia las columnas de los huecos usados y las cadenas del diccionario
+     * para leerlas desde otro hilo, por ejemplo para ordenar en segundo plano.
+     *
+     * @return La copia, que no cambia con el almacén.
+     */
+    public Columnas copiarColumnas() {
+        return new CopiaColumnas(Arrays.copyOf(nombres, huecos), Arrays.copyOf(apellidos, huecos),
+                Arrays.copyOf(edades, huecos), cadenas.copiarCadenas());
+    }
+
+    /**
+     * Obtiene el hueco de la persona de una posición.
+     *
+     * @param index La posición.
+     * @return El hueco, estable mientras la persona siga en el almacén.
+     */
+    int huecoEn(int index) {
+        return orden[Objects.checkIndex(index, tamano)];
+    }
+
+    /**
+     * Obtiene el id de la persona de una posición sin crear su objeto.
+     *
+     * @param index La posición.
+     * @return El id.
+     */
+    public int idEn(int index) {
+        return ids[orden[Objects.checkIndex(index, tamano)]];
+    }
+
+    /**
+     * Obtiene la edad de la persona de una posición sin crear su objeto.
+     *
+     * @param index La posición.
+     * @return La edad.
+     */
+    public int edadEn(int index) {
+        return edades[orden[Objects.checkIndex(index, tamano)]];
+    }
+
+    /**
+     * Obtiene el código del nombre de la persona de una posición sin crear su objeto.
+     *
+     * @param index La posición.
+     * @return El código del nombre en {@link #getCadenas()}.
+     */
+    public int codigoNombreEn(int index) {
+        return nombres[orden[Objects.checkIndex(index, tamano)]];
+    }
+
+    /**
+     * Obtiene el código de los apellidos de la persona de una posición sin crear su objeto.
+     *
+     * @param index La posición.
+     * @return El código de los apellidos en {@link #getCadenas()}.
+     */
+    public int codigoApellidosEn(int index) {
+        return apellidos[orden[Objects.checkIndex(index, tamano)]];
+    }
+
+    /**
+     * Obtiene el diccionario de nombres y apellidos del almacén.
+     *
+     * @return El diccionario de cadenas.
+     */
+    public DiccionarioCadenas getCadenas() {
+        return cadenas;
+    }
+
+    /**
+     * Registra quien debe recibir las altas y bajas de huecos y las ediciones en sitio.
+     *
+     * @param oyente El oyente.
+     */
+    public void escucharHuecos(OyenteHuecos oyente) {
+        oyentesHuecos.add(oyente);
+    }
+
+    /**
+     * Deja de enviar los cambios de huecos a un oyente.
+     *
+     * @param oyente El oyente.
+     */
+    public void dejarDeEscucharHuecos(OyenteHuecos oyente) {
+        oyentesHuecos.remove(oyente);
+    }
+
+    // Acceso por hueco para PersonaAlmacenada
+
+    int idDe(int hueco) {
+        return ids[hueco];
+    }
+
+    String nombreDe(int hueco) {
+        return cadenas.cadena(nombres[hueco]);
+    }
+
+    String apellidosDe(int hueco) {
+        return cadenas.cadena(apellidos[hueco]);
+    }
+
+    int edadDe(int hueco) {
+        return edades[hueco];
+    }
+
+    int codigoNombreDe(int hueco) {
+        return nombres[hueco];
+    }
+
+    int codigoApellidosDe(int hueco) {
+        return apellidos[hueco];
+    }
+
+    void guardarId(int hueco, int id) {
+        int anterior = ids[hueco];
+        ids[hueco] = id;
+        for (OyenteHuecos oyente : oyentesHuecos) {
+            oyente.idCambiado(hueco, anterior, id);
+        }
+    }
+
+    void guardarNombre(int hueco, String nombre) {
+        int anterior = nombres[hueco];
+        nombres[hueco] = cadenas.codificar(nombre);
+        for (OyenteHuecos oyente : oyentesHuecos) {
+            oyente.nombreCambiado(hueco, anterior, nombres[hueco]);
+        }
+    }
+
+    void guardarApellidos(int hueco, String valor) {
+        int anterior = apellidos[hueco];
+        apellidos[hueco] = cadenas.codificar(valor);
+        for (OyenteHuecos oyente : oyentesHuecos) {
+            oyente.apellidosCambiados(hueco, anterior, apellidos[hueco]);
+        }
+    }
+
+    void guardarEdad(int hueco, int edad) {
+        int anterior = edades[hueco];
+        edades[hueco] = edad;
+        for (OyenteHuecos oyente : oyentesHuecos) {
+            oyente.edadCambiada(hueco, anterior, edad);
+        }
+    }
+
+    private void avisarOcupado(int hueco) {
+        for (OyenteHuecos oyente : oyentesHuecos) {
+            oyente.ocupado(hueco);
+        }
+    }
+
+    private void avisarLiberado(int hueco) {
+        for (OyenteHuecos oyente : oyentesHuecos) {
+            oyente.liberado(hueco);
+        }
+    }
+
+    /**
+     * Devuelve un hueco libre, reutilizando uno borrado o ampliando las columnas.
+     */
+    private int reservarHueco() {
+        if (numLibres > 0) {
+            return libres[--numLibres];
+        }
+        if (huecos == ids.length) {
+            int capacidad = huecos * 2;
+            ids = Arrays.copyOf(ids, capacidad);
+            nombres = Arrays.copyOf(nombres, capacidad);
+            apellidos = Arrays.copyOf(apellidos, capacidad);
+            edades = Arrays.copyOf(edades, capacidad);
+            vistas = Arrays.copyOf(vistas, capacidad);
+        }
+        return huecos++;
+    }
+
+    /**
+     * Copia los valores de una persona en las columnas de un hueco.
+     */
+    private void escribir(int hueco, Persona persona) {
+        ids[hueco] = persona.getId();
+        nombres[hueco] = cadenas.codificar(persona.getNombre());
+        apellidos[hueco] = cadenas.codificar(persona.getApellidos());
+        edades[hueco] = persona.getEdad();
+    }
+
+    /**
+     * Desliga del almacén la persona de un hueco y la devuelve con sus
+     * valores; si nadie la estaba usando, crea una persona normal con ellos.
+     */
+    private Persona soltar(int hueco) {
+        PersonaAlmacenada persona = vistas[hueco] == null ? null : vistas[hueco].get();
+        vistas[hueco] = null;
+        if (persona == null) {
+            return new Persona(ids[hueco], nombreDe(hueco), apellidosDe(hueco), edades[hueco]);
+        }
+        persona.desvincular();
+        return persona;
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.ejei;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Arranque en paralelo de la aplicación. Desde {@code main}, antes de
+ * lanzar JavaFX, pone en marcha en hilos virtuales la creación del pool de
+ * conexiones, la actualización del esquema y la escritura diferida (o la
+ * apertura del registro embebido, ver {@link Repositorio}), la
+ * lectura de los mensajes de la interfaz, la de la instantánea de la tabla
+ * guardada al cerrar ({@link InstantaneaPersonas}) y, en cuanto la base de datos está lista,
+ * los datos de la primera pantalla (número de personas, versión y primera
+ * página). Mientras tanto JavaFX arranca y se lee el FXML, de modo que la
+ * ventana se muestra sin esperar a la base de datos.
+ * Cada paso anota un hito y, cuando la tabla muestra sus primeros datos,
+ * se escribe en la salida estándar un informe con los tiempos desde el
+ * arranque de la JVM.
+ */
+public class Arranque {
+    private static final ExecutorService EJECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final long INICIO_MAIN = System.nanoTime(); // La clase se carga al empezar main
+    private static final List<Hito> HITOS = new ArrayList<>(); // Pasos terminados, en orden
+    private static final AtomicBoolean INFORMADO = new AtomicBoolean();
+
+    private static volatile CompletableFuture<Void> baseDeDatos = CompletableFuture.completedFuture(null);
+    private static final AtomicReference<CompletableFuture<DatosIniciales>> DATOS = new AtomicReference<>();
+    private static final AtomicReference<CompletableFuture<InstantaneaPersonas>> INSTANTANEA = new AtomicReference<>();
+
+    private Arranque() {
+    }
+
+    /**
+     * Paso del arranque terminado.
+     */
+    private static class Hito {
+        private final String nombre;
+        private final String hilo;
+        private final long ms; // Milisegundos desde el principio de main
+
+        Hito(String nombre, String hilo, long ms) {
+            this.nombre = nombre;
+            this.hilo = hilo;
+            this.ms = ms;
+        }
+    }
+
+    /**
+     * Datos que necesita la primera pantalla, leídos durante el arranque.
+     */
+    public static class DatosIniciales {
+        private final int total;
+        private final long version;
+        private final Pagina primeraPagina;
+
+        DatosIniciales(int total, long version, Pagina primeraPagina) {
+            this.total = total;
+            this.version = version;
+            this.primeraPagina = primeraPagina;
+        }
+
+        /**
+         * @return El número de personas de la tabla, o -1 si no se pudo contar.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return La versión asentada de la tabla tomada antes de leer la primera página
+         *         (-1 si no se conoce o si la tabla se mostrará paginada).
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return La primera página por id, o null si la tabla se mostrará paginada o si no se pudo leer.
+         */
+        public Pagina getPrimeraPagina() {
+            return primeraPagina;
+        }
+    }
+
+    /**
+     * Pone en marcha los pasos del arranque en segundo plano. Si la base de
+     * datos no se puede preparar, se informa del error y el futuro de
+     * {@link #baseDeDatos()} termina con él.
+     *
+     */
+    public static void iniciar() {
+        hito("main");
+        EJECUTOR.execute(() -> {
+            CatalogoMensajes.precargar();
+            hito("mensajes");
+        });
+        // La instantánea no depende de la base de datos: la tabla puede mostrarla antes de que esté lista
+        INSTANTANEA.set(CompletableFuture.supplyAsync(() -> {
+            InstantaneaPersonas instantanea = InstantaneaPersonas.leer();
+            if (instantanea != null) {
+                hito("instantánea");
+            }
+            return instantanea;
+        }, EJECUTOR));
+
+        baseDeDatos = CompletableFuture.runAsync(() -> {
+            try {
+                // Abrir el registro embebido si está elegido en lugar de MariaDB
+                Repositorio.iniciar();
+                if (Repositorio.esBaseDatos()) {
+                    // La primera conexión crea y precalienta el pool
+                    ConexionBBDD.iniciarPool();
+                    hito("pool de conexiones");
+                    // Crear o actualizar la tabla y sus índices si hace falta
+                    EsquemaBBDD.inicializar();
+                    hito("esquema");
+                    // Activar la escritura diferida si está configurada y recuperar sus cambios pendientes
+                    EscrituraDiferida.iniciar();
+                    // Consultar los cambios de otros clientes para mantener la tabla al día
+                    AvisosCambios.iniciar();
+                } else {
+                    hito("registro local");
+                }
+                // Volcar periódicamente las métricas del DAO y del pool (también publicadas por JMX)
+                Metricas.iniciar();
+            } catch (SQLException e) {
+                e.printStackTrace(); // Imprimir el stack trace para depuración
+                System.err.println("Error al conectar a la base de datos: " + e.getMessage());
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.err.println("Error al abrir el registro local: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, EJECUTOR);
+
+        DATOS.set(baseDeDatos.thenApplyAsync(v -> {
+            int total = Repositorio.personas().contarPersonas();
+            if (total > HelloController.UMBRAL_PAGINADO) {
+                hito("datos iniciales");
+                return new DatosIniciales(total, -1, null);
+            }
+            // La versión asentada se toma antes de leer para que el primer refresco recoja lo que cambie
+            // mientras y lo que estuviera sin confirmar
+            long version = Repositorio.personas().versionAsentada();
+            Pagina primera = Repositorio.personas().cargarPagina(0, HelloController.TAMANO_PAGINA);
+            hito("datos iniciales");
+            // Si la primera página no se pudo leer, la tabla se carga entera al mostrarse
+            return primera == null ? new DatosIniciales(total, -1, null) : new DatosIniciales(total, version, primera);
+        }, EJECUTOR));
+    }
+
+    /**
+     * Obtiene el futuro de la preparación de la base de datos.
+     *
+     * @return Un futuro que termina cuando el pool y el esquema están listos, o con el error.
+     */
+    public static CompletableFuture<Void> baseDeDatos() {
+        return baseDeDatos;
+    }
+
+    /**
+     * Entrega los datos iniciales leídos durante el arranque. Solo se
+     * entregan una vez; las recargas posteriores los piden de nuevo.
+     *
+     * @return Un futuro con los datos (completado en un hilo cualquiera), o null si ya se entregaron.
+     */
+    public static CompletableFuture<DatosIniciales> tomarDatosIniciales() {
+        return DATOS.getAndSet(null);
+    }
+
+    /**
+     * Entrega la instantánea de la tabla leída durante el arranque. Solo se
+     * entrega una vez.
+     *
+     * @return Un futuro con la instantánea (completado en un hilo cualquiera), con null si no hay
+     *         ninguna válida o si ya se entregó.
+     */
+    public static CompletableFuture<InstantaneaPersonas> tomarInstantanea() {
+        CompletableFuture<InstantaneaPersonas> instantanea = INSTANTANEA.getAndSet(null);
+        return instantanea != null ? instantanea : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Anota que ha terminado un paso del arranque.
+     *
+     * @param nombre El nombre del paso.
+     */
+    public static void hito(String nombre) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - INICIO_MAIN);
+        String hilo = Thread.currentThread().getName();
+        synchronized (HITOS) {
+            HITOS.add(new Hito(nombre, hilo.isEmpty() ? "(virtual)" : hilo, ms));
+        }
+    }
+
+    /**
+     * Anota el último hito y escribe el informe de arranque, solo la primera vez.
+     *
+     * @param nombre El nombre del último paso (la aplicación ya es usable).
+     */
+    public static void terminar(String nombre) {
+        hito(nombre);
+        if (!INFORMADO.compareAndSet(false, true)) {
+            return;
+        }
+        // Tiempo entre el arranque de la JVM y el principio de main (carga de clases, módulos...)
+        long previoMain = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()
+                - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - INICIO_MAIN);
+        StringBuilder texto = new StringBuilder("--- Arranque ---------------------------------------------------\n");
+        texto.append(String.format("%-28s %8s %8s  %s%n", "paso", "main ms", "jvm ms", "hilo"));
+        synchronized (HITOS) {
+            for (Hito hito : HITOS) {
+                texto.append(String.format("%-28s %8d %8d  %s%n", hito.nombre, hito.ms, hito.ms + previoMain, hito.hilo));
+            }
+        }
+        texto.append("----------------------------------------------------------------");
+        System.out.println(texto);
+    }
+}
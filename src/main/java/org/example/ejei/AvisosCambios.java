@@ -0,0 +1,225 @@
+package org.example.ejei;
+
+import javafx.application.Platform;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Avisos de los cambios que hacen otros clientes en la tabla Persona.
+ * Cada alta, modificación o baja deja, por disparadores, una entrada en la
+ * tabla Persona_cambio con su versión (la clave primaria) y el id de la
+ * persona (ver {@link EsquemaBBDD}). Un único hilo por aplicación consulta
+ * cada segundo las entradas posteriores a su cursor, con una sola consulta
+ * por clave primaria que trae también los valores actuales de las filas, y
+ * reparte los cambios en el hilo de JavaFX a todas las vistas suscritas
+ * ({@link CachePersonas}, la tabla paginada de {@link HelloController}).
+ * Cuando no hay cambios la consulta no devuelve filas.
+ * <p>
+ * MariaDB no tiene avisos del servidor, así que es un sondeo corto: si un
+ * lote llega lleno se vuelve a consultar al momento. Como las versiones se
+ * asignan antes de confirmar cada transacción, junto a las posteriores al
+ * cursor se vuelven a pedir los huecos de versiones aún no vistas por
+ * debajo de él ({@link MarcaVersiones}), hasta que aparecen o pasa más
+ * tiempo del que puede durar una transacción; solo se avisa si aparece
+ * alguna versión no vista. El cursor empieza en la versión asentada
+ * ({@link RepositorioPersonas#versionAsentada()}), por si al arrancar había
+ * transacciones abiertas.
+ * Se desactiva con {@code -Dejei.avisos=false}; con el registro embebido no
+ * se usa, porque solo una aplicación puede tenerlo abierto.
+ */
+public class AvisosCambios {
+    private static final long INTERVALO_MS = Math.max(50, Long.getLong("ejei.avisos.ms", 1_000L)); // Tiempo entre consultas
+    private static final int LOTE = Math.max(1, Integer.getInteger("ejei.avisos.lote", 1_000)); // Entradas por consulta
+    private static final int PURGAR_CADA = 300; // Consultas entre purgas del registro
+    private static final MetricaOperacion M_CONSULTA = Metricas.operacion("AvisosCambios", "consultarCambios");
+
+    private static final List<Oyente> OYENTES = new CopyOnWriteArrayList<>();
+    private static volatile AvisosCambios instancia; // Null si los avisos no están activos
+
+    private final ScheduledExecutorService sondeo;
+    private final MarcaVersiones marca; // Versiones ya avisadas y huecos por debajo de la más alta
+    private int consultas; // Consultas hechas, para purgar de vez en cuando
+
+    /**
+     * Vista que recibe los cambios de la tabla.
+     */
+    @FunctionalInterface
+    public interface Oyente {
+        /**
+         * Recibe los cambios con versión posterior a {@code desde}, en el hilo de JavaFX.
+         * Puede repetir cambios ya avisados; aplicarlos otra vez no debe tener efecto.
+         *
+         * @param desde   La versión a partir de la cual (sin incluirla) se han buscado los cambios:
+         *                todos los anteriores ya se han avisado.
+         * @param cambios Los cambios, con los valores actuales de las filas.
+         */
+        void cambios(long desde, CambiosPersona cambios);
+    }
+
+    private AvisosCambios(long cursor) {
+        this.marca = new MarcaVersiones(cursor);
+        sondeo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "avisos-cambios");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        sondeo.scheduleWithFixedDelay(this::consultar, INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empieza a consultar los cambios si la base de datos está en uso y la
+     * propiedad {@code ejei.avisos} no está a false. El cursor empieza en
+     * la versión asentada del registro de cambios.
+     *
+     * @throws SQLException Si no se puede leer el registro de cambios.
+     */
+    public static synchronized void iniciar() throws SQLException {
+        if (instancia != null || !Repositorio.esBaseDatos()
+                || !Boolean.parseBoolean(System.getProperty("ejei.avisos", "true"))) {
+            return;
+        }
+        long asentada = Repositorio.personas().versionAsentada();
+        if (asentada < 0) {
+            throw new SQLException("No se pudo leer la versión asentada del registro de cambios");
+        }
+        instancia = new AvisosCambios(asentada);
+    }
+
+    /**
+     * Deja de consultar los cambios.
+     */
+    public static synchronized void cerrar() {
+        AvisosCambios actual = instancia;
+        if (actual != null) {
+            instancia = null;
+            actual.sondeo.shutdownNow();
+        }
+    }
+
+    /**
+     * Indica si se están consultando los cambios, de modo que las vistas
+     * suscritas no necesitan refrescarse por su cuenta.
+     *
+     * @return true si los avisos están activos.
+     */
+    public static boolean activos() {
+        return instancia != null;
+    }
+
+    /**
+     * Suscribe una vista a los cambios.
+     *
+     * @param oyente La vista.
+     */
+    public static void suscribir(Oyente oyente) {
+        OYENTES.add(oyente);
+    }
+
+    /**
+     * Anula la suscripción de una vista.
+     *
+     * @param oyente La vista.
+     */
+    public static void quitar(Oyente oyente) {
+        OYENTES.remove(oyente);
+    }
+
+    /**
+     * Consulta los cambios posteriores al cursor y los reparte. Si un lote
+     * llega lleno, sigue consultando hasta vaciar el registro.
+     */
+    private void consultar() {
+        try {
+            while (consultarLote()) {
+                // Lote lleno: quedan más cambios
+            }
+            if (++consultas % PURGAR_CADA == 0) {
+                // Cualquier cliente puede purgar; las vistas que se quedan atrás lo notan y recargan
+                Repositorio.personas().purgarHistorial();
+            }
+        } catch (SQLException e) {
+            // El cursor no avanza: los cambios se piden en la siguiente consulta
+            System.out.println("Error al consultar los cambios de la tabla: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Consulta un lote de entradas del registro (las posteriores al cursor y
+     * las de los huecos) y avisa si hay alguna nueva.
+     *
+     * @return true si el lote llegó lleno.
+     */
+    private boolean consultarLote() throws SQLException {
+        long desde = marca.getAsentada();
+        List<MarcaVersiones.Hueco> huecos = marca.huecos();
+        StringBuilder consulta = new StringBuilder(
+                "SELECT c.version, c.id, c.tipo, p.nombre, p.apellidos, p.edad FROM Persona_cambio c "
+                        + "LEFT JOIN Persona p ON p.id = c.id AND c.tipo <> 'B' WHERE (c.version > ?");
+        for (int i = 0; i < huecos.size(); i++) {
+            consulta.append(" OR c.version BETWEEN ? AND ?");
+        }
+        consulta.append(") ORDER BY c.version LIMIT ?");
+
+        Map<Integer, Persona> modificadas = new LinkedHashMap<>(); // Id -> valores actuales, una vez por persona
+        List<Integer> borradas = new ArrayList<>();
+        List<Long> versiones = new ArrayList<>(); // Se anotan en la marca solo si el lote se lee entero
+        int leidas = 0;
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta.toString())) {
+            int parametro = 1;
+            pstmt.setLong(parametro++, marca.getCursor());
+            for (MarcaVersiones.Hueco hueco : huecos) {
+                pstmt.setLong(parametro++, hueco.getDesde());
+                pstmt.setLong(parametro++, hueco.getHasta());
+            }
+            pstmt.setInt(parametro, LOTE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    leidas++;
+                    int id = rs.getInt(2);
+                    versiones.add(rs.getLong(1));
+                    if ("B".equals(rs.getString(3))) {
+                        modificadas.remove(id);
+                        borradas.add(id);
+                    } else if (rs.getString(4) != null) {
+                        modificadas.put(id, new Persona(id, rs.getString(4), rs.getString(5), rs.getInt(6)));
+                    }
+                    // Si la fila ya no existe, su baja viene más adelante en el registro
+                }
+            }
+            M_CONSULTA.registrar(inicio, leidas);
+        } catch (SQLException e) {
+            M_CONSULTA.error(inicio);
+            throw e;
+        }
+
+        boolean nuevas = false;
+        for (long version : versiones) {
+            nuevas |= marca.anotar(version);
+        }
+        if (!nuevas) {
+            return false;
+        }
+        // Los resultados de búsqueda guardados pueden incluir filas que otro cliente ha cambiado
+        DaoPersona.invalidarBusquedas();
+        CambiosPersona cambios = new CambiosPersona(new ArrayList<>(modificadas.values()), borradas,
+                versiones.stream().mapToLong(Long::longValue).toArray(), true);
+        Platform.runLater(() -> {
+            for (Oyente oyente : OYENTES) {
+                oyente.cambios(desde, cambios);
+            }
+        });
+        return leidas == LOTE;
+    }
+}
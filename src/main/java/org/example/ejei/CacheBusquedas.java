@@ -0,0 +1,73 @@
+package org.example.ejei;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché LRU de resultados de búsqueda en la base de datos.
+ * Las claves son el texto normalizado de la búsqueda junto con su
+ * continuación; cualquier escritura en la tabla Persona la vacía.
+ * Cada vaciado cambia la generación de la caché: quien consulta la base
+ * de datos toma la generación antes de empezar y solo guarda el resultado
+ * si no ha cambiado, para no guardar un resultado leído antes de una
+ * escritura que ya vació la caché.
+ * Es segura para usarse desde varios hilos.
+ */
+public class CacheBusquedas {
+    private final Map<String, Object> entradas; // Clave -> resultado, en orden de uso
+    private long generacion; // Cambia con cada vaciado
+
+    /**
+     * Crea la caché con una capacidad máxima.
+     *
+     * @param capacidad El número máximo de resultados guardados.
+     */
+    public CacheBusquedas(int capacidad) {
+        entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    /**
+     * Obtiene un resultado guardado.
+     *
+     * @param clave La clave de la búsqueda.
+     * @return El resultado, o null si no está en la caché.
+     */
+    public synchronized Object obtener(String clave) {
+        return entradas.get(clave);
+    }
+
+    /**
+     * Obtiene la generación actual; se toma antes de consultar la base de datos.
+     *
+     * @return La generación.
+     */
+    public synchronized long generacion() {
+        return generacion;
+    }
+
+    /**
+     * Guarda un resultado si la caché no se ha vaciado desde que se empezó a calcular.
+     *
+     * @param clave      La clave de la búsqueda.
+     * @param resultado  El resultado a guardar.
+     * @param generacion La generación tomada antes de consultar la base de datos.
+     */
+    public synchronized void guardar(String clave, Object resultado, long generacion) {
+        if (generacion == this.generacion) {
+            entradas.put(clave, resultado);
+        }
+    }
+
+    /**
+     * Vacía la caché tras una escritura en la tabla.
+     */
+    public synchronized void invalidar() {
+        entradas.clear();
+        generacion++;
+    }
+}
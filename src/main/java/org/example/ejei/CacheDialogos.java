@@ -0,0 +1,168 @@
+package org.example.ejei;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Caché de las ventanas de agregar y modificar persona y de estadísticas.
+ * Sus FXML se leen una sola vez (los de agregar y modificar, en segundo
+ * plano durante el arranque con {@link #precargar()}), y cada ventana se reutiliza con su controlador, su escena y su
+ * {@link Stage}: al abrirla solo se reinician sus campos a través del
+ * controlador, sin volver a leer el FXML ni construir los nodos en el
+ * hilo de JavaFX.
+ */
+public class CacheDialogos {
+    private static final String NUEVA_PERSONA = "ventana.fxml";
+    private static final String EDITAR_PERSONA = "editarventana.fxml";
+    private static final String ESTADISTICAS = "estadisticas.fxml";
+    private static final ExecutorService EJECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Map<String, CompletableFuture<Dialogo<?>>> DIALOGOS = new ConcurrentHashMap<>(); // FXML -> ventana
+
+    private CacheDialogos() {
+    }
+
+    /**
+     * Ventana reutilizable: la vista leída del FXML, su controlador
+     * y el escenario, que se crea la primera vez que se muestra.
+     *
+     * @param <C> El tipo del controlador.
+     */
+    public static class Dialogo<C> {
+        private final Parent raiz;
+        private final C controlador;
+        private Stage stage; // Solo se crea y se usa en el hilo de JavaFX
+
+        Dialogo(Parent raiz, C controlador) {
+            this.raiz = raiz;
+            this.controlador = controlador;
+        }
+
+        /**
+         * Obtiene el controlador de la ventana, para reiniciar sus campos antes de mostrarla.
+         *
+         * @return El controlador.
+         */
+        public C getControlador() {
+            return controlador;
+        }
+
+        /**
+         * Muestra la ventana como modal y espera a que se cierre.
+         * Debe llamarse desde el hilo de JavaFX.
+         *
+         * @param titulo El título de la ventana.
+         */
+        public void mostrar(String titulo) {
+            if (stage == null) {
+                stage = new Stage();
+                stage.setScene(new Scene(raiz));
+                stage.setResizable(false);
+                stage.initModality(Modality.APPLICATION_MODAL);
+            }
+            stage.setTitle(titulo);
+            stage.showAndWait();
+        }
+
+        /**
+         * Muestra la ventana sin bloquear la principal, o la trae al frente
+         * si ya estaba abierta. Debe llamarse desde el hilo de JavaFX.
+         *
+         * @param titulo      El título de la ventana.
+         * @param propietario La ventana principal, que la cierra al cerrarse.
+         * @param alCerrar    Acción que se ejecuta cada vez que se cierra la ventana.
+         */
+        public void abrir(String titulo, Window propietario, Runnable alCerrar) {
+            if (stage == null) {
+                stage = new Stage();
+                stage.setScene(new Scene(raiz));
+                stage.initOwner(propietario);
+                stage.setOnHidden(e -> alCerrar.run());
+            }
+            stage.setTitle(titulo);
+            stage.show();
+            stage.toFront();
+        }
+    }
+
+    /**
+     * Empieza a leer en segundo plano los FXML de las ventanas.
+     * Debe llamarse con JavaFX ya iniciado (por ejemplo, desde {@code Application.init()}).
+     */
+    public static void precargar() {
+        cargar(NUEVA_PERSONA);
+        cargar(EDITAR_PERSONA);
+    }
+
+    /**
+     * Obtiene la ventana de agregar persona, esperando a que termine de leerse si aún no está lista.
+     *
+     * @return La ventana.
+     * @throws IOException Si no se pudo leer el FXML.
+     */
+    public static Dialogo<NuevaPersonaController> nuevaPersona() throws IOException {
+        return obtener(NUEVA_PERSONA);
+    }
+
+    /**
+     * Obtiene la ventana de modificar persona, esperando a que termine de leerse si aún no está lista.
+     *
+     * @return La ventana.
+     * @throws IOException Si no se pudo leer el FXML.
+     */
+    public static Dialogo<EditarPersonaController> editarPersona() throws IOException {
+        return obtener(EDITAR_PERSONA);
+    }
+
+    /**
+     * Obtiene la ventana de estadísticas; su FXML se lee la primera vez que se abre.
+     *
+     * @return La ventana.
+     * @throws IOException Si no se pudo leer el FXML.
+     */
+    public static Dialogo<EstadisticasController> estadisticas() throws IOException {
+        return obtener(ESTADISTICAS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <C> Dialogo<C> obtener(String fxml) throws IOException {
+        CompletableFuture<Dialogo<?>> futuro = cargar(fxml);
+        try {
+            return (Dialogo<C>) futuro.join();
+        } catch (CompletionException e) {
+            DIALOGOS.remove(fxml, futuro); // Se volverá a intentar la próxima vez
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("No se pudo cargar " + fxml, e.getCause());
+        }
+    }
+
+    /**
+     * Lee un FXML en un hilo virtual, la primera vez que se pide.
+     * JavaFX permite construir nodos fuera de su hilo mientras no formen parte de una ventana visible.
+     */
+    private static CompletableFuture<Dialogo<?>> cargar(String fxml) {
+        return DIALOGOS.computeIfAbsent(fxml, f -> CompletableFuture.supplyAsync(() -> {
+            FXMLLoader loader = new FXMLLoader(CacheDialogos.class.getResource(f));
+            try {
+                Parent raiz = loader.load();
+                return new Dialogo<>(raiz, loader.getController());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, EJECUTOR));
+    }
+}
@@ -0,0 +1,391 @@
+package org.example.ejei;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.util.Duration;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Caché en memoria de la tabla Persona que se mantiene al día pidiendo a la
+ * base de datos solo lo que ha cambiado. Guarda las versiones vistas (la
+ * marca, ver {@link MarcaVersiones}) y, cada cierto tiempo, carga las filas
+ * con versión posterior y las lápidas de las borradas; después aplica a la
+ * lista observable solo las diferencias, buscando cada fila por su id, de
+ * modo que el coste del refresco depende del número de cambios y no del
+ * tamaño de la tabla. Las filas se registran por su hueco del
+ * {@link AlmacenPersonas}, sin crear sus objetos {@link Persona}; solo se
+ * crean los de las filas que un refresco modifica. Como las versiones se asignan antes de confirmar cada
+ * transacción, cada refresco vuelve a pedir también los huecos de versiones
+ * aún no vistas por debajo de la marca, hasta que aparecen o pasa más tiempo
+ * del que puede durar una transacción; aplicar dos veces el mismo cambio no
+ * tiene efecto. La carga empieza en la versión asentada, por si había
+ * transacciones abiertas. Si la caché se queda por detrás de la última purga
+ * de lápidas, ya no puede saber qué se ha borrado y pide recargar la lista.
+ * Con la base de datos compartida por varios clientes, en lugar de
+ * refrescarse por su cuenta recibe los cambios de {@link AvisosCambios},
+ * que los consulta una sola vez por aplicación; solo pide los cambios
+ * directamente al empezar y si entre su marca y un aviso queda un hueco.
+ * Debe usarse únicamente desde el hilo de JavaFX.
+ */
+public class CachePersonas {
+    private static final long INTERVALO_MS = Long.getLong("ejei.refresco.ms", 5_000L); // Tiempo entre refrescos
+    private static final int PURGAR_CADA = 60; // Refrescos entre purgas del historial (sin avisos de cambios)
+
+    private final AlmacenPersonas personas; // Lista que se mantiene al día
+    private final Consumer<List<Persona>> alModificar; // Avisa de las personas modificadas en sitio
+    private final Runnable alDesfasarse; // Pide recargar la lista entera
+    private final AlmacenPersonas.OyenteHuecos oyenteHuecos = new AlmacenPersonas.OyenteHuecos() {
+        @Override
+        public void ocupado(int hueco) {
+            registrar(hueco);
+        }
+
+        @Override
+        public void liberado(int hueco) {
+            olvidar(hueco, personas.idDe(hueco));
+        }
+
+        @Override
+        public void idCambiado(int hueco, int anterior, int nuevo) {
+            olvidar(hueco, anterior);
+            registrar(hueco);
+        }
+    };
+    private final AvisosCambios.Oyente oyenteAvisos = this::onAviso;
+    private final Map<Integer, Integer> porId = new HashMap<>(); // Id -> hueco de su persona en el almacén
+    private final Set<Integer> sinId = new HashSet<>(); // Huecos de personas aún sin id definitivo
+    private Timeline refresco; // Se crea al empezar a refrescar periódicamente
+    private MarcaVersiones marca; // Versiones aplicadas (null si no se conocen)
+    private int refrescos; // Refrescos hechos, para purgar de vez en cuando
+    private boolean refrescando; // Hay un refresco en curso
+    private boolean repetir; // Llegó un aviso durante el refresco: hay que volver a refrescar
+    private boolean activa; // La lista está cargada y se mantiene al día
+
+    /**
+     * Crea la caché sobre un almacén y empieza a registrar sus personas por id.
+     *
+     * @param personas     El almacén de personas a mantener al día.
+     * @param alModificar  Acción que recibe las personas modificadas en sitio por un refresco.
+     * @param alDesfasarse Acción que se ejecuta si la lista ya no se puede poner al día con los
+     *                     cambios y hay que volver a cargarla entera.
+     */
+    public CachePersonas(AlmacenPersonas personas, Consumer<List<Persona>> alModificar, Runnable alDesfasarse) {
+        this.personas = personas;
+        this.alModificar = alModificar;
+        this.alDesfasarse = alDesfasarse;
+        for (int i = 0; i < personas.size(); i++) {
+            registrar(personas.huecoEn(i));
+        }
+        personas.escucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Toma la marca de versión asentada, carga la tabla entera por páginas en
+     * la lista y, al terminar, empieza a refrescar periódicamente. La carga
+     * se comprueba como en {@link #continuar(long)}: se aplican los cambios
+     * ocurridos mientras y la lista debe tener tantas personas como la tabla.
+     *
+     * @param tamanoPagina El número de personas por página.
+     * @return Un futuro con el número de personas cargadas, completado en el hilo de JavaFX.
+     */
+    public CompletableFuture<Integer> cargar(int tamanoPagina) {
+        return DaoPersonaAsync.ejecutar(() -> Repositorio.personas().versionAsentada())
+                .thenCompose(version -> cargar(tamanoPagina, version, null));
+    }
+
+    /**
+     * Carga la tabla a partir de una marca de versión y una primera página ya
+     * leídas (por ejemplo, durante el arranque): muestra la primera página al
+     * momento y carga el resto en segundo plano.
+     *
+     * @param tamanoPagina El número de personas por página.
+     * @param version      La versión asentada tomada antes de leer la primera página (-1 si no se conoce).
+     * @param primera      La primera página por id, o null para cargarlo todo.
+     * @return Un futuro con el número de personas cargadas, completado en el hilo de JavaFX;
+     *         con un error si alguna página no se pudo leer o si la lista no cuadra con la tabla,
+     *         y entonces la lista no se da por completa ni se mantiene al día.
+     */
+    public CompletableFuture<Integer> cargar(int tamanoPagina, long version, Pagina primera) {
+        marca = version >= 0 ? new MarcaVersiones(version) : null;
+        CompletableFuture<Integer> resto;
+        if (primera == null) {
+            resto = DaoPersonaAsync.cargarPorPaginas(tamanoPagina, personas::addAll);
+        } else {
+            personas.addAll(primera.getPersonas());
+            resto = primera.getPersonas().size() < tamanoPagina
+                    ? CompletableFuture.completedFuture(0) // No hay más páginas
+                    : DaoPersonaAsync.cargarPorPaginas(tamanoPagina, primera.getUltimoId(), personas::addAll);
+        }
+        int enPrimera = primera == null ? 0 : primera.getPersonas().size();
+        return resto.thenCompose(cargadas -> comprobarCarga().thenApply(v -> enPrimera + cargadas));
+    }
+
+    /**
+     * Aplica los cambios ocurridos durante la carga y comprueba que la lista
+     * tiene tantas personas como la tabla; si es así, empieza a mantenerla al
+     * día. Sin marca de versión solo se comprueba el total.
+     *
+     * @return Un futuro completado en el hilo de JavaFX, con un error si la lista no quedó completa.
+     */
+    private CompletableFuture<Void> comprobarCarga() {
+        long desde = marca == null ? -1 : marca.getCursor();
+        List<MarcaVersiones.Hueco> huecos = marca == null ? List.of() : marca.huecos();
+        return DaoPersonaAsync.ejecutar(() -> desde < 0 ? null : Repositorio.personas().cargarCambios(desde, huecos))
+                .thenCompose(cambios -> {
+                    if (desde >= 0) {
+                        if (cambios == null || !cambios.isCompletos()) {
+                            throw new CompletionException(new SQLException("No se pudieron leer los cambios ocurridos durante la carga"));
+                        }
+                        aplicar(cambios);
+                    }
+                    return DaoPersonaAsync.ejecutar(() -> Repositorio.personas().contarPersonas());
+                })
+                .thenAccept(total -> {
+                    if (total != personas.size()) {
+                        marca = null;
+                        throw new CompletionException(new SQLException(
+                                "Se han cargado " + personas.size() + " personas, pero la tabla tiene " + total));
+                    }
+                    if (marca != null) {
+                        mantenerAlDia();
+                    }
+                });
+    }
+
+    /**
+     * Continúa a partir de una lista ya rellena con las personas de una marca
+     * de versión anterior (por ejemplo, leídas de una {@link InstantaneaPersonas}):
+     * pide solo los cambios posteriores, los aplica y comprueba que la lista
+     * tiene tantas personas como la tabla. La marca debe ser una versión
+     * asentada ({@link #getMarca()}): todo lo anterior ya estaba aplicado, y lo
+     * que estuviera sin confirmar tiene versión posterior y llega ahora o en
+     * los huecos de los refrescos siguientes. La lista no es fiable, y no se
+     * empieza a refrescar, si la tabla tiene una versión más baja que la
+     * marca (se ha vuelto a crear), si desde la marca se han purgado lápidas
+     * (no se sabe qué se ha borrado ni, por tanto, qué falta) o si el total
+     * no cuadra.
+     *
+     * @param version La marca de versión asentada de las personas de la lista.
+     * @return Un futuro con true si la lista quedó al día, completado en el hilo de JavaFX.
+     */
+    public CompletableFuture<Boolean> continuar(long version) {
+        marca = new MarcaVersiones(version);
+        return DaoPersonaAsync.ejecutar(() -> Repositorio.personas().versionActual() < version
+                        ? null : Repositorio.personas().cargarCambios(version, List.of()))
+                .thenCompose(cambios -> {
+                    if (cambios == null || !cambios.isCompletos()) {
+                        return CompletableFuture.completedFuture(-1);
+                    }
+                    aplicar(cambios);
+                    return DaoPersonaAsync.ejecutar(() -> Repositorio.personas().contarPersonas());
+                })
+                .thenApply(total -> {
+                    if (total != personas.size()) {
+                        marca = null;
+                        return false;
+                    }
+                    mantenerAlDia();
+                    return true;
+                });
+    }
+
+    /**
+     * Obtiene la marca de versión de la lista, si está cargada entera y se
+     * está refrescando: la versión asentada, hasta la cual (incluida) se han
+     * aplicado todos los cambios.
+     *
+     * @return La versión asentada, o -1 si la lista aún se está cargando o no se conoce.
+     */
+    public long getMarca() {
+        return activa && marca != null ? marca.getAsentada() : -1;
+    }
+
+    /**
+     * Deja de refrescar y de escuchar los cambios de la lista.
+     */
+    public void detener() {
+        activa = false;
+        if (refresco != null) {
+            refresco.stop();
+        }
+        AvisosCambios.quitar(oyenteAvisos);
+        personas.dejarDeEscucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Empieza a mantener al día la lista ya cargada: con los avisos de
+     * cambios si están activos (pidiendo una vez los cambios ocurridos
+     * durante la carga) o, si no, refrescando periódicamente.
+     */
+    private void mantenerAlDia() {
+        activa = true;
+        if (AvisosCambios.activos()) {
+            AvisosCambios.suscribir(oyenteAvisos);
+            refrescar();
+        } else {
+            if (refresco == null) {
+                refresco = new Timeline(new KeyFrame(Duration.millis(Math.max(100, INTERVALO_MS)), e -> refrescar()));
+                refresco.setCycleCount(Animation.INDEFINITE);
+            }
+            refresco.play();
+        }
+    }
+
+    /**
+     * Aplica los cambios de un aviso. Si no enlazan con la marca, o si hay
+     * un refresco en curso que podría traer valores más antiguos, los pide
+     * directamente a partir de la marca.
+     */
+    private void onAviso(long desde, CambiosPersona cambios) {
+        if (!activa) {
+            return;
+        }
+        if (refrescando) {
+            repetir = true;
+        } else if (desde > marca.getCursor()) {
+            refrescar();
+        } else {
+            aplicar(cambios);
+        }
+    }
+
+    /**
+     * Pide en segundo plano los cambios posteriores a la marca y los de sus
+     * huecos, y los aplica. Si ya hay un refresco en curso no hace nada.
+     * Sin avisos de cambios, de vez en cuando purga también el historial.
+     */
+    public void refrescar() {
+        if (refrescando || marca == null) {
+            return;
+        }
+        refrescando = true;
+        long desde = marca.getCursor();
+        List<MarcaVersiones.Hueco> huecos = marca.huecos();
+        boolean purgar = !AvisosCambios.activos() && ++refrescos % PURGAR_CADA == 0;
+        DaoPersonaAsync.ejecutar(() -> {
+            if (purgar) {
+                Repositorio.personas().purgarHistorial();
+            }
+            return Repositorio.personas().cargarCambios(desde, huecos);
+        }).exceptionally(e -> DaoPersonaAsync.fallo("refrescar la caché de personas", e, null)).thenAccept(cambios -> {
+            refrescando = false;
+            if (cambios != null && activa) {
+                if (!cambios.isCompletos()) {
+                    System.out.println("La caché de personas se ha quedado por detrás de la purga de lápidas; se recarga");
+                    detener();
+                    alDesfasarse.run();
+                    return;
+                }
+                aplicar(cambios);
+            }
+            if (repetir) {
+                repetir = false;
+                refrescar();
+            }
+        });
+    }
+
+    /**
+     * Aplica los cambios a la lista: borra, modifica en sitio o añade cada
+     * persona según su id, y avanza la marca. Los valores se comparan en las
+     * columnas del almacén; solo se crean los objetos de las personas que cambian.
+     */
+    private void aplicar(CambiosPersona cambios) {
+        BitSet aBorrar = new BitSet();
+        for (Integer id : cambios.getBorradas()) {
+            int hueco = buscar(id);
+            if (hueco >= 0) {
+                aBorrar.set(hueco);
+            }
+        }
+
+        List<Persona> modificadas = new ArrayList<>();
+        List<Persona> nuevas = new ArrayList<>();
+        for (Persona fila : cambios.getModificadas()) {
+            int hueco = buscar(fila.getId());
+            if (hueco < 0) {
+                nuevas.add(fila);
+            } else if (!Objects.equals(personas.nombreDe(hueco), fila.getNombre())
+                    || !Objects.equals(personas.apellidosDe(hueco), fila.getApellidos())
+                    || personas.edadDe(hueco) != fila.getEdad()) {
+                Persona actual = personas.enHueco(hueco);
+                actual.setNombre(fila.getNombre());
+                actual.setApellidos(fila.getApellidos());
+                actual.setEdad(fila.getEdad());
+                modificadas.add(actual);
+            }
+        }
+
+        if (!aBorrar.isEmpty()) {
+            personas.quitarHuecos(aBorrar); // Un solo cambio para todas las bajas
+        }
+        if (!nuevas.isEmpty()) {
+            personas.addAll(nuevas);
+        }
+        if (!modificadas.isEmpty()) {
+            alModificar.accept(modificadas);
+        }
+        for (long version : cambios.getVersiones()) {
+            marca.anotar(version);
+        }
+    }
+
+    /**
+     * Busca el hueco de una persona del almacén por id. Si no está
+     * registrada, revisa antes las altas pendientes de escritura diferida,
+     * cuya copia en la lista aún tiene el id provisional, por si ya lo han
+     * recibido; al guardarlo, el almacén avisa y se registran por él.
+     *
+     * @return El hueco, o -1 si la persona no está.
+     */
+    private int buscar(int id) {
+        Integer hueco = porId.get(id);
+        if (hueco == null && !sinId.isEmpty()) {
+            for (Integer pendiente : new ArrayList<>(sinId)) {
+                int provisional = personas.idDe(pendiente);
+                if (provisional < 0) {
+                    int real = EscrituraDiferida.idAsignado(provisional);
+                    if (real > 0) {
+                        personas.guardarId(pendiente, real);
+                    }
+                }
+            }
+            hueco = porId.get(id);
+        }
+        return hueco == null ? -1 : hueco;
+    }
+
+    /**
+     * Registra el hueco de una persona por su id, o como pendiente si aún no lo tiene.
+     */
+    private void registrar(int hueco) {
+        int id = personas.idDe(hueco);
+        if (id > 0) {
+            porId.put(id, hueco);
+        } else {
+            sinId.add(hueco);
+        }
+    }
+
+    /**
+     * Quita el registro de un hueco con el id que tenía.
+     */
+    private void olvidar(int hueco, int id) {
+        if (!sinId.remove(hueco)) {
+            porId.remove(id, hueco);
+        }
+    }
+}
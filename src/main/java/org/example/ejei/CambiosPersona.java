@@ -0,0 +1,69 @@
+package org.example.ejei;
+
+import java.util.List;
+
+/**
+ * Cambios de la tabla Persona posteriores a una versión: las filas
+ * creadas o modificadas, los ids de las filas borradas y las versiones
+ * leídas, que se anotan en la {@link MarcaVersiones} de quien los pide
+ * para el siguiente refresco.
+ */
+public class CambiosPersona {
+    private final List<Persona> modificadas; // Filas creadas o modificadas, con sus valores actuales
+    private final List<Integer> borradas; // Ids de las filas borradas
+    private final long[] versiones; // Versiones de los cambios leídos
+    private final boolean completos; // false si se han purgado lápidas que hacían falta
+
+    /**
+     * Constructor que inicializa los cambios.
+     *
+     * @param modificadas Las personas creadas o modificadas.
+     * @param borradas    Los ids de las personas borradas.
+     * @param versiones   Las versiones de los cambios leídos.
+     * @param completos   false si los cambios pedidos empiezan antes de la última purga de lápidas
+     *                    y puede faltar alguna baja.
+     */
+    public CambiosPersona(List<Persona> modificadas, List<Integer> borradas, long[] versiones, boolean completos) {
+        this.modificadas = modificadas;
+        this.borradas = borradas;
+        this.versiones = versiones;
+        this.completos = completos;
+    }
+
+    /**
+     * Obtiene las personas creadas o modificadas.
+     *
+     * @return La lista de personas.
+     */
+    public List<Persona> getModificadas() {
+        return modificadas;
+    }
+
+    /**
+     * Obtiene los ids de las personas borradas.
+     *
+     * @return La lista de ids.
+     */
+    public List<Integer> getBorradas() {
+        return borradas;
+    }
+
+    /**
+     * Obtiene las versiones de los cambios leídos. No debe modificarse.
+     *
+     * @return Las versiones, en cualquier orden.
+     */
+    public long[] getVersiones() {
+        return versiones;
+    }
+
+    /**
+     * Indica si los cambios están completos. Si no lo están, quien los pidió
+     * se ha quedado demasiado atrás y debe volver a cargar los datos enteros.
+     *
+     * @return true si no puede faltar ningún cambio.
+     */
+    public boolean isCompletos() {
+        return completos;
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.ejei;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Catálogo de mensajes de la interfaz compartido por toda la aplicación
+ * ({@link Config} y los controladores). Lee una sola vez los ficheros
+ * {@code messages_*.properties} de todos los idiomas y los convierte en
+ * tablas inmutables indexadas por idioma y por {@link Mensaje}, de modo que
+ * cambiar de idioma o consultar un texto no lee ficheros ni busca claves.
+ * <p>
+ * Para desarrollo, si la propiedad {@code ejei.mensajes.dir} indica un
+ * directorio, los ficheros se leen de él en lugar del classpath y se
+ * vigilan con un {@link WatchService}: al guardar uno se vuelven a leer
+ * todos y se avisa a quien se haya registrado con {@link #alRecargar(Runnable)}.
+ */
+public class CatalogoMensajes {
+    private static final List<Runnable> OYENTES = new CopyOnWriteArrayList<>(); // Avisos de recarga
+    private static volatile String[][] tablas; // [idioma][mensaje] -> texto; se sustituye entera al recargar
+
+    private CatalogoMensajes() {
+    }
+
+    /**
+     * Idiomas de la interfaz, en el orden en que se alternan.
+     */
+    public enum Idioma {
+        ES("es"), EN("en"), EU("eu");
+
+        private final String codigo;
+
+        Idioma(String codigo) {
+            this.codigo = codigo;
+        }
+
+        /**
+         * Obtiene el código del idioma (el sufijo de su fichero de mensajes).
+         *
+         * @return El código, por ejemplo "es".
+         */
+        public String getCodigo() {
+            return codigo;
+        }
+
+        /**
+         * Obtiene el idioma que sigue a este al alternar.
+         *
+         * @return El siguiente idioma (tras el último vuelve al primero).
+         */
+        public Idioma siguiente() {
+            Idioma[] idiomas = values();
+            return idiomas[(ordinal() + 1) % idiomas.length];
+        }
+
+        /**
+         * Busca un idioma por su código.
+         *
+         * @param codigo El código del idioma.
+         * @return El idioma, o español si no se conoce.
+         */
+        public static Idioma de(String codigo) {
+            for (Idioma idioma : values()) {
+                if (idioma.codigo.equals(codigo)) {
+                    return idioma;
+                }
+            }
+            return ES;
+        }
+    }
+
+    /**
+     * Obtiene el texto de un mensaje en un idioma.
+     *
+     * @param idioma  El idioma.
+     * @param mensaje El mensaje.
+     * @return El texto traducido, o el texto por defecto si falta en ese idioma.
+     */
+    public static String texto(Idioma idioma, Mensaje mensaje) {
+        return tablas()[idioma.ordinal()][mensaje.ordinal()];
+    }
+
+    /**
+     * Lee los mensajes de todos los idiomas si aún no se han leído; sirve
+     * para hacerlo en segundo plano durante el arranque.
+     */
+    public static void precargar() {
+        tablas();
+    }
+
+    /**
+     * Registra una acción que se ejecuta (en el hilo del vigilante de
+     * ficheros) cada vez que se recargan los mensajes.
+     *
+     * @param oyente La acción a ejecutar.
+     */
+    public static void alRecargar(Runnable oyente) {
+        OYENTES.add(oyente);
+    }
+
+    private static String[][] tablas() {
+        String[][] actuales = tablas;
+        if (actuales == null) {
+            synchronized (CatalogoMensajes.class) {
+                actuales = tablas;
+                if (actuales == null) {
+                    actuales = leer();
+                    tablas = actuales;
+                    String directorio = System.getProperty("ejei.mensajes.dir");
+                    if (directorio != null) {
+                        vigilar(Paths.get(directorio));
+                    }
+                }
+            }
+        }
+        return actuales;
+    }
+
+    /**
+     * Construye las tablas de todos los idiomas.
+     */
+    private static String[][] leer() {
+        Mensaje[] mensajes = Mensaje.values();
+        Idioma[] idiomas = Idioma.values();
+        String[][] nuevas = new String[idiomas.length][];
+        for (Idioma idioma : idiomas) {
+            Properties propiedades = leerFichero(idioma);
+            String[] textos = new String[mensajes.length];
+            for (Mensaje mensaje : mensajes) {
+                textos[mensaje.ordinal()] = propiedades.getProperty(mensaje.getClave(), mensaje.getPorDefecto());
+            }
+            nuevas[idioma.ordinal()] = textos;
+        }
+        return nuevas;
+    }
+
+    /**
+     * Lee el fichero de mensajes de un idioma del directorio de desarrollo o del classpath.
+     */
+    private static Properties leerFichero(Idioma idioma) {
+        String nombre = "messages_" + idioma.getCodigo() + ".properties";
+        String directorio = System.getProperty("ejei.mensajes.dir");
+        Properties propiedades = new Properties();
+        try (InputStream input = directorio != null
+                ? Files.newInputStream(Paths.get(directorio, nombre))
+                : CatalogoMensajes.class.getResourceAsStream("/" + nombre)) {
+            if (input != null) {
+                propiedades.load(input);
+            } else {
+                System.err.println("No se pudo encontrar el archivo de propiedades: " + nombre);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return propiedades;
+    }
+
+    /**
+     * Vigila el directorio de mensajes en un hilo aparte y recarga las
+     * tablas cuando cambia alguno de sus ficheros.
+     */
+    private static void vigilar(Path directorio) {
+        WatchService vigilante;
+        try {
+            vigilante = FileSystems.getDefault().newWatchService();
+            directorio.register(vigilante, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.out.println("No se pueden vigilar los mensajes de " + directorio + ": " + e.getMessage());
+            return;
+        }
+        Thread hilo = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey clave = vigilante.take();
+                    boolean cambiado = false;
+                    for (WatchEvent<?> evento : clave.pollEvents()) {
+                        if (evento.context() instanceof Path fichero && fichero.toString().startsWith("messages_")) {
+                            cambiado = true;
+                        }
+                    }
+                    clave.reset();
+                    if (cambiado) {
+                        tablas = leer();
+                        System.out.println("Mensajes recargados de " + directorio.toAbsolutePath());
+                        OYENTES.forEach(Runnable::run);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Fin de la vigilancia
+            }
+        }, "mensajes-recarga");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+}
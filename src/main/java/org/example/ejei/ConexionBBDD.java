@@ -1,57 +1,83 @@
 package org.example.ejei;
 
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 /**
- * La clase ConexionBBDD se encarga de establecer una conexión
- * a una base de datos MariaDB. Implementa la interfaz AutoCloseable
- * para permitir el uso de try-with-resources, asegurando que la
- * conexión se cierre automáticamente al finalizar su uso.
+ * La clase ConexionBBDD presta una conexión a la base de datos MariaDB
+ * desde un pool compartido ({@link PoolConexiones}). Implementa la interfaz
+ * AutoCloseable para permitir el uso de try-with-resources, asegurando que
+ * la conexión se devuelva al pool automáticamente al finalizar su uso.
  */
 public class ConexionBBDD implements AutoCloseable {
+    private static volatile PoolConexiones pool; // Pool compartido por toda la aplicación
+
     private Connection conexion;
 
     /**
-     * Constructor que inicializa la conexión a la base de datos.
+     * Constructor que toma prestada una conexión del pool,
+     * creando y precalentando el pool la primera vez.
      *
-     * @throws SQLException Si ocurre un error al establecer la conexión
-     *                      o si no se puede cargar el driver de MariaDB.
+     * @throws SQLException Si ocurre un error al crear el pool
+     *                      o si no se puede obtener una conexión a tiempo.
      */
     public ConexionBBDD() throws SQLException {
-        try {
-            // Cargar el driver de MariaDB
-            Class.forName("org.mariadb.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            throw new SQLException("No se pudo cargar el driver de MariaDB", e);
-        }
+        conexion = getPool().obtener();
+    }
 
-        // Configurar los parámetros de la conexión
-        Properties connConfig = new Properties();
-        connConfig.setProperty("user", "root");  // Usuario de la BD
-        connConfig.setProperty("password", "myPass");  // Contraseña de la BD
+    /**
+     * Crea y precalienta el pool de conexiones si aún no existe.
+     *
+     * @throws SQLException Si no se puede crear el pool.
+     */
+    public static void iniciarPool() throws SQLException {
+        getPool();
+    }
 
-        // Establecer la conexión a la base de datos MariaDB
-        String url = "jdbc:mariadb://localhost:3310/personas?serverTimezone=Europe/Madrid";
-        conexion = DriverManager.getConnection(url, connConfig);
-        conexion.setAutoCommit(true);
+    /**
+     * Cierra el pool de conexiones compartido, si se llegó a crear.
+     */
+    public static synchronized void cerrarPool() {
+        if (pool != null) {
+            Metricas.quitarPool();
+            pool.cerrar();
+            pool = null;
+        }
+    }
 
-        // Información de la base de datos para depuración
-        DatabaseMetaData databaseMetaData = conexion.getMetaData();
-        System.out.println("--- Datos de conexión ------------------------------------------");
-        System.out.printf("Base de datos: %s%n", databaseMetaData.getDatabaseProductName());
-        System.out.printf("Versión: %s%n", databaseMetaData.getDatabaseProductVersion());
-        System.out.printf("Driver: %s%n", databaseMetaData.getDriverName());
-        System.out.printf("Versión: %s%n", databaseMetaData.getDriverVersion());
-        System.out.println("----------------------------------------------------------------");
+    /**
+     * Obtiene el pool compartido, creándolo la primera vez.
+     *
+     * @return El pool de conexiones.
+     * @throws SQLException Si no se puede crear el pool.
+     */
+    static PoolConexiones getPool() throws SQLException {
+        PoolConexiones actual = pool;
+        if (actual == null) {
+            synchronized (ConexionBBDD.class) {
+                actual = pool;
+                if (actual == null) {
+                    actual = new PoolConexiones();
+                    pool = actual;
+                    Metricas.registrarPool(actual);
+                }
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Obtiene el pool compartido sin crearlo.
+     *
+     * @return El pool de conexiones, o null si aún no existe o ya se cerró.
+     */
+    static PoolConexiones getPoolSiExiste() {
+        return pool;
     }
 
     /**
-     * Obtiene la conexión a la base de datos.
+     * Obtiene la conexión prestada a la base de datos.
+     * No debe cerrarse directamente: se devuelve al pool con {@link #close()}.
      *
      * @return La conexión a la base de datos.
      */
@@ -60,19 +86,24 @@ public class ConexionBBDD implements AutoCloseable {
     }
 
     /**
-     * Cierra la conexión a la base de datos si está abierta.
+     * Devuelve la conexión al pool.
      * Este método se llama automáticamente al finalizar el bloque
      * try-with-resources.
      */
     @Override
     public void close() {
-        try {
-            if (conexion != null && !conexion.isClosed()) {
-                conexion.close();
-                System.out.println("Conexión cerrada");
+        if (conexion != null) {
+            PoolConexiones actual = pool;
+            if (actual != null) {
+                actual.devolver(conexion);
+            } else {
+                try {
+                    conexion.close(); // El pool ya se cerró
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            conexion = null;
         }
     }
 }
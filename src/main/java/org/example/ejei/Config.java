@@ -1,58 +1,44 @@
 package org.example.ejei;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.Locale;
-import java.util.Properties;
 
 /**
- * La clase Config se encarga de cargar archivos de propiedades
- * basados en el idioma especificado mediante un objeto Locale.
- * Proporciona métodos para acceder a las propiedades cargadas.
+ * La clase Config da acceso a los mensajes de la interfaz en el idioma
+ * especificado mediante un objeto Locale. Los textos salen del
+ * {@link CatalogoMensajes} compartido, que lee los ficheros una sola vez.
  */
 public class Config {
-    private Properties properties;
+    private final CatalogoMensajes.Idioma idioma;
 
     /**
-     * Constructor que inicializa la clase Config y carga las propiedades
-     * según el locale proporcionado.
+     * Constructor que inicializa la clase Config con el idioma del locale
+     * proporcionado.
      *
-     * @param locale El locale que determina el idioma de las propiedades
-     *               a cargar.
+     * @param locale El locale que determina el idioma de los mensajes.
      */
     public Config(Locale locale) {
-        properties = new Properties();
-        loadProperties(locale);
+        idioma = CatalogoMensajes.Idioma.de(locale.getLanguage());
     }
 
     /**
-     * Carga las propiedades desde un archivo correspondiente al idioma del locale.
+     * Obtiene el texto de un mensaje en el idioma de esta configuración.
      *
-     * @param locale El locale que determina el archivo de propiedades a cargar.
+     * @param mensaje El mensaje.
+     * @return El texto traducido.
      */
-    private void loadProperties(Locale locale) {
-        String language = locale.getLanguage(); // Obtiene el código del idioma
-        String fileName = "messages_" + language + ".properties"; // Construye el nombre del archivo
-
-        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName)) {
-            if (inputStream != null) {
-                properties.load(inputStream);
-            } else {
-                System.err.println("No se pudo encontrar el archivo de propiedades: " + fileName);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public String getString(Mensaje mensaje) {
+        return CatalogoMensajes.texto(idioma, mensaje);
     }
 
     /**
-     * Obtiene el valor asociado a una clave específica en el archivo de propiedades.
+     * Obtiene el valor asociado a una clave específica de los ficheros de mensajes.
      *
      * @param key La clave cuya propiedad se desea obtener.
      * @return El valor de la propiedad correspondiente a la clave,
      *         o un mensaje por defecto si la clave no existe.
      */
     public String getString(String key) {
-        return properties.getProperty(key, "No se encontró la clave: " + key); // Mensaje por defecto si la clave no existe
+        Mensaje mensaje = Mensaje.deClave(key);
+        return mensaje != null ? getString(mensaje) : "No se encontró la clave: " + key; // Mensaje por defecto si la clave no existe
     }
 }
@@ -3,17 +3,47 @@ package org.example.ejei;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * La clase DaoPersona proporciona métodos para realizar operaciones
  * de acceso a datos (DAO) sobre la entidad Persona en la base de datos.
  * Permite cargar, modificar, crear y eliminar registros de personas.
+ * Es la implementación de {@link RepositorioPersonas} sobre MariaDB; no
+ * guarda estado propio, así que todas sus instancias son equivalentes.
  */
-public class DaoPersona {
+public class DaoPersona implements RepositorioPersonas {
+    private static final int TAMANO_FETCH = Integer.getInteger("ejei.bd.fetch", 500); // Filas por ida y vuelta al leer
+    private static final long RETENER_S = Math.max(MarcaVersiones.ESPERA_MS / 1000 + 1,
+            Long.getLong("ejei.historial.retener.s", 86_400L)); // Segundos de lápidas y cambios que se conservan
+    private static final CacheBusquedas BUSQUEDAS =
+            new CacheBusquedas(Integer.getInteger("ejei.busqueda.cache", 256)); // Resultados de búsqueda recientes
+
+    // Métricas por operación (publicadas por JMX, ver Metricas)
+    private static final MetricaOperacion M_LISTADO = Metricas.operacion("cargarListadoPersonas");
+    private static final MetricaOperacion M_CONTAR = Metricas.operacion("contarPersonas");
+    private static final MetricaOperacion M_VERSION = Metricas.operacion("versionActual");
+    private static final MetricaOperacion M_ASENTADA = Metricas.operacion("versionAsentada");
+    private static final MetricaOperacion M_CAMBIOS = Metricas.operacion("cargarCambios");
+    private static final MetricaOperacion M_PURGAR = Metricas.operacion("purgarHistorial");
+    private static final MetricaOperacion M_PAGINA = Metricas.operacion("cargarPagina");
+    private static final MetricaOperacion M_PAGINA_DESDE = Metricas.operacion("cargarPaginaDesde");
+    private static final MetricaOperacion M_BUSCAR = Metricas.operacion("buscarPersonas");
+    private static final MetricaOperacion M_BUSCAR_DESDE = Metricas.operacion("buscarPersonasDesde");
+    private static final MetricaOperacion M_CONTAR_BUSQUEDA = Metricas.operacion("contarBusqueda");
+    private static final MetricaOperacion M_RESUMIR = Metricas.operacion("resumirPersonas");
+    private static final MetricaOperacion M_MODIFICAR = Metricas.operacion("modificarPersona");
+    private static final MetricaOperacion M_CREAR = Metricas.operacion("crearPersona");
+    private static final MetricaOperacion M_ELIMINAR = Metricas.operacion("eliminarPersona");
+    // Con la escritura diferida solo se mide el tiempo de anotar el cambio; su aplicación la mide "volcar"
+    private static final MetricaOperacion M_ANOTAR_MODIFICACION = Metricas.operacion("EscrituraDiferida", "anotarModificacion");
+    private static final MetricaOperacion M_ANOTAR_ALTA = Metricas.operacion("EscrituraDiferida", "anotarAlta");
+    private static final MetricaOperacion M_ANOTAR_BAJA = Metricas.operacion("EscrituraDiferida", "anotarBaja");
 
     /**
      * Carga una lista de personas desde la base de datos.
@@ -21,101 +51,593 @@ public class DaoPersona {
      * @return Un ObservableList de objetos Persona que contiene los
      *         registros cargados desde la base de datos.
      */
-    public static ObservableList<Persona> cargarListadoPersonas() {
+    @Override
+    public ObservableList<Persona> cargarListadoPersonas() {
+        long inicio = System.nanoTime();
         ObservableList<Persona> listadoDePersonas = FXCollections.observableArrayList();
 
-        // Usar try-with-resources para manejar la conexión y los recursos
+        // Usar try-with-resources para tomar prestada la conexión del pool y devolverla
         try (ConexionBBDD conexion = new ConexionBBDD();
-             Connection conn = conexion.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement("SELECT nombre, apellidos, edad FROM Persona");
-             ResultSet rs = pstmt.executeQuery()) {
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement("SELECT id, nombre, apellidos, edad FROM Persona")) {
+            pstmt.setFetchSize(TAMANO_FETCH);
 
-            // Llenar la lista con los resultados
-            while (rs.next()) {
-                String nombre = rs.getString("nombre");
-                String apellidos = rs.getString("apellidos");
-                int edad = rs.getInt("edad");
-                Persona persona = new Persona(nombre, apellidos, edad);
-                listadoDePersonas.add(persona);
+            // Llenar la lista con los resultados, leyendo las columnas por posición
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    listadoDePersonas.add(new Persona(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4)));
+                }
             }
+            M_LISTADO.registrar(inicio, listadoDePersonas.size());
         } catch (SQLException e) {
+            M_LISTADO.error(inicio);
             System.out.println("Error al cargar listado de personas: " + e.getMessage());
         }
         return listadoDePersonas;
     }
 
     /**
-     * Modifica un registro de persona en la base de datos.
+     * Cuenta las personas almacenadas en la base de datos.
+     *
+     * @return El número de personas, o -1 si ocurre un error.
+     */
+    @Override
+    public int contarPersonas() {
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement("SELECT COUNT(*) FROM Persona");
+             ResultSet rs = pstmt.executeQuery()) {
+            int total = rs.next() ? rs.getInt(1) : 0;
+            M_CONTAR.registrar(inicio, 1);
+            return total;
+        } catch (SQLException e) {
+            M_CONTAR.error(inicio);
+            System.out.println("Error al contar personas: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene la versión más alta de la tabla, contando las filas borradas.
+     * Sirve de marca para pedir después solo los cambios posteriores.
+     *
+     * @return La versión actual, o -1 si ocurre un error (por ejemplo, sin columna de versión).
+     */
+    @Override
+    public long versionActual() {
+        String consulta = "SELECT GREATEST((SELECT COALESCE(MAX(version), 0) FROM Persona), "
+                + "(SELECT COALESCE(MAX(version), 0) FROM Persona_borrada))";
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta);
+             ResultSet rs = pstmt.executeQuery()) {
+            long version = rs.next() ? rs.getLong(1) : 0;
+            M_VERSION.registrar(inicio, 1);
+            return version;
+        } catch (SQLException e) {
+            M_VERSION.error(inicio);
+            System.out.println("Error al leer la versión de la tabla: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Las versiones se toman antes de confirmar, así que se usa la más alta
+     * del registro de cambios anotada hace más de {@link MarcaVersiones#ESPERA_MS}:
+     * las transacciones que tenían versiones anteriores ya han terminado. Si
+     * el registro no tiene cambios tan antiguos se devuelve 0.
+     */
+    @Override
+    public long versionAsentada() {
+        String consulta = "SELECT COALESCE(MAX(version), 0) FROM Persona_cambio "
+                + "WHERE momento < TIMESTAMPADD(SECOND, -?, NOW(3))";
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
+            pstmt.setLong(1, (MarcaVersiones.ESPERA_MS + 999) / 1000);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long version = rs.next() ? rs.getLong(1) : 0;
+                M_ASENTADA.registrar(inicio, 1);
+                return version;
+            }
+        } catch (SQLException e) {
+            M_ASENTADA.error(inicio);
+            System.out.println("Error al leer la versión asentada de la tabla: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Carga las personas creadas o modificadas y los ids borrados con
+     * versión posterior a una dada o dentro de los huecos, usando los
+     * índices sobre la versión. Las lápidas se leen antes que la versión
+     * purgada, de modo que si una purga las borra mientras tanto se nota.
+     *
+     * @param desdeVersion La versión a partir de la cual (sin incluirla) se buscan cambios.
+     * @param huecos       Los huecos que se vuelven a pedir.
+     * @return Los cambios, o null si ocurre un error.
+     */
+    @Override
+    public CambiosPersona cargarCambios(long desdeVersion, List<MarcaVersiones.Hueco> huecos) {
+        StringBuilder rangos = new StringBuilder();
+        for (int i = 0; i < huecos.size(); i++) {
+            rangos.append(" OR version BETWEEN ? AND ?");
+        }
+        List<Persona> modificadas = new ArrayList<>();
+        List<Integer> borradas = new ArrayList<>();
+        List<Long> versiones = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement filas = conexion.getConexion().prepareStatement(
+                     "SELECT id, nombre, apellidos, edad, version FROM Persona WHERE version > ?" + rangos + " ORDER BY version");
+             PreparedStatement lapidas = conexion.getConexion().prepareStatement(
+                     "SELECT id, version FROM Persona_borrada WHERE version > ?" + rangos);
+             PreparedStatement purga = conexion.getConexion().prepareStatement(
+                     "SELECT COALESCE(MAX(hasta), 0) FROM Persona_purga")) {
+            filas.setFetchSize(TAMANO_FETCH);
+            fijarRangos(filas, desdeVersion, huecos);
+            try (ResultSet rs = filas.executeQuery()) {
+                while (rs.next()) {
+                    modificadas.add(new Persona(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4)));
+                    versiones.add(rs.getLong(5));
+                }
+            }
+            fijarRangos(lapidas, desdeVersion, huecos);
+            try (ResultSet rs = lapidas.executeQuery()) {
+                while (rs.next()) {
+                    borradas.add(rs.getInt(1));
+                    versiones.add(rs.getLong(2));
+                }
+            }
+            long purgada;
+            try (ResultSet rs = purga.executeQuery()) {
+                purgada = rs.next() ? rs.getLong(1) : 0;
+            }
+            long asentada = huecos.isEmpty() ? desdeVersion : Math.min(desdeVersion, huecos.get(0).getDesde() - 1);
+            M_CAMBIOS.registrar(inicio, modificadas.size() + borradas.size());
+            return new CambiosPersona(modificadas, borradas,
+                    versiones.stream().mapToLong(Long::longValue).toArray(), asentada >= purgada);
+        } catch (SQLException e) {
+            M_CAMBIOS.error(inicio);
+            System.out.println("Error al cargar los cambios de la tabla: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void fijarRangos(PreparedStatement pstmt, long desdeVersion, List<MarcaVersiones.Hueco> huecos)
+            throws SQLException {
+        int parametro = 1;
+        pstmt.setLong(parametro++, desdeVersion);
+        for (MarcaVersiones.Hueco hueco : huecos) {
+            pstmt.setLong(parametro++, hueco.getDesde());
+            pstmt.setLong(parametro++, hueco.getHasta());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Borra las lápidas y las entradas del registro de cambios anotadas hace
+     * más de {@code ejei.historial.retener.s} segundos (un día por defecto,
+     * y nunca menos que la espera de los huecos), salvo la más reciente del
+     * registro, que es la que da la versión asentada. La versión purgada se
+     * anota antes de borrar. Cualquier cliente puede hacerlo.
+     */
+    @Override
+    public void purgarHistorial() {
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement limite = conexion.getConexion().prepareStatement(
+                     "SELECT COALESCE(MAX(version), 0) FROM Persona_cambio WHERE momento < TIMESTAMPADD(SECOND, -?, NOW(3))");
+             PreparedStatement anotar = conexion.getConexion().prepareStatement(
+                     "UPDATE Persona_purga SET hasta = GREATEST(hasta, ?)");
+             PreparedStatement lapidas = conexion.getConexion().prepareStatement(
+                     "DELETE FROM Persona_borrada WHERE version <= ?");
+             PreparedStatement cambios = conexion.getConexion().prepareStatement(
+                     "DELETE FROM Persona_cambio WHERE version < ?")) {
+            limite.setLong(1, RETENER_S);
+            long hasta;
+            try (ResultSet rs = limite.executeQuery()) {
+                hasta = rs.next() ? rs.getLong(1) : 0;
+            }
+            int borradas = 0;
+            if (hasta > 0) {
+                anotar.setLong(1, hasta);
+                anotar.executeUpdate();
+                lapidas.setLong(1, hasta);
+                borradas += lapidas.executeUpdate();
+                cambios.setLong(1, hasta);
+                borradas += cambios.executeUpdate();
+            }
+            M_PURGAR.registrar(inicio, borradas);
+        } catch (SQLException e) {
+            M_PURGAR.error(inicio);
+            System.out.println("Error al purgar el historial de cambios: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Carga una página de personas por clave (keyset): las siguientes
+     * {@code tamano} personas cuyo id es mayor que {@code despuesDeId}.
+     * El coste no depende de la posición de la página en la tabla.
+     *
+     * @param despuesDeId El último id de la página anterior (0 para la primera).
+     * @param tamano      El número máximo de personas de la página.
+     * @return La página cargada, vacía si no hay más filas; o null si ocurre un error.
+     */
+    @Override
+    public Pagina cargarPagina(long despuesDeId, int tamano) {
+        String consulta = "SELECT id, nombre, apellidos, edad FROM Persona WHERE id > ? ORDER BY id LIMIT ?";
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
+            pstmt.setLong(1, despuesDeId);
+            pstmt.setInt(2, tamano);
+            Pagina pagina = leerPagina(pstmt, despuesDeId, tamano);
+            M_PAGINA.registrar(inicio, pagina.getPersonas().size());
+            return pagina;
+        } catch (SQLException e) {
+            M_PAGINA.error(inicio);
+            System.out.println("Error al cargar página de personas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Carga una página de personas por desplazamiento. Solo se usa cuando se
+     * salta a una zona de la tabla cuya clave inicial aún no se conoce;
+     * a partir de ella las páginas siguientes se cargan por clave.
+     *
+     * @param desplazamiento El número de filas que se saltan.
+     * @param tamano         El número máximo de personas de la página.
+     * @return La página cargada, vacía si no hay más filas; o null si ocurre un error.
+     */
+    @Override
+    public Pagina cargarPaginaDesde(int desplazamiento, int tamano) {
+        String consulta = "SELECT id, nombre, apellidos, edad FROM Persona ORDER BY id LIMIT ? OFFSET ?";
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
+            pstmt.setInt(1, tamano);
+            pstmt.setInt(2, desplazamiento);
+            Pagina pagina = leerPagina(pstmt, 0, tamano);
+            M_PAGINA_DESDE.registrar(inicio, pagina.getPersonas().size());
+            return pagina;
+        } catch (SQLException e) {
+            M_PAGINA_DESDE.error(inicio);
+            System.out.println("Error al cargar página de personas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Busca personas cuyo nombre empieza por un texto (sin distinguir
+     * mayúsculas, según la colación de la tabla), ordenadas por nombre e id.
+     * El prefijo permite usar el índice sobre nombre y la continuación se
+     * hace por clave a partir de la última fila de la página anterior.
+     * Es la búsqueda del modo paginado; el filtro en memoria
+     * ({@link IndiceNombres}) busca, en cambio, nombres que contienen el texto.
+     * Los resultados se guardan en una caché LRU que se vacía con cada
+     * escritura; un resultado leído mientras se vaciaba no se guarda.
+     *
+     * @param texto    El principio del nombre a buscar.
+     * @param anterior La página anterior de la misma búsqueda, o null para la primera.
+     * @param tamano   El número máximo de personas de la página.
+     * @return La página de resultados; vacía si no hay más o si ocurre un error.
+     */
+    @Override
+    public Pagina buscarPersonas(String texto, Pagina anterior, int tamano) {
+        long inicio = System.nanoTime();
+        String clave = IndiceNombres.normalizar(texto) + '\u0000' + tamano + '\u0000'
+                + (anterior == null ? "" : anterior.getUltimoNombre() + '\u0000' + anterior.getUltimoId());
+        long generacion = BUSQUEDAS.generacion();
+        Object guardada = BUSQUEDAS.obtener(clave);
+        if (guardada instanceof Pagina pagina) {
+            M_BUSCAR.registrar(inicio, pagina.getPersonas().size()); // Acierto de la caché
+            return new Pagina(new ArrayList<>(pagina.getPersonas()), pagina.getUltimoId(), pagina.getUltimoNombre());
+        }
+
+        String consulta = anterior == null
+                ? "SELECT id, nombre, apellidos, edad FROM Persona WHERE nombre LIKE ? ESCAPE '!' ORDER BY nombre, id LIMIT ?"
+                : "SELECT id, nombre, apellidos, edad FROM Persona WHERE nombre LIKE ? ESCAPE '!'"
+                + " AND (nombre > ? OR (nombre = ? AND id > ?)) ORDER BY nombre, id LIMIT ?";
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
+            int i = 1;
+            pstmt.setString(i++, patronPrefijo(texto));
+            if (anterior != null) {
+                pstmt.setString(i++, anterior.getUltimoNombre());
+                pstmt.setString(i++, anterior.getUltimoNombre());
+                pstmt.setLong(i++, anterior.getUltimoId());
+            }
+            pstmt.setInt(i, tamano);
+            Pagina pagina = leerPagina(pstmt, anterior == null ? 0 : anterior.getUltimoId(), tamano);
+            BUSQUEDAS.guardar(clave, pagina, generacion);
+            M_BUSCAR.registrar(inicio, pagina.getPersonas().size());
+            return new Pagina(new ArrayList<>(pagina.getPersonas()), pagina.getUltimoId(), pagina.getUltimoNombre());
+        } catch (SQLException e) {
+            M_BUSCAR.error(inicio);
+            System.out.println("Error al buscar personas: " + e.getMessage());
+            return new Pagina(new ArrayList<>(), 0);
+        }
+    }
+
+    /**
+     * Busca personas cuyo nombre empieza por un texto, saltando un número de
+     * resultados. Solo se usa al saltar a una zona cuya clave aún no se conoce.
+     *
+     * @param texto          El principio del nombre a buscar.
+     * @param desplazamiento El número de resultados que se saltan.
+     * @param tamano         El número máximo de personas de la página.
+     * @return La página de resultados; vacía si no hay más o si ocurre un error.
+     */
+    @Override
+    public Pagina buscarPersonasDesde(String texto, int desplazamiento, int tamano) {
+        String consulta = "SELECT id, nombre, apellidos, edad FROM Persona WHERE nombre LIKE ? ESCAPE '!'"
+                + " ORDER BY nombre, id LIMIT ? OFFSET ?";
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
+            pstmt.setString(1, patronPrefijo(texto));
+            pstmt.setInt(2, tamano);
+            pstmt.setInt(3, desplazamiento);
+            Pagina pagina = leerPagina(pstmt, 0, tamano);
+            M_BUSCAR_DESDE.registrar(inicio, pagina.getPersonas().size());
+            return pagina;
+        } catch (SQLException e) {
+            M_BUSCAR_DESDE.error(inicio);
+            System.out.println("Error al buscar personas: " + e.getMessage());
+            return new Pagina(new ArrayList<>(), 0);
+        }
+    }
+
+    /**
+     * Cuenta las personas cuyo nombre empieza por un texto.
+     *
+     * @param texto El principio del nombre a buscar.
+     * @return El número de coincidencias, o -1 si ocurre un error.
+     */
+    @Override
+    public int contarBusqueda(String texto) {
+        long inicio = System.nanoTime();
+        String clave = "#" + IndiceNombres.normalizar(texto);
+        long generacion = BUSQUEDAS.generacion();
+        Object guardado = BUSQUEDAS.obtener(clave);
+        if (guardado instanceof Integer total) {
+            M_CONTAR_BUSQUEDA.registrar(inicio, 1); // Acierto de la caché
+            return total;
+        }
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(
+                     "SELECT COUNT(*) FROM Persona WHERE nombre LIKE ? ESCAPE '!'")) {
+            pstmt.setString(1, patronPrefijo(texto));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int total = rs.next() ? rs.getInt(1) : 0;
+                BUSQUEDAS.guardar(clave, total, generacion);
+                M_CONTAR_BUSQUEDA.registrar(inicio, 1);
+                return total;
+            }
+        } catch (SQLException e) {
+            M_CONTAR_BUSQUEDA.error(inicio);
+            System.out.println("Error al contar la búsqueda: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Calcula las cifras agregadas en la base de datos con GROUP BY y
+     * ORDER BY ... LIMIT, que usan los índices de edad y de apellidos, de
+     * modo que solo viajan el histograma y las pocas filas elegidas.
+     *
+     * @param k El número de apellidos frecuentes y de personas mayores y menores.
+     * @return El resumen, o null si ocurre un error.
+     */
+    @Override
+    public ResumenPersonas resumirPersonas(int k) {
+        long inicio = System.nanoTime();
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement edades = conexion.getConexion().prepareStatement(
+                     "SELECT edad, COUNT(*) FROM Persona GROUP BY edad");
+             PreparedStatement apellidos = conexion.getConexion().prepareStatement(
+                     "SELECT apellidos, COUNT(*) AS personas FROM Persona GROUP BY apellidos "
+                             + "ORDER BY personas DESC, apellidos LIMIT ?");
+             PreparedStatement mayores = conexion.getConexion().prepareStatement(
+                     "SELECT id, nombre, apellidos, edad FROM Persona ORDER BY edad DESC, id LIMIT ?");
+             PreparedStatement menores = conexion.getConexion().prepareStatement(
+                     "SELECT id, nombre, apellidos, edad FROM Persona ORDER BY edad, id LIMIT ?")) {
+            HistogramaEdades porEdad = new HistogramaEdades();
+            int grupos = 0;
+            try (ResultSet rs = edades.executeQuery()) {
+                while (rs.next()) {
+                    porEdad.anadir(rs.getInt(1), rs.getInt(2));
+                    grupos++;
+                }
+            }
+
+            List<ResumenPersonas.Frecuencia> frecuentes = new ArrayList<>();
+            apellidos.setInt(1, k);
+            try (ResultSet rs = apellidos.executeQuery()) {
+                while (rs.next()) {
+                    frecuentes.add(new ResumenPersonas.Frecuencia(rs.getString(1), rs.getInt(2)));
+                }
+            }
+            ResumenPersonas resumen = new ResumenPersonas(porEdad, frecuentes,
+                    leerPersonas(mayores, k), leerPersonas(menores, k));
+            M_RESUMIR.registrar(inicio, grupos + frecuentes.size() + 2L * k);
+            return resumen;
+        } catch (SQLException e) {
+            M_RESUMIR.error(inicio);
+            System.out.println("Error al calcular el resumen de personas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ejecuta una consulta de personas con un límite y las devuelve en orden.
+     */
+    private static List<Persona> leerPersonas(PreparedStatement pstmt, int limite) throws SQLException {
+        List<Persona> personas = new ArrayList<>();
+        pstmt.setInt(1, limite);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                personas.add(new Persona(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4)));
+            }
+        }
+        return personas;
+    }
+
+    /**
+     * Vacía la caché de búsquedas. Se llama tras cualquier escritura en la tabla.
+     */
+    public static void invalidarBusquedas() {
+        BUSQUEDAS.invalidar();
+    }
+
+    /**
+     * Construye un patrón LIKE de prefijo escapando los comodines del texto.
+     */
+    private static String patronPrefijo(String texto) {
+        return texto.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    /**
+     * Anota en una métrica el resultado de anotar una escritura diferida.
+     */
+    private static void anotar(MetricaOperacion metrica, long inicio, boolean correcta) {
+        if (correcta) {
+            metrica.registrar(inicio, 1);
+        } else {
+            metrica.error(inicio);
+        }
+    }
+
+    /**
+     * Ejecuta una consulta de página (id, nombre, apellidos, edad) y lee sus filas por posición.
+     */
+    private static Pagina leerPagina(PreparedStatement pstmt, long despuesDeId, int tamano) throws SQLException {
+        pstmt.setFetchSize(Math.min(tamano, TAMANO_FETCH));
+        List<Persona> filas = new ArrayList<>(tamano);
+        long ultimoId = despuesDeId;
+        String ultimoNombre = null;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ultimoId = rs.getLong(1);
+                ultimoNombre = rs.getString(2);
+                filas.add(new Persona(rs.getInt(1), ultimoNombre, rs.getString(3), rs.getInt(4)));
+            }
+        }
+        return new Pagina(filas, ultimoId, ultimoNombre);
+    }
+
+    /**
+     * Modifica un registro de persona en la base de datos, localizándolo por su id.
      *
      * @param personaAntigua La persona existente que se desea modificar.
      * @param personaNueva   La nueva persona con los valores actualizados.
      * @return true si la modificación fue exitosa; false en caso contrario.
      */
-    public static boolean modificarPersona(Persona personaAntigua, Persona personaNueva) {
-        String consulta = "UPDATE Persona SET nombre = ?, apellidos = ?, edad = ? WHERE nombre = ? AND apellidos = ?";
+    @Override
+    public boolean modificarPersona(Persona personaAntigua, Persona personaNueva) {
+        long inicio = System.nanoTime();
+        EscrituraDiferida diferida = EscrituraDiferida.activa();
+        if (diferida != null) {
+            boolean anotada = diferida.modificar(personaAntigua, personaNueva); // Se anota en el registro local y se aplica después
+            anotar(M_ANOTAR_MODIFICACION, inicio, anotada);
+            return anotada;
+        }
+        String consulta = "UPDATE Persona SET nombre = ?, apellidos = ?, edad = ? WHERE id = ?";
         try (ConexionBBDD conexion = new ConexionBBDD();
-             Connection conn = conexion.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(consulta)) {
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
 
             // Establece los nuevos valores
             pstmt.setString(1, personaNueva.getNombre());
             pstmt.setString(2, personaNueva.getApellidos());
             pstmt.setInt(3, personaNueva.getEdad());
 
-            // Utiliza los valores originales para la búsqueda
-            pstmt.setString(4, personaAntigua.getNombre());
-            pstmt.setString(5, personaAntigua.getApellidos());
+            // Localiza la fila por su clave primaria
+            pstmt.setInt(4, personaAntigua.getId());
 
             int filasAfectadas = pstmt.executeUpdate();
+            invalidarBusquedas();
+            M_MODIFICAR.registrar(inicio, filasAfectadas);
             return filasAfectadas > 0;
         } catch (SQLException e) {
+            M_MODIFICAR.error(inicio);
             System.out.println("Error al modificar en la base de datos: " + e.getMessage());
             return false;
         }
     }
 
     /**
-     * Crea una nueva persona en la base de datos.
+     * Crea una nueva persona con INSERT IGNORE: si la restricción única de
+     * nombre y apellidos ya la tiene, no se inserta y no hace falta una
+     * consulta previa para comprobarlo.
      *
      * @param persona La persona a crear en la base de datos.
-     * @return true si la creación fue exitosa; false en caso contrario.
+     * @return Si se creó, si estaba duplicada o si hubo un error.
      */
-    public static boolean nuevaPersona(Persona persona) {
-        String consulta = "INSERT INTO Persona (nombre, apellidos, edad) VALUES (?, ?, ?)";
+    @Override
+    public Alta crearPersona(Persona persona) {
+        long inicio = System.nanoTime();
+        EscrituraDiferida diferida = EscrituraDiferida.activa();
+        if (diferida != null) {
+            boolean anotada = diferida.nueva(persona); // Se anota en el registro local y se aplica después
+            anotar(M_ANOTAR_ALTA, inicio, anotada);
+            return anotada ? Alta.CREADA : Alta.ERROR;
+        }
+        String consulta = "INSERT IGNORE INTO Persona (nombre, apellidos, edad) VALUES (?, ?, ?)";
         try (ConexionBBDD conexion = new ConexionBBDD();
-             Connection conn = conexion.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(consulta)) {
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setString(1, persona.getNombre());
             pstmt.setString(2, persona.getApellidos());
             pstmt.setInt(3, persona.getEdad());
 
             int filasAfectadas = pstmt.executeUpdate();
-            return filasAfectadas > 0;
+            M_CREAR.registrar(inicio, filasAfectadas);
+            if (filasAfectadas == 0) {
+                return Alta.DUPLICADA;
+            }
+            try (ResultSet claves = pstmt.getGeneratedKeys()) {
+                if (claves.next()) {
+                    persona.setId(claves.getInt(1));
+                }
+            }
+            invalidarBusquedas();
+            return Alta.CREADA;
         } catch (SQLException e) {
+            M_CREAR.error(inicio);
             System.out.println("Error al crear persona en la base de datos: " + e.getMessage());
-            return false;
+            return Alta.ERROR;
         }
     }
 
     /**
-     * Elimina una persona de la base de datos.
+     * Elimina una persona de la base de datos, localizándola por su id.
      *
      * @param personaAEliminar La persona que se desea eliminar.
      * @return true si la eliminación fue exitosa; false en caso contrario.
      */
-    public static boolean eliminarPersona(Persona personaAEliminar) {
-        String consulta = "DELETE FROM Persona WHERE nombre = ? AND apellidos = ?";
+    @Override
+    public boolean eliminarPersona(Persona personaAEliminar) {
+        long inicio = System.nanoTime();
+        EscrituraDiferida diferida = EscrituraDiferida.activa();
+        if (diferida != null) {
+            boolean anotada = diferida.eliminar(personaAEliminar); // Se anota en el registro local y se aplica después
+            anotar(M_ANOTAR_BAJA, inicio, anotada);
+            return anotada;
+        }
+        String consulta = "DELETE FROM Persona WHERE id = ?";
         try (ConexionBBDD conexion = new ConexionBBDD();
-             Connection conn = conexion.getConexion();
-             PreparedStatement pstmt = conn.prepareStatement(consulta)) {
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
 
-            pstmt.setString(1, personaAEliminar.getNombre());
-            pstmt.setString(2, personaAEliminar.getApellidos());
+            pstmt.setInt(1, personaAEliminar.getId());
 
             int filasAfectadas = pstmt.executeUpdate();
+            invalidarBusquedas();
+            M_ELIMINAR.registrar(inicio, filasAfectadas);
             return filasAfectadas > 0;
         } catch (SQLException e) {
+            M_ELIMINAR.error(inicio);
             System.out.println("Error al eliminar en la base de datos: " + e.getMessage());
             return false;
         }
@@ -0,0 +1,180 @@
+package org.example.ejei;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Versión no bloqueante del repositorio de personas elegido al arrancar
+ * ({@link Repositorio#personas()}).
+ * Cada operación se ejecuta en un hilo virtual, con un número máximo de
+ * operaciones simultáneas contra el almacenamiento, y su resultado se entrega
+ * en el hilo de JavaFX, de modo que las acciones encadenadas con
+ * {@code thenAccept} pueden tocar la interfaz directamente. Si la operación
+ * lanza cualquier excepción o error, el futuro se completa con él, también
+ * en el hilo de JavaFX; quien lo encadena debe tratarlo, normalmente
+ * convirtiéndolo con {@link #fallo} en el mismo resultado que un error del
+ * repositorio para volver a habilitar sus controles y avisar al usuario.
+ */
+public class DaoPersonaAsync {
+    private static final ExecutorService EJECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Semaphore CONCURRENCIA =
+            new Semaphore(Math.max(1, Integer.getInteger("ejei.dao.concurrencia", 10))); // Operaciones simultáneas
+
+    private DaoPersonaAsync() {
+    }
+
+    /**
+     * Carga de forma asíncrona la lista de personas.
+     *
+     * @return Un futuro con la lista cargada, completado en el hilo de JavaFX.
+     */
+    public static CompletableFuture<ObservableList<Persona>> cargarListadoPersonas() {
+        return ejecutar(() -> Repositorio.personas().cargarListadoPersonas());
+    }
+
+    /**
+     * Carga de forma asíncrona todas las personas por páginas, entregando
+     * cada página en el hilo de JavaFX en cuanto llega, de modo que la
+     * primera se puede mostrar sin esperar al resto.
+     *
+     * @param tamano    El número de personas por página.
+     * @param porPagina La acción que recibe cada página, en el hilo de JavaFX.
+     * @return Un futuro con el número de personas cargadas, completado tras la última página.
+     */
+    public static CompletableFuture<Integer> cargarPorPaginas(int tamano, Consumer<List<Persona>> porPagina) {
+        return cargarPorPaginas(tamano, 0, porPagina);
+    }
+
+    /**
+     * Carga de forma asíncrona por páginas las personas cuyo id es mayor que
+     * uno dado; sirve para continuar una carga cuya primera página ya se leyó.
+     *
+     * @param tamano      El número de personas por página.
+     * @param despuesDeId El id a partir del cual (sin incluirlo) se carga.
+     * @param porPagina   La acción que recibe cada página, en el hilo de JavaFX.
+     * @return Un futuro con el número de personas cargadas, completado tras la última página;
+     *         si una página no se puede leer, se completa con el error en lugar de dar la carga por terminada.
+     */
+    public static CompletableFuture<Integer> cargarPorPaginas(int tamano, long despuesDeId, Consumer<List<Persona>> porPagina) {
+        return ejecutar(() -> {
+            RepositorioPersonas repositorio = Repositorio.personas();
+            int cargadas = 0;
+            long ultimoId = despuesDeId;
+            while (true) {
+                Pagina pagina = repositorio.cargarPagina(ultimoId, tamano);
+                if (pagina == null) {
+                    throw new CompletionException(new SQLException("No se pudo cargar la página de personas tras el id " + ultimoId));
+                }
+                List<Persona> filas = pagina.getPersonas();
+                if (filas.isEmpty()) {
+                    break;
+                }
+                Platform.runLater(() -> porPagina.accept(filas));
+                cargadas += filas.size();
+                ultimoId = pagina.getUltimoId();
+                if (filas.size() < tamano) {
+                    break;
+                }
+            }
+            return cargadas;
+        });
+    }
+
+    /**
+     * Modifica de forma asíncrona un registro de persona.
+     *
+     * @param personaAntigua La persona existente que se desea modificar.
+     * @param personaNueva   La nueva persona con los valores actualizados.
+     * @return Un futuro con true si la modificación fue exitosa, completado en el hilo de JavaFX.
+     */
+    public static CompletableFuture<Boolean> modificarPersona(Persona personaAntigua, Persona personaNueva) {
+        return ejecutar(() -> Repositorio.personas().modificarPersona(personaAntigua, personaNueva));
+    }
+
+    /**
+     * Crea de forma asíncrona una nueva persona.
+     *
+     * @param persona La persona a crear.
+     * @return Un futuro con true si la creación fue exitosa, completado en el hilo de JavaFX.
+     */
+    public static CompletableFuture<Boolean> nuevaPersona(Persona persona) {
+        return ejecutar(() -> Repositorio.personas().nuevaPersona(persona));
+    }
+
+    /**
+     * Crea de forma asíncrona una nueva persona si no existe otra con el mismo nombre y apellidos.
+     *
+     * @param persona La persona a crear.
+     * @return Un futuro con el resultado del alta, completado en el hilo de JavaFX.
+     */
+    public static CompletableFuture<RepositorioPersonas.Alta> crearPersona(Persona persona) {
+        return ejecutar(() -> Repositorio.personas().crearPersona(persona));
+    }
+
+    /**
+     * Elimina de forma asíncrona una persona.
+     *
+     * @param personaAEliminar La persona que se desea eliminar.
+     * @return Un futuro con true si la eliminación fue exitosa, completado en el hilo de JavaFX.
+     */
+    public static CompletableFuture<Boolean> eliminarPersona(Persona personaAEliminar) {
+        return ejecutar(() -> Repositorio.personas().eliminarPersona(personaAEliminar));
+    }
+
+    /**
+     * Ejecuta una operación en un hilo virtual respetando el límite de
+     * concurrencia y completa el futuro en el hilo de JavaFX.
+     *
+     * @param operacion La operación bloqueante a ejecutar.
+     * @param <T>       El tipo del resultado.
+     * @return Un futuro con el resultado de la operación.
+     */
+    static <T> CompletableFuture<T> ejecutar(Supplier<T> operacion) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        EJECUTOR.execute(() -> {
+            try {
+                CONCURRENCIA.acquire();
+                try {
+                    T valor = operacion.get();
+                    Platform.runLater(() -> resultado.complete(valor));
+                } finally {
+                    CONCURRENCIA.release();
+                }
+            } catch (Throwable e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                Platform.runLater(() -> resultado.completeExceptionally(e));
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Anota el fallo de una operación asíncrona y devuelve el valor que la
+     * sustituye, para que quien la encadena lo trate como un error más del
+     * repositorio, por ejemplo
+     * {@code .exceptionally(e -> DaoPersonaAsync.fallo("eliminarPersona", e, false))}.
+     *
+     * @param operacion El nombre de la operación, para el mensaje.
+     * @param error     El fallo recibido.
+     * @param valor     El valor que sustituye al resultado.
+     * @param <T>       El tipo del resultado.
+     * @return El valor indicado.
+     */
+    static <T> T fallo(String operacion, Throwable error, T valor) {
+        Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        System.out.println("Error en " + operacion + ": " + causa);
+        return valor;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.ejei;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tabla de cadenas compartidas: cada cadena distinta se guarda una sola vez
+ * y se identifica por un código entero. Los nombres y apellidos se repiten
+ * muchísimo ("García", "María"...), así que guardar códigos en lugar de
+ * cadenas reduce mucho la memoria y permite comparar por código.
+ * Los códigos no se reutilizan; null se codifica como -1.
+ */
+public class DiccionarioCadenas {
+    private final Map<String, Integer> codigos = new HashMap<>(); // Cadena -> código
+    private String[] cadenas = new String[256]; // Código -> cadena
+    private int tamano; // Número de cadenas distintas
+
+    /**
+     * Devuelve el código de una cadena, añadiéndola si es nueva.
+     *
+     * @param cadena La cadena a codificar.
+     * @return Su código, o -1 si la cadena es null.
+     */
+    public int codificar(String cadena) {
+        if (cadena == null) {
+            return -1;
+        }
+        Integer codigo = codigos.get(cadena);
+        if (codigo != null) {
+            return codigo;
+        }
+        if (tamano == cadenas.length) {
+            cadenas = Arrays.copyOf(cadenas, tamano * 2);
+        }
+        cadenas[tamano] = cadena;
+        codigos.put(cadena, tamano);
+        return tamano++;
+    }
+
+    /**
+     * Devuelve la cadena de un código.
+     *
+     * @param codigo El código.
+     * @return La cadena, o null si el código es -1.
+     */
+    public String cadena(int codigo) {
+        return codigo < 0 ? null : cadenas[codigo];
+    }
+
+    /**
+     * Copia las cadenas guardadas hasta ahora, para leerlas desde otro hilo.
+     *
+     * @return Las cadenas, indexadas por su código.
+     */
+    public String[] copiarCadenas() {
+        return Arrays.copyOf(cadenas, tamano);
+    }
+
+    /**
+     * Devuelve el número de cadenas distintas guardadas.
+     *
+     * @return El tamaño del diccionario.
+     */
+    public int tamano() {
+        return tamano;
+    }
+}
@@ -25,6 +25,7 @@ public class EditarPersonaController {
 
     private HelloController parentController; // Controlador padre
     private Persona personaEdicion; // Persona que se está editando
+    private int edicion; // Identifica la edición en curso; la ventana se reutiliza
 
     /**
      * Inicializa el controlador y asigna acciones a los botones.
@@ -32,20 +33,24 @@ public class EditarPersonaController {
     @FXML
     public void initialize() {
         // Asignar acción al botón de guardar
-        guardarButton.setOnAction(e -> guardarPersona());
+        guardarButton.setOnAction(e -> VigilanteFx.accion("EditarPersona.guardarPersona", this::guardarPersona));
         cancelarButton.setOnAction(e -> cancelar());
     }
 
     /**
-     * Carga los datos de la persona seleccionada en los campos de texto.
+     * Carga los datos de la persona seleccionada en los campos de texto,
+     * sustituyendo los de la edición anterior (la ventana se reutiliza).
      *
      * @param persona La persona cuyos datos se van a cargar.
      */
     public void cargarDatos(Persona persona) {
         this.personaEdicion = persona; // Guardar la referencia de la persona
+        edicion++; // Un guardado anterior que aún no ha terminado ya no toca la ventana
+        guardarButton.setDisable(false);
         nombreField.setText(persona.getNombre());
         apellidosField.setText(persona.getApellidos());
         edadField.setText(String.valueOf(persona.getEdad()));
+        nombreField.requestFocus();
     }
 
     /**
@@ -59,34 +64,49 @@ public class EditarPersonaController {
 
         // Validación de datos
         if (nombre.isEmpty() || apellidos.isEmpty() || edadStr.isEmpty()) {
-            mostrarAlerta("Todos los campos son obligatorios.");
+            mostrarAlerta(Mensaje.ERROR_CAMPOS);
             return;
         }
 
         try {
             int edad = Integer.parseInt(edadStr);
-            // Crear un nuevo objeto Persona con los datos modificados
-            Persona personaNueva = new Persona(nombre, apellidos, edad);
-
-            // Modificar la persona en la base de datos
-            boolean modificadoEnBD = DaoPersona.modificarPersona(personaEdicion, personaNueva);
-            if (modificadoEnBD) {
-                // Actualizar la persona en la referencia actual
-                personaEdicion.setNombre(nombre);
-                personaEdicion.setApellidos(apellidos);
-                personaEdicion.setEdad(edad);
-
-                // Notificar al controlador padre que los datos han cambiado
-                parentController.actualizarTabla(); // Asegúrate de implementar este método
-
-                // Cerrar la ventana
-                cerrarVentana();
-            } else {
-                mostrarAlerta("No se pudo actualizar la persona en la base de datos.");
+            if (parentController.existeOtraPersona(nombre, apellidos, personaEdicion)) {
+                mostrarAlerta(Mensaje.ERROR_DUPLICADA_OTRA);
+                return;
             }
+            // Crear un nuevo objeto Persona con los datos modificados
+            Persona persona = personaEdicion; // La ventana puede pasar a otra persona antes de que termine
+            int peticion = edicion;
+            Persona personaNueva = new Persona(persona.getId(), nombre, apellidos, edad);
+
+            // Modificar la persona en la base de datos fuera del hilo de JavaFX
+            guardarButton.setDisable(true);
+            DaoPersonaAsync.modificarPersona(persona, personaNueva)
+                    .exceptionally(e -> DaoPersonaAsync.fallo("modificarPersona", e, false))
+                    .thenAccept(modificadoEnBD -> {
+                        if (modificadoEnBD) {
+                            // Actualizar la persona editada, aunque la ventana ya muestre otra
+                            persona.setNombre(nombre);
+                            persona.setApellidos(apellidos);
+                            persona.setEdad(edad);
+
+                            // Notificar al controlador padre que los datos han cambiado
+                            parentController.personaModificada();
+                        }
+                        if (peticion != edicion) {
+                            return; // La ventana ya es de otra edición
+                        }
+                        guardarButton.setDisable(false);
+                        if (modificadoEnBD) {
+                            // Cerrar la ventana
+                            cerrarVentana();
+                        } else {
+                            mostrarAlerta(Mensaje.ERROR_MODIFICAR);
+                        }
+                    });
 
         } catch (NumberFormatException e) {
-            mostrarAlerta("La edad debe ser un número válido.");
+            mostrarAlerta(Mensaje.ERROR_EDAD);
         }
     }
 
@@ -106,15 +126,16 @@ public class EditarPersonaController {
     }
 
     /**
-     * Muestra una alerta al usuario con un mensaje específico.
+     * Muestra una alerta al usuario con un mensaje específico, en el idioma
+     * de la ventana principal.
      *
      * @param mensaje El mensaje que se mostrará en la alerta.
      */
-    private void mostrarAlerta(String mensaje) {
+    private void mostrarAlerta(Mensaje mensaje) {
         Alert alert = new Alert(Alert.AlertType.WARNING);
-        alert.setTitle("Advertencia");
+        alert.setTitle(parentController.texto(Mensaje.TITULO_ADVERTENCIA));
         alert.setHeaderText(null);
-        alert.setContentText(mensaje);
+        alert.setContentText(parentController.texto(mensaje));
         alert.showAndWait();
     }
 
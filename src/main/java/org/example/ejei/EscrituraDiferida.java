@@ -0,0 +1,783 @@
+package org.example.ejei;
+
+import javafx.application.Platform;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Escritura diferida (write-behind) de los cambios de {@link DaoPersona}.
+ * Cada alta, modificación o baja se anota en un registro local de solo
+ * añadir (WAL) y se confirma en cuanto está en disco; la base de datos se
+ * actualiza después, en segundo plano, agrupando los cambios en una sola
+ * transacción cuando se acumulan bastantes o pasa un intervalo.
+ * Mientras esperan, los cambios sobre la misma persona se combinan: varias
+ * modificaciones se quedan en la última, una modificación tras un alta se
+ * funde con el alta y un alta seguida de su baja se anulan.
+ * Las altas reciben un id provisional negativo hasta que se insertan.
+ * Si la aplicación se cierra de golpe o la base de datos no responde, los
+ * cambios pendientes se vuelven a leer del registro y se aplican después.
+ * Cada volcado guarda en la misma transacción, en la tabla Persona_diferida,
+ * hasta qué anotación de este registro está aplicada, y los ids de las altas
+ * se anotan en el registro antes de confirmar; así, tras una caída, lo que ya
+ * llegó a la base de datos no se vuelve a insertar.
+ * Un cambio que la base de datos rechaza (no por la conexión) no bloquea a los
+ * demás: se aparta al fichero {@code ejei.escritura.rechazados} y se avisa al usuario.
+ * Se activa con la propiedad del sistema {@code ejei.escritura.diferida}.
+ */
+public class EscrituraDiferida {
+    private static final byte ALTA = 'A';
+    private static final byte MODIFICACION = 'M';
+    private static final byte BAJA = 'B';
+    private static final byte ID_ASIGNADO = 'I'; // Id real de un alta, anotado antes de confirmar su volcado
+    private static final byte CONFIRMADO = 'C'; // Cambios aplicados en la base de datos hasta un número de secuencia
+    private static final byte DESCARTADO = 'D'; // El volcado de los ids anotados antes se deshizo
+    private static final byte ORIGEN = 'O'; // Identificador del registro en Persona_diferida, al principio
+    private static final MetricaOperacion M_VOLCAR = Metricas.operacion("EscrituraDiferida", "volcar"); // Filas: cambios aplicados
+
+    private static volatile EscrituraDiferida instancia; // Null si la escritura diferida está desactivada
+    private static volatile OyenteRechazos oyenteRechazos; // Quien avisa al usuario de los cambios rechazados
+
+    private final FileChannel wal; // Registro local de cambios
+    private final Path rutaRechazados; // Fichero de los cambios que la base de datos rechaza
+    private final boolean sincronizar; // Forzar a disco cada anotación
+    private final int lote; // Cambios pendientes que provocan un volcado inmediato
+    private final ScheduledExecutorService volcador;
+
+    private Map<Integer, Operacion> pendientes = new LinkedHashMap<>(); // Clave -> último cambio combinado
+    private final Map<Integer, Integer> idsAsignados = new HashMap<>(); // Id provisional -> id real
+    private String origen; // Identifica este registro en Persona_diferida
+    private long secuencia; // Número de la última anotación
+    private int siguienteProvisional = -1; // Próximo id provisional para las altas
+    private boolean cerrada; // Tras cerrar ya no se anotan cambios
+
+    // Solo en el hilo del volcador (o al cerrar, cuando ya ha parado)
+    private List<Operacion> porResolver; // Cambios que pueden estar ya en la base de datos (tras una caída o una confirmación fallida)
+    private List<String> rechazosPorResolver = List.of(); // Cambios rechazados en el volcado dudoso
+    private final Map<Integer, Integer> idsPorResolver = new HashMap<>(); // Ids anotados del volcado dudoso
+    private long idsHasta; // Anotación hasta la que llegaba el volcado dudoso
+
+    /**
+     * Recibe el aviso de que la base de datos ha rechazado cambios diferidos.
+     */
+    public interface OyenteRechazos {
+        /**
+         * Se llama en el hilo de JavaFX tras un volcado con cambios rechazados.
+         *
+         * @param cambios El número de cambios rechazados.
+         * @param ruta    El fichero en el que se han guardado.
+         */
+        void rechazados(int cambios, Path ruta);
+    }
+
+    /**
+     * Cambio pendiente sobre una persona.
+     */
+    private static class Operacion {
+        private final byte tipo;
+        private final long secuencia;
+        private final int clave; // Id de la persona (negativo si es provisional)
+        private final String nombre;
+        private final String apellidos;
+        private final int edad;
+        private final Persona destino; // Persona que recibe el id real tras el alta (null al recuperar)
+
+        Operacion(byte tipo, long secuencia, int clave, String nombre, String apellidos, int edad, Persona destino) {
+            this.tipo = tipo;
+            this.secuencia = secuencia;
+            this.clave = clave;
+            this.nombre = nombre;
+            this.apellidos = apellidos;
+            this.edad = edad;
+            this.destino = destino;
+        }
+    }
+
+    private EscrituraDiferida(Path ruta) throws IOException {
+        sincronizar = !"false".equalsIgnoreCase(System.getProperty("ejei.escritura.fsync", "true"));
+        lote = Math.max(1, Integer.getInteger("ejei.escritura.lote", 100));
+        rutaRechazados = Paths.get(System.getProperty("ejei.escritura.rechazados", "personas.rechazados"));
+        wal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recuperar();
+
+        volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "escritura-diferida");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long intervalo = Math.max(10, Long.getLong("ejei.escritura.intervalo.ms", 500L));
+        volcador.scheduleWithFixedDelay(this::volcar, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Activa la escritura diferida si la propiedad {@code ejei.escritura.diferida}
+     * está a true, recuperando los cambios pendientes del registro local
+     * ({@code ejei.escritura.wal}, por defecto personas.wal).
+     *
+     * @throws IOException Si no se puede abrir o leer el registro.
+     */
+    public static synchronized void iniciar() throws IOException {
+        if (instancia != null || !Boolean.getBoolean("ejei.escritura.diferida")) {
+            return;
+        }
+        Path ruta = Paths.get(System.getProperty("ejei.escritura.wal", "personas.wal"));
+        instancia = new EscrituraDiferida(ruta);
+        System.out.println("Escritura diferida activada con registro en " + ruta.toAbsolutePath());
+    }
+
+    /**
+     * Vuelca los cambios pendientes y cierra el registro. Lo que no se
+     * pueda aplicar se queda en el registro para el próximo arranque.
+     */
+    public static synchronized void cerrar() {
+        EscrituraDiferida actual = instancia;
+        if (actual == null) {
+            return;
+        }
+        instancia = null;
+        synchronized (actual) {
+            actual.cerrada = true; // Quien aún la tenga ya no puede anotar ni pedir volcados
+        }
+        actual.volcador.shutdown();
+        try {
+            actual.volcador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        actual.volcar();
+        try {
+            actual.wal.close();
+        } catch (IOException e) {
+            System.out.println("Error al cerrar el registro de escritura diferida: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Establece quién avisa al usuario de los cambios que la base de datos rechaza.
+     *
+     * @param oyente El oyente, o null para no avisar.
+     */
+    public static void alRechazar(OyenteRechazos oyente) {
+        oyenteRechazos = oyente;
+    }
+
+    /**
+     * Devuelve la escritura diferida en uso.
+     *
+     * @return La instancia activa, o null si los cambios van directamente a la base de datos.
+     */
+    static EscrituraDiferida activa() {
+        return instancia;
+    }
+
+    /**
+     * Devuelve el id real que la base de datos asignó a un alta diferida.
+     *
+     * @param provisional El id provisional (negativo) del alta.
+     * @return El id real, o 0 si aún no se ha insertado o la escritura diferida no está activa.
+     */
+    static int idAsignado(int provisional) {
+        EscrituraDiferida actual = instancia;
+        if (actual == null) {
+            return 0;
+        }
+        synchronized (actual) {
+            return actual.idsAsignados.getOrDefault(provisional, 0);
+        }
+    }
+
+    /**
+     * Anota el alta de una persona y le asigna un id provisional.
+     *
+     * @param persona La persona nueva.
+     * @return true si el cambio quedó anotado en el registro.
+     */
+    public synchronized boolean nueva(Persona persona) {
+        int provisional = siguienteProvisional--;
+        if (!anotar(ALTA, provisional, persona.getNombre(), persona.getApellidos(), persona.getEdad(), persona)) {
+            siguienteProvisional++;
+            return false;
+        }
+        persona.setId(provisional);
+        return true;
+    }
+
+    /**
+     * Anota la modificación de una persona.
+     *
+     * @param personaAntigua La persona tal como estaba (aporta el id).
+     * @param personaNueva   Los nuevos valores.
+     * @return true si el cambio quedó anotado en el registro.
+     */
+    public synchronized boolean modificar(Persona personaAntigua, Persona personaNueva) {
+        return anotar(MODIFICACION, personaAntigua.getId(), personaNueva.getNombre(),
+                personaNueva.getApellidos(), personaNueva.getEdad(), null);
+    }
+
+    /**
+     * Anota la baja de una persona.
+     *
+     * @param persona La persona a eliminar.
+     * @return true si el cambio quedó anotado en el registro.
+     */
+    public synchronized boolean eliminar(Persona persona) {
+        return anotar(BAJA, persona.getId(), null, null, 0, null);
+    }
+
+    /**
+     * Escribe un cambio en el registro y lo combina con los pendientes.
+     * Si se alcanza el tamaño de lote se pide un volcado inmediato.
+     */
+    private boolean anotar(byte tipo, int clave, String nombre, String apellidos, int edad, Persona destino) {
+        if (cerrada) {
+            System.out.println("La escritura diferida ya está cerrada, no se anota el cambio");
+            return false;
+        }
+        Operacion operacion = new Operacion(tipo, secuencia + 1, clave, nombre, apellidos, edad, destino);
+        try {
+            escribir(operacion);
+        } catch (IOException e) {
+            System.out.println("Error al anotar el cambio en el registro local: " + e.getMessage());
+            return false;
+        }
+        secuencia++;
+        combinar(pendientes, operacion);
+        if (pendientes.size() >= lote) {
+            volcador.execute(this::volcar);
+        }
+        return true;
+    }
+
+    /**
+     * Combina un cambio con el pendiente de la misma persona.
+     */
+    private static void combinar(Map<Integer, Operacion> destino, Operacion operacion) {
+        Operacion previa = destino.get(operacion.clave);
+        if (previa == null) {
+            destino.put(operacion.clave, operacion);
+        } else if (previa.tipo == ALTA && operacion.tipo == BAJA) {
+            destino.remove(operacion.clave); // Se anulan: nunca llega a la base de datos
+        } else if (previa.tipo == ALTA && operacion.tipo == MODIFICACION) {
+            destino.put(operacion.clave, new Operacion(ALTA, operacion.secuencia, operacion.clave,
+                    operacion.nombre, operacion.apellidos, operacion.edad, previa.destino));
+        } else {
+            destino.put(operacion.clave, operacion);
+        }
+    }
+
+    /**
+     * Aplica en una sola transacción todos los cambios pendientes. Si falla
+     * por la conexión, los cambios vuelven a la cola y se reintentan en el
+     * siguiente volcado; si falla un cambio concreto, se repite la transacción
+     * aplicando cada cambio con su punto de guardado y se apartan los que
+     * fallen. Si falla la confirmación no se sabe si se aplicó, y antes del
+     * siguiente volcado se comprueba en Persona_diferida.
+     * Solo se ejecuta en el hilo del volcador (o al cerrar, cuando ya ha parado).
+     */
+    private void volcar() {
+        if (!resolver()) {
+            return;
+        }
+        Map<Integer, Operacion> aplicables;
+        long hasta;
+        synchronized (this) {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+            aplicables = pendientes;
+            hasta = secuencia;
+            pendientes = new LinkedHashMap<>();
+        }
+
+        long inicio = System.nanoTime();
+        Map<Integer, Integer> asignados = new LinkedHashMap<>();
+        List<String> rechazos = new ArrayList<>();
+        try (ConexionBBDD conexion = new ConexionBBDD()) {
+            Connection con = conexion.getConexion();
+            con.setAutoCommit(false);
+            try {
+                try {
+                    aplicar(con, aplicables.values(), asignados, null);
+                } catch (SQLException e) {
+                    if (deConexion(e)) {
+                        throw e;
+                    }
+                    System.out.println("Un cambio diferido falla, se aplican uno a uno: " + e.getMessage());
+                    con.rollback();
+                    asignados.clear();
+                    aplicar(con, aplicables.values(), asignados, rechazos);
+                }
+                marcarAplicado(con, hasta);
+                anotarIds(asignados, hasta);
+            } catch (SQLException | IOException e) {
+                descartarIds(asignados, hasta); // Antes de deshacer, por si también falla
+                con.rollback();
+                throw e;
+            }
+            try {
+                con.commit();
+            } catch (SQLException e) {
+                M_VOLCAR.error(inicio);
+                System.out.println("No se sabe si los cambios diferidos se han aplicado, se comprobará: " + e.getMessage());
+                porResolver = new ArrayList<>(aplicables.values());
+                rechazosPorResolver = rechazos;
+                idsPorResolver.putAll(asignados);
+                idsHasta = hasta;
+                return;
+            }
+        } catch (SQLException | IOException e) {
+            M_VOLCAR.error(inicio);
+            System.out.println("Error al volcar los cambios diferidos, se reintentará: " + e.getMessage());
+            synchronized (this) {
+                Map<Integer, Operacion> nuevas = pendientes;
+                pendientes = new LinkedHashMap<>(aplicables);
+                for (Operacion operacion : nuevas.values()) {
+                    combinar(pendientes, operacion);
+                }
+            }
+            return;
+        }
+        M_VOLCAR.registrar(inicio, aplicables.size() - rechazos.size());
+        confirmar(aplicables.values(), asignados, rechazos, hasta);
+    }
+
+    /**
+     * Termina un volcado aplicado: publica los ids reales, aparta los cambios
+     * rechazados y anota la confirmación en el registro, que empieza de cero
+     * si ya no queda nada pendiente.
+     */
+    private void confirmar(Collection<Operacion> aplicadas, Map<Integer, Integer> asignados, List<String> rechazos, long hasta) {
+        DaoPersona.invalidarBusquedas();
+        List<Persona> destinos = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (Operacion operacion : aplicadas) {
+            Integer id = asignados.get(operacion.clave);
+            if (id != null && operacion.destino != null) {
+                destinos.add(operacion.destino);
+                ids.add(id);
+            }
+        }
+        if (!destinos.isEmpty()) {
+            // Las personas pueden estar en la tabla: su id solo cambia en el hilo de JavaFX
+            enHiloFx(() -> {
+                for (int i = 0; i < destinos.size(); i++) {
+                    destinos.get(i).setId(ids.get(i));
+                }
+            });
+        }
+        apartar(rechazos);
+        synchronized (this) {
+            idsAsignados.putAll(asignados);
+            try {
+                escribir(new Operacion(CONFIRMADO, hasta, 0, null, null, 0, null));
+                if (pendientes.isEmpty()) {
+                    // Todo está en la base de datos: el registro puede empezar de cero
+                    wal.truncate(0);
+                    escribir(new Operacion(ORIGEN, secuencia, 0, origen, null, 0, null));
+                    wal.force(true);
+                }
+            } catch (IOException e) {
+                System.out.println("Error al actualizar el registro local: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Averigua, antes de volcar nada más, si los cambios de un volcado dudoso
+     * o recuperados al arrancar ya están en la base de datos: los anteriores a
+     * la anotación guardada en Persona_diferida ya se aplicaron, y el resto
+     * vuelve a la cola por delante de los nuevos.
+     *
+     * @return false si no se ha podido comprobar y hay que esperar al siguiente volcado.
+     */
+    private boolean resolver() {
+        if (porResolver == null) {
+            return true;
+        }
+        long aplicado = 0;
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(
+                     "SELECT secuencia FROM Persona_diferida WHERE origen = ?")) {
+            pstmt.setString(1, origen);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    aplicado = rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("No se puede comprobar qué cambios diferidos están aplicados, se reintentará: " + e.getMessage());
+            return false;
+        }
+
+        List<Operacion> aplicadas = new ArrayList<>();
+        synchronized (this) {
+            Map<Integer, Operacion> restantes = new LinkedHashMap<>();
+            for (Operacion operacion : porResolver) {
+                if (operacion.secuencia > aplicado) {
+                    combinar(restantes, operacion);
+                } else {
+                    aplicadas.add(operacion);
+                }
+            }
+            for (Operacion operacion : pendientes.values()) {
+                combinar(restantes, operacion);
+            }
+            pendientes = restantes;
+        }
+        boolean confirmado = !idsPorResolver.isEmpty() && idsHasta <= aplicado;
+        if (!idsPorResolver.isEmpty() && !confirmado) {
+            descartarIds(idsPorResolver, idsHasta);
+        }
+        if (aplicadas.isEmpty()) {
+            if (!rechazosPorResolver.isEmpty()) {
+                System.out.println("El volcado dudoso no se aplicó; sus cambios rechazados se volverán a intentar");
+            }
+        } else {
+            confirmar(aplicadas, confirmado ? idsPorResolver : Map.of(), rechazosPorResolver, aplicado);
+        }
+        porResolver = null;
+        rechazosPorResolver = List.of();
+        idsPorResolver.clear();
+        return true;
+    }
+
+    /**
+     * Ejecuta los cambios en la transacción abierta: las altas una a una
+     * para obtener su id y las modificaciones y bajas por lotes. Si se
+     * recibe dónde anotar los rechazos, cada cambio se ejecuta por separado
+     * tras un punto de guardado y el que falla (salvo por la conexión) se
+     * deshace y se anota, sin detener a los demás.
+     */
+    private void aplicar(Connection con, Iterable<Operacion> operaciones, Map<Integer, Integer> asignados,
+                         List<String> rechazos) throws SQLException {
+        boolean aislar = rechazos != null;
+        try (PreparedStatement insertar = con.prepareStatement(
+                     "INSERT IGNORE INTO Persona (nombre, apellidos, edad) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement modificar = con.prepareStatement(
+                     "UPDATE Persona SET nombre = ?, apellidos = ?, edad = ? WHERE id = ?");
+             PreparedStatement eliminar = con.prepareStatement("DELETE FROM Persona WHERE id = ?")) {
+
+            for (Operacion operacion : operaciones) {
+                Savepoint punto = aislar ? con.setSavepoint() : null;
+                try {
+                    aplicar(operacion, insertar, modificar, eliminar, asignados, aislar);
+                } catch (SQLException e) {
+                    if (punto == null || deConexion(e)) {
+                        throw e;
+                    }
+                    con.rollback(punto);
+                    asignados.remove(operacion.clave);
+                    rechazos.add(describir(operacion, e));
+                    continue;
+                }
+                if (punto != null) {
+                    con.releaseSavepoint(punto);
+                }
+            }
+            if (!aislar) {
+                modificar.executeBatch();
+                eliminar.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Ejecuta un cambio; las modificaciones y bajas se añaden al lote salvo
+     * que se pida ejecutarlas en el momento.
+     */
+    private void aplicar(Operacion operacion, PreparedStatement insertar, PreparedStatement modificar,
+                         PreparedStatement eliminar, Map<Integer, Integer> asignados, boolean ahora) throws SQLException {
+        if (operacion.tipo == ALTA) {
+            insertar.setString(1, operacion.nombre);
+            insertar.setString(2, operacion.apellidos);
+            insertar.setInt(3, operacion.edad);
+            if (insertar.executeUpdate() == 0) {
+                System.out.println("Alta diferida descartada por duplicada: "
+                        + operacion.nombre + " " + operacion.apellidos);
+                return;
+            }
+            try (ResultSet claves = insertar.getGeneratedKeys()) {
+                if (claves.next()) {
+                    asignados.put(operacion.clave, claves.getInt(1));
+                }
+            }
+            return;
+        }
+        int id = idReal(operacion.clave);
+        if (id <= 0) {
+            System.out.println("Cambio diferido sin id real, se descarta: " + operacion.clave);
+            return;
+        }
+        PreparedStatement sentencia;
+        if (operacion.tipo == MODIFICACION) {
+            modificar.setString(1, operacion.nombre);
+            modificar.setString(2, operacion.apellidos);
+            modificar.setInt(3, operacion.edad);
+            modificar.setInt(4, id);
+            sentencia = modificar;
+        } else {
+            eliminar.setInt(1, id);
+            sentencia = eliminar;
+        }
+        if (ahora) {
+            sentencia.executeUpdate();
+        } else {
+            sentencia.addBatch();
+        }
+    }
+
+    /**
+     * Guarda en la transacción del volcado hasta qué anotación del registro
+     * queda aplicada.
+     */
+    private void marcarAplicado(Connection con, long hasta) throws SQLException {
+        try (PreparedStatement actualizar = con.prepareStatement(
+                "UPDATE Persona_diferida SET secuencia = ? WHERE origen = ?")) {
+            actualizar.setLong(1, hasta);
+            actualizar.setString(2, origen);
+            if (actualizar.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insertar = con.prepareStatement(
+                "INSERT INTO Persona_diferida (origen, secuencia) VALUES (?, ?)")) {
+            insertar.setString(1, origen);
+            insertar.setLong(2, hasta);
+            insertar.executeUpdate();
+        }
+    }
+
+    /**
+     * Anota en el registro los ids de las altas antes de confirmar el volcado,
+     * para no perderlos si la aplicación cae justo después.
+     */
+    private synchronized void anotarIds(Map<Integer, Integer> asignados, long hasta) throws IOException {
+        for (Map.Entry<Integer, Integer> asignado : asignados.entrySet()) {
+            escribir(new Operacion(ID_ASIGNADO, hasta, asignado.getKey(), null, null, asignado.getValue(), null));
+        }
+    }
+
+    /**
+     * Anota en el registro que los ids anotados de un volcado no valen porque se deshizo.
+     */
+    private synchronized void descartarIds(Map<Integer, Integer> asignados, long hasta) {
+        if (asignados.isEmpty()) {
+            return;
+        }
+        try {
+            escribir(new Operacion(DESCARTADO, hasta, 0, null, null, 0, null));
+        } catch (IOException e) {
+            System.out.println("Error al actualizar el registro local: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Añade los cambios rechazados al fichero de rechazados y avisa al usuario.
+     */
+    private void apartar(List<String> rechazos) {
+        if (rechazos.isEmpty()) {
+            return;
+        }
+        System.out.println("La base de datos ha rechazado " + rechazos.size() + " cambios diferidos, se guardan en "
+                + rutaRechazados.toAbsolutePath());
+        try {
+            Files.write(rutaRechazados, rechazos, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("Error al guardar los cambios rechazados: " + e.getMessage());
+            rechazos.forEach(System.out::println);
+        }
+        OyenteRechazos oyente = oyenteRechazos;
+        if (oyente != null) {
+            int cambios = rechazos.size();
+            enHiloFx(() -> oyente.rechazados(cambios, rutaRechazados));
+        }
+    }
+
+    /**
+     * Describe un cambio rechazado en una línea del fichero de rechazados.
+     */
+    private static String describir(Operacion operacion, SQLException e) {
+        String tipo = operacion.tipo == ALTA ? "alta" : operacion.tipo == MODIFICACION ? "modificacion" : "baja";
+        return LocalDateTime.now() + ";" + tipo + ";" + operacion.clave + ";"
+                + (operacion.nombre == null ? "" : operacion.nombre) + ";"
+                + (operacion.apellidos == null ? "" : operacion.apellidos) + ";"
+                + (operacion.tipo == BAJA ? "" : String.valueOf(operacion.edad)) + ";"
+                + String.valueOf(e.getMessage()).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Indica si un error es de la conexión o pasajero (no de un cambio concreto),
+     * de modo que hay que reintentar el volcado entero.
+     */
+    private static boolean deConexion(SQLException e) {
+        String estado = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || (estado != null && estado.startsWith("08"));
+    }
+
+    /**
+     * Ejecuta una acción en el hilo de JavaFX: al momento si ya se está en él
+     * (al cerrar la aplicación) o, si no, en cuanto pueda.
+     */
+    private static void enHiloFx(Runnable accion) {
+        if (Platform.isFxApplicationThread()) {
+            accion.run();
+        } else {
+            Platform.runLater(accion);
+        }
+    }
+
+    /**
+     * Traduce un id provisional al real asignado por la base de datos.
+     */
+    private synchronized int idReal(int clave) {
+        if (clave > 0) {
+            return clave;
+        }
+        Integer id = idsAsignados.get(clave);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Añade un registro al final del WAL: longitud, CRC32 y contenido.
+     */
+    private void escribir(Operacion operacion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(operacion.tipo);
+            out.writeLong(operacion.secuencia);
+            out.writeInt(operacion.clave);
+            out.writeUTF(operacion.nombre == null ? "" : operacion.nombre);
+            out.writeUTF(operacion.apellidos == null ? "" : operacion.apellidos);
+            out.writeInt(operacion.edad);
+        }
+        byte[] contenido = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+
+        ByteBuffer registro = ByteBuffer.allocate(8 + contenido.length);
+        registro.putInt(contenido.length).putInt((int) crc.getValue()).put(contenido).flip();
+        wal.position(wal.size());
+        while (registro.hasRemaining()) {
+            wal.write(registro);
+        }
+        if (sincronizar) {
+            wal.force(false);
+        }
+    }
+
+    /**
+     * Lee el WAL al arrancar y deja por resolver los cambios que no llegaron
+     * a confirmarse: el primer volcado comprueba cuáles están ya en la base de
+     * datos. Los ids anotados tras la última confirmación valen solo si su
+     * volcado se aplicó. Un registro incompleto o corrupto al final
+     * (escritura interrumpida) se descarta.
+     */
+    private void recuperar() throws IOException {
+        List<Operacion> leidas = new ArrayList<>();
+        long confirmado = 0;
+        long valido = 0;
+        ByteBuffer cabecera = ByteBuffer.allocate(8);
+        wal.position(0);
+        while (true) {
+            cabecera.clear();
+            if (wal.read(cabecera) < 8) {
+                break;
+            }
+            cabecera.flip();
+            int longitud = cabecera.getInt();
+            int esperado = cabecera.getInt();
+            if (longitud <= 0 || longitud > wal.size() - wal.position()) {
+                break;
+            }
+            ByteBuffer contenido = ByteBuffer.allocate(longitud);
+            while (contenido.hasRemaining() && wal.read(contenido) > 0) {
+                // Leer el registro completo
+            }
+            CRC32 crc = new CRC32();
+            crc.update(contenido.array());
+            if (contenido.hasRemaining() || (int) crc.getValue() != esperado) {
+                break;
+            }
+            valido = wal.position();
+
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(contenido.array()))) {
+                byte tipo = in.readByte();
+                long numero = in.readLong();
+                int clave = in.readInt();
+                String nombre = in.readUTF();
+                String apellidos = in.readUTF();
+                int edad = in.readInt();
+                secuencia = Math.max(secuencia, numero);
+                siguienteProvisional = Math.min(siguienteProvisional, clave - 1);
+                if (tipo == ORIGEN) {
+                    origen = nombre;
+                    confirmado = Math.max(confirmado, numero);
+                } else if (tipo == CONFIRMADO) {
+                    confirmado = Math.max(confirmado, numero);
+                    idsAsignados.putAll(idsPorResolver);
+                    idsPorResolver.clear();
+                } else if (tipo == DESCARTADO) {
+                    idsPorResolver.clear();
+                } else if (tipo == ID_ASIGNADO) {
+                    idsPorResolver.put(clave, edad);
+                    idsHasta = numero;
+                } else {
+                    leidas.add(new Operacion(tipo, numero, clave, nombre, apellidos, edad, null));
+                }
+            }
+        }
+        wal.truncate(valido);
+        if (origen == null) {
+            // Registro nuevo o de una versión anterior, que anotaba los ids ya confirmados
+            idsAsignados.putAll(idsPorResolver);
+            idsPorResolver.clear();
+            origen = UUID.randomUUID().toString();
+            escribir(new Operacion(ORIGEN, confirmado, 0, origen, null, 0, null));
+        }
+
+        List<Operacion> resolver = new ArrayList<>();
+        for (Operacion operacion : leidas) {
+            // Un alta con id real ya está en la base de datos aunque falte su confirmación
+            if (operacion.secuencia > confirmado
+                    && !(operacion.tipo == ALTA && idsAsignados.containsKey(operacion.clave))) {
+                resolver.add(operacion);
+            }
+        }
+        if (!resolver.isEmpty() || !idsPorResolver.isEmpty()) {
+            porResolver = resolver;
+            System.out.println("Recuperados " + resolver.size() + " cambios pendientes del registro local");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.ejei;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.UnaryOperator;
+
+/**
+ * Crea y actualiza el esquema de la base de datos al arrancar.
+ * Cada migración es una lista de sentencias idempotentes; la tabla
+ * esquema_version guarda la última aplicada, de modo que cada una
+ * se ejecuta una sola vez por base de datos.
+ */
+public class EsquemaBBDD {
+
+    /**
+     * Migraciones en orden. La posición i lleva el esquema a la versión i + 1.
+     */
+    private static final String[][] MIGRACIONES = {
+            // 1: tabla Persona con clave primaria (las tablas antiguas sin id la reciben)
+            {
+                    "CREATE TABLE IF NOT EXISTS Persona ("
+                            + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                            + "nombre VARCHAR(100) NOT NULL, "
+                            + "apellidos VARCHAR(150) NOT NULL, "
+                            + "edad INT NOT NULL)",
+                    "ALTER TABLE Persona ADD COLUMN IF NOT EXISTS id INT AUTO_INCREMENT PRIMARY KEY FIRST"
+            },
+            // 2: índices secundarios para búsquedas por apellidos y nombre, por nombre y por edad
+            {
+                    "CREATE INDEX IF NOT EXISTS idx_persona_apellidos_nombre ON Persona (apellidos, nombre)",
+                    "CREATE INDEX IF NOT EXISTS idx_persona_nombre ON Persona (nombre)",
+                    "CREATE INDEX IF NOT EXISTS idx_persona_edad ON Persona (edad)"
+            },
+            // 3: versión creciente por fila y lápidas de las filas borradas, para refrescar solo los cambios
+            {
+                    "CREATE SEQUENCE IF NOT EXISTS persona_version",
+                    "ALTER TABLE Persona ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0",
+                    "CREATE INDEX IF NOT EXISTS idx_persona_version ON Persona (version)",
+                    "CREATE TABLE IF NOT EXISTS Persona_borrada ("
+                            + "id INT PRIMARY KEY, "
+                            + "version BIGINT NOT NULL, "
+                            + "INDEX idx_borrada_version (version))",
+                    "CREATE TRIGGER IF NOT EXISTS persona_version_alta BEFORE INSERT ON Persona "
+                            + "FOR EACH ROW SET NEW.version = NEXTVAL(persona_version)",
+                    "CREATE TRIGGER IF NOT EXISTS persona_version_cambio BEFORE UPDATE ON Persona "
+                            + "FOR EACH ROW SET NEW.version = NEXTVAL(persona_version)",
+                    "CREATE TRIGGER IF NOT EXISTS persona_version_baja AFTER DELETE ON Persona "
+                            + "FOR EACH ROW REPLACE INTO Persona_borrada (id, version) VALUES (OLD.id, NEXTVAL(persona_version))"
+            },
+            // 4: nombre y apellidos únicos (antes se comprueba que no haya duplicados, ver comprobarDuplicados)
+            {
+                    "CREATE UNIQUE INDEX IF NOT EXISTS uq_persona_nombre_apellidos ON Persona (nombre, apellidos)"
+            },
+            // 5: registro de cambios por versión, para avisar a los demás clientes (ver AvisosCambios)
+            {
+                    "CREATE TABLE IF NOT EXISTS Persona_cambio ("
+                            + "version BIGINT PRIMARY KEY, "
+                            + "id INT NOT NULL, "
+                            + "tipo CHAR(1) NOT NULL)",
+                    "CREATE TRIGGER IF NOT EXISTS persona_cambio_alta AFTER INSERT ON Persona "
+                            + "FOR EACH ROW INSERT INTO Persona_cambio (version, id, tipo) VALUES (NEW.version, NEW.id, 'A')",
+                    "CREATE TRIGGER IF NOT EXISTS persona_cambio_modificacion AFTER UPDATE ON Persona "
+                            + "FOR EACH ROW INSERT INTO Persona_cambio (version, id, tipo) VALUES (NEW.version, NEW.id, 'M')",
+                    // Después del disparador que anota la lápida, para tomar su versión
+                    "CREATE TRIGGER IF NOT EXISTS persona_cambio_baja AFTER DELETE ON Persona "
+                            + "FOR EACH ROW FOLLOWS persona_version_baja "
+                            + "INSERT INTO Persona_cambio (version, id, tipo) "
+                            + "SELECT version, id, 'B' FROM Persona_borrada WHERE id = OLD.id"
+            },
+            // 6: momento de cada cambio, para saber qué versiones ya no pueden estar en una transacción abierta
+            {
+                    "ALTER TABLE Persona_cambio ADD COLUMN IF NOT EXISTS momento TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)",
+                    "CREATE INDEX IF NOT EXISTS idx_cambio_momento ON Persona_cambio (momento)"
+            },
+            // 7: versión hasta la que se han purgado lápidas y cambios, para saber si un cliente se ha quedado atrás
+            {
+                    "CREATE TABLE IF NOT EXISTS Persona_purga (hasta BIGINT NOT NULL)",
+                    "INSERT INTO Persona_purga (hasta) SELECT 0 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM Persona_purga)"
+            },
+            // 8: anotación del registro local aplicada por cada escritura diferida, para no repetir cambios tras una caída
+            {
+                    "CREATE TABLE IF NOT EXISTS Persona_diferida ("
+                            + "origen CHAR(36) PRIMARY KEY, "
+                            + "secuencia BIGINT NOT NULL)"
+            }
+    };
+
+    private static final int MIGRACION_UNICA = 4; // Migración que crea el índice único de nombre y apellidos
+    private static final int MAX_DUPLICADOS_INFORME = 50; // Grupos de duplicados que se listan como mucho
+
+    private EsquemaBBDD() {
+    }
+
+    /**
+     * Aplica las migraciones pendientes.
+     *
+     * @throws SQLException Si falla alguna sentencia o hay personas duplicadas que impiden el índice
+     *                      único; las migraciones anteriores quedan aplicadas.
+     */
+    public static void inicializar() throws SQLException {
+        inicializar(UnaryOperator.identity());
+    }
+
+    /**
+     * Aplica las migraciones pendientes pasando antes cada sentencia por una
+     * adaptación, para otras bases de datos con las que medir la aplicación
+     * (por ejemplo H2, que no admite disparadores escritos en SQL).
+     *
+     * @param adaptar Devuelve la sentencia que se ejecuta en lugar de la recibida.
+     * @throws SQLException Si falla alguna sentencia o hay personas duplicadas que impiden el índice único.
+     */
+    static void inicializar(UnaryOperator<String> adaptar) throws SQLException {
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             Statement stmt = conexion.getConexion().createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS esquema_version (version INT NOT NULL)");
+
+            int actual = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM esquema_version")) {
+                if (rs.next()) {
+                    actual = rs.getInt(1);
+                }
+            }
+
+            for (int i = actual; i < MIGRACIONES.length; i++) {
+                if (i + 1 == MIGRACION_UNICA) {
+                    comprobarDuplicados(stmt);
+                }
+                for (String sentencia : MIGRACIONES[i]) {
+                    stmt.execute(adaptar.apply(sentencia));
+                }
+                stmt.executeUpdate("INSERT INTO esquema_version (version) VALUES (" + (i + 1) + ")");
+                System.out.println("Esquema actualizado a la versión " + (i + 1));
+            }
+        }
+    }
+
+    /**
+     * Comprueba, antes de crear el índice único, que no haya personas con el
+     * mismo nombre y apellidos. La migración nunca borra datos por su cuenta:
+     * si hay duplicados se listan y se detiene, para resolverlos a mano. Con
+     * -Dejei.esquema.fusionar=true se eliminan en su lugar las copias más
+     * nuevas de cada duplicado (se conserva la de menor id), anotando los ids borrados.
+     *
+     * @throws SQLException Si hay duplicados y no se ha pedido fusionarlos.
+     */
+    private static void comprobarDuplicados(Statement stmt) throws SQLException {
+        StringBuilder informe = new StringBuilder();
+        int grupos = 0;
+        try (ResultSet rs = stmt.executeQuery("SELECT nombre, apellidos, GROUP_CONCAT(id ORDER BY id) FROM Persona "
+                + "GROUP BY nombre, apellidos HAVING COUNT(*) > 1 ORDER BY nombre, apellidos")) {
+            while (rs.next()) {
+                grupos++;
+                if (grupos <= MAX_DUPLICADOS_INFORME) {
+                    informe.append("\n  ").append(rs.getString(1)).append(' ').append(rs.getString(2))
+                            .append(": ids ").append(rs.getString(3));
+                }
+            }
+        }
+        if (grupos == 0) {
+            return;
+        }
+        if (grupos > MAX_DUPLICADOS_INFORME) {
+            informe.append("\n  ... y ").append(grupos - MAX_DUPLICADOS_INFORME).append(" más");
+        }
+        if (!Boolean.getBoolean("ejei.esquema.fusionar")) {
+            throw new SQLException("No se puede aplicar la migración " + MIGRACION_UNICA + " (nombre y apellidos únicos): hay "
+                    + grupos + " personas duplicadas. Corríjalas a mano o arranque con -Dejei.esquema.fusionar=true "
+                    + "para conservar solo la de menor id de cada una:" + informe);
+        }
+        int borradas = stmt.executeUpdate("DELETE p FROM Persona p JOIN Persona q "
+                + "ON p.nombre = q.nombre AND p.apellidos = q.apellidos AND p.id > q.id");
+        System.out.println("Fusionadas " + grupos + " personas duplicadas (" + borradas
+                + " filas borradas, se conserva el primer id de cada una):" + informe);
+    }
+}
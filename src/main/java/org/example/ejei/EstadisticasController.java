@@ -0,0 +1,219 @@
+package org.example.ejei;
+
+import javafx.animation.PauseTransition;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.util.Duration;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Controlador de la ventana de estadísticas: el total de personas, la edad
+ * media y la mediana, el histograma de edades por decenas, los apellidos más
+ * frecuentes y las personas de más y menos edad.
+ * Con la tabla en memoria las cifras las mantiene al día
+ * {@link EstadisticasPersonas} con cada cambio; en modo paginado se calculan
+ * en la base de datos ({@link RepositorioPersonas#resumirPersonas(int)}) al
+ * abrir la ventana y cuando llegan cambios de otros clientes.
+ * Los cambios seguidos se agrupan antes de volver a mostrar las cifras.
+ */
+public class EstadisticasController {
+    private static final int K = Math.max(1, Integer.getInteger("ejei.estadisticas.k", 5)); // Apellidos y personas que se muestran
+
+    @FXML
+    private Label totalLabel; // Número de personas
+    @FXML
+    private Label mediaLabel; // Edad media
+    @FXML
+    private Label medianaLabel; // Mediana de la edad
+    @FXML
+    private BarChart<String, Number> edadesChart; // Histograma de edades por decenas
+    @FXML
+    private CategoryAxis edadesEje; // Eje de las decenas
+    @FXML
+    private Label apellidosLabel; // Título de los apellidos más frecuentes
+    @FXML
+    private ListView<String> apellidosList; // Apellidos más frecuentes
+    @FXML
+    private Label mayoresLabel; // Título de las personas de más edad
+    @FXML
+    private ListView<String> mayoresList; // Personas de más edad
+    @FXML
+    private Label menoresLabel; // Título de las personas más jóvenes
+    @FXML
+    private ListView<String> menoresList; // Personas más jóvenes
+
+    private final PauseTransition espera = new PauseTransition(Duration.millis(250)); // Agrupa los cambios seguidos
+    private final AvisosCambios.Oyente oyenteAvisos = (desde, cambios) -> espera.playFromStart();
+    private final XYChart.Series<String, Number> serie = new XYChart.Series<>();
+    private EstadisticasPersonas estadisticas; // Cifras de la tabla en memoria; null en modo paginado
+    private CatalogoMensajes.Idioma idioma = CatalogoMensajes.Idioma.ES;
+    private ResumenPersonas ultimo; // Último resumen mostrado, para cambiar de idioma sin recalcular
+    private int generacion; // Identifica el cálculo en la base de datos vigente
+
+    /**
+     * Método que se llama al inicializar el controlador.
+     * Prepara el histograma.
+     */
+    @FXML
+    public void initialize() {
+        edadesChart.setAnimated(false);
+        edadesChart.setLegendVisible(false);
+        edadesChart.getData().add(serie);
+        espera.setOnFinished(e -> VigilanteFx.accion("Estadisticas.actualizar", this::actualizar));
+    }
+
+    /**
+     * Empieza a mostrar las cifras de una lista de personas, dejando de
+     * vigilar la anterior.
+     *
+     * @param personas La lista que muestra la tabla (en memoria o paginada).
+     * @param idioma   El idioma de la interfaz.
+     */
+    public void vigilar(ObservableList<Persona> personas, CatalogoMensajes.Idioma idioma) {
+        detener();
+        if (personas instanceof AlmacenPersonas almacen) {
+            estadisticas = new EstadisticasPersonas(almacen, espera::playFromStart);
+        } else {
+            AvisosCambios.suscribir(oyenteAvisos);
+        }
+        setIdioma(idioma);
+        actualizar();
+    }
+
+    /**
+     * Deja de vigilar la lista; se llama al cerrar la ventana.
+     */
+    public void detener() {
+        espera.stop();
+        generacion++;
+        AvisosCambios.quitar(oyenteAvisos);
+        if (estadisticas != null) {
+            estadisticas.desconectar();
+            estadisticas = null;
+        }
+    }
+
+    /**
+     * Muestra los textos en otro idioma.
+     *
+     * @param idioma El idioma de la interfaz.
+     */
+    public void setIdioma(CatalogoMensajes.Idioma idioma) {
+        this.idioma = idioma;
+        edadesChart.setTitle(texto(Mensaje.ESTADISTICAS_EDADES));
+        apellidosLabel.setText(texto(Mensaje.ESTADISTICAS_APELLIDOS));
+        mayoresLabel.setText(texto(Mensaje.ESTADISTICAS_MAYORES));
+        menoresLabel.setText(texto(Mensaje.ESTADISTICAS_MENORES));
+        if (ultimo != null) {
+            mostrar(ultimo);
+        }
+    }
+
+    /**
+     * Obtiene el resumen actual y lo muestra: de las cifras incrementales
+     * al momento o, en modo paginado, de la base de datos en segundo plano.
+     */
+    private void actualizar() {
+        if (estadisticas != null) {
+            mostrar(estadisticas.resumen(K));
+            return;
+        }
+        int peticion = ++generacion;
+        DaoPersonaAsync.ejecutar(() -> Repositorio.personas().resumirPersonas(K))
+                .exceptionally(e -> DaoPersonaAsync.fallo("resumirPersonas", e, null))
+                .thenAccept(resumen -> {
+                    if (peticion != generacion) {
+                        return;
+                    }
+                    if (resumen != null) {
+                        mostrar(resumen);
+                    } else {
+                        mostrarAlerta(texto(Mensaje.ERROR_ESTADISTICAS));
+                    }
+                });
+    }
+
+    /**
+     * Muestra una alerta de error sin esperar a que se cierre.
+     *
+     * @param mensaje El mensaje que se mostrará en la alerta.
+     */
+    private void mostrarAlerta(String mensaje) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(texto(Mensaje.TITULO_ERROR));
+        alert.setHeaderText(null);
+        alert.setContentText(mensaje);
+        alert.show();
+    }
+
+    /**
+     * Muestra un resumen en la ventana.
+     */
+    private void mostrar(ResumenPersonas resumen) {
+        ultimo = resumen;
+        totalLabel.setText(MessageFormat.format(texto(Mensaje.ESTADISTICAS_TOTAL), resumen.getTotal()));
+        mediaLabel.setText(MessageFormat.format(texto(Mensaje.ESTADISTICAS_MEDIA), String.format("%.1f", resumen.getMedia())));
+        medianaLabel.setText(MessageFormat.format(texto(Mensaje.ESTADISTICAS_MEDIANA), String.format("%.1f", resumen.getMediana())));
+        mostrarHistograma(resumen.getPorEdad());
+
+        List<String> apellidos = new ArrayList<>();
+        for (ResumenPersonas.Frecuencia frecuencia : resumen.getApellidosFrecuentes()) {
+            apellidos.add(frecuencia.getApellidos() + " (" + frecuencia.getPersonas() + ")");
+        }
+        apellidosList.getItems().setAll(apellidos);
+        mayoresList.getItems().setAll(describir(resumen.getMayores()));
+        menoresList.getItems().setAll(describir(resumen.getMenores()));
+    }
+
+    /**
+     * Agrupa el histograma por decenas de años, con una última barra para
+     * las edades por encima de {@link HistogramaEdades#EDAD_MAXIMA}; nunca
+     * hay más barras que esas. Si las decenas son las mismas que las
+     * mostradas, solo cambia la altura de las barras.
+     */
+    private void mostrarHistograma(HistogramaEdades porEdad) {
+        int[] porDecena = porEdad.porTramos(10);
+        int decenas = porDecena.length;
+        while (decenas > 0 && porDecena[decenas - 1] == 0) {
+            decenas--; // 0 si no hay personas
+        }
+        ObservableList<XYChart.Data<String, Number>> barras = serie.getData();
+        if (barras.size() == decenas) {
+            for (int i = 0; i < decenas; i++) {
+                barras.get(i).setYValue(porDecena[i]);
+            }
+            return;
+        }
+        List<String> categorias = new ArrayList<>(decenas);
+        List<XYChart.Data<String, Number>> nuevas = new ArrayList<>(decenas);
+        for (int i = 0; i < decenas; i++) {
+            String categoria = i == porDecena.length - 1 ? (i * 10) + "+" : (i * 10) + "-" + (i * 10 + 9);
+            categorias.add(categoria);
+            nuevas.add(new XYChart.Data<>(categoria, porDecena[i]));
+        }
+        barras.clear();
+        edadesEje.getCategories().setAll(categorias);
+        barras.setAll(nuevas);
+    }
+
+    private static List<String> describir(List<Persona> personas) {
+        List<String> lineas = new ArrayList<>(personas.size());
+        for (Persona persona : personas) {
+            lineas.add(persona.getNombre() + " " + persona.getApellidos() + " (" + persona.getEdad() + ")");
+        }
+        return lineas;
+    }
+
+    private String texto(Mensaje mensaje) {
+        return CatalogoMensajes.texto(idioma, mensaje);
+    }
+}
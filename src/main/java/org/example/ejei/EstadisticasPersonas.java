@@ -0,0 +1,284 @@
+package org.example.ejei;
+
+import javafx.collections.ListChangeListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Cifras agregadas de un {@link AlmacenPersonas} que se mantienen al día sin
+ * recorrer la lista: un {@link HistogramaEdades} (del que salen el total,
+ * la media y la mediana), un contador de personas por código de apellidos y,
+ * para cada edad, los huecos del almacén de sus personas ordenados por id.
+ * Cada alta, baja o edición en sitio solo suma y resta en esos contadores y
+ * mueve un hueco de grupo ({@link AlmacenPersonas.OyenteHuecos}).
+ * <p>
+ * El cálculo inicial recorre las columnas del almacén con un stream
+ * paralelo, sin crear objetos {@link Persona}. Los apellidos más frecuentes
+ * se eligen al pedir el resumen con un montículo acotado sobre los
+ * contadores; las personas de más y menos edad se toman de los grupos de
+ * las edades extremas, en el mismo orden (edad e id) que la base de datos,
+ * y solo se crean sus objetos.
+ * Debe usarse únicamente desde el hilo de JavaFX.
+ */
+public class EstadisticasPersonas {
+    private final AlmacenPersonas personas; // Lista de la que se calculan las cifras
+    private final Runnable alCambiar; // Avisa de que las cifras han cambiado
+    private final ListChangeListener<Persona> oyente = this::onCambio;
+    private final AlmacenPersonas.OyenteHuecos oyenteHuecos = new AlmacenPersonas.OyenteHuecos() {
+        @Override
+        public void ocupado(int hueco) {
+            int edad = personas.edadDe(hueco);
+            porEdad.anadir(edad);
+            grupo(edad).anadir(clave(personas.idDe(hueco), hueco));
+            anadirApellidos(personas.codigoApellidosDe(hueco));
+        }
+
+        @Override
+        public void liberado(int hueco) {
+            int edad = personas.edadDe(hueco);
+            porEdad.quitar(edad);
+            quitarDeGrupo(edad, clave(personas.idDe(hueco), hueco));
+            quitarApellidos(personas.codigoApellidosDe(hueco));
+        }
+
+        @Override
+        public void idCambiado(int hueco, int anterior, int nuevo) {
+            int edad = personas.edadDe(hueco);
+            quitarDeGrupo(edad, clave(anterior, hueco));
+            grupo(edad).anadir(clave(nuevo, hueco));
+        }
+
+        @Override
+        public void edadCambiada(int hueco, int anterior, int nueva) {
+            porEdad.quitar(anterior);
+            porEdad.anadir(nueva);
+            long clave = clave(personas.idDe(hueco), hueco);
+            quitarDeGrupo(anterior, clave);
+            grupo(nueva).anadir(clave);
+            alCambiar.run();
+        }
+
+        @Override
+        public void apellidosCambiados(int hueco, int anterior, int nuevo) {
+            quitarApellidos(anterior);
+            anadirApellidos(nuevo);
+            alCambiar.run();
+        }
+    };
+
+    private final HistogramaEdades porEdad; // Personas de cada edad
+    private int[] porApellidos; // Código de apellidos -> personas
+    private final Map<Integer, Grupo> porEdadEId = new HashMap<>(); // Edad -> huecos de sus personas por id
+
+    /**
+     * Huecos de las personas de una edad, como claves (id, hueco) ordenadas.
+     */
+    private static class Grupo {
+        private long[] claves = new long[4];
+        private int tamano;
+
+        /**
+         * Añade una clave en su sitio.
+         */
+        void anadir(long clave) {
+            int posicion = Arrays.binarySearch(claves, 0, tamano, clave);
+            posicion = posicion < 0 ? -posicion - 1 : posicion;
+            if (tamano == claves.length) {
+                claves = Arrays.copyOf(claves, tamano * 2);
+            }
+            System.arraycopy(claves, posicion, claves, posicion + 1, tamano - posicion);
+            claves[posicion] = clave;
+            tamano++;
+        }
+
+        /**
+         * Añade una clave al final, sin ordenar; tras la carga inicial se llama a {@link #ordenar()}.
+         */
+        void anadirAlFinal(long clave) {
+            if (tamano == claves.length) {
+                claves = Arrays.copyOf(claves, tamano * 2);
+            }
+            claves[tamano++] = clave;
+        }
+
+        void ordenar() {
+            Arrays.sort(claves, 0, tamano);
+        }
+
+        void quitar(long clave) {
+            int posicion = Arrays.binarySearch(claves, 0, tamano, clave);
+            if (posicion >= 0) {
+                System.arraycopy(claves, posicion + 1, claves, posicion, tamano - posicion - 1);
+                tamano--;
+            }
+        }
+    }
+
+    /**
+     * Acumulador del cálculo inicial en paralelo.
+     */
+    private static class Parcial {
+        private final HistogramaEdades porEdad = new HistogramaEdades();
+        private final int[] porApellidos;
+
+        Parcial(int codigos) {
+            porApellidos = new int[codigos];
+        }
+
+        void anadir(int edad, int apellidos) {
+            porEdad.anadir(edad);
+            if (apellidos >= 0) {
+                porApellidos[apellidos]++;
+            }
+        }
+
+        void combinar(Parcial otro) {
+            porEdad.combinar(otro.porEdad);
+            for (int i = 0; i < porApellidos.length; i++) {
+                porApellidos[i] += otro.porApellidos[i];
+            }
+        }
+    }
+
+    /**
+     * Calcula las cifras de las personas actuales del almacén y empieza a
+     * escuchar sus cambios.
+     *
+     * @param personas  El almacén de personas.
+     * @param alCambiar Acción que se ejecuta cada vez que cambian las cifras.
+     */
+    public EstadisticasPersonas(AlmacenPersonas personas, Runnable alCambiar) {
+        this.personas = personas;
+        this.alCambiar = alCambiar;
+        // Las columnas solo se leen, y el hilo de JavaFX (el único que las escribe) espera al resultado
+        int codigos = personas.getCadenas().tamano();
+        Parcial total = IntStream.range(0, personas.size()).parallel().collect(
+                () -> new Parcial(codigos),
+                (parcial, i) -> parcial.anadir(personas.edadEn(i), personas.codigoApellidosEn(i)),
+                Parcial::combinar);
+        porEdad = total.porEdad;
+        porApellidos = total.porApellidos;
+        for (int i = 0; i < personas.size(); i++) {
+            int hueco = personas.huecoEn(i);
+            grupo(personas.edadDe(hueco)).anadirAlFinal(clave(personas.idDe(hueco), hueco));
+        }
+        porEdadEId.values().forEach(Grupo::ordenar);
+        personas.addListener(oyente);
+        personas.escucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Deja de escuchar los cambios del almacén.
+     */
+    public void desconectar() {
+        personas.removeListener(oyente);
+        personas.dejarDeEscucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Construye el resumen con las cifras actuales.
+     *
+     * @param k El número de apellidos frecuentes y de personas mayores y menores.
+     * @return El resumen.
+     */
+    public ResumenPersonas resumen(int k) {
+        return new ResumenPersonas(porEdad.copia(), apellidosFrecuentes(k),
+                extremos(k, true), extremos(k, false));
+    }
+
+    /**
+     * Elige los apellidos más frecuentes con un montículo de mínimos de tamaño k.
+     */
+    private List<ResumenPersonas.Frecuencia> apellidosFrecuentes(int k) {
+        PriorityQueue<Integer> mejores = new PriorityQueue<>(k + 1,
+                Comparator.comparingInt((Integer codigo) -> porApellidos[codigo]).thenComparing(Comparator.reverseOrder()));
+        for (int codigo = 0; codigo < porApellidos.length; codigo++) {
+            if (porApellidos[codigo] > 0) {
+                mejores.add(codigo);
+                if (mejores.size() > k) {
+                    mejores.poll(); // El menos frecuente
+                }
+            }
+        }
+        List<ResumenPersonas.Frecuencia> frecuentes = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            int codigo = mejores.poll();
+            frecuentes.add(new ResumenPersonas.Frecuencia(personas.getCadenas().cadena(codigo), porApellidos[codigo]));
+        }
+        Collections.reverse(frecuentes);
+        return frecuentes;
+    }
+
+    /**
+     * Toma las k personas de más (o menos) edad de los grupos de las edades
+     * extremas, que el histograma recorre sin mirar las edades vacías.
+     */
+    private List<Persona> extremos(int k, boolean mayores) {
+        List<Persona> elegidas = new ArrayList<>(k);
+        for (int edad = mayores ? porEdad.anterior(Integer.MAX_VALUE) : porEdad.siguiente(-1);
+             edad >= 0 && elegidas.size() < k;
+             edad = mayores ? porEdad.anterior(edad) : porEdad.siguiente(edad)) {
+            Grupo grupo = porEdadEId.get(edad);
+            for (int i = 0; i < grupo.tamano && elegidas.size() < k; i++) {
+                elegidas.add(personas.enHueco((int) grupo.claves[i]));
+            }
+        }
+        return elegidas;
+    }
+
+    /**
+     * Avisa de las altas y bajas de la lista; los contadores ya se han
+     * actualizado hueco a hueco.
+     */
+    private void onCambio(ListChangeListener.Change<? extends Persona> cambio) {
+        while (cambio.next()) {
+            if (!cambio.wasPermutated() && !cambio.wasUpdated()) {
+                alCambiar.run();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Clave de una persona en el grupo de su edad: ordena por id y, si se repite, por hueco.
+     */
+    private static long clave(int id, int hueco) {
+        return (long) id << 32 | hueco;
+    }
+
+    private Grupo grupo(int edad) {
+        return porEdadEId.computeIfAbsent(edad, e -> new Grupo());
+    }
+
+    private void quitarDeGrupo(int edad, long clave) {
+        Grupo grupo = porEdadEId.get(edad);
+        grupo.quitar(clave);
+        if (grupo.tamano == 0) {
+            porEdadEId.remove(edad); // Las edades raras no dejan grupos vacíos
+        }
+    }
+
+    private void anadirApellidos(int codigo) {
+        if (codigo < 0) {
+            return;
+        }
+        if (codigo >= porApellidos.length) {
+            porApellidos = Arrays.copyOf(porApellidos, Math.max(codigo + 1, porApellidos.length * 2));
+        }
+        porApellidos[codigo]++;
+    }
+
+    private void quitarApellidos(int codigo) {
+        if (codigo >= 0) {
+            porApellidos[codigo]--;
+        }
+    }
+}
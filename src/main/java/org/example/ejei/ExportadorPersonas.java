@@ -0,0 +1,238 @@
+package org.example.ejei;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Exportación de la tabla Persona a CSV o NDJSON sin cargarla en memoria.
+ * Las filas se leen de un cursor de solo avance que el servidor envía por
+ * bloques (o, con el registro embebido, por páginas) y se escriben directamente en un {@link FileChannel} a través de
+ * buffers que se reutilizan para todas las filas, de modo que la memoria
+ * usada no depende del número de personas.
+ */
+public class ExportadorPersonas {
+    private static final int TAMANO_FETCH = Integer.getInteger("ejei.bd.fetch", 500); // Filas por ida y vuelta al leer
+    private static final int TAMANO_BUFFER = 64 * 1024; // Bytes acumulados antes de cada escritura
+
+    /**
+     * Formatos de exportación disponibles.
+     */
+    public enum Formato {
+        /** Valores separados por comas con cabecera. */
+        CSV,
+        /** Un objeto JSON por línea. */
+        NDJSON
+    }
+
+    private ExportadorPersonas() {
+    }
+
+    /**
+     * Exporta todas las personas a un fichero. Si se cancela o falla,
+     * el fichero incompleto se borra.
+     *
+     * @param destino   El fichero de destino (se sobrescribe).
+     * @param formato   El formato de salida.
+     * @param progreso  Recibe la fracción (0 a 1) de filas ya escritas.
+     * @param cancelado Indica si se ha pedido cancelar la exportación.
+     * @return El número de personas exportadas.
+     * @throws IOException  Si no se puede escribir el fichero.
+     * @throws SQLException Si falla la lectura de la base de datos.
+     */
+    public static long exportar(Path destino, Formato formato, DoubleConsumer progreso, BooleanSupplier cancelado)
+            throws IOException, SQLException {
+        int total = Math.max(1, Repositorio.personas().contarPersonas()); // Solo para estimar el progreso
+        long escritas = 0;
+        boolean completa = false;
+
+        try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder();
+            ByteBuffer salida = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+            CharBuffer caracteres = CharBuffer.allocate(1024);
+            StringBuilder linea = new StringBuilder(256);
+
+            if (formato == Formato.CSV) {
+                linea.append("id,nombre,apellidos,edad\n");
+                caracteres = escribir(linea, caracteres, codificador, salida, canal);
+            }
+
+            if (Repositorio.esBaseDatos()) {
+                try (ConexionBBDD conexion = new ConexionBBDD();
+                     PreparedStatement pstmt = conexion.getConexion().prepareStatement(
+                             "SELECT id, nombre, apellidos, edad FROM Persona ORDER BY id",
+                             ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    pstmt.setFetchSize(TAMANO_FETCH); // Lectura por bloques en lugar de todo el resultado de golpe
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            if (cancelado.getAsBoolean()) {
+                                return escritas;
+                            }
+                            anadirFila(linea, formato, rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4));
+                            caracteres = escribir(linea, caracteres, codificador, salida, canal);
+                            if (++escritas % TAMANO_FETCH == 0) {
+                                progreso.accept(Math.min(1.0, (double) escritas / total));
+                            }
+                        }
+                    }
+                }
+            } else {
+                // Registro embebido: se recorre por páginas, que ya leen las personas de una en una del fichero
+                long ultimoId = 0;
+                List<Persona> personas;
+                do {
+                    Pagina pagina = Repositorio.personas().cargarPagina(ultimoId, TAMANO_FETCH);
+                    if (pagina == null) {
+                        throw new IOException("No se pudo leer la página de personas tras el id " + ultimoId);
+                    }
+                    personas = pagina.getPersonas();
+                    for (Persona persona : personas) {
+                        if (cancelado.getAsBoolean()) {
+                            return escritas;
+                        }
+                        anadirFila(linea, formato, persona.getId(), persona.getNombre(), persona.getApellidos(), persona.getEdad());
+                        caracteres = escribir(linea, caracteres, codificador, salida, canal);
+                        escritas++;
+                    }
+                    progreso.accept(Math.min(1.0, (double) escritas / total));
+                    ultimoId = pagina.getUltimoId();
+                } while (personas.size() == TAMANO_FETCH);
+            }
+            vaciar(salida, canal);
+            progreso.accept(1.0);
+            completa = true;
+            return escritas;
+        } finally {
+            if (!completa) {
+                Files.deleteIfExists(destino);
+            }
+        }
+    }
+
+    /**
+     * Deja en la línea una persona en el formato pedido, terminada en salto de línea.
+     */
+    private static void anadirFila(StringBuilder linea, Formato formato, long id, String nombre, String apellidos, int edad) {
+        linea.setLength(0);
+        if (formato == Formato.CSV) {
+            linea.append(id).append(',');
+            anadirCsv(linea, nombre);
+            linea.append(',');
+            anadirCsv(linea, apellidos);
+            linea.append(',').append(edad).append('\n');
+        } else {
+            linea.append("{\"id\":").append(id).append(",\"nombre\":");
+            anadirJson(linea, nombre);
+            linea.append(",\"apellidos\":");
+            anadirJson(linea, apellidos);
+            linea.append(",\"edad\":").append(edad).append("}\n");
+        }
+    }
+
+    /**
+     * Codifica una línea en UTF-8 sobre el buffer de salida, escribiéndolo
+     * en el canal cada vez que se llena.
+     *
+     * @return El buffer de caracteres a reutilizar (crece si la línea no cabía).
+     */
+    private static CharBuffer escribir(StringBuilder linea, CharBuffer caracteres, CharsetEncoder codificador,
+                                       ByteBuffer salida, FileChannel canal) throws IOException {
+        if (linea.length() > caracteres.capacity()) {
+            caracteres = CharBuffer.allocate(Math.max(linea.length(), caracteres.capacity() * 2));
+        }
+        caracteres.clear();
+        linea.getChars(0, linea.length(), caracteres.array(), 0);
+        caracteres.limit(linea.length());
+
+        codificador.reset();
+        CoderResult resultado;
+        while ((resultado = codificador.encode(caracteres, salida, true)).isOverflow()) {
+            vaciar(salida, canal);
+        }
+        if (resultado.isError()) {
+            resultado.throwException();
+        }
+        return caracteres;
+    }
+
+    /**
+     * Escribe en el canal el contenido pendiente del buffer de salida.
+     */
+    private static void vaciar(ByteBuffer salida, FileChannel canal) throws IOException {
+        salida.flip();
+        while (salida.hasRemaining()) {
+            canal.write(salida);
+        }
+        salida.clear();
+    }
+
+    /**
+     * Añade un valor CSV, entre comillas solo si contiene separadores, comillas o saltos de línea.
+     */
+    private static void anadirCsv(StringBuilder linea, String valor) {
+        if (valor == null) {
+            return;
+        }
+        boolean comillas = false;
+        for (int i = 0; i < valor.length() && !comillas; i++) {
+            char c = valor.charAt(i);
+            comillas = c == ',' || c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            linea.append(valor);
+            return;
+        }
+        linea.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                linea.append('"');
+            }
+            linea.append(c);
+        }
+        linea.append('"');
+    }
+
+    /**
+     * Añade una cadena JSON entre comillas con los caracteres especiales escapados.
+     */
+    private static void anadirJson(StringBuilder linea, String valor) {
+        if (valor == null) {
+            linea.append("null");
+            return;
+        }
+        linea.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> linea.append("\\\"");
+                case '\\' -> linea.append("\\\\");
+                case '\n' -> linea.append("\\n");
+                case '\r' -> linea.append("\\r");
+                case '\t' -> linea.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        linea.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        linea.append(c);
+                    }
+                }
+            }
+        }
+        linea.append('"');
+    }
+}
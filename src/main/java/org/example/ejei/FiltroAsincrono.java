@@ -0,0 +1,94 @@
+package org.example.ejei;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Filtrado por nombre que no bloquea el hilo de JavaFX mientras se escribe.
+ * Espera a que el usuario deje de teclear durante un instante, cancela la
+ * búsqueda anterior si aún no ha terminado, comprueba los nombres fuera del
+ * hilo de JavaFX con {@link IndiceNombres.Consulta} y solo publica en la
+ * tabla el resultado de la última búsqueda.
+ * Debe usarse únicamente desde el hilo de JavaFX.
+ */
+public class FiltroAsincrono {
+    private static final long ESPERA_MS = Long.getLong("ejei.filtro.espera.ms", 150L); // Pausa tras la última pulsación
+
+    private final IndiceNombres indice; // Índice que resuelve las búsquedas
+    private final VistaPersonas vista; // Vista en la que se publica el resultado
+    private final PauseTransition espera = new PauseTransition(Duration.millis(ESPERA_MS));
+    private String pendiente = ""; // Último texto recibido
+    private int generacion; // Identifica la búsqueda vigente
+    private AtomicBoolean cancelada = new AtomicBoolean(); // Cancelación de la búsqueda en curso
+
+    /**
+     * Crea el filtro sobre un índice y la vista que lo muestra.
+     *
+     * @param indice El índice de nombres.
+     * @param vista  La vista de la tabla.
+     */
+    public FiltroAsincrono(IndiceNombres indice, VistaPersonas vista) {
+        this.indice = indice;
+        this.vista = vista;
+        espera.setOnFinished(e -> lanzar());
+    }
+
+    /**
+     * Pide filtrar por un texto. Si el texto está vacío se quita el filtro
+     * al momento; si no, se busca cuando el usuario deja de escribir.
+     *
+     * @param texto El texto a buscar.
+     */
+    public void solicitar(String texto) {
+        pendiente = texto == null ? "" : texto;
+        cancelarEnCurso();
+        if (pendiente.isEmpty()) {
+            espera.stop();
+            vista.filtrar(indice.buscar(pendiente));
+        } else {
+            espera.playFromStart();
+        }
+    }
+
+    /**
+     * Detiene el filtro y descarta cualquier búsqueda pendiente o en curso.
+     */
+    public void detener() {
+        espera.stop();
+        cancelarEnCurso();
+    }
+
+    /**
+     * Lanza la búsqueda del texto pendiente fuera del hilo de JavaFX y
+     * publica su resultado si sigue siendo la búsqueda vigente.
+     */
+    private void lanzar() {
+        IndiceNombres.Consulta consulta = indice.prepararConsulta(pendiente);
+        if (consulta == null) {
+            vista.filtrar(null);
+            return;
+        }
+        int generacionConsulta = generacion;
+        AtomicBoolean canceladaConsulta = cancelada;
+        CompletableFuture.supplyAsync(() -> consulta.ejecutar(canceladaConsulta::get), ForkJoinPool.commonPool())
+                .thenAcceptAsync(resultado -> {
+                    if (resultado != null && generacionConsulta == generacion && !canceladaConsulta.get()) {
+                        vista.filtrar(indice.aplicar(resultado));
+                    }
+                }, Platform::runLater);
+    }
+
+    /**
+     * Marca como cancelada la búsqueda en curso y prepara una nueva generación.
+     */
+    private void cancelarEnCurso() {
+        cancelada.set(true);
+        cancelada = new AtomicBoolean();
+        generacion++;
+    }
+}
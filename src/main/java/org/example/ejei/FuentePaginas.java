@@ -0,0 +1,65 @@
+package org.example.ejei;
+
+/**
+ * Origen de las páginas de una {@link ListaPaginada}.
+ */
+public interface FuentePaginas {
+
+    /**
+     * Carga la página que sigue a otra por clave.
+     *
+     * @param anterior El cursor de la página anterior, o null para la primera.
+     * @param tamano   El número máximo de personas de la página.
+     * @return La página cargada, vacía si no hay más filas; o null si ocurre un error.
+     */
+    Pagina siguiente(Pagina anterior, int tamano);
+
+    /**
+     * Carga una página por desplazamiento, para saltar a una zona cuya clave no se conoce.
+     *
+     * @param desplazamiento El número de filas que se saltan.
+     * @param tamano         El número máximo de personas de la página.
+     * @return La página cargada, vacía si no hay más filas; o null si ocurre un error.
+     */
+    Pagina desde(int desplazamiento, int tamano);
+
+    /**
+     * Devuelve la fuente que recorre todas las personas por id.
+     *
+     * @return La fuente de la tabla completa.
+     */
+    static FuentePaginas tabla() {
+        return new FuentePaginas() {
+            @Override
+            public Pagina siguiente(Pagina anterior, int tamano) {
+                return Repositorio.personas().cargarPagina(anterior == null ? 0 : anterior.getUltimoId(), tamano);
+            }
+
+            @Override
+            public Pagina desde(int desplazamiento, int tamano) {
+                return Repositorio.personas().cargarPaginaDesde(desplazamiento, tamano);
+            }
+        };
+    }
+
+    /**
+     * Devuelve la fuente que recorre, en el repositorio, las personas
+     * cuyo nombre empieza por un texto.
+     *
+     * @param texto El principio del nombre a buscar.
+     * @return La fuente de la búsqueda.
+     */
+    static FuentePaginas busqueda(String texto) {
+        return new FuentePaginas() {
+            @Override
+            public Pagina siguiente(Pagina anterior, int tamano) {
+                return Repositorio.personas().buscarPersonas(texto, anterior, tamano);
+            }
+
+            @Override
+            public Pagina desde(int desplazamiento, int tamano) {
+                return Repositorio.personas().buscarPersonasDesde(texto, desplazamiento, tamano);
+            }
+        };
+    }
+}
@@ -1,38 +1,71 @@
 package org.example.ejei;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase principal de la aplicación que extiende {@link Application}.
  * Se encarga de inicializar la interfaz gráfica y gestionar la conexión a la base de datos.
+ * La base de datos, el idioma y los primeros datos se preparan en segundo
+ * plano (ver {@link Arranque}) mientras JavaFX arranca y se lee el FXML.
  */
 public class HelloApplication extends Application {
+    private Parent raiz; // Vista principal, leída en init()
+    private HelloController controlador; // Controlador de la vista principal
+    private CompletableFuture<Image> icono; // Logo, decodificado en segundo plano
 
     /**
-     * Método de inicio de la aplicación.
-     * Carga el archivo FXML y establece la escena principal de la interfaz.
+     * Prepara la interfaz fuera del hilo de JavaFX, mientras la base de
+     * datos se prepara en paralelo: lee en segundo plano las ventanas de
+     * agregar y modificar y decodifica el logo, y lee el FXML de la vista
+     * principal (JavaFX permite crear nodos fuera de su hilo mientras no
+     * formen parte de una escena visible).
      *
-     * @param stage El escenario principal de la aplicación.
      * @throws IOException Si ocurre un error al cargar el archivo FXML.
      */
     @Override
-    public void start(Stage stage) throws IOException {
+    public void init() throws IOException {
+        Arranque.hito("JavaFX iniciado");
+
+        // Leer en segundo plano las ventanas de agregar y modificar persona, que se reutilizan
+        CacheDialogos.precargar();
+
+        // Cargar el logo como imagen
+        icono = CompletableFuture.supplyAsync(() -> new Image(getClass().getResourceAsStream("/img/agenda.png")));
+
         // Cargar el archivo FXML
         FXMLLoader fxmlLoader = new FXMLLoader(HelloApplication.class.getResource("hello-view.fxml"));
+        raiz = fxmlLoader.load();
+        controlador = fxmlLoader.getController();
+        Arranque.hito("FXML");
+    }
 
-        // Cargar el logo como imagen
-        Image icon = new Image(getClass().getResourceAsStream("/img/agenda.png"));
-        stage.getIcons().add(icon); // Establecer el ícono de la ventana
+    /**
+     * Método de inicio de la aplicación.
+     * Crea la escena con la vista ya cargada y muestra la ventana principal.
+     *
+     * @param stage El escenario principal de la aplicación.
+     */
+    @Override
+    public void start(Stage stage) {
+        // Si la base de datos no se pudo preparar, la aplicación no puede funcionar
+        Arranque.baseDeDatos().exceptionally(e -> {
+            Platform.runLater(Platform::exit);
+            return null;
+        });
+
+        stage.getIcons().add(icono.join()); // Establecer el ícono de la ventana
 
         // Crear la escena con las dimensiones adecuadas
-        Scene scene = new Scene(fxmlLoader.load(), 734, 474);
+        Scene scene = new Scene(raiz, 734, 474);
 
         // Agregar la hoja de estilos CSS
         scene.getStylesheets().add(getClass().getResource("/css/estilo.css").toExternalForm());
@@ -43,28 +76,40 @@ public class HelloApplication extends Application {
         // Mostrar la escena en la ventana
         stage.setScene(scene);
         stage.show();
+        Arranque.hito("ventana visible");
+
+        // Vigilar los bloqueos del hilo de JavaFX
+        VigilanteFx.iniciar();
+    }
+
+    /**
+     * Método que se ejecuta al cerrar la aplicación.
+     * Resume los bloqueos del hilo de JavaFX, deja de consultar los cambios de otros clientes,
+     * vuelca los cambios diferidos, guarda la instantánea de la tabla, vuelca las métricas
+     * y cierra el pool de conexiones a la base de datos o el registro local.
+     */
+    @Override
+    public void stop() {
+        VigilanteFx.detener();
+        AvisosCambios.cerrar();
+        EscrituraDiferida.cerrar();
+        // Después de volcar los cambios diferidos, para que las altas pendientes tengan ya su id
+        controlador.guardarInstantanea();
+        Metricas.detener();
+        ConexionBBDD.cerrarPool();
+        Repositorio.cerrar();
     }
 
     /**
      * Método principal que se ejecuta al iniciar la aplicación.
-     * Establece la conexión a la base de datos y lanza la interfaz gráfica.
+     * Pone en marcha en segundo plano la preparación de la base de datos y
+     * lanza la interfaz gráfica sin esperarla.
      *
      * @param args Argumentos de línea de comandos.
      */
     public static void main(String[] args) {
-        // Crear la conexión y manejar posibles excepciones
-        try {
-            ConexionBBDD conexioPrueba = new ConexionBBDD();
-            // Crear una persona de prueba (descomentado si es necesario)
-            // ModeloPersona personaPrueba = new ModeloPersona("69696969-Z");
-            // Hacer una llamada al DAO (descomentado si es necesario)
-            // DaoDni.nuevoDNI(personaPrueba);
-        } catch (SQLException e) {
-            // Manejo de excepciones para la conexión a la base de datos
-            e.printStackTrace(); // Imprimir el stack trace para depuración
-            System.err.println("Error al conectar a la base de datos: " + e.getMessage());
-            return; // Salir si hay un error en la conexión
-        }
+        // Crear el pool, actualizar el esquema y leer los mensajes y los primeros datos en paralelo
+        Arranque.iniciar();
 
         // Iniciar la aplicación
         launch();
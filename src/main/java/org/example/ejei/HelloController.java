@@ -1,28 +1,30 @@
 package org.example.ejei;
 
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.text.Text; // Importar Text
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
-import javafx.stage.Modality;
-import javafx.stage.Stage;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Properties;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controlador principal de la interfaz de usuario de la aplicación.
  * Gestiona la interacción del usuario con la tabla de personas y las acciones de agregar, modificar y eliminar personas.
  */
 public class HelloController {
+    static final int UMBRAL_PAGINADO = Integer.getInteger("ejei.paginado.umbral", 100_000); // Filas a partir de las que no se carga la tabla entera
+    static final int TAMANO_PAGINA = Integer.getInteger("ejei.paginado.tamano", 200); // Filas por página
+    private static final int PAGINAS_RESIDENTES = Integer.getInteger("ejei.paginado.residentes", 20); // Páginas en memoria en modo paginado
 
     @FXML
     private TableView<Persona> tableView; // Tabla para mostrar la lista de personas
@@ -44,18 +46,29 @@ public class HelloController {
     private Button cambiarIdioma; // Botón para cambiar el idioma de la interfaz
     @FXML
     private TextField filtroNombreField; // Campo de texto para filtrar por nombre
+    @FXML
+    private Button importarButton; // Botón para importar personas desde un CSV
+    @FXML
+    private Button exportarButton; // Botón para exportar (o cancelar la exportación en curso)
+    @FXML
+    private Button estadisticasButton; // Botón para abrir la ventana de estadísticas
+    @FXML
+    private ProgressBar progresoBar; // Progreso de las tareas en segundo plano
 
     private ObservableList<Persona> personas; // Lista observable de personas
-    private Properties config; // Configuración de propiedades para la internacionalización
-    private String currentLanguage = "es"; // Idioma por defecto
+    private VistaPersonas vista; // Vista filtrada y ordenada de personas que muestra la tabla
+    private IndiceNombres indice; // Índice de nombres para filtrar sin recorrer la lista
+    private IndiceClaves claves; // Índice por nombre y apellidos para detectar duplicados
+    private FiltroAsincrono filtro; // Filtrado en segundo plano sobre el índice
+    private CachePersonas cache; // Mantiene la lista en memoria al día con los cambios de la BD
+    private final PauseTransition esperaBusqueda = new PauseTransition(Duration.millis(300)); // Espera antes de buscar en la BD
+    private int generacionBusqueda; // Identifica la búsqueda en la BD vigente
+    private CatalogoMensajes.Idioma idioma = CatalogoMensajes.Idioma.ES; // Idioma actual de la interfaz
     private ContextMenu contextMenu; // Menú contextual
-
-    /**
-     * Constructor vacío que inicializa la configuración de propiedades.
-     */
-    public HelloController() {
-        this.config = new Properties(); // Inicializa config en el constructor vacío
-    }
+    private MenuItem modificarItem; // Opción de modificar del menú contextual
+    private MenuItem eliminarItem; // Opción de eliminar del menú contextual
+    private Task<Long> tareaExportacion; // Exportación en curso, para poder cancelarla
+    private EstadisticasController estadisticas; // Ventana de estadísticas abierta, o null
 
     /**
      * Método que se llama al inicializar el controlador.
@@ -63,27 +76,37 @@ public class HelloController {
      */
     @FXML
     public void initialize() {
-        personas = FXCollections.observableArrayList();
-        tableView.setItems(personas);
-
-        // Cargar el idioma por defecto
-        cargarIdioma(currentLanguage);
+        personas = new AlmacenPersonas();
+        mostrarPersonas();
 
-        // Configurar columnas de la tabla
-        nombreColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getNombre()));
-        apellidosColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getApellidos()));
-        edadColumn.setCellValueFactory(cellData -> new SimpleIntegerProperty(cellData.getValue().getEdad()).asObject());
+        // Crear el menú contextual y mostrar los textos en el idioma por defecto
+        crearMenuContextual();
+        actualizarTextos();
+        // Si los mensajes se recargan en desarrollo, volver a mostrar los textos
+        CatalogoMensajes.alRecargar(() -> Platform.runLater(this::actualizarTextos));
+
+        // Configurar columnas de la tabla: cada celda se enlaza a la propiedad de la persona,
+        // que se crea una vez y avisa solo de sus cambios (las filas de páginas aún no cargadas llegan como null)
+        nombreColumn.setCellValueFactory(cellData -> cellData.getValue() == null ? null
+                : cellData.getValue().nombreProperty());
+        apellidosColumn.setCellValueFactory(cellData -> cellData.getValue() == null ? null
+                : cellData.getValue().apellidosProperty());
+        edadColumn.setCellValueFactory(cellData -> cellData.getValue() == null ? null
+                : cellData.getValue().edadProperty());
 
         // Asignar acciones a los botones
-        agregarButton.setOnAction(e -> agregarPersona());
-        modificarButton.setOnAction(e -> modificarPersona());
-        eliminarButton.setOnAction(e -> eliminarPersona());
+        // (anotando cada acción para que el vigilante del hilo de JavaFX le atribuya los bloqueos)
+        agregarButton.setOnAction(e -> VigilanteFx.accion("agregarPersona", this::agregarPersona));
+        modificarButton.setOnAction(e -> VigilanteFx.accion("modificarPersona", this::modificarPersona));
+        eliminarButton.setOnAction(e -> VigilanteFx.accion("eliminarPersona", this::eliminarPersona));
+        importarButton.setOnAction(e -> VigilanteFx.accion("importarCsv", this::importarCsv));
+        exportarButton.setOnAction(e -> VigilanteFx.accion("exportar", this::exportar));
+        estadisticasButton.setOnAction(e -> VigilanteFx.accion("abrirEstadisticas", this::abrirEstadisticas));
 
         // Configurar el filtrado de la tabla
-        filtroNombreField.textProperty().addListener((observable, oldValue, newValue) -> filtrarTabla(newValue));
-
-        // Crear el menú contextual
-        crearMenuContextual();
+        filtroNombreField.textProperty().addListener((observable, oldValue, newValue) ->
+                VigilanteFx.accion("filtrarTabla", () -> filtrarTabla(newValue)));
+        esperaBusqueda.setOnFinished(e -> buscarEnBaseDeDatos(filtroNombreField.getText()));
 
         // Mostrar el menú contextual al seleccionar una fila
         tableView.setOnMouseClicked(event -> {
@@ -96,76 +119,401 @@ public class HelloController {
         });
 
         // Asignar acción al botón de cambiar idioma
-        cambiarIdioma.setOnAction(e -> cambiarIdioma());
+        cambiarIdioma.setOnAction(e -> VigilanteFx.accion("cambiarIdioma", this::cambiarIdioma));
+
+        // En modo paginado, mostrar en las páginas cargadas los cambios de otros clientes
+        // (en memoria los recibe la caché de personas)
+        AvisosCambios.suscribir((desde, cambios) -> {
+            if (personas instanceof ListaPaginada paginada) {
+                paginada.actualizar(cambios);
+            }
+        });
+
+        // Avisar de los cambios diferidos que la base de datos ha rechazado
+        EscrituraDiferida.alRechazar((cambios, ruta) -> mostrarAlerta(texto(Mensaje.TITULO_ERROR),
+                MessageFormat.format(texto(Mensaje.ERROR_RECHAZADOS), cambios, ruta.toAbsolutePath())));
+
+        // La tabla puede mostrar la instantánea antes de que la base de datos esté preparada:
+        // hasta entonces no se puede buscar, modificar, eliminar, importar ni exportar
+        // (agregar se habilita al terminar la carga, que ya la espera)
+        bloquearAccionesBaseDeDatos(true);
+        Arranque.baseDeDatos().thenRunAsync(() -> bloquearAccionesBaseDeDatos(false), Platform::runLater);
+
+        // Cargar las personas de la base de datos sin bloquear la interfaz
+        cargarPersonas();
     }
 
     /**
-     * Carga las propiedades de idioma desde un archivo de configuración.
+     * Deshabilita o vuelve a habilitar los controles cuyas acciones usan la
+     * base de datos o el registro local.
      *
-     * @param language El código del idioma a cargar (ej. "es", "en", "eu").
+     * @param bloquear true para deshabilitarlos.
      */
-    private void cargarIdioma(String language) {
-        try (InputStream input = getClass().getResourceAsStream("/messages_" + language + ".properties")) {
-            if (input != null) {
-                config.load(input);
-                currentLanguage = language; // Actualiza el idioma actual
-                actualizarTextos(); // Actualiza los textos en la interfaz
-                crearMenuContextual(); // Re-crea el menú contextual
-            } else {
-                System.err.println("Properties file not found for language: " + language);
+    private void bloquearAccionesBaseDeDatos(boolean bloquear) {
+        filtroNombreField.setDisable(bloquear);
+        modificarButton.setDisable(bloquear);
+        eliminarButton.setDisable(bloquear);
+        modificarItem.setDisable(bloquear);
+        eliminarItem.setDisable(bloquear);
+        importarButton.setDisable(bloquear);
+        exportarButton.setDisable(bloquear);
+    }
+
+    /**
+     * Carga las personas de la base de datos en segundo plano.
+     * Si la tabla es pequeña se carga entera por páginas, mostrando cada una en cuanto llega;
+     * si supera el umbral se usa una {@link ListaPaginada}, que solo mantiene en memoria
+     * las páginas cercanas a la zona visible.
+     */
+    private void cargarPersonas() {
+        agregarButton.setDisable(true); // Evita duplicar en la tabla una persona agregada durante la carga
+        CompletableFuture<Arranque.DatosIniciales> iniciales = Arranque.tomarDatosIniciales();
+        if (iniciales != null) {
+            // Primera carga: el número de personas y la primera página se han pedido durante el arranque.
+            // Si la base de datos no se pudo preparar, la aplicación se cierra (ver HelloApplication)
+            Arranque.tomarInstantanea().thenAcceptAsync(instantanea -> {
+                if (instantanea != null) {
+                    mostrarInstantanea(instantanea, iniciales);
+                    return;
+                }
+                iniciales.thenAcceptAsync(datos -> {
+                    mostrarCarga(datos.getTotal(), datos);
+                    Arranque.terminar("primera página en la tabla");
+                }, Platform::runLater);
+            }, Platform::runLater);
+            return;
+        }
+        DaoPersonaAsync.ejecutar(() -> Repositorio.personas().contarPersonas())
+                .thenAccept(total -> mostrarCarga(total, null))
+                .exceptionally(this::falloCarga);
+    }
+
+    /**
+     * Avisa de que no se han podido cargar las personas y deja usar la tabla
+     * con las que se hayan cargado.
+     *
+     * @param error El fallo de la carga.
+     * @return null, para encadenarlo con {@code exceptionally}.
+     */
+    private Void falloCarga(Throwable error) {
+        DaoPersonaAsync.fallo("cargar las personas", error, null);
+        agregarButton.setDisable(false);
+        mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_CARGAR));
+        return null;
+    }
+
+    /**
+     * Muestra al momento las personas de la instantánea guardada al cerrar y,
+     * cuando la base de datos está lista, las pone al día con los cambios
+     * posteriores a su marca. Si la tabla ha pasado a mostrarse paginada o la
+     * instantánea no cuadra con la base de datos, se carga como siempre.
+     *
+     * @param instantanea La instantánea leída durante el arranque.
+     * @param iniciales   Los datos de la base de datos que se están leyendo durante el arranque.
+     */
+    private void mostrarInstantanea(InstantaneaPersonas instantanea, CompletableFuture<Arranque.DatosIniciales> iniciales) {
+        personas.addAll(instantanea.getPersonas());
+        Arranque.terminar("instantánea en la tabla");
+        iniciales.thenAcceptAsync(datos -> {
+            if (datos.getTotal() > UMBRAL_PAGINADO) {
+                mostrarCarga(datos.getTotal(), datos);
+                return;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            cache.continuar(instantanea.getVersion()).thenAccept(alDia -> {
+                if (alDia) {
+                    agregarButton.setDisable(false);
+                } else {
+                    System.out.println("La instantánea de personas no cuadra con los datos guardados; se carga la tabla entera");
+                    recargarPersonas();
+                }
+            }).exceptionally(this::falloCarga);
+        }, Platform::runLater);
+    }
+
+    /**
+     * Guarda la lista en la instantánea que se muestra al volver a arrancar.
+     * Solo se guarda si la tabla está en memoria, cargada entera y al día;
+     * si se muestra paginada, se borra la anterior.
+     */
+    public void guardarInstantanea() {
+        if (personas instanceof ListaPaginada) {
+            InstantaneaPersonas.descartar();
+        } else if (cache != null && cache.getMarca() >= 0 && personas instanceof AlmacenPersonas almacen) {
+            InstantaneaPersonas.guardar(almacen, cache.getMarca());
+        }
+    }
+
+    /**
+     * Elige el modo de la tabla según el número de personas y empieza a cargarla.
+     *
+     * @param total     El número de personas de la tabla.
+     * @param iniciales Los datos leídos durante el arranque, o null si hay que pedirlos.
+     */
+    private void mostrarCarga(int total, Arranque.DatosIniciales iniciales) {
+        if (total > UMBRAL_PAGINADO) {
+            personas = new ListaPaginada(total, FuentePaginas.tabla(), TAMANO_PAGINA, PAGINAS_RESIDENTES);
+            mostrarPersonas();
+            // La lista paginada no se puede ordenar en memoria
+            nombreColumn.setSortable(false);
+            apellidosColumn.setSortable(false);
+            edadColumn.setSortable(false);
+            agregarButton.setDisable(false);
+        } else {
+            nombreColumn.setSortable(true);
+            apellidosColumn.setSortable(true);
+            edadColumn.setSortable(true);
+            CompletableFuture<Integer> carga = iniciales == null || iniciales.getPrimeraPagina() == null
+                    ? cache.cargar(TAMANO_PAGINA)
+                    : cache.cargar(TAMANO_PAGINA, iniciales.getVersion(), iniciales.getPrimeraPagina());
+            carga.thenAccept(cargadas -> agregarButton.setDisable(false)).exceptionally(this::falloCarga);
+        }
+    }
+
+    /**
+     * Vuelve a cargar las personas desde la base de datos, descartando la lista actual.
+     */
+    private void recargarPersonas() {
+        personas = new AlmacenPersonas();
+        mostrarPersonas();
+        filtroNombreField.clear();
+        cargarPersonas();
+    }
+
+    /**
+     * Muestra la lista de personas actual en la tabla.
+     * En memoria se muestra a través de una {@link VistaPersonas} filtrada con
+     * un {@link IndiceNombres} y ordenada por las columnas de la tabla; en
+     * modo paginado se muestra la lista tal cual.
+     */
+    private void mostrarPersonas() {
+        if (indice != null) {
+            indice.desconectar();
+            claves.desconectar();
+            vista.desconectar();
+            filtro.detener();
+            cache.detener();
+        }
+        if (!(personas instanceof AlmacenPersonas almacen)) {
+            indice = null;
+            claves = null;
+            vista = null;
+            filtro = null;
+            cache = null;
+            tableView.setSortPolicy(null); // La lista paginada no se ordena en memoria
+            tableView.setItems(personas);
+            vigilarEstadisticas();
+            return;
+        }
+        indice = new IndiceNombres(almacen);
+        claves = new IndiceClaves(almacen);
+        cache = new CachePersonas(almacen, this::personasActualizadas, this::recargarPersonas);
+        vista = new VistaPersonas(almacen);
+        filtro = new FiltroAsincrono(indice, vista);
+        VistaPersonas vistaTabla = vista;
+        tableView.setSortPolicy(tabla -> {
+            vistaTabla.ordenar(ordenDe(tabla.getSortOrder()));
+            return true;
+        });
+        tableView.setItems(vista);
+        tableView.sort();
+        vigilarEstadisticas();
+    }
+
+    /**
+     * Traduce las columnas por las que se ordena la tabla a un orden de la
+     * vista, que compara en las columnas del almacén sin crear las personas.
+     *
+     * @return El orden, o null si no se ordena por ninguna columna.
+     */
+    private VistaPersonas.Orden ordenDe(List<TableColumn<Persona, ?>> columnas) {
+        VistaPersonas.Orden orden = null;
+        for (TableColumn<Persona, ?> columna : columnas) {
+            VistaPersonas.Orden porColumna = columna == nombreColumn ? VistaPersonas.porNombre()
+                    : columna == apellidosColumn ? VistaPersonas.porApellidos() : VistaPersonas.porEdad();
+            if (columna.getSortType() == TableColumn.SortType.DESCENDING) {
+                porColumna = porColumna.inverso();
+            }
+            orden = orden == null ? porColumna : orden.despues(porColumna);
+        }
+        return orden;
+    }
+
+    /**
+     * Si la ventana de estadísticas está abierta, hace que muestre las cifras de la lista actual.
+     */
+    private void vigilarEstadisticas() {
+        if (estadisticas != null) {
+            estadisticas.vigilar(personas, idioma);
         }
     }
 
     /**
-     * Crea el menú contextual para la tabla de personas.
+     * Importa personas desde un fichero CSV elegido por el usuario.
+     * La importación se hace en segundo plano mostrando el progreso
+     * y al terminar se recarga la tabla.
+     */
+    private void importarCsv() {
+        FileChooser selector = new FileChooser();
+        selector.setTitle(texto(Mensaje.IMPORTAR_CSV));
+        selector.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File archivo = selector.showOpenDialog(tableView.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
+
+        Task<ImportadorCsv.Resultado> tarea = new Task<>() {
+            @Override
+            protected ImportadorCsv.Resultado call() throws Exception {
+                return ImportadorCsv.importar(archivo.toPath(), fraccion -> updateProgress(fraccion, 1.0), this::isCancelled);
+            }
+        };
+        progresoBar.progressProperty().bind(tarea.progressProperty());
+        progresoBar.setVisible(true);
+        importarButton.setDisable(true);
+        exportarButton.setDisable(true);
+
+        tarea.setOnSucceeded(e -> {
+            terminarTarea();
+            ImportadorCsv.Resultado resultado = tarea.getValue();
+            mostrarAlerta(texto(Mensaje.TITULO_EXITO), MessageFormat.format(texto(Mensaje.EXITO_IMPORTAR),
+                    resultado.getInsertadas(), resultado.getRechazadas()));
+            recargarPersonas();
+        });
+        tarea.setOnFailed(e -> {
+            terminarTarea();
+            tarea.getException().printStackTrace();
+            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_IMPORTAR));
+            recargarPersonas();
+        });
+        Thread.ofVirtual().name("importar-csv").start(tarea);
+    }
+
+    /**
+     * Exporta todas las personas a un fichero CSV o NDJSON elegido por el usuario.
+     * La exportación se hace en segundo plano; si ya hay una en curso, este botón la cancela.
+     */
+    private void exportar() {
+        if (tareaExportacion != null) {
+            tareaExportacion.cancel();
+            return;
+        }
+
+        FileChooser selector = new FileChooser();
+        selector.setTitle(texto(Mensaje.EXPORTAR));
+        FileChooser.ExtensionFilter csv = new FileChooser.ExtensionFilter("CSV", "*.csv");
+        FileChooser.ExtensionFilter ndjson = new FileChooser.ExtensionFilter("NDJSON", "*.ndjson", "*.jsonl");
+        selector.getExtensionFilters().addAll(csv, ndjson);
+        File archivo = selector.showSaveDialog(tableView.getScene().getWindow());
+        if (archivo == null) {
+            return;
+        }
+        String nombreArchivo = archivo.getName().toLowerCase();
+        ExportadorPersonas.Formato formato = selector.getSelectedExtensionFilter() == ndjson
+                || nombreArchivo.endsWith(".ndjson") || nombreArchivo.endsWith(".jsonl")
+                ? ExportadorPersonas.Formato.NDJSON : ExportadorPersonas.Formato.CSV;
+
+        Task<Long> tarea = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return ExportadorPersonas.exportar(archivo.toPath(), formato, fraccion -> updateProgress(fraccion, 1.0), this::isCancelled);
+            }
+        };
+        tareaExportacion = tarea;
+        progresoBar.progressProperty().bind(tarea.progressProperty());
+        progresoBar.setVisible(true);
+        importarButton.setDisable(true);
+        exportarButton.setText(texto(Mensaje.CANCELAR_EXPORTACION));
+
+        tarea.setOnSucceeded(e -> {
+            terminarTarea();
+            mostrarAlerta(texto(Mensaje.TITULO_EXITO), MessageFormat.format(texto(Mensaje.EXITO_EXPORTAR), tarea.getValue()));
+        });
+        tarea.setOnCancelled(e -> terminarTarea());
+        tarea.setOnFailed(e -> {
+            terminarTarea();
+            tarea.getException().printStackTrace();
+            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_EXPORTAR));
+        });
+        Thread.ofVirtual().name("exportar").start(tarea);
+    }
+
+    /**
+     * Oculta la barra de progreso y reactiva los botones de las tareas en segundo plano.
+     */
+    private void terminarTarea() {
+        tareaExportacion = null;
+        progresoBar.progressProperty().unbind();
+        progresoBar.setVisible(false);
+        importarButton.setDisable(false);
+        exportarButton.setDisable(false);
+        exportarButton.setText(texto(Mensaje.EXPORTAR));
+    }
+
+    /**
+     * Crea el menú contextual para la tabla de personas. Se crea una sola
+     * vez; al cambiar de idioma solo se actualizan sus textos.
      */
     private void crearMenuContextual() {
         contextMenu = new ContextMenu();
 
-        MenuItem modificarItem = new MenuItem(config.getProperty("modify.person", "Modificar persona"));
-        modificarItem.setOnAction(e -> modificarPersona());
+        modificarItem = new MenuItem();
+        modificarItem.setOnAction(e -> VigilanteFx.accion("modificarPersona", this::modificarPersona));
 
-        MenuItem eliminarItem = new MenuItem(config.getProperty("delete.person", "Eliminar persona"));
-        eliminarItem.setOnAction(e -> eliminarPersona());
+        eliminarItem = new MenuItem();
+        eliminarItem.setOnAction(e -> VigilanteFx.accion("eliminarPersona", this::eliminarPersona));
 
-        contextMenu.getItems().clear(); // Limpia los elementos anteriores
         contextMenu.getItems().addAll(modificarItem, eliminarItem);
     }
 
     /**
      * Cambia entre los idiomas disponibles: español, inglés y euskera.
+     * Los textos ya están en memoria, así que el cambio no lee ningún fichero.
      */
     private void cambiarIdioma() {
-        // Cambia entre español, inglés y euskera
-        if (currentLanguage.equals("es")) {
-            cargarIdioma("en"); // Cambiar a inglés
-        } else if (currentLanguage.equals("en")) {
-            cargarIdioma("eu"); // Cambiar a euskera
-        } else {
-            cargarIdioma("es"); // Volver a español
-        }
+        idioma = idioma.siguiente();
+        actualizarTextos();
+    }
+
+    /**
+     * Obtiene el texto de un mensaje en el idioma actual; también lo usan
+     * las ventanas de alta y edición para sus avisos.
+     *
+     * @param mensaje El mensaje.
+     * @return El texto traducido.
+     */
+    String texto(Mensaje mensaje) {
+        return CatalogoMensajes.texto(idioma, mensaje);
     }
 
     /**
      * Actualiza los textos de la interfaz de usuario según el idioma seleccionado.
      */
     private void actualizarTextos() {
-        agregarButton.setText(config.getProperty("add.person", "Agregar")); // Texto por defecto si no se encuentra la propiedad
-        modificarButton.setText(config.getProperty("modify.person", "Modificar"));
-        eliminarButton.setText(config.getProperty("delete.person", "Eliminar"));
-        cambiarIdioma.setText(config.getProperty("change.language", "Idiomas")); // Asegúrate de tener esta propiedad en los archivos de propiedades
+        agregarButton.setText(texto(Mensaje.AGREGAR_PERSONA));
+        modificarButton.setText(texto(Mensaje.MODIFICAR_PERSONA));
+        eliminarButton.setText(texto(Mensaje.ELIMINAR_PERSONA));
+        cambiarIdioma.setText(texto(Mensaje.CAMBIAR_IDIOMA));
+        importarButton.setText(texto(Mensaje.IMPORTAR_CSV));
+        if (tareaExportacion == null) {
+            exportarButton.setText(texto(Mensaje.EXPORTAR));
+        }
+        estadisticasButton.setText(texto(Mensaje.ESTADISTICAS));
+        if (estadisticas != null) {
+            estadisticas.setIdioma(idioma);
+        }
 
         // Actualiza los encabezados de las columnas
-        nombreColumn.setText(config.getProperty("column.name", "Nombre")); // Texto por defecto si no se encuentra la propiedad
-        apellidosColumn.setText(config.getProperty("column.surname", "Apellidos"));
-        edadColumn.setText(config.getProperty("column.age", "Edad"));
+        nombreColumn.setText(texto(Mensaje.COLUMNA_NOMBRE));
+        apellidosColumn.setText(texto(Mensaje.COLUMNA_APELLIDOS));
+        edadColumn.setText(texto(Mensaje.COLUMNA_EDAD));
 
-        filtroNombreText.setText(config.getProperty("filter.label", "Filtrar por nombre")); // Asegúrate de tener esta propiedad en los archivos de propiedades
+        filtroNombreText.setText(texto(Mensaje.FILTRO_ETIQUETA));
         // Actualiza el texto del filtro
-        filtroNombreField.setPromptText(config.getProperty("filter.name", "Filtrar nombre")); // Texto por defecto si no se encuentra la propiedad
+        filtroNombreField.setPromptText(texto(Mensaje.FILTRO_NOMBRE));
+
+        // Actualiza el menú contextual
+        modificarItem.setText(texto(Mensaje.MODIFICAR_PERSONA));
+        eliminarItem.setText(texto(Mensaje.ELIMINAR_PERSONA));
     }
 
     /**
@@ -173,21 +521,41 @@ public class HelloController {
      */
     private void agregarPersona() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("ventana.fxml"));
-            Parent root = loader.load();
+            // La ventana se leyó durante el arranque y se reutiliza: solo se vacían sus campos
+            CacheDialogos.Dialogo<NuevaPersonaController> dialogo = CacheDialogos.nuevaPersona();
 
-            NuevaPersonaController controller = loader.getController();
+            NuevaPersonaController controller = dialogo.getControlador();
             controller.setParentController(this);
+            controller.limpiar();
+
+            dialogo.mostrar(texto(Mensaje.AGREGAR_PERSONA)); // Título traducido
+        } catch (IOException e) {
+            e.printStackTrace();
+            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_ABRIR_AGREGAR));
+        }
+    }
 
-            Stage stage = new Stage();
-            stage.setTitle(config.getProperty("add.person", "Agregar persona")); // Título traducido
-            stage.setScene(new Scene(root));
-            stage.setResizable(false);
-            stage.initModality(Modality.APPLICATION_MODAL);
-            stage.showAndWait();
+    /**
+     * Abre la ventana de estadísticas, que se mantiene al día mientras está
+     * abierta sin bloquear la ventana principal.
+     */
+    private void abrirEstadisticas() {
+        try {
+            CacheDialogos.Dialogo<EstadisticasController> dialogo = CacheDialogos.estadisticas();
+            if (estadisticas == null) {
+                estadisticas = dialogo.getControlador();
+                estadisticas.vigilar(personas, idioma);
+            }
+            dialogo.abrir(texto(Mensaje.ESTADISTICAS), tableView.getScene().getWindow(), () -> {
+                // Al cerrarla deja de seguir los cambios; al volver a abrirla se recalcula
+                if (estadisticas != null) {
+                    estadisticas.detener();
+                    estadisticas = null;
+                }
+            });
         } catch (IOException e) {
             e.printStackTrace();
-            mostrarAlerta("Error", config.getProperty("error.open.add", "Error al abrir la ventana de agregar"));
+            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_ABRIR_ESTADISTICAS));
         }
     }
 
@@ -198,27 +566,20 @@ public class HelloController {
         Persona personaSeleccionada = tableView.getSelectionModel().getSelectedItem();
         if (personaSeleccionada != null) {
             try {
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("editarventana.fxml"));
-                Parent root = loader.load();
+                // La ventana se leyó durante el arranque y se reutiliza: solo se rellenan sus campos
+                CacheDialogos.Dialogo<EditarPersonaController> dialogo = CacheDialogos.editarPersona();
 
-                EditarPersonaController controller = loader.getController();
+                EditarPersonaController controller = dialogo.getControlador();
                 controller.setParentController(this);
                 controller.cargarDatos(personaSeleccionada);
 
-                Stage stage = new Stage();
-                stage.setTitle(config.getProperty("modify.person", "Modificar persona")); // Título traducido
-                stage.setScene(new Scene(root));
-                stage.setResizable(false);
-                stage.initModality(Modality.APPLICATION_MODAL);
-                stage.showAndWait();
-
-                actualizarTabla();
+                dialogo.mostrar(texto(Mensaje.MODIFICAR_PERSONA)); // Título traducido
             } catch (IOException e) {
                 e.printStackTrace();
-                mostrarAlerta("Error", config.getProperty("error.open.edit", "Error al abrir la ventana de edición"));
+                mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_ABRIR_EDITAR));
             }
         } else {
-            mostrarAlerta("Advertencia", config.getProperty("select.person.modify", "Seleccione una persona para modificar"));
+            mostrarAlerta(texto(Mensaje.TITULO_ADVERTENCIA), texto(Mensaje.SELECCIONAR_MODIFICAR));
         }
     }
 
@@ -228,15 +589,22 @@ public class HelloController {
     private void eliminarPersona() {
         Persona personaSeleccionada = tableView.getSelectionModel().getSelectedItem();
         if (personaSeleccionada != null) {
-            boolean eliminadoEnBD = DaoPersona.eliminarPersona(personaSeleccionada);
-            if (eliminadoEnBD) {
-                personas.remove(personaSeleccionada);
-                mostrarAlerta("Éxito", config.getProperty("success.delete", "Persona eliminada con éxito"));
-            } else {
-                mostrarAlerta("Error", config.getProperty("error.delete", "Error al eliminar la persona"));
-            }
+            // La eliminación se hace fuera del hilo de JavaFX; el resultado vuelve a él
+            eliminarButton.setDisable(true);
+            DaoPersonaAsync.eliminarPersona(personaSeleccionada)
+                    .exceptionally(e -> DaoPersonaAsync.fallo("eliminarPersona", e, false))
+                    .thenAccept(eliminadoEnBD -> {
+                        eliminarButton.setDisable(false);
+                        if (eliminadoEnBD) {
+                            personas.remove(personaSeleccionada);
+                            refrescarBusqueda();
+                            mostrarAlerta(texto(Mensaje.TITULO_EXITO), texto(Mensaje.EXITO_ELIMINAR));
+                        } else {
+                            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_ELIMINAR));
+                        }
+                    });
         } else {
-            mostrarAlerta("Advertencia", config.getProperty("select.person.delete", "Seleccione una persona para eliminar"));
+            mostrarAlerta(texto(Mensaje.TITULO_ADVERTENCIA), texto(Mensaje.SELECCIONAR_ELIMINAR));
         }
     }
 
@@ -246,19 +614,40 @@ public class HelloController {
      * @param nuevaPersona La nueva persona a agregar.
      */
     public void agregarPersona(Persona nuevaPersona) {
-        if (!personas.contains(nuevaPersona)) {
-            boolean guardadoEnBD = DaoPersona.nuevaPersona(nuevaPersona);
-            if (guardadoEnBD) {
-                personas.add(nuevaPersona);
-                mostrarAlerta("Éxito", config.getProperty("success.add", "Persona agregada con éxito"));
-            } else {
-                mostrarAlerta("Error", config.getProperty("error.save", "Error al guardar la persona"));
-            }
+        if (claves == null || !claves.contiene(nuevaPersona.getNombre(), nuevaPersona.getApellidos())) {
+            // El guardado se hace fuera del hilo de JavaFX; el resultado vuelve a él.
+            // En modo paginado no hay índice local: la restricción única de la BD detecta el duplicado
+            DaoPersonaAsync.crearPersona(nuevaPersona)
+                    .exceptionally(e -> DaoPersonaAsync.fallo("crearPersona", e, RepositorioPersonas.Alta.ERROR))
+                    .thenAccept(alta -> {
+                        if (alta == RepositorioPersonas.Alta.CREADA) {
+                            personas.add(nuevaPersona);
+                            refrescarBusqueda();
+                            mostrarAlerta(texto(Mensaje.TITULO_EXITO), texto(Mensaje.EXITO_AGREGAR));
+                        } else if (alta == RepositorioPersonas.Alta.DUPLICADA) {
+                            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_DUPLICADA));
+                        } else {
+                            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_GUARDAR));
+                        }
+                    });
         } else {
-            mostrarAlerta("Error", config.getProperty("error.duplicate", "La persona ya existe"));
+            mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_DUPLICADA));
         }
     }
 
+    /**
+     * Comprueba en memoria si otra persona de la tabla ya tiene un nombre y apellidos.
+     * En modo paginado siempre devuelve false y la comprobación queda a cargo de la BD.
+     *
+     * @param nombre    El nombre.
+     * @param apellidos Los apellidos.
+     * @param excluida  La persona que se está editando, que no cuenta como duplicado.
+     * @return true si la clave ya la usa otra persona.
+     */
+    public boolean existeOtraPersona(String nombre, String apellidos, Persona excluida) {
+        return claves != null && claves.contieneOtra(nombre, apellidos, excluida);
+    }
+
     /**
      * Muestra una alerta en la interfaz de usuario.
      *
@@ -274,28 +663,84 @@ public class HelloController {
     }
 
     /**
-     * Actualiza la tabla de personas en la interfaz de usuario.
+     * Notifica que una persona de la tabla se ha modificado en sitio, para
+     * volver a filtrar la tabla; los índices ya siguen las ediciones por
+     * hueco. Las celdas se actualizan solas a través de las propiedades de
+     * la persona.
+     */
+    public void personaModificada() {
+        if (indice != null) {
+            filtrarTabla(filtroNombreField.getText()); // El nuevo nombre puede dejar de coincidir con el filtro
+        }
+        refrescarBusqueda();
+    }
+
+    /**
+     * Notifica que un refresco desde la base de datos ha modificado en sitio
+     * varias personas de la tabla, para volver a filtrarla.
+     *
+     * @param modificadas Las personas modificadas.
      */
-    public void actualizarTabla() {
-        tableView.refresh();
+    private void personasActualizadas(List<Persona> modificadas) {
+        filtrarTabla(filtroNombreField.getText());
+    }
+
+    /**
+     * Repite la búsqueda en la base de datos que se esté mostrando tras una
+     * escritura, ya que su resultado puede haber cambiado.
+     */
+    private void refrescarBusqueda() {
+        if (filtro == null && !filtroNombreField.getText().isEmpty()) {
+            buscarEnBaseDeDatos(filtroNombreField.getText());
+        }
     }
 
     /**
      * Filtra la tabla de personas según el nombre proporcionado.
+     * Si las personas están en memoria, la búsqueda se hace en segundo plano
+     * sobre el índice de nombres cuando el usuario deja de escribir, y
+     * encuentra los nombres que contienen el texto. En modo paginado (tablas
+     * grandes) la búsqueda se delega en la base de datos, que busca los
+     * nombres que empiezan por el texto para poder usar el índice sobre nombre.
      *
      * @param nombre El nombre para filtrar.
      */
     private void filtrarTabla(String nombre) {
+        if (filtro != null) {
+            filtro.solicitar(nombre);
+            return;
+        }
+        generacionBusqueda++;
         if (nombre == null || nombre.isEmpty()) {
+            esperaBusqueda.stop();
             tableView.setItems(personas);
         } else {
-            ObservableList<Persona> filtradas = FXCollections.observableArrayList();
-            for (Persona persona : personas) {
-                if (persona.getNombre().toLowerCase().contains(nombre.toLowerCase())) {
-                    filtradas.add(persona);
-                }
-            }
-            tableView.setItems(filtradas);
+            esperaBusqueda.playFromStart();
+        }
+    }
+
+    /**
+     * Busca en la base de datos las personas cuyo nombre empieza por un texto
+     * y muestra el resultado en una {@link ListaPaginada} propia.
+     *
+     * @param nombre El principio del nombre a buscar.
+     */
+    private void buscarEnBaseDeDatos(String nombre) {
+        if (nombre == null || nombre.isEmpty()) {
+            return;
         }
+        int generacion = ++generacionBusqueda;
+        DaoPersonaAsync.ejecutar(() -> Repositorio.personas().contarBusqueda(nombre))
+                .exceptionally(e -> DaoPersonaAsync.fallo("contarBusqueda", e, -1))
+                .thenAccept(total -> {
+                    if (generacion != generacionBusqueda) {
+                        return;
+                    }
+                    if (total < 0) {
+                        mostrarAlerta(texto(Mensaje.TITULO_ERROR), texto(Mensaje.ERROR_BUSCAR));
+                    } else {
+                        tableView.setItems(new ListaPaginada(total, FuentePaginas.busqueda(nombre), TAMANO_PAGINA, PAGINAS_RESIDENTES));
+                    }
+                });
     }
 }
@@ -0,0 +1,202 @@
+package org.example.ejei;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Número de personas de cada edad, con la suma de las edades. Las edades
+ * hasta {@link #EDAD_MAXIMA} se cuentan en un array fijo; las mayores, que
+ * son raras, en un mapa ordenado, de modo que una edad enorme (un error al
+ * teclear, un fichero importado) no hace crecer el array hasta agotar la
+ * memoria. Las edades no son negativas ({@link Persona#setEdad(int)}).
+ * No es segura entre hilos.
+ */
+public class HistogramaEdades {
+    /**
+     * Edad más alta que se cuenta en el array; las demás van al mapa y, al
+     * agrupar por tramos, al último tramo.
+     */
+    public static final int EDAD_MAXIMA = 149;
+
+    private final int[] porEdad = new int[EDAD_MAXIMA + 1]; // Edad -> personas
+    private final TreeMap<Integer, Integer> mayores = new TreeMap<>(); // Edad por encima de la máxima -> personas
+    private int total;
+    private long sumaEdades;
+
+    /**
+     * Suma una persona de una edad.
+     *
+     * @param edad La edad.
+     */
+    public void anadir(int edad) {
+        anadir(edad, 1);
+    }
+
+    /**
+     * Suma varias personas de la misma edad.
+     *
+     * @param edad     La edad.
+     * @param personas El número de personas.
+     */
+    public void anadir(int edad, int personas) {
+        if (edad <= EDAD_MAXIMA) {
+            porEdad[edad] += personas;
+        } else {
+            mayores.merge(edad, personas, Integer::sum);
+        }
+        total += personas;
+        sumaEdades += (long) edad * personas;
+    }
+
+    /**
+     * Resta una persona de una edad.
+     *
+     * @param edad La edad.
+     */
+    public void quitar(int edad) {
+        if (edad <= EDAD_MAXIMA) {
+            porEdad[edad]--;
+        } else {
+            mayores.computeIfPresent(edad, (e, personas) -> personas == 1 ? null : personas - 1);
+        }
+        total--;
+        sumaEdades -= edad;
+    }
+
+    /**
+     * Suma las personas de otro histograma.
+     *
+     * @param otro El otro histograma.
+     */
+    public void combinar(HistogramaEdades otro) {
+        for (int edad = 0; edad <= EDAD_MAXIMA; edad++) {
+            porEdad[edad] += otro.porEdad[edad];
+        }
+        for (Map.Entry<Integer, Integer> entrada : otro.mayores.entrySet()) {
+            mayores.merge(entrada.getKey(), entrada.getValue(), Integer::sum);
+        }
+        total += otro.total;
+        sumaEdades += otro.sumaEdades;
+    }
+
+    /**
+     * @return Una copia independiente del histograma.
+     */
+    public HistogramaEdades copia() {
+        HistogramaEdades copia = new HistogramaEdades();
+        copia.combinar(this);
+        return copia;
+    }
+
+    /**
+     * @return El número de personas.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return La suma de todas las edades.
+     */
+    public long getSumaEdades() {
+        return sumaEdades;
+    }
+
+    /**
+     * Obtiene el número de personas de una edad.
+     *
+     * @param edad La edad.
+     * @return El número de personas.
+     */
+    public int personas(int edad) {
+        return edad <= EDAD_MAXIMA ? porEdad[edad] : mayores.getOrDefault(edad, 0);
+    }
+
+    /**
+     * Busca la menor edad con personas por encima de una dada.
+     *
+     * @param edad La edad de partida (-1 para buscar la menor de todas).
+     * @return La edad siguiente, o -1 si no hay ninguna.
+     */
+    public int siguiente(int edad) {
+        for (int i = Math.min(edad, EDAD_MAXIMA) + 1; i <= EDAD_MAXIMA; i++) {
+            if (porEdad[i] > 0) {
+                return i;
+            }
+        }
+        Integer siguiente = mayores.higherKey(Math.max(edad, EDAD_MAXIMA));
+        return siguiente == null ? -1 : siguiente;
+    }
+
+    /**
+     * Busca la mayor edad con personas por debajo de una dada.
+     *
+     * @param edad La edad de partida ({@link Integer#MAX_VALUE} para buscar la mayor de todas).
+     * @return La edad anterior, o -1 si no hay ninguna.
+     */
+    public int anterior(int edad) {
+        if (edad > EDAD_MAXIMA + 1) {
+            Integer anterior = mayores.lowerKey(edad);
+            if (anterior != null) {
+                return anterior;
+            }
+        }
+        for (int i = Math.min(edad - 1, EDAD_MAXIMA); i >= 0; i--) {
+            if (porEdad[i] > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Agrupa las personas por tramos de edad de la misma anchura hasta la
+     * edad máxima, más un último tramo con todas las de más edad.
+     *
+     * @param anchura Los años de cada tramo.
+     * @return El número de personas de cada tramo; siempre con el mismo número de tramos.
+     */
+    public int[] porTramos(int anchura) {
+        int tramos = (EDAD_MAXIMA + anchura) / anchura;
+        int[] porTramo = new int[tramos + 1];
+        for (int edad = 0; edad <= EDAD_MAXIMA; edad++) {
+            porTramo[edad / anchura] += porEdad[edad];
+        }
+        for (int personas : mayores.values()) {
+            porTramo[tramos] += personas;
+        }
+        return porTramo;
+    }
+
+    /**
+     * @return La edad media, o 0 si no hay personas.
+     */
+    public double getMedia() {
+        return total == 0 ? 0 : (double) sumaEdades / total;
+    }
+
+    /**
+     * Calcula la mediana de las edades recorriendo el histograma.
+     *
+     * @return La mediana (la media de las dos centrales si el total es par), o 0 si no hay personas.
+     */
+    public double getMediana() {
+        if (total == 0) {
+            return 0;
+        }
+        int central = total / 2; // Posición (desde 0) de la central, o de la segunda central si es par
+        int anterior = -1; // Edad de la posición central - 1
+        int acumuladas = 0;
+        for (int edad = siguiente(-1); edad >= 0; edad = siguiente(edad)) {
+            int personas = personas(edad);
+            if (acumuladas <= central - 1 && central - 1 < acumuladas + personas) {
+                anterior = edad;
+            }
+            acumuladas += personas;
+            if (central < acumuladas) {
+                return total % 2 == 1 ? edad : (anterior + edad) / 2.0;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,374 @@
+package org.example.ejei;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Importación masiva de personas desde un fichero CSV con columnas
+ * nombre, apellidos y edad (separadas por coma o punto y coma, con
+ * comillas opcionales y cabecera opcional). También admite delante una
+ * columna id, como la que escribe {@link ExportadorPersonas}; se comprueba
+ * que es un número y se descarta, porque la base de datos asigna los ids.
+ * El fichero se proyecta en memoria ({@link FileChannel#map}) por trozos
+ * que se analizan en paralelo; las personas válidas se insertan desde una
+ * única conexión con INSERT por lotes dentro de transacciones de tamaño fijo
+ * (o, con el registro embebido, se dan de alta una a una en él).
+ */
+public class ImportadorCsv {
+    private static final long TAMANO_TROZO = Long.getLong("ejei.importar.trozo", 8L * 1024 * 1024); // Bytes por trozo
+    private static final int TAMANO_LOTE = Integer.getInteger("ejei.importar.lote", 1_000); // Filas por executeBatch
+    private static final int FILAS_TRANSACCION = Integer.getInteger("ejei.importar.transaccion", 20_000); // Filas por commit
+
+    private static final Lote FIN = new Lote(new ArrayList<>(), 0); // Marca de fin de un analizador
+
+    /**
+     * Lote de personas ya validadas junto con los bytes del fichero que representa.
+     */
+    private static class Lote {
+        private final List<Persona> personas;
+        private final long bytes;
+
+        Lote(List<Persona> personas, long bytes) {
+            this.personas = personas;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Resultado de una importación.
+     */
+    public static class Resultado {
+        private final int insertadas;
+        private final int rechazadas;
+
+        Resultado(int insertadas, int rechazadas) {
+            this.insertadas = insertadas;
+            this.rechazadas = rechazadas;
+        }
+
+        /**
+         * Obtiene el número de personas insertadas.
+         *
+         * @return Las filas insertadas en la base de datos.
+         */
+        public int getInsertadas() {
+            return insertadas;
+        }
+
+        /**
+         * Obtiene el número de filas descartadas por no ser válidas.
+         *
+         * @return Las filas rechazadas.
+         */
+        public int getRechazadas() {
+            return rechazadas;
+        }
+    }
+
+    private ImportadorCsv() {
+    }
+
+    /**
+     * Importa un fichero CSV en la tabla Persona.
+     *
+     * @param archivo   El fichero CSV.
+     * @param progreso  Recibe la fracción (0 a 1) del fichero ya insertada.
+     * @param cancelado Indica si se ha pedido cancelar; lo insertado hasta entonces se confirma.
+     * @return El número de filas insertadas y rechazadas.
+     * @throws IOException  Si no se puede leer el fichero.
+     * @throws SQLException Si falla la inserción; lo confirmado hasta entonces se mantiene.
+     */
+    public static Resultado importar(Path archivo, DoubleConsumer progreso, BooleanSupplier cancelado)
+            throws IOException, SQLException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano == 0) {
+                return new Resultado(0, 0);
+            }
+            List<long[]> trozos = dividir(canal, tamano);
+            AtomicInteger rechazadas = new AtomicInteger();
+            BlockingQueue<Lote> cola = new ArrayBlockingQueue<>(64); // Contrapresión si la BD va más lenta
+
+            int hilos = Math.min(trozos.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService analizadores = Executors.newFixedThreadPool(hilos, r -> {
+                Thread hilo = new Thread(r, "importar-csv");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            try {
+                for (long[] trozo : trozos) {
+                    analizadores.execute(() -> analizarTrozo(canal, trozo[0], trozo[1], cola, rechazadas, cancelado));
+                }
+                int insertadas = escribir(cola, trozos.size(), tamano, progreso, rechazadas, cancelado);
+                return new Resultado(insertadas, rechazadas.get());
+            } finally {
+                analizadores.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Divide el fichero en trozos de aproximadamente {@link #TAMANO_TROZO} bytes
+     * que terminan siempre en un salto de línea.
+     */
+    private static List<long[]> dividir(FileChannel canal, long tamano) throws IOException {
+        List<long[]> trozos = new ArrayList<>();
+        long inicio = 0;
+        while (inicio < tamano) {
+            long fin = Math.min(tamano, inicio + TAMANO_TROZO);
+            if (fin < tamano) {
+                // Avanzar hasta el siguiente salto de línea
+                MappedByteBuffer resto = canal.map(FileChannel.MapMode.READ_ONLY, fin, Math.min(64 * 1024, tamano - fin));
+                while (resto.hasRemaining() && resto.get() != '\n') {
+                    fin++;
+                }
+                fin = Math.min(tamano, fin + 1);
+            }
+            trozos.add(new long[]{inicio, fin});
+            inicio = fin;
+        }
+        return trozos;
+    }
+
+    /**
+     * Analiza un trozo del fichero y deja sus personas válidas en la cola por lotes.
+     * Siempre termina dejando la marca {@link #FIN}.
+     */
+    private static void analizarTrozo(FileChannel canal, long inicio, long fin, BlockingQueue<Lote> cola,
+                                      AtomicInteger rechazadas, BooleanSupplier cancelado) {
+        try {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+            byte[] linea = new byte[256];
+            List<String> campos = new ArrayList<>(3);
+            List<Persona> personas = new ArrayList<>(TAMANO_LOTE);
+            long bytesLote = 0;
+            boolean primeraLinea = inicio == 0;
+
+            while (buffer.hasRemaining() && !cancelado.getAsBoolean()) {
+                int longitud = 0;
+                byte b;
+                while (buffer.hasRemaining() && (b = buffer.get()) != '\n') {
+                    if (longitud == linea.length) {
+                        linea = Arrays.copyOf(linea, linea.length * 2);
+                    }
+                    linea[longitud++] = b;
+                }
+                bytesLote += longitud + 1;
+                if (longitud > 0 && linea[longitud - 1] == '\r') {
+                    longitud--;
+                }
+                if (longitud == 0) {
+                    continue;
+                }
+
+                String texto = new String(linea, 0, longitud, StandardCharsets.UTF_8);
+                if (primeraLinea) {
+                    primeraLinea = false;
+                    String cabecera = texto.toLowerCase();
+                    if (cabecera.startsWith("nombre") || cabecera.startsWith("id,") || cabecera.startsWith("id;")) {
+                        continue; // Cabecera
+                    }
+                }
+
+                Persona persona = validar(texto, campos);
+                if (persona != null) {
+                    personas.add(persona);
+                } else {
+                    rechazadas.incrementAndGet();
+                }
+                if (personas.size() == TAMANO_LOTE) {
+                    cola.put(new Lote(personas, bytesLote));
+                    personas = new ArrayList<>(TAMANO_LOTE);
+                    bytesLote = 0;
+                }
+            }
+            cola.put(new Lote(personas, bytesLote));
+        } catch (IOException e) {
+            System.out.println("Error al leer el fichero CSV: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            cola.put(FIN);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Convierte una línea en una persona aplicando las mismas reglas que
+     * el constructor de {@link Persona} (edad no negativa). Con cuatro
+     * campos, el primero es el id de una exportación y se descarta.
+     *
+     * @return La persona, o null si la línea no es válida.
+     */
+    private static Persona validar(String texto, List<String> campos) {
+        dividirCampos(texto, campos);
+        int desde = campos.size() - 3; // 1 si la línea empieza por el id
+        if (desde != 0 && desde != 1 || campos.get(desde).isEmpty() || campos.get(desde + 1).isEmpty()) {
+            return null;
+        }
+        try {
+            if (desde == 1) {
+                Long.parseLong(campos.get(0));
+            }
+            return new Persona(campos.get(desde), campos.get(desde + 1), Integer.parseInt(campos.get(desde + 2)));
+        } catch (IllegalArgumentException e) {
+            return null; // Id o edad no numéricos, o edad negativa
+        }
+    }
+
+    /**
+     * Separa una línea CSV en campos. Admite coma o punto y coma como
+     * separador y campos entre comillas dobles con comillas duplicadas.
+     */
+    private static void dividirCampos(String texto, List<String> campos) {
+        campos.clear();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (entreComillas) {
+                if (c == '"') {
+                    if (i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                        campo.append('"');
+                        i++;
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',' || c == ';') {
+                campos.add(campo.toString().trim());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString().trim());
+    }
+
+    /**
+     * Inserta los lotes de la cola con INSERT por lotes, confirmando cada
+     * {@link #FILAS_TRANSACCION} filas, hasta recibir la marca de fin de todos los analizadores.
+     * Las personas que ya existen (mismo nombre y apellidos) se ignoran y cuentan como rechazadas.
+     *
+     * @return El número de filas insertadas.
+     */
+    private static int escribir(BlockingQueue<Lote> cola, int analizadores, long tamano, DoubleConsumer progreso,
+                                AtomicInteger rechazadas, BooleanSupplier cancelado) throws SQLException {
+        if (!Repositorio.esBaseDatos()) {
+            return escribirEnRegistro(cola, analizadores, tamano, progreso, rechazadas, cancelado);
+        }
+        String consulta = "INSERT IGNORE INTO Persona (nombre, apellidos, edad) VALUES (?, ?, ?)";
+        int insertadas = 0;
+        int sinConfirmar = 0;
+        long bytesEscritos = 0;
+        int terminados = 0;
+
+        try (ConexionBBDD conexion = new ConexionBBDD();
+             PreparedStatement pstmt = conexion.getConexion().prepareStatement(consulta)) {
+            Connection conn = conexion.getConexion();
+            conn.setAutoCommit(false);
+            try {
+                while (terminados < analizadores && !cancelado.getAsBoolean()) {
+                    Lote lote = cola.take();
+                    if (lote == FIN) {
+                        terminados++;
+                        continue;
+                    }
+                    for (Persona persona : lote.personas) {
+                        pstmt.setString(1, persona.getNombre());
+                        pstmt.setString(2, persona.getApellidos());
+                        pstmt.setInt(3, persona.getEdad());
+                        pstmt.addBatch();
+                    }
+                    if (!lote.personas.isEmpty()) {
+                        int insertadasLote = 0;
+                        for (int filas : pstmt.executeBatch()) {
+                            if (filas > 0 || filas == Statement.SUCCESS_NO_INFO) {
+                                insertadasLote++;
+                            }
+                        }
+                        insertadas += insertadasLote;
+                        rechazadas.addAndGet(lote.personas.size() - insertadasLote);
+                        sinConfirmar += lote.personas.size();
+                    }
+                    if (sinConfirmar >= FILAS_TRANSACCION) {
+                        conn.commit();
+                        sinConfirmar = 0;
+                    }
+                    bytesEscritos += lote.bytes;
+                    progreso.accept(Math.min(1.0, (double) bytesEscritos / tamano));
+                }
+                conn.commit();
+                DaoPersona.invalidarBusquedas();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                conn.commit();
+            }
+        }
+        return insertadas;
+    }
+
+    /**
+     * Da de alta los lotes de la cola en el registro embebido, que no
+     * tiene lotes ni transacciones: cada alta es una escritura local.
+     * Las personas que ya existen se ignoran y cuentan como rechazadas.
+     *
+     * @return El número de personas dadas de alta.
+     */
+    private static int escribirEnRegistro(BlockingQueue<Lote> cola, int analizadores, long tamano, DoubleConsumer progreso,
+                                          AtomicInteger rechazadas, BooleanSupplier cancelado) {
+        RepositorioPersonas repositorio = Repositorio.personas();
+        int insertadas = 0;
+        long bytesEscritos = 0;
+        int terminados = 0;
+        try {
+            while (terminados < analizadores && !cancelado.getAsBoolean()) {
+                Lote lote = cola.take();
+                if (lote == FIN) {
+                    terminados++;
+                    continue;
+                }
+                for (Persona persona : lote.personas) {
+                    if (repositorio.crearPersona(persona) == RepositorioPersonas.Alta.CREADA) {
+                        insertadas++;
+                    } else {
+                        rechazadas.incrementAndGet();
+                    }
+                }
+                bytesEscritos += lote.bytes;
+                progreso.accept(Math.min(1.0, (double) bytesEscritos / tamano));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return insertadas;
+    }
+}
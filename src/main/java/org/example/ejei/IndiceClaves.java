@@ -0,0 +1,145 @@
+package org.example.ejei;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice hash de las personas de un {@link AlmacenPersonas} por su clave
+ * natural (nombre y apellidos, sin distinguir mayúsculas, como la
+ * restricción única de la base de datos), para saber en tiempo constante si
+ * una persona ya existe sin recorrer la lista.
+ * La clave de cada fila se forma con los códigos de su nombre y sus
+ * apellidos, traducidos a un número por cadena normalizada; así solo se
+ * normaliza una vez cada cadena distinta del diccionario y no se crea
+ * ningún objeto {@link Persona} ni ninguna cadena por fila.
+ * Se mantiene al día por hueco ({@link AlmacenPersonas.OyenteHuecos}),
+ * incluidas las ediciones en sitio.
+ * Debe usarse únicamente desde el hilo de JavaFX.
+ */
+public class IndiceClaves {
+    private final AlmacenPersonas personas; // Almacén indexado
+    private final AlmacenPersonas.OyenteHuecos oyenteHuecos = new AlmacenPersonas.OyenteHuecos() {
+        @Override
+        public void ocupado(int hueco) {
+            sumar(claveDe(hueco), 1);
+        }
+
+        @Override
+        public void liberado(int hueco) {
+            sumar(claveDe(hueco), -1);
+        }
+
+        @Override
+        public void nombreCambiado(int hueco, int anterior, int nuevo) {
+            int apellidos = normalizado(personas.codigoApellidosDe(hueco));
+            sumar(clave(normalizado(anterior), apellidos), -1);
+            sumar(clave(normalizado(nuevo), apellidos), 1);
+        }
+
+        @Override
+        public void apellidosCambiados(int hueco, int anterior, int nuevo) {
+            int nombre = normalizado(personas.codigoNombreDe(hueco));
+            sumar(clave(nombre, normalizado(anterior)), -1);
+            sumar(clave(nombre, normalizado(nuevo)), 1);
+        }
+    };
+    private final Map<String, Integer> normalizados = new HashMap<>(); // Cadena normalizada -> su número
+    private int[] normalizadoDe = new int[256]; // Código del diccionario + 1 -> número de su cadena normalizada + 1 (0 si aún no se sabe)
+    private final Map<Long, Integer> cuenta = new HashMap<>(); // Clave -> personas que la tienen
+
+    /**
+     * Crea el índice con las personas actuales del almacén, leyendo las
+     * columnas de códigos, y empieza a escuchar sus cambios.
+     *
+     * @param personas El almacén de personas a indexar.
+     */
+    public IndiceClaves(AlmacenPersonas personas) {
+        this.personas = personas;
+        for (int i = 0; i < personas.size(); i++) {
+            sumar(clave(normalizado(personas.codigoNombreEn(i)), normalizado(personas.codigoApellidosEn(i))), 1);
+        }
+        personas.escucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Deja de escuchar los cambios del almacén indexado.
+     */
+    public void desconectar() {
+        personas.dejarDeEscucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Comprueba si alguna persona de la lista tiene ese nombre y apellidos.
+     *
+     * @param nombre    El nombre.
+     * @param apellidos Los apellidos.
+     * @return true si ya existe una persona con esa clave.
+     */
+    public boolean contiene(String nombre, String apellidos) {
+        Long buscada = buscar(nombre, apellidos);
+        return buscada != null && cuenta.containsKey(buscada);
+    }
+
+    /**
+     * Comprueba si otra persona distinta de la indicada tiene ese nombre y
+     * apellidos; sirve para validar una edición.
+     *
+     * @param nombre    El nombre.
+     * @param apellidos Los apellidos.
+     * @param excluida  La persona que se está editando.
+     * @return true si la clave la usa alguna otra persona.
+     */
+    public boolean contieneOtra(String nombre, String apellidos, Persona excluida) {
+        Long buscada = buscar(nombre, apellidos);
+        if (buscada == null) {
+            return false;
+        }
+        int usos = cuenta.getOrDefault(buscada, 0);
+        boolean propia = excluida instanceof PersonaAlmacenada vista && vista.estaEn(personas)
+                && claveDe(vista.getHueco()) == buscada;
+        return propia ? usos > 1 : usos > 0;
+    }
+
+    /**
+     * Construye la clave de un nombre y unos apellidos sin añadirlos al índice.
+     *
+     * @return La clave, o null si alguna de las cadenas no la tiene ninguna persona.
+     */
+    private Long buscar(String nombre, String apellidos) {
+        Integer n = normalizados.get(IndiceNombres.normalizar(nombre));
+        Integer a = normalizados.get(IndiceNombres.normalizar(apellidos));
+        return n == null || a == null ? null : clave(n, a);
+    }
+
+    private long claveDe(int hueco) {
+        return clave(normalizado(personas.codigoNombreDe(hueco)), normalizado(personas.codigoApellidosDe(hueco)));
+    }
+
+    /**
+     * Obtiene el número de la cadena normalizada de un código del
+     * diccionario, normalizándola solo la primera vez que aparece.
+     */
+    private int normalizado(int codigo) {
+        int i = codigo + 1;
+        if (i >= normalizadoDe.length) {
+            normalizadoDe = Arrays.copyOf(normalizadoDe, Math.max(i + 1, normalizadoDe.length * 2));
+        }
+        if (normalizadoDe[i] == 0) {
+            String cadena = IndiceNombres.normalizar(personas.getCadenas().cadena(codigo));
+            normalizadoDe[i] = normalizados.computeIfAbsent(cadena, c -> normalizados.size()) + 1;
+        }
+        return normalizadoDe[i] - 1;
+    }
+
+    private void sumar(long clave, int cuantas) {
+        cuenta.merge(clave, cuantas, (n, m) -> n + m == 0 ? null : n + m);
+    }
+
+    /**
+     * Construye la clave natural de una persona con los números de su nombre y sus apellidos normalizados.
+     */
+    private static long clave(int nombre, int apellidos) {
+        return (long) nombre << 32 | apellidos;
+    }
+}
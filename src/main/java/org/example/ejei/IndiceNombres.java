@@ -0,0 +1,347 @@
+package org.example.ejei;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+
+/**
+ * Índice en memoria para filtrar por nombre las personas de un
+ * {@link AlmacenPersonas}.
+ * Busca los nombres que contienen el texto, sin distinguir mayúsculas; la
+ * búsqueda en la base de datos del modo paginado
+ * ({@link RepositorioPersonas#buscarPersonas}) busca en cambio por prefijo,
+ * que es lo que puede resolver el índice sobre nombre.
+ * Agrupa los códigos de nombre del almacén por nombre normalizado (en
+ * minúsculas), de modo que cada nombre distinto se comprueba una sola vez
+ * por búsqueda, e indexa esos nombres por trigramas para descartar sin
+ * mirarlos los que no pueden contener el texto buscado. Si una búsqueda
+ * amplía la anterior (el usuario sigue escribiendo) solo se revisan los
+ * nombres que ya coincidían.
+ * Solo cuenta cuántas personas usan cada código de nombre: se mantiene al
+ * día por hueco ({@link AlmacenPersonas.OyenteHuecos}), incluidas las
+ * ediciones en sitio, sin crear objetos {@link Persona} ni una cadena por fila.
+ * Debe usarse desde el hilo de JavaFX, salvo {@link Consulta#ejecutar},
+ * que puede llamarse desde cualquier hilo.
+ */
+public class IndiceNombres {
+    private static final int UMBRAL_PARALELO = Integer.getInteger("ejei.filtro.paralelo", 20_000); // Candidatos a partir de los que se comprueba en paralelo
+
+    /**
+     * Nombre normalizado junto con el número de personas que lo tienen.
+     */
+    private static class Entrada {
+        private final String clave;
+        private final int creada; // Versión del índice en que se creó
+        private int personas;
+
+        Entrada(String clave, int creada) {
+            this.clave = clave;
+            this.creada = creada;
+        }
+    }
+
+    private final AlmacenPersonas personas; // Almacén indexado
+    private final AlmacenPersonas.OyenteHuecos oyenteHuecos = new AlmacenPersonas.OyenteHuecos() {
+        @Override
+        public void ocupado(int hueco) {
+            anadir(personas.codigoNombreDe(hueco), 1);
+        }
+
+        @Override
+        public void liberado(int hueco) {
+            quitar(personas.codigoNombreDe(hueco));
+        }
+
+        @Override
+        public void nombreCambiado(int hueco, int anterior, int nuevo) {
+            quitar(anterior);
+            anadir(nuevo, 1);
+        }
+    };
+    private final Map<String, Entrada> entradas = new HashMap<>(); // Nombre normalizado -> entrada
+    private Entrada[] porCodigo = new Entrada[256]; // Código de nombre + 1 -> su entrada (null si no lo usa nadie)
+    private int[] usos = new int[256]; // Código de nombre + 1 -> personas que lo usan
+    private final Map<String, Set<Entrada>> trigramas = new HashMap<>(); // Trigrama -> nombres que lo contienen
+    private int version; // Cambia cada vez que aparece o desaparece un nombre
+
+    private Entrada[] todas; // Todos los nombres, para consultas de menos de tres caracteres
+    private int versionTodas = -1;
+
+    private String ultimaConsulta = ""; // Última búsqueda, para refinarla
+    private Entrada[] ultimasCoincidencias; // Nombres que coincidían con la última búsqueda
+    private int versionUltimaConsulta = -1;
+
+    /**
+     * Crea el índice con las personas actuales del almacén, contando sus
+     * códigos de nombre sobre la columna, y empieza a escuchar sus cambios.
+     *
+     * @param personas El almacén de personas a indexar.
+     */
+    public IndiceNombres(AlmacenPersonas personas) {
+        this.personas = personas;
+        int[] porCodigoInicial = new int[personas.getCadenas().tamano() + 1];
+        for (int i = 0; i < personas.size(); i++) {
+            porCodigoInicial[personas.codigoNombreEn(i) + 1]++;
+        }
+        for (int i = 0; i < porCodigoInicial.length; i++) {
+            if (porCodigoInicial[i] > 0) {
+                anadir(i - 1, porCodigoInicial[i]);
+            }
+        }
+        personas.escucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Deja de escuchar los cambios del almacén indexado.
+     */
+    public void desconectar() {
+        personas.dejarDeEscucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Consulta preparada en el hilo de JavaFX cuyas comprobaciones pueden
+     * hacerse en otro hilo: solo lee los nombres candidatos, que no cambian.
+     */
+    public static class Consulta {
+        private final String texto;
+        private final Entrada[] candidatas;
+        private final int version;
+
+        Consulta(String texto, Entrada[] candidatas, int version) {
+            this.texto = texto;
+            this.candidatas = candidatas;
+            this.version = version;
+        }
+
+        /**
+         * Comprueba qué nombres candidatos contienen el texto. Con muchos
+         * candidatos la comprobación se reparte entre los hilos del
+         * ForkJoinPool común.
+         *
+         * @param cancelada Indica si la consulta ha quedado obsoleta.
+         * @return Los nombres que coinciden, o null si se canceló.
+         */
+        public Resultado ejecutar(BooleanSupplier cancelada) {
+            Entrada[] coincidencias;
+            if (candidatas.length >= UMBRAL_PARALELO) {
+                coincidencias = Arrays.stream(candidatas).parallel()
+                        .filter(entrada -> !cancelada.getAsBoolean() && entrada.clave.contains(texto))
+                        .toArray(Entrada[]::new);
+            } else {
+                List<Entrada> lista = new ArrayList<>();
+                for (int i = 0; i < candidatas.length; i++) {
+                    if ((i & 1023) == 0 && cancelada.getAsBoolean()) {
+                        return null;
+                    }
+                    if (candidatas[i].clave.contains(texto)) {
+                        lista.add(candidatas[i]);
+                    }
+                }
+                coincidencias = lista.toArray(new Entrada[0]);
+            }
+            if (cancelada.getAsBoolean()) {
+                return null;
+            }
+            Set<Entrada> conjunto = Collections.newSetFromMap(new IdentityHashMap<>(coincidencias.length * 2));
+            Collections.addAll(conjunto, coincidencias);
+            return new Resultado(texto, coincidencias, conjunto, version);
+        }
+    }
+
+    /**
+     * Nombres que coinciden con una consulta.
+     */
+    public static class Resultado {
+        private final String texto;
+        private final Entrada[] coincidencias;
+        private final Set<Entrada> conjunto;
+        private final int version;
+
+        Resultado(String texto, Entrada[] coincidencias, Set<Entrada> conjunto, int version) {
+            this.texto = texto;
+            this.coincidencias = coincidencias;
+            this.conjunto = conjunto;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Busca las personas cuyo nombre contiene un texto, sin distinguir mayúsculas.
+     *
+     * @param texto El texto a buscar.
+     * @return Un predicado que acepta los códigos de nombre del almacén que coinciden,
+     * o null si el texto está vacío.
+     */
+    public IntPredicate buscar(String texto) {
+        Consulta consulta = prepararConsulta(texto);
+        return consulta == null ? null : aplicar(consulta.ejecutar(() -> false));
+    }
+
+    /**
+     * Prepara una búsqueda eligiendo los nombres candidatos: los que
+     * coincidían con la búsqueda anterior si esta la amplía, o los que
+     * contienen todos sus trigramas.
+     *
+     * @param texto El texto a buscar.
+     * @return La consulta preparada, o null si el texto está vacío (sin filtro).
+     */
+    public Consulta prepararConsulta(String texto) {
+        String consulta = texto == null ? "" : normalizar(texto);
+        if (consulta.isEmpty()) {
+            ultimaConsulta = "";
+            ultimasCoincidencias = null;
+            return null;
+        }
+        Entrada[] candidatas;
+        if (versionUltimaConsulta == version && ultimasCoincidencias != null
+                && !ultimaConsulta.isEmpty() && consulta.contains(ultimaConsulta)) {
+            candidatas = ultimasCoincidencias; // Refinar la búsqueda anterior
+        } else {
+            candidatas = candidatasPorTrigramas(consulta);
+        }
+        return new Consulta(consulta, candidatas, version);
+    }
+
+    /**
+     * Convierte el resultado de una consulta en un predicado sobre los
+     * códigos de nombre del almacén ({@link AlmacenPersonas.Columnas#codigoNombreDe})
+     * y lo recuerda para refinar la siguiente búsqueda. El predicado lee el
+     * índice, así que solo puede usarse desde el hilo de JavaFX.
+     *
+     * @param resultado El resultado de {@link Consulta#ejecutar}.
+     * @return Un predicado que acepta los códigos de los nombres que coinciden.
+     */
+    public IntPredicate aplicar(Resultado resultado) {
+        if (resultado.version == version) {
+            ultimaConsulta = resultado.texto;
+            ultimasCoincidencias = resultado.coincidencias;
+            versionUltimaConsulta = version;
+        }
+
+        // Los nombres que aparezcan después de la búsqueda se comprueban directamente
+        Set<Entrada> coincidencias = resultado.conjunto;
+        String consulta = resultado.texto;
+        int versionConsulta = resultado.version;
+        return codigo -> {
+            Entrada entrada = codigo + 1 < porCodigo.length ? porCodigo[codigo + 1] : null;
+            return entrada != null && (coincidencias.contains(entrada)
+                    || entrada.creada >= versionConsulta && entrada.clave.contains(consulta));
+        };
+    }
+
+    /**
+     * Devuelve los nombres que contienen todos los trigramas de la consulta,
+     * empezando por el trigrama menos frecuente. Con menos de tres caracteres
+     * devuelve todos los nombres.
+     */
+    private Entrada[] candidatasPorTrigramas(String consulta) {
+        if (consulta.length() < 3) {
+            if (todas == null || versionTodas != version) {
+                todas = entradas.values().toArray(new Entrada[0]);
+                versionTodas = version;
+            }
+            return todas;
+        }
+        List<Set<Entrada>> listas = new ArrayList<>();
+        for (int i = 0; i + 3 <= consulta.length(); i++) {
+            Set<Entrada> lista = trigramas.get(consulta.substring(i, i + 3));
+            if (lista == null) {
+                return new Entrada[0];
+            }
+            listas.add(lista);
+        }
+        listas.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        Set<Entrada> resultado = Collections.newSetFromMap(new IdentityHashMap<>());
+        resultado.addAll(listas.get(0));
+        for (int i = 1; i < listas.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(listas.get(i));
+        }
+        return resultado.toArray(new Entrada[0]);
+    }
+
+    /**
+     * Suma personas a un código de nombre; la primera lo enlaza con la
+     * entrada de su nombre normalizado, que se crea si es nueva.
+     */
+    private void anadir(int codigo, int cuantas) {
+        int i = codigo + 1;
+        if (i >= usos.length) {
+            int capacidad = Math.max(i + 1, usos.length * 2);
+            usos = Arrays.copyOf(usos, capacidad);
+            porCodigo = Arrays.copyOf(porCodigo, capacidad);
+        }
+        Entrada entrada = porCodigo[i];
+        if (entrada == null) {
+            String clave = normalizar(personas.getCadenas().cadena(codigo));
+            entrada = entradas.get(clave);
+            if (entrada == null) {
+                entrada = new Entrada(clave, version);
+                entradas.put(clave, entrada);
+                for (String trigrama : trigramasDe(clave)) {
+                    trigramas.computeIfAbsent(trigrama, t -> new HashSet<>()).add(entrada);
+                }
+                version++;
+            }
+            porCodigo[i] = entrada;
+        }
+        usos[i] += cuantas;
+        entrada.personas += cuantas;
+    }
+
+    /**
+     * Resta una persona a un código de nombre, eliminando la entrada si se queda vacía.
+     */
+    private void quitar(int codigo) {
+        int i = codigo + 1;
+        Entrada entrada = i < porCodigo.length ? porCodigo[i] : null;
+        if (entrada == null) {
+            return;
+        }
+        if (--usos[i] == 0) {
+            porCodigo[i] = null;
+        }
+        if (--entrada.personas == 0) {
+            entradas.remove(entrada.clave);
+            for (String trigrama : trigramasDe(entrada.clave)) {
+                Set<Entrada> lista = trigramas.get(trigrama);
+                if (lista != null) {
+                    lista.remove(entrada);
+                    if (lista.isEmpty()) {
+                        trigramas.remove(trigrama);
+                    }
+                }
+            }
+            version++;
+        }
+    }
+
+    /**
+     * Devuelve los trigramas distintos de una clave.
+     */
+    private static Set<String> trigramasDe(String clave) {
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + 3 <= clave.length(); i++) {
+            resultado.add(clave.substring(i, i + 3));
+        }
+        return resultado;
+    }
+
+    /**
+     * Normaliza un nombre para compararlo sin distinguir mayúsculas.
+     *
+     * @param texto El texto a normalizar.
+     * @return El texto en minúsculas, o una cadena vacía si es null.
+     */
+    static String normalizar(String texto) {
+        return texto == null ? "" : texto.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.ejei;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instantánea de la tabla de personas que se guarda al cerrar la aplicación
+ * para mostrarla al volver a abrirla sin esperar a la base de datos.
+ * Es un fichero binario compacto (por defecto personas.snap, propiedad
+ * {@code ejei.instantanea.ruta}) con la marca de versión asentada de la lista
+ * ({@link CachePersonas#getMarca()}), el repositorio del que salió (ver
+ * {@link Repositorio#origen()}), los nombres y apellidos distintos una sola
+ * vez y, por cada fila, su id, los códigos de nombre y apellidos y la edad.
+ * <p>
+ * Al arrancar se proyecta en memoria y se convierte en personas mientras
+ * JavaFX se inicia; la tabla la muestra al momento y después se pone al día
+ * pidiendo solo los cambios posteriores a la marca. Si el fichero no existe,
+ * es de otro repositorio o está dañado, se ignora y se carga la tabla entera.
+ * Con {@code -Dejei.instantanea=false} no se lee ni se escribe.
+ */
+public class InstantaneaPersonas {
+    private static final boolean ACTIVA = Boolean.parseBoolean(System.getProperty("ejei.instantanea", "true"));
+    private static final Path RUTA = Paths.get(System.getProperty("ejei.instantanea.ruta", "personas.snap"));
+    private static final int MAGIA = 0x454A4953; // "EJIS"
+    private static final int FORMATO = 2; // 2: la marca es la versión asentada, no la más alta vista
+
+    private final long version;
+    private final List<Persona> personas;
+
+    private InstantaneaPersonas(long version, List<Persona> personas) {
+        this.version = version;
+        this.personas = personas;
+    }
+
+    /**
+     * @return La marca de versión de la lista cuando se guardó.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Las personas guardadas, en el orden de la lista.
+     */
+    public List<Persona> getPersonas() {
+        return personas;
+    }
+
+    /**
+     * Lee la instantánea guardada proyectando el fichero en memoria.
+     *
+     * @return La instantánea, o null si no hay ninguna válida para el repositorio configurado.
+     */
+    public static InstantaneaPersonas leer() {
+        if (!ACTIVA) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(RUTA, StandardOpenOption.READ)) {
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (datos.remaining() < 16 || datos.getInt() != MAGIA || datos.getInt() != FORMATO) {
+                System.out.println("Instantánea de personas no reconocida en " + RUTA.toAbsolutePath() + "; se ignora");
+                return null;
+            }
+            long version = datos.getLong();
+            if (!Repositorio.origen().equals(leerCadena(datos))) {
+                return null; // Guardada con otro repositorio
+            }
+            String[] cadenas = new String[datos.getInt()];
+            for (int i = 0; i < cadenas.length; i++) {
+                cadenas[i] = leerCadena(datos);
+            }
+            int filas = datos.getInt();
+            List<Persona> personas = new ArrayList<>(filas);
+            for (int i = 0; i < filas; i++) {
+                int id = datos.getInt();
+                int nombre = datos.getInt();
+                int apellidos = datos.getInt();
+                int edad = datos.getInt();
+                personas.add(new Persona(id, nombre < 0 ? null : cadenas[nombre],
+                        apellidos < 0 ? null : cadenas[apellidos], edad));
+            }
+            return new InstantaneaPersonas(version, Collections.unmodifiableList(personas));
+        } catch (NoSuchFileException e) {
+            return null; // Primer arranque
+        } catch (IOException | RuntimeException e) {
+            // Un fichero truncado o con valores imposibles no impide arrancar: se carga la tabla entera
+            System.out.println("No se pudo leer la instantánea de personas: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Guarda la lista en la instantánea, sustituyendo la anterior de forma
+     * atómica. Las personas sin id definitivo no se guardan: si no llegan con
+     * los cambios posteriores a la marca, al arrancar no cuadrará el total y
+     * se cargará la tabla entera. Debe llamarse desde el hilo de JavaFX.
+     *
+     * @param almacen La lista de personas, ya cargada entera.
+     * @param version La marca de versión de la lista.
+     */
+    public static void guardar(AlmacenPersonas almacen, long version) {
+        if (!ACTIVA) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        Path temporal = RUTA.resolveSibling(RUTA.getFileName() + ".tmp");
+        int guardadas = 0;
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16))) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(FORMATO);
+            salida.writeLong(version);
+            escribirCadena(salida, Repositorio.origen());
+            DiccionarioCadenas cadenas = almacen.getCadenas();
+            salida.writeInt(cadenas.tamano());
+            for (int i = 0; i < cadenas.tamano(); i++) {
+                escribirCadena(salida, cadenas.cadena(i));
+            }
+            int filas = almacen.size();
+            int[] ids = new int[filas];
+            for (int i = 0; i < filas; i++) {
+                ids[i] = idDefinitivo(almacen.idEn(i));
+                if (ids[i] > 0) {
+                    guardadas++;
+                }
+            }
+            salida.writeInt(guardadas);
+            for (int i = 0; i < filas; i++) {
+                if (ids[i] > 0) {
+                    salida.writeInt(ids[i]);
+                    salida.writeInt(almacen.codigoNombreEn(i));
+                    salida.writeInt(almacen.codigoApellidosEn(i));
+                    salida.writeInt(almacen.edadEn(i));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("No se pudo guardar la instantánea de personas: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temporal, RUTA, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("No se pudo guardar la instantánea de personas: " + e.getMessage());
+            return;
+        }
+        System.out.printf("Instantánea de %d personas guardada en %s (%d ms)%n", guardadas, RUTA.toAbsolutePath(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Borra la instantánea guardada, si la hay; por ejemplo, cuando la tabla
+     * ha crecido tanto que se muestra paginada y ya no se guarda.
+     */
+    public static void descartar() {
+        try {
+            Files.deleteIfExists(RUTA);
+        } catch (IOException e) {
+            System.out.println("No se pudo borrar la instantánea de personas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve el id real de una fila, resolviendo el de un alta diferida.
+     */
+    private static int idDefinitivo(int id) {
+        return id < 0 ? EscrituraDiferida.idAsignado(id) : id;
+    }
+
+    private static void escribirCadena(DataOutputStream salida, String cadena) throws IOException {
+        byte[] bytes = cadena.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+    }
+
+    private static String leerCadena(ByteBuffer datos) {
+        byte[] bytes = new byte[datos.getInt()];
+        datos.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
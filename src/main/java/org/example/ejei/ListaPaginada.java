@@ -0,0 +1,278 @@
+package org.example.ejei;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Lista observable de personas que solo mantiene en memoria las páginas
+ * cercanas a la zona visible de la tabla. Las páginas vienen de una
+ * {@link FuentePaginas}: la tabla completa o una búsqueda en la base de datos.
+ * Las páginas se piden a la base de datos por clave (keyset) en segundo
+ * plano cuando la tabla accede a ellas, se precargan las contiguas y se
+ * descartan las más alejadas cuando se supera el número de páginas residentes.
+ * Mientras una página no ha llegado, sus filas se devuelven como null.
+ * Debe usarse únicamente desde el hilo de JavaFX.
+ */
+public class ListaPaginada extends ObservableListBase<Persona> {
+    private final FuentePaginas fuente; // Origen de las páginas
+    private final int tamanoPagina; // Filas por página
+    private final int maxResidentes; // Páginas que se mantienen en memoria como máximo
+    private final TreeMap<Integer, List<Persona>> paginas = new TreeMap<>(); // Páginas residentes
+    private final Map<Integer, Pagina> limites = new HashMap<>(); // Página -> cursor de su última fila
+    private final Set<Integer> pendientes = new HashSet<>(); // Páginas pedidas que aún no han llegado
+    private int total; // Número total de filas
+    private int ultimaPaginaVista; // Página del último acceso, para decidir qué descartar
+    private int generacion; // Cambia con cada cambio estructural para ignorar cargas obsoletas
+
+    /**
+     * Constructor que inicializa la lista sin ninguna página cargada.
+     *
+     * @param total         El número total de personas que ofrece la fuente.
+     * @param fuente        El origen de las páginas (la tabla completa o una búsqueda).
+     * @param tamanoPagina  El número de filas por página.
+     * @param maxResidentes El número máximo de páginas en memoria.
+     */
+    public ListaPaginada(int total, FuentePaginas fuente, int tamanoPagina, int maxResidentes) {
+        this.total = total;
+        this.fuente = fuente;
+        this.tamanoPagina = tamanoPagina;
+        this.maxResidentes = Math.max(3, maxResidentes);
+    }
+
+    /**
+     * Obtiene la persona de una posición. Si su página no está en memoria
+     * se pide en segundo plano y se devuelve null; al llegar se notifica el cambio.
+     *
+     * @param index La posición de la persona.
+     * @return La persona, o null si su página aún no se ha cargado.
+     */
+    @Override
+    public Persona get(int index) {
+        Objects.checkIndex(index, total);
+        int numero = index / tamanoPagina;
+        ultimaPaginaVista = numero;
+
+        List<Persona> pagina = paginas.get(numero);
+        solicitar(numero);
+        // Precargar las páginas contiguas para que el desplazamiento no muestre huecos
+        solicitar(numero + 1);
+        solicitar(numero - 1);
+
+        int posicion = index - numero * tamanoPagina;
+        return pagina != null && posicion < pagina.size() ? pagina.get(posicion) : null;
+    }
+
+    /**
+     * Devuelve el número total de personas, cargadas o no.
+     *
+     * @return El tamaño de la lista.
+     */
+    @Override
+    public int size() {
+        return total;
+    }
+
+    /**
+     * Añade una persona al final de la lista. La persona ya debe estar
+     * guardada en la base de datos, donde ocupa también la última posición.
+     *
+     * @param index Debe ser igual al tamaño de la lista.
+     * @param persona La persona a añadir.
+     */
+    @Override
+    public void add(int index, Persona persona) {
+        if (index != total) {
+            throw new UnsupportedOperationException("La lista paginada solo admite añadir al final");
+        }
+        int numero = total / tamanoPagina;
+        List<Persona> pagina = paginas.get(numero);
+        if (pagina != null) {
+            pagina.add(persona);
+        } else if (total % tamanoPagina == 0) {
+            List<Persona> nueva = new ArrayList<>(tamanoPagina);
+            nueva.add(persona);
+            paginas.put(numero, nueva);
+        }
+        total++;
+        modCount++;
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    /**
+     * Elimina la persona de una posición. Las páginas a partir de la
+     * afectada se descartan y se vuelven a pedir cuando se necesiten.
+     *
+     * @param index La posición de la persona.
+     * @return La persona eliminada, o null si su página no estaba cargada.
+     */
+    @Override
+    public Persona remove(int index) {
+        Objects.checkIndex(index, total);
+        int numero = index / tamanoPagina;
+        List<Persona> pagina = paginas.get(numero);
+        int posicion = index - numero * tamanoPagina;
+        Persona eliminada = pagina != null && posicion < pagina.size() ? pagina.get(posicion) : null;
+
+        paginas.tailMap(numero, true).clear();
+        limites.keySet().removeIf(clave -> clave >= numero);
+        pendientes.clear();
+        generacion++;
+
+        total--;
+        modCount++;
+        beginChange();
+        nextRemove(index, eliminada);
+        endChange();
+        return eliminada;
+    }
+
+    /**
+     * Elimina una persona si está en alguna de las páginas cargadas.
+     *
+     * @param o La persona a eliminar.
+     * @return true si se encontró y se eliminó.
+     */
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Aplica a las páginas cargadas los cambios hechos por otros clientes:
+     * actualiza en sitio las personas modificadas y quita las borradas.
+     * Las altas y los cambios en páginas no cargadas se verán al pedir sus páginas.
+     *
+     * @param cambios Los cambios de la tabla.
+     */
+    public void actualizar(CambiosPersona cambios) {
+        Map<Integer, Persona> porId = new HashMap<>();
+        for (List<Persona> pagina : paginas.values()) {
+            for (Persona persona : pagina) {
+                porId.put(persona.getId(), persona);
+            }
+        }
+        for (Persona fila : cambios.getModificadas()) {
+            Persona actual = porId.get(fila.getId());
+            if (actual != null) {
+                actual.setNombre(fila.getNombre());
+                actual.setApellidos(fila.getApellidos());
+                actual.setEdad(fila.getEdad());
+            }
+        }
+        for (Integer id : cambios.getBorradas()) {
+            Persona actual = porId.get(id);
+            if (actual != null) {
+                remove(actual); // No hace nada si su página ya se ha descartado
+            }
+        }
+    }
+
+    /**
+     * Busca una persona solo en las páginas cargadas, sin pedir ninguna otra.
+     *
+     * @param o La persona a buscar.
+     * @return Su posición, o -1 si no está en memoria.
+     */
+    @Override
+    public int indexOf(Object o) {
+        for (Map.Entry<Integer, List<Persona>> entrada : paginas.entrySet()) {
+            int posicion = entrada.getValue().indexOf(o);
+            if (posicion >= 0) {
+                return entrada.getKey() * tamanoPagina + posicion;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Comprueba si una persona está en alguna de las páginas cargadas.
+     *
+     * @param o La persona a buscar.
+     * @return true si está en memoria.
+     */
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Pide una página en segundo plano si existe, no está cargada y no se ha pedido ya.
+     * Si se conoce la clave final de la página anterior se pide por clave;
+     * si no (salto a una zona nueva), por desplazamiento.
+     */
+    private void solicitar(int numero) {
+        if (numero < 0 || numero * tamanoPagina >= total
+                || paginas.containsKey(numero) || !pendientes.add(numero)) {
+            return;
+        }
+        int generacionPeticion = generacion;
+        Pagina anterior = numero == 0 ? null : limites.get(numero - 1);
+        // Si la lectura falla se recibe vacía: la página deja de estar pendiente y se vuelve a pedir al verla
+        Pagina vacia = new Pagina(List.of(), 0);
+        if (numero == 0 || anterior != null) {
+            DaoPersonaAsync.ejecutar(() -> fuente.siguiente(anterior, tamanoPagina))
+                    .exceptionally(e -> DaoPersonaAsync.fallo("cargar la página " + numero, e, vacia))
+                    .thenAccept(pagina -> recibir(numero, pagina, generacionPeticion));
+        } else {
+            DaoPersonaAsync.ejecutar(() -> fuente.desde(numero * tamanoPagina, tamanoPagina))
+                    .exceptionally(e -> DaoPersonaAsync.fallo("cargar la página " + numero, e, vacia))
+                    .thenAccept(pagina -> recibir(numero, pagina, generacionPeticion));
+        }
+    }
+
+    /**
+     * Guarda una página recibida, descarta las más alejadas si hace falta
+     * y notifica que sus filas han cambiado.
+     */
+    private void recibir(int numero, Pagina pagina, int generacionPeticion) {
+        if (generacionPeticion != generacion) {
+            return; // La lista cambió mientras se cargaba; se volverá a pedir
+        }
+        pendientes.remove(numero);
+        if (pagina == null || pagina.getPersonas().isEmpty()) {
+            return; // Error o fuera del final: se volverá a pedir al verla
+        }
+        List<Persona> filas = pagina.getPersonas();
+        paginas.put(numero, filas);
+        limites.put(numero, pagina.cursor());
+        expulsar();
+
+        int desde = numero * tamanoPagina;
+        int hasta = Math.min(total, desde + filas.size());
+        if (desde < hasta) {
+            beginChange();
+            nextReplace(desde, hasta, Collections.nCopies(hasta - desde, null));
+            endChange();
+        }
+    }
+
+    /**
+     * Descarta las páginas más alejadas de la última vista hasta
+     * respetar el máximo de páginas residentes.
+     */
+    private void expulsar() {
+        while (paginas.size() > maxResidentes) {
+            int masLejana = paginas.firstKey();
+            if (Math.abs(paginas.lastKey() - ultimaPaginaVista) > Math.abs(masLejana - ultimaPaginaVista)) {
+                masLejana = paginas.lastKey();
+            }
+            paginas.remove(masLejana);
+        }
+    }
+}
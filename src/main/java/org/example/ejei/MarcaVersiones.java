@@ -0,0 +1,158 @@
+package org.example.ejei;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marca de las versiones de la tabla Persona que ya ha visto un cliente.
+ * Las versiones salen de una secuencia al escribir, antes de confirmar la
+ * transacción, así que una transacción larga (una importación, un volcado de
+ * la escritura diferida) puede confirmar versiones más bajas que otras ya
+ * vistas. Por eso, además de la versión más alta vista (el cursor), la marca
+ * guarda los huecos por debajo de él: las versiones que aún no han aparecido.
+ * Quien consulta los cambios vuelve a pedir los huecos cada vez, hasta que
+ * sus versiones aparecen o hasta que pasa más tiempo del que puede durar una
+ * transacción ({@code ejei.versiones.espera.ms}, 10 minutos por defecto); a
+ * partir de entonces se dan por perdidas, porque son números de la secuencia
+ * que no llegaron a usarse (transacciones deshechas, la caché de la secuencia
+ * al reiniciar el servidor) o versiones de filas modificadas de nuevo.
+ * No es segura entre hilos.
+ */
+public class MarcaVersiones {
+    /**
+     * Tiempo que se espera a una versión que falta; debe ser mayor que la transacción más larga.
+     */
+    public static final long ESPERA_MS = Math.max(1_000L, Long.getLong("ejei.versiones.espera.ms", 600_000L));
+    private static final int MAX_HUECOS = 64; // Huecos que se piden como mucho; si hay más se juntan los más cercanos
+
+    private final TreeMap<Long, Hueco> huecos = new TreeMap<>(); // Primera versión -> hueco
+    private long cursor; // Versión más alta vista
+
+    /**
+     * Versiones seguidas aún no vistas, de {@code desde} a {@code hasta} incluidas.
+     */
+    public static class Hueco {
+        private final long desde;
+        private final long hasta;
+        private final long abierto; // Momento (System.nanoTime) en que se echó en falta
+
+        Hueco(long desde, long hasta, long abierto) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.abierto = abierto;
+        }
+
+        /**
+         * @return La primera versión del hueco.
+         */
+        public long getDesde() {
+            return desde;
+        }
+
+        /**
+         * @return La última versión del hueco, incluida.
+         */
+        public long getHasta() {
+            return hasta;
+        }
+    }
+
+    /**
+     * Crea la marca a partir de una versión por debajo de la cual (incluida)
+     * ya se ha visto todo y no queda ninguna transacción abierta.
+     *
+     * @param cursor La versión de partida.
+     */
+    public MarcaVersiones(long cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return La versión más alta vista.
+     */
+    public long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Obtiene la versión hasta la cual (incluida) ya se ha visto todo: la
+     * anterior al primer hueco, o el cursor si no hay huecos.
+     *
+     * @return La versión asentada.
+     */
+    public long getAsentada() {
+        return huecos.isEmpty() ? cursor : huecos.firstKey() - 1;
+    }
+
+    /**
+     * Anota una versión leída. Si es mayor que el cursor, las que faltan
+     * entre ambos quedan como hueco; si estaba en un hueco, lo parte.
+     *
+     * @param version La versión leída.
+     * @return true si no se había visto (o podría no haberse visto, si cae en huecos juntados).
+     */
+    public boolean anotar(long version) {
+        if (version > cursor) {
+            if (version > cursor + 1) {
+                huecos.put(cursor + 1, new Hueco(cursor + 1, version - 1, System.nanoTime()));
+                juntar();
+            }
+            cursor = version;
+            return true;
+        }
+        Map.Entry<Long, Hueco> entrada = huecos.floorEntry(version);
+        if (entrada == null || entrada.getValue().hasta < version) {
+            return false;
+        }
+        Hueco hueco = huecos.remove(entrada.getKey());
+        if (hueco.desde < version) {
+            huecos.put(hueco.desde, new Hueco(hueco.desde, version - 1, hueco.abierto));
+        }
+        if (version < hueco.hasta) {
+            huecos.put(version + 1, new Hueco(version + 1, hueco.hasta, hueco.abierto));
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene los huecos que hay que volver a pedir, descartando antes los
+     * que llevan abiertos más que la espera.
+     *
+     * @return Los huecos, ordenados por versión.
+     */
+    public List<Hueco> huecos() {
+        long limite = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ESPERA_MS);
+        huecos.values().removeIf(hueco -> hueco.abierto - limite < 0);
+        return huecos.isEmpty() ? List.of() : Collections.unmodifiableList(new ArrayList<>(huecos.values()));
+    }
+
+    /**
+     * Si hay demasiados huecos, junta los dos más cercanos entre sí. El
+     * hueco juntado incluye versiones ya vistas, que se vuelven a pedir (y a
+     * avisar) sin más efecto, y conserva la espera del más reciente.
+     */
+    private void juntar() {
+        while (huecos.size() > MAX_HUECOS) {
+            Hueco mejor = null;
+            Hueco siguienteMejor = null;
+            Hueco anterior = null;
+            for (Iterator<Hueco> it = huecos.values().iterator(); it.hasNext(); ) {
+                Hueco hueco = it.next();
+                if (anterior != null && (mejor == null
+                        || hueco.desde - anterior.hasta < siguienteMejor.desde - mejor.hasta)) {
+                    mejor = anterior;
+                    siguienteMejor = hueco;
+                }
+                anterior = hueco;
+            }
+            huecos.remove(siguienteMejor.desde);
+            huecos.put(mejor.desde, new Hueco(mejor.desde, siguienteMejor.hasta,
+                    Math.max(mejor.abierto, siguienteMejor.abierto)));
+        }
+    }
+}
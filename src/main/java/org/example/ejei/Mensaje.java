@@ -0,0 +1,103 @@
+package org.example.ejei;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identificadores de los mensajes de la interfaz. Cada mensaje tiene su
+ * clave en los ficheros {@code messages_*.properties} y un texto por
+ * defecto (en español) por si falta en alguno. Su ordinal es la posición
+ * del texto en las tablas de {@link CatalogoMensajes}, así que consultar un
+ * mensaje no necesita buscar ni calcular el hash de su clave.
+ */
+public enum Mensaje {
+    AGREGAR_PERSONA("add.person", "Agregar persona"),
+    MODIFICAR_PERSONA("modify.person", "Modificar persona"),
+    ELIMINAR_PERSONA("delete.person", "Eliminar persona"),
+    CAMBIAR_IDIOMA("change.language", "Idiomas"),
+    ERROR_ABRIR_AGREGAR("error.open.add", "Error al abrir la ventana de agregar"),
+    ERROR_ABRIR_EDITAR("error.open.edit", "Error al abrir la ventana de edición"),
+    ERROR_ELIMINAR("error.delete", "Error al eliminar la persona"),
+    ERROR_GUARDAR("error.save", "Error al guardar la persona"),
+    ERROR_DUPLICADA("error.duplicate", "La persona ya existe"),
+    ERROR_RECHAZADOS("error.rejected", "La base de datos ha rechazado {0} cambios guardados. Se han apartado en {1}"),
+    EXITO_AGREGAR("success.add", "Persona agregada con éxito"),
+    EXITO_ELIMINAR("success.delete", "Persona eliminada con éxito"),
+    SELECCIONAR_MODIFICAR("select.person.modify", "Seleccione una persona para modificar"),
+    SELECCIONAR_ELIMINAR("select.person.delete", "Seleccione una persona para eliminar"),
+    FILTRO_NOMBRE("filter.name", "Filtrar nombre"),
+    FILTRO_ETIQUETA("filter.label", "Filtrar por nombre"),
+    COLUMNA_NOMBRE("column.name", "Nombre"),
+    COLUMNA_APELLIDOS("column.surname", "Apellidos"),
+    COLUMNA_EDAD("column.age", "Edad"),
+    IMPORTAR_CSV("import.csv", "Importar CSV"),
+    EXITO_IMPORTAR("success.import", "Personas importadas: {0}. Filas rechazadas: {1}"),
+    ERROR_CARGAR("error.load", "Error al cargar las personas"),
+    ERROR_BUSCAR("error.search", "Error al buscar personas"),
+    ERROR_IMPORTAR("error.import", "Error al importar el fichero"),
+    EXPORTAR("export.file", "Exportar"),
+    CANCELAR_EXPORTACION("export.cancel", "Cancelar"),
+    EXITO_EXPORTAR("success.export", "Personas exportadas: {0}"),
+    ERROR_EXPORTAR("error.export", "Error al exportar las personas"),
+    ESTADISTICAS("statistics", "Estadísticas"),
+    ERROR_ABRIR_ESTADISTICAS("error.open.statistics", "Error al abrir las estadísticas"),
+    ERROR_ESTADISTICAS("error.statistics", "Error al calcular las estadísticas"),
+    ESTADISTICAS_TOTAL("statistics.total", "Personas: {0}"),
+    ESTADISTICAS_MEDIA("statistics.mean", "Edad media: {0}"),
+    ESTADISTICAS_MEDIANA("statistics.median", "Mediana de edad: {0}"),
+    ESTADISTICAS_EDADES("statistics.ages", "Personas por edad"),
+    ESTADISTICAS_APELLIDOS("statistics.surnames", "Apellidos más frecuentes"),
+    ESTADISTICAS_MAYORES("statistics.oldest", "Personas de más edad"),
+    ESTADISTICAS_MENORES("statistics.youngest", "Personas más jóvenes"),
+    TITULO_EXITO("title.success", "Éxito"),
+    TITULO_ERROR("title.error", "Error"),
+    TITULO_ADVERTENCIA("title.warning", "Advertencia"),
+    ERROR_CAMPOS("error.required.fields", "Todos los campos son obligatorios."),
+    ERROR_EDAD("error.age", "La edad debe ser un número válido."),
+    ERROR_DUPLICADA_OTRA("error.duplicate.other", "Ya existe otra persona con ese nombre y apellidos."),
+    ERROR_MODIFICAR("error.modify", "No se pudo actualizar la persona en la base de datos.");
+
+    private static final Map<String, Mensaje> POR_CLAVE = new HashMap<>(); // Solo para quien aún pide por clave
+
+    static {
+        for (Mensaje mensaje : values()) {
+            POR_CLAVE.put(mensaje.clave, mensaje);
+        }
+    }
+
+    private final String clave;
+    private final String porDefecto;
+
+    Mensaje(String clave, String porDefecto) {
+        this.clave = clave;
+        this.porDefecto = porDefecto;
+    }
+
+    /**
+     * Obtiene la clave del mensaje en los ficheros de propiedades.
+     *
+     * @return La clave.
+     */
+    public String getClave() {
+        return clave;
+    }
+
+    /**
+     * Obtiene el texto que se usa si el mensaje falta en un idioma.
+     *
+     * @return El texto por defecto.
+     */
+    public String getPorDefecto() {
+        return porDefecto;
+    }
+
+    /**
+     * Busca un mensaje por su clave.
+     *
+     * @param clave La clave en los ficheros de propiedades.
+     * @return El mensaje, o null si no existe.
+     */
+    public static Mensaje deClave(String clave) {
+        return POR_CLAVE.get(clave);
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.ejei;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de una operación (una consulta del DAO, obtener una conexión...):
+ * ejecuciones, errores, filas y un histograma de latencias en tramos de
+ * potencias de dos microsegundos. Todos los contadores son {@link LongAdder}
+ * repartidos por hilo, así que anotar una ejecución no toma ningún cerrojo
+ * ni compite con los demás hilos; la lectura suma los repartos.
+ * Se crean y publican por JMX con {@link Metricas#operacion(String)}.
+ */
+public class MetricaOperacion implements MetricaOperacionMBean {
+    private static final int TRAMOS = 32; // El último recoge todo lo que supera 2^30 us
+
+    private final String nombre;
+    private final LongAdder operaciones = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder filas = new LongAdder();
+    private final LongAdder nanosTotales = new LongAdder();
+    private final LongAccumulator nanosMaximo = new LongAccumulator(Long::max, 0);
+    private final LongAdder[] tramos = new LongAdder[TRAMOS]; // Tramo i: latencias por debajo de 2^i us
+
+    /**
+     * Crea las métricas de una operación.
+     *
+     * @param nombre El nombre de la operación.
+     */
+    public MetricaOperacion(String nombre) {
+        this.nombre = nombre;
+        for (int i = 0; i < TRAMOS; i++) {
+            tramos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Obtiene el nombre de la operación.
+     *
+     * @return El nombre.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Anota una ejecución correcta.
+     *
+     * @param inicioNanos El instante de inicio, tomado con {@link System#nanoTime()}.
+     * @param filas       Las filas leídas o afectadas.
+     */
+    public void registrar(long inicioNanos, long filas) {
+        anotar(System.nanoTime() - inicioNanos);
+        this.filas.add(filas);
+    }
+
+    /**
+     * Anota una ejecución correcta cuya duración ya se ha medido.
+     *
+     * @param nanos La duración en nanosegundos.
+     * @param filas Las filas leídas o afectadas.
+     */
+    public void registrarDuracion(long nanos, long filas) {
+        anotar(nanos);
+        this.filas.add(filas);
+    }
+
+    /**
+     * Anota una ejecución que terminó con error.
+     *
+     * @param inicioNanos El instante de inicio, tomado con {@link System#nanoTime()}.
+     */
+    public void error(long inicioNanos) {
+        anotar(System.nanoTime() - inicioNanos);
+        errores.increment();
+    }
+
+    private void anotar(long nanos) {
+        operaciones.increment();
+        nanosTotales.add(nanos);
+        nanosMaximo.accumulate(nanos);
+        long us = TimeUnit.NANOSECONDS.toMicros(nanos);
+        tramos[Math.min(TRAMOS - 1, 64 - Long.numberOfLeadingZeros(us))].increment();
+    }
+
+    @Override
+    public long getOperaciones() {
+        return operaciones.sum();
+    }
+
+    @Override
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    @Override
+    public long getFilas() {
+        return filas.sum();
+    }
+
+    @Override
+    public double getMediaUs() {
+        long n = operaciones.sum();
+        return n == 0 ? 0 : nanosTotales.sum() / 1_000.0 / n;
+    }
+
+    @Override
+    public long getP50Us() {
+        return percentil(0.5);
+    }
+
+    @Override
+    public long getP99Us() {
+        return percentil(0.99);
+    }
+
+    @Override
+    public long getP999Us() {
+        return percentil(0.999);
+    }
+
+    @Override
+    public long getMaxUs() {
+        return TimeUnit.NANOSECONDS.toMicros(nanosMaximo.get());
+    }
+
+    @Override
+    public String getHistograma() {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < TRAMOS; i++) {
+            long cuenta = tramos[i].sum();
+            if (cuenta > 0) {
+                if (texto.length() > 0) {
+                    texto.append(", ");
+                }
+                texto.append(i == TRAMOS - 1 ? "más" : "hasta " + (1L << i) + " us").append(": ").append(cuenta);
+            }
+        }
+        return texto.toString();
+    }
+
+    @Override
+    public void reiniciar() {
+        operaciones.reset();
+        errores.reset();
+        filas.reset();
+        nanosTotales.reset();
+        nanosMaximo.reset();
+        for (LongAdder tramo : tramos) {
+            tramo.reset();
+        }
+    }
+
+    /**
+     * Estima un percentil como el límite superior del tramo en que cae,
+     * sin pasar del máximo observado.
+     */
+    private long percentil(double fraccion) {
+        long[] cuentas = new long[TRAMOS];
+        long total = 0;
+        for (int i = 0; i < TRAMOS; i++) {
+            cuentas[i] = tramos[i].sum();
+            total += cuentas[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = (long) Math.ceil(total * fraccion);
+        long acumulado = 0;
+        for (int i = 0; i < TRAMOS; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) {
+                return Math.min(1L << i, getMaxUs());
+            }
+        }
+        return getMaxUs();
+    }
+}
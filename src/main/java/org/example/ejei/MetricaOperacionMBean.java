@@ -0,0 +1,59 @@
+package org.example.ejei;
+
+/**
+ * Interfaz JMX de las métricas de una operación ({@link MetricaOperacion}).
+ * Los tiempos se expresan en microsegundos; los percentiles son aproximados
+ * (el límite superior del tramo del histograma en que caen).
+ */
+public interface MetricaOperacionMBean {
+
+    /**
+     * @return El número de ejecuciones terminadas, con o sin error.
+     */
+    long getOperaciones();
+
+    /**
+     * @return El número de ejecuciones que terminaron con error.
+     */
+    long getErrores();
+
+    /**
+     * @return El total de filas leídas o afectadas.
+     */
+    long getFilas();
+
+    /**
+     * @return La latencia media en microsegundos.
+     */
+    double getMediaUs();
+
+    /**
+     * @return La mediana aproximada de la latencia en microsegundos.
+     */
+    long getP50Us();
+
+    /**
+     * @return El percentil 99 aproximado de la latencia en microsegundos.
+     */
+    long getP99Us();
+
+    /**
+     * @return El percentil 99.9 aproximado de la latencia en microsegundos.
+     */
+    long getP999Us();
+
+    /**
+     * @return La latencia máxima en microsegundos.
+     */
+    long getMaxUs();
+
+    /**
+     * @return El histograma de latencias como texto ("hasta N us: cuenta" por tramo no vacío).
+     */
+    String getHistograma();
+
+    /**
+     * Pone a cero todos los contadores.
+     */
+    void reiniciar();
+}
@@ -0,0 +1,160 @@
+package org.example.ejei;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de métricas de la aplicación. Cada operación del DAO tiene su
+ * {@link MetricaOperacion}, publicada por JMX como
+ * {@code org.example.ejei:type=DaoPersona,name=<operación>}; el pool de
+ * conexiones se publica como {@code org.example.ejei:type=PoolConexiones},
+ * junto al tiempo de obtener una conexión ({@code type=PoolConexiones,name=obtenerConexion}).
+ * Las operaciones de otros componentes se distinguen por su tipo, así que
+ * dos componentes pueden tener una operación con el mismo nombre (por
+ * ejemplo {@code cargarPagina} en DaoPersona y en RegistroPersonas).
+ * Con {@link #iniciar()} se vuelcan además periódicamente en la salida
+ * estándar cada {@code ejei.metricas.intervalo.s} segundos (60 por defecto,
+ * 0 para no volcarlas).
+ */
+public class Metricas {
+    private static final String DOMINIO = "org.example.ejei";
+
+    private static final Map<String, MetricaOperacion> OPERACIONES = new ConcurrentSkipListMap<>(); // Por "tipo.nombre", ordenadas
+    private static volatile ScheduledExecutorService volcador;
+
+    /**
+     * Tiempo que se tarda en obtener una conexión del pool, incluida la espera.
+     */
+    public static final MetricaOperacion OBTENER_CONEXION = operacion("PoolConexiones", "obtenerConexion");
+
+    private Metricas() {
+    }
+
+    /**
+     * Obtiene las métricas de una operación, creándolas y publicándolas por
+     * JMX la primera vez.
+     *
+     * @param nombre El nombre de la operación.
+     * @return Las métricas de esa operación.
+     */
+    public static MetricaOperacion operacion(String nombre) {
+        return operacion("DaoPersona", nombre);
+    }
+
+    /**
+     * Obtiene las métricas de una operación de otro componente, publicadas
+     * por JMX como {@code org.example.ejei:type=<tipo>,name=<operación>}.
+     *
+     * @param tipo   El componente al que pertenece la operación.
+     * @param nombre El nombre de la operación.
+     * @return Las métricas de esa operación.
+     */
+    static MetricaOperacion operacion(String tipo, String nombre) {
+        return OPERACIONES.computeIfAbsent(tipo + "." + nombre, clave -> {
+            MetricaOperacion metrica = new MetricaOperacion(nombre);
+            publicar("type=" + tipo + ",name=" + nombre, metrica);
+            return metrica;
+        });
+    }
+
+    /**
+     * Publica por JMX el estado de un pool de conexiones, sustituyendo al anterior.
+     *
+     * @param pool El pool de conexiones.
+     */
+    public static void registrarPool(PoolConexiones pool) {
+        retirar("type=PoolConexiones");
+        publicar("type=PoolConexiones", pool);
+    }
+
+    /**
+     * Retira de JMX el pool de conexiones.
+     */
+    public static void quitarPool() {
+        retirar("type=PoolConexiones");
+    }
+
+    /**
+     * Empieza a volcar las métricas periódicamente si el intervalo configurado es mayor que cero.
+     */
+    public static synchronized void iniciar() {
+        long intervalo = Long.getLong("ejei.metricas.intervalo.s", 60L);
+        if (volcador != null || intervalo <= 0) {
+            return;
+        }
+        volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "metricas-volcado");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        volcador.scheduleAtFixedRate(Metricas::volcar, intervalo, intervalo, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Deja de volcar las métricas y hace un último volcado.
+     */
+    public static synchronized void detener() {
+        if (volcador != null) {
+            volcador.shutdownNow();
+            volcador = null;
+            volcar();
+        }
+    }
+
+    /**
+     * Escribe en la salida estándar una línea por cada operación que se haya ejecutado.
+     */
+    public static void volcar() {
+        StringBuilder texto = new StringBuilder("--- Métricas ---------------------------------------------------\n");
+        for (Map.Entry<String, MetricaOperacion> entrada : OPERACIONES.entrySet()) {
+            MetricaOperacion m = entrada.getValue();
+            if (m.getOperaciones() > 0) {
+                texto.append(String.format("%-40s n=%d errores=%d filas=%d media=%.1fus p50=%dus p99=%dus p99.9=%dus max=%dus%n",
+                        entrada.getKey(), m.getOperaciones(), m.getErrores(), m.getFilas(), m.getMediaUs(),
+                        m.getP50Us(), m.getP99Us(), m.getP999Us(), m.getMaxUs()));
+            }
+        }
+        try {
+            PoolConexiones pool = ConexionBBDD.getPoolSiExiste();
+            if (pool != null) {
+                texto.append(String.format("pool abiertas=%d prestadas=%d libres=%d esperando=%d utilización=%.0f%% esperas agotadas=%d%n",
+                        pool.getAbiertas(), pool.getPrestadas(), pool.getLibres(), pool.getEsperando(),
+                        pool.getUtilizacion() * 100, pool.getEsperasAgotadas()));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        texto.append("----------------------------------------------------------------");
+        System.out.println(texto);
+    }
+
+    private static void publicar(String propiedades, Object mbean) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            servidor.registerMBean(mbean, new ObjectName(DOMINIO + ":" + propiedades));
+        } catch (InstanceAlreadyExistsException e) {
+            // Ya publicado (por ejemplo, otra copia de la aplicación en la misma JVM)
+        } catch (JMException e) {
+            System.out.println("Error al publicar métricas por JMX: " + e.getMessage());
+        }
+    }
+
+    private static void retirar(String propiedades) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(DOMINIO + ":" + propiedades));
+        } catch (InstanceNotFoundException e) {
+            // No estaba publicado
+        } catch (JMException e) {
+            System.out.println("Error al retirar métricas de JMX: " + e.getMessage());
+        }
+    }
+}
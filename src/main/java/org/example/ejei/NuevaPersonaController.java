@@ -31,7 +31,7 @@ public class NuevaPersonaController {
     @FXML
     public void initialize() {
         // Asignar acción al botón de guardar
-        guardarButton.setOnAction(e -> guardarPersona());
+        guardarButton.setOnAction(e -> VigilanteFx.accion("NuevaPersona.guardarPersona", this::guardarPersona));
         cancelarButton.setOnAction(e -> cancelar()); // Asignar acción al botón de cancelar
     }
 
@@ -44,6 +44,18 @@ public class NuevaPersonaController {
         this.parentController = parentController;
     }
 
+    /**
+     * Vacía los campos para dar de alta otra persona; la ventana se reutiliza
+     * entre altas.
+     */
+    public void limpiar() {
+        nombreField.clear();
+        apellidosField.clear();
+        edadField.clear();
+        guardarButton.setDisable(false);
+        nombreField.requestFocus();
+    }
+
     /**
      * Guarda la nueva persona ingresada en los campos de texto.
      * Valida los datos antes de crear un nuevo objeto Persona y agregarlo al controlador padre.
@@ -56,7 +68,7 @@ public class NuevaPersonaController {
 
         // Validación de los datos
         if (nombre.isEmpty() || apellidos.isEmpty() || edadField.getText().isEmpty()) {
-            mostrarAlerta("Error", "Por favor, completa todos los campos.");
+            mostrarAlerta(Mensaje.ERROR_CAMPOS);
             return;
         }
 
@@ -72,7 +84,7 @@ public class NuevaPersonaController {
             stage.close();
         } catch (NumberFormatException e) {
             // Manejar error de conversión a entero
-            mostrarAlerta("Error", "La edad debe ser un número válido.");
+            mostrarAlerta(Mensaje.ERROR_EDAD);
         }
     }
 
@@ -86,16 +98,16 @@ public class NuevaPersonaController {
     }
 
     /**
-     * Muestra una alerta en la interfaz de usuario.
+     * Muestra una alerta de error en la interfaz de usuario, en el idioma de
+     * la ventana principal.
      *
-     * @param titulo El título de la alerta.
      * @param mensaje El mensaje a mostrar en la alerta.
      */
-    private void mostrarAlerta(String titulo, String mensaje) {
+    private void mostrarAlerta(Mensaje mensaje) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle(titulo);
+        alert.setTitle(parentController.texto(Mensaje.TITULO_ERROR));
         alert.setHeaderText(null);
-        alert.setContentText(mensaje);
+        alert.setContentText(parentController.texto(mensaje));
         alert.showAndWait();
     }
 }
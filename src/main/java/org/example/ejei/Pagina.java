@@ -0,0 +1,74 @@
+package org.example.ejei;
+
+import java.util.List;
+
+/**
+ * Página de personas leída de la base de datos junto con la clave
+ * (id y, en las búsquedas, nombre) de su última fila, que sirve para
+ * pedir la página siguiente.
+ */
+public class Pagina {
+    private final List<Persona> personas; // Filas de la página, en el orden de la consulta
+    private final long ultimoId; // Id de la última fila de la página
+    private final String ultimoNombre; // Nombre de la última fila (búsquedas ordenadas por nombre)
+
+    /**
+     * Constructor que inicializa la página.
+     *
+     * @param personas Las personas de la página.
+     * @param ultimoId El id de la última persona (o la clave de partida si la página está vacía).
+     */
+    public Pagina(List<Persona> personas, long ultimoId) {
+        this(personas, ultimoId, null);
+    }
+
+    /**
+     * Constructor que inicializa la página con la clave completa de su última fila.
+     *
+     * @param personas     Las personas de la página.
+     * @param ultimoId     El id de la última persona.
+     * @param ultimoNombre El nombre de la última persona.
+     */
+    public Pagina(List<Persona> personas, long ultimoId, String ultimoNombre) {
+        this.personas = personas;
+        this.ultimoId = ultimoId;
+        this.ultimoNombre = ultimoNombre;
+    }
+
+    /**
+     * Devuelve una copia de la página sin sus filas, que solo conserva la
+     * clave para pedir la siguiente sin retener las personas en memoria.
+     *
+     * @return El cursor de la página.
+     */
+    public Pagina cursor() {
+        return new Pagina(List.of(), ultimoId, ultimoNombre);
+    }
+
+    /**
+     * Obtiene las personas de la página.
+     *
+     * @return La lista de personas.
+     */
+    public List<Persona> getPersonas() {
+        return personas;
+    }
+
+    /**
+     * Obtiene el id de la última persona de la página.
+     *
+     * @return El id de la última fila.
+     */
+    public long getUltimoId() {
+        return ultimoId;
+    }
+
+    /**
+     * Obtiene el nombre de la última persona de la página.
+     *
+     * @return El nombre de la última fila, o null si la página está vacía.
+     */
+    public String getUltimoNombre() {
+        return ultimoNombre;
+    }
+}
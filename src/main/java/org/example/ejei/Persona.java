@@ -1,15 +1,32 @@
 package org.example.ejei;
 
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
 import java.util.Objects;
 
 /**
  * Clase que representa una persona con nombre, apellidos y edad.
+ * El id es la clave primaria en la base de datos (0 mientras no se ha guardado)
+ * y no interviene en la igualdad entre personas.
+ * Las propiedades JavaFX de nombre, apellidos y edad se crean solo cuando
+ * alguien las pide (las celdas de la tabla visibles) y se reutilizan; los
+ * setters las actualizan, de modo que cada cambio avisa solo a las celdas
+ * enlazadas a ese campo.
  */
 public class Persona {
+    private int id;            // Clave primaria en la base de datos (0 si aún no se ha guardado)
     private String nombre;     // Nombre de la persona
     private String apellidos;  // Apellidos de la persona
     private int edad;         // Edad de la persona
 
+    // Propiedades observables, creadas al pedirlas por primera vez
+    private ReadOnlyStringWrapper nombrePropiedad;
+    private ReadOnlyStringWrapper apellidosPropiedad;
+    private ReadOnlyObjectWrapper<Integer> edadPropiedad;
+
     /**
      * Constructor que inicializa una nueva instancia de Persona.
      *
@@ -23,8 +40,37 @@ public class Persona {
         setEdad(edad); // Usar el setter para validar la edad
     }
 
+    /**
+     * Constructor que inicializa una persona ya guardada en la base de datos.
+     *
+     * @param id        La clave primaria de la persona.
+     * @param nombre    El nombre de la persona.
+     * @param apellidos Los apellidos de la persona.
+     * @param edad      La edad de la persona. Debe ser un número no negativo.
+     */
+    public Persona(int id, String nombre, String apellidos, int edad) {
+        this(nombre, apellidos, edad);
+        this.id = id;
+    }
+
+    /**
+     * Constructor para las subclases que guardan los datos en otro sitio
+     * (por ejemplo, {@link PersonaAlmacenada}).
+     */
+    protected Persona() {
+    }
+
     // Getters
 
+    /**
+     * Obtiene la clave primaria de la persona.
+     *
+     * @return El id de la persona, o 0 si aún no se ha guardado.
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * Obtiene el nombre de la persona.
      *
@@ -52,15 +98,67 @@ public class Persona {
         return edad;
     }
 
+    // Propiedades
+
+    /**
+     * Obtiene la propiedad observable del nombre, creándola la primera vez.
+     *
+     * @return La propiedad del nombre.
+     */
+    public ReadOnlyStringProperty nombreProperty() {
+        if (nombrePropiedad == null) {
+            nombrePropiedad = new ReadOnlyStringWrapper(this, "nombre", getNombre());
+        }
+        return nombrePropiedad.getReadOnlyProperty();
+    }
+
+    /**
+     * Obtiene la propiedad observable de los apellidos, creándola la primera vez.
+     *
+     * @return La propiedad de los apellidos.
+     */
+    public ReadOnlyStringProperty apellidosProperty() {
+        if (apellidosPropiedad == null) {
+            apellidosPropiedad = new ReadOnlyStringWrapper(this, "apellidos", getApellidos());
+        }
+        return apellidosPropiedad.getReadOnlyProperty();
+    }
+
+    /**
+     * Obtiene la propiedad observable de la edad, creándola la primera vez.
+     * Es de tipo Integer para usarla directamente en una columna de tabla;
+     * las edades caben en la caché de Integer, así que no crea objetos.
+     *
+     * @return La propiedad de la edad.
+     */
+    public ReadOnlyObjectProperty<Integer> edadProperty() {
+        if (edadPropiedad == null) {
+            edadPropiedad = new ReadOnlyObjectWrapper<>(this, "edad", getEdad());
+        }
+        return edadPropiedad.getReadOnlyProperty();
+    }
+
     // Setters
 
+    /**
+     * Establece la clave primaria de la persona, generada al guardarla.
+     *
+     * @param id El id de la persona.
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Establece el nombre de la persona.
      *
      * @param nombre El nuevo nombre de la persona.
      */
     public void setNombre(String nombre) {
-        this.nombre = nombre;
+        guardarNombre(nombre);
+        if (nombrePropiedad != null) {
+            nombrePropiedad.set(nombre);
+        }
     }
 
     /**
@@ -69,7 +167,10 @@ public class Persona {
      * @param apellidos Los nuevos apellidos de la persona.
      */
     public void setApellidos(String apellidos) {
-        this.apellidos = apellidos;
+        guardarApellidos(apellidos);
+        if (apellidosPropiedad != null) {
+            apellidosPropiedad.set(apellidos);
+        }
     }
 
     /**
@@ -82,6 +183,38 @@ public class Persona {
         if (edad < 0) {
             throw new IllegalArgumentException("La edad no puede ser negativa."); // Validación
         }
+        guardarEdad(edad);
+        if (edadPropiedad != null) {
+            edadPropiedad.set(edad);
+        }
+    }
+
+    // Almacenamiento de los valores; las subclases pueden guardarlos en otro sitio
+
+    /**
+     * Guarda el nombre sin avisar a la propiedad.
+     *
+     * @param nombre El nuevo nombre.
+     */
+    protected void guardarNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * Guarda los apellidos sin avisar a la propiedad.
+     *
+     * @param apellidos Los nuevos apellidos.
+     */
+    protected void guardarApellidos(String apellidos) {
+        this.apellidos = apellidos;
+    }
+
+    /**
+     * Guarda la edad, ya validada, sin avisar a la propiedad.
+     *
+     * @param edad La nueva edad.
+     */
+    protected void guardarEdad(int edad) {
         this.edad = edad;
     }
 
@@ -96,9 +229,9 @@ public class Persona {
         if (this == obj) return true;
         if (!(obj instanceof Persona)) return false;
         Persona persona = (Persona) obj;
-        return edad == persona.edad &&
-                Objects.equals(nombre, persona.nombre) &&
-                Objects.equals(apellidos, persona.apellidos);
+        return getEdad() == persona.getEdad() &&
+                Objects.equals(getNombre(), persona.getNombre()) &&
+                Objects.equals(getApellidos(), persona.getApellidos());
     }
 
     /**
@@ -108,7 +241,7 @@ public class Persona {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(nombre, apellidos, edad);
+        return Objects.hash(getNombre(), getApellidos(), getEdad());
     }
 
     /**
@@ -118,6 +251,6 @@ public class Persona {
      */
     @Override
     public String toString() {
-        return nombre + " " + apellidos + " (" + edad + " años)";
+        return getNombre() + " " + getApellidos() + " (" + getEdad() + " años)";
     }
 }
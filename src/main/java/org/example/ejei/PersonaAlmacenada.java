@@ -0,0 +1,107 @@
+package org.example.ejei;
+
+/**
+ * Persona ligera (flyweight) que no guarda sus datos: los lee y escribe en
+ * una fila de un {@link AlmacenPersonas}. El almacén la crea al pedir esa
+ * fila y la vuelve a devolver mientras alguien la use. Al quitarla del
+ * almacén copia sus valores y pasa a comportarse como una {@link Persona} normal.
+ */
+public class PersonaAlmacenada extends Persona {
+    private AlmacenPersonas almacen; // Almacén con los datos, o null si ya se ha quitado de él
+    private final int hueco; // Hueco del almacén que ocupa
+
+    PersonaAlmacenada(AlmacenPersonas almacen, int hueco) {
+        this.almacen = almacen;
+        this.hueco = hueco;
+    }
+
+    /**
+     * Copia los valores del almacén en la propia persona y se desliga de él.
+     */
+    void desvincular() {
+        int id = almacen.idDe(hueco);
+        String nombre = almacen.nombreDe(hueco);
+        String apellidos = almacen.apellidosDe(hueco);
+        int edad = almacen.edadDe(hueco);
+        almacen = null;
+        super.setId(id);
+        super.guardarNombre(nombre);
+        super.guardarApellidos(apellidos);
+        super.guardarEdad(edad);
+    }
+
+    /**
+     * Indica si la persona sigue leyendo sus datos de un almacén concreto.
+     *
+     * @param almacen El almacén.
+     * @return true si está en ese almacén.
+     */
+    boolean estaEn(AlmacenPersonas almacen) {
+        return this.almacen == almacen;
+    }
+
+    /**
+     * Obtiene el hueco del almacén que ocupa la persona.
+     *
+     * @return El hueco.
+     */
+    int getHueco() {
+        return hueco;
+    }
+
+    @Override
+    public int getId() {
+        return almacen != null ? almacen.idDe(hueco) : super.getId();
+    }
+
+    @Override
+    public String getNombre() {
+        return almacen != null ? almacen.nombreDe(hueco) : super.getNombre();
+    }
+
+    @Override
+    public String getApellidos() {
+        return almacen != null ? almacen.apellidosDe(hueco) : super.getApellidos();
+    }
+
+    @Override
+    public int getEdad() {
+        return almacen != null ? almacen.edadDe(hueco) : super.getEdad();
+    }
+
+    @Override
+    public void setId(int id) {
+        if (almacen != null) {
+            almacen.guardarId(hueco, id);
+        } else {
+            super.setId(id);
+        }
+    }
+
+    @Override
+    protected void guardarNombre(String nombre) {
+        if (almacen != null) {
+            almacen.guardarNombre(hueco, nombre);
+        } else {
+            super.guardarNombre(nombre);
+        }
+    }
+
+    @Override
+    protected void guardarApellidos(String apellidos) {
+        if (almacen != null) {
+            almacen.guardarApellidos(hueco, apellidos);
+        } else {
+            super.guardarApellidos(apellidos);
+        }
+    }
+
+    @Override
+    protected void guardarEdad(int edad) {
+        if (almacen != null) {
+            almacen.guardarEdad(hueco, edad);
+        } else {
+            super.guardarEdad(edad);
+        }
+    }
+}
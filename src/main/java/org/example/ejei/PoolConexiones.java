@@ -0,0 +1,427 @@
+package org.example.ejei;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de conexiones a MariaDB.
+ * Mantiene un mínimo de conexiones abiertas y precalentadas, limita el
+ * número máximo de conexiones físicas, valida las conexiones ociosas antes
+ * de prestarlas y las mantiene vivas con una tarea periódica.
+ * Los parámetros se leen de propiedades del sistema ({@code ejei.bd.*} y
+ * {@code ejei.pool.*}) con valores por defecto razonables.
+ * Su estado se publica por JMX a través de {@link PoolConexionesMBean}.
+ */
+public class PoolConexiones implements PoolConexionesMBean {
+    static final String URL_POR_DEFECTO = "jdbc:mariadb://localhost:3310/personas?serverTimezone=Europe/Madrid";
+    private static final long REINTENTO_NS = TimeUnit.MILLISECONDS.toNanos(50); // Espera entre intentos de abrir cuando se ha alcanzado el máximo
+
+    private final String url; // URL JDBC de la base de datos
+    private final Properties connConfig; // Usuario y contraseña
+    private final int minimo; // Conexiones que se mantienen abiertas
+    private final int maximo; // Conexiones físicas como máximo
+    private final long esperaMs; // Tiempo máximo de espera para obtener una conexión
+    private final long validacionMs; // Ociosidad a partir de la cual se valida antes de prestar
+    private final long prestamoMaxMs; // Duración de préstamo a partir de la cual se avisa de una posible fuga
+
+    private final Semaphore permisos; // Un permiso por conexión prestada
+    private final LinkedBlockingDeque<ConexionLibre> libres = new LinkedBlockingDeque<>(); // Conexiones ociosas (LIFO)
+    private final Map<Connection, Long> prestadas = new ConcurrentHashMap<>(); // Conexión -> instante del préstamo
+    private final AtomicInteger abiertas = new AtomicInteger(); // Conexiones físicas abiertas o abriéndose
+    private final LongAdder esperasAgotadas = new LongAdder(); // Peticiones sin conexión a tiempo
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado;
+
+    /**
+     * Conexión ociosa junto al instante en que se devolvió al pool.
+     */
+    private static class ConexionLibre {
+        private final Connection conexion;
+        private final long desde;
+
+        ConexionLibre(Connection conexion, long desde) {
+            this.conexion = conexion;
+            this.desde = desde;
+        }
+    }
+
+    /**
+     * Crea el pool con la configuración de las propiedades del sistema,
+     * carga el driver y abre las conexiones mínimas.
+     *
+     * @throws SQLException Si no se puede cargar el driver o abrir las conexiones iniciales.
+     */
+    public PoolConexiones() throws SQLException {
+        try {
+            // Cargar el driver de MariaDB una sola vez por pool
+            Class.forName("org.mariadb.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            throw new SQLException("No se pudo cargar el driver de MariaDB", e);
+        }
+
+        url = System.getProperty("ejei.bd.url", URL_POR_DEFECTO);
+        connConfig = new Properties();
+        connConfig.setProperty("user", System.getProperty("ejei.bd.usuario", "root"));  // Usuario de la BD
+        connConfig.setProperty("password", System.getProperty("ejei.bd.password", "myPass"));  // Contraseña de la BD
+
+        maximo = Math.max(1, Integer.getInteger("ejei.pool.maximo", 10));
+        minimo = Math.min(maximo, Math.max(0, Integer.getInteger("ejei.pool.minimo", 2)));
+        esperaMs = Long.getLong("ejei.pool.espera.ms", 5_000L);
+        validacionMs = Long.getLong("ejei.pool.validacion.ms", 30_000L);
+        prestamoMaxMs = Long.getLong("ejei.pool.prestamo.max.ms", 60_000L);
+        long keepAliveMs = Long.getLong("ejei.pool.keepalive.ms", 60_000L);
+
+        permisos = new Semaphore(maximo, true);
+
+        // Precalentar: abrir las conexiones mínimas y mostrar los datos una sola vez;
+        // si algo falla, cerrar las que ya se abrieron
+        try {
+            reservar(maximo);
+            Connection primera = abrir();
+            libres.offerFirst(new ConexionLibre(primera, System.currentTimeMillis()));
+            mostrarDatosConexion(primera);
+            rellenarHastaMinimo();
+        } catch (SQLException | RuntimeException e) {
+            ConexionLibre libre;
+            while ((libre = libres.pollFirst()) != null) {
+                descartar(libre.conexion);
+            }
+            throw e;
+        }
+
+        mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "pool-conexiones-mantenimiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        mantenimiento.scheduleWithFixedDelay(this::mantener, keepAliveMs, keepAliveMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool, abriendo una nueva si no hay ninguna
+     * ociosa y aún no se ha alcanzado el máximo. Si se ha alcanzado, alguna
+     * de las conexiones se está abriendo o devolviendo: se espera a ella a
+     * ratos cortos, volviendo a intentar abrir una por si entretanto se ha
+     * descartado alguna (lo que deja un hueco sin devolver nada a las libres).
+     *
+     * @return Una conexión válida en modo autocommit.
+     * @throws SQLException Si se agota el tiempo de espera, el pool está cerrado
+     *                      o no se puede abrir la conexión.
+     */
+    public Connection obtener() throws SQLException {
+        long inicio = System.nanoTime();
+        if (cerrado) {
+            Metricas.OBTENER_CONEXION.error(inicio);
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        try {
+            if (!permisos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                esperasAgotadas.increment();
+                Metricas.OBTENER_CONEXION.error(inicio);
+                throw new SQLException("Tiempo de espera agotado al obtener una conexión del pool (" + esperaMs + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Metricas.OBTENER_CONEXION.error(inicio);
+            throw new SQLException("Interrumpido mientras se esperaba una conexión", e);
+        }
+
+        try {
+            long limite = inicio + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+            while (true) {
+                ConexionLibre libre = libres.pollFirst();
+                if (libre == null) {
+                    if (reservar(maximo)) {
+                        Connection nueva = abrir();
+                        prestadas.put(nueva, System.currentTimeMillis());
+                        Metricas.OBTENER_CONEXION.registrar(inicio, 1);
+                        return nueva;
+                    }
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0) {
+                        esperasAgotadas.increment();
+                        throw new SQLException("Tiempo de espera agotado al obtener una conexión del pool (" + esperaMs + " ms)");
+                    }
+                    libre = libres.pollFirst(Math.min(restante, REINTENTO_NS), TimeUnit.NANOSECONDS);
+                    if (libre == null) {
+                        continue;
+                    }
+                }
+                if (esValida(libre)) {
+                    prestadas.put(libre.conexion, System.currentTimeMillis());
+                    Metricas.OBTENER_CONEXION.registrar(inicio, 1);
+                    return libre.conexion;
+                }
+                descartar(libre.conexion);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permisos.release();
+            Metricas.OBTENER_CONEXION.error(inicio);
+            throw new SQLException("Interrumpido mientras se esperaba una conexión", e);
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            Metricas.OBTENER_CONEXION.error(inicio);
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve al pool una conexión prestada. Si la conexión quedó con una
+     * transacción abierta se deshace y se restablece el modo autocommit.
+     *
+     * @param conexion La conexión que se devuelve.
+     */
+    public void devolver(Connection conexion) {
+        if (conexion == null || prestadas.remove(conexion) == null) {
+            return; // No pertenece al pool o ya se devolvió
+        }
+        try {
+            if (conexion.isClosed()) {
+                abiertas.decrementAndGet();
+            } else if (cerrado) {
+                descartar(conexion);
+            } else {
+                if (!conexion.getAutoCommit()) {
+                    conexion.rollback();
+                    conexion.setAutoCommit(true);
+                }
+                libres.offerFirst(new ConexionLibre(conexion, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            descartar(conexion);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Cierra todas las conexiones ociosas y detiene el mantenimiento.
+     * Las conexiones prestadas se cierran al devolverse.
+     */
+    public void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        ConexionLibre libre;
+        while ((libre = libres.pollFirst()) != null) {
+            descartar(libre.conexion);
+        }
+        System.out.println("Pool de conexiones cerrado");
+    }
+
+    /**
+     * Devuelve el número de conexiones físicas abiertas.
+     *
+     * @return Conexiones abiertas (ociosas más prestadas).
+     */
+    @Override
+    public int getAbiertas() {
+        return abiertas.get();
+    }
+
+    /**
+     * Devuelve el número de conexiones prestadas en este momento.
+     *
+     * @return Conexiones en uso.
+     */
+    @Override
+    public int getPrestadas() {
+        return prestadas.size();
+    }
+
+    /**
+     * Devuelve el tamaño máximo del pool.
+     *
+     * @return Número máximo de conexiones físicas.
+     */
+    @Override
+    public int getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Devuelve el número de conexiones ociosas.
+     *
+     * @return Conexiones libres para prestar.
+     */
+    @Override
+    public int getLibres() {
+        return libres.size();
+    }
+
+    /**
+     * Devuelve el número de hilos esperando una conexión.
+     *
+     * @return Hilos en espera (aproximado).
+     */
+    @Override
+    public int getEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    /**
+     * Devuelve la fracción del máximo que está prestada.
+     *
+     * @return Utilización entre 0 y 1.
+     */
+    @Override
+    public double getUtilizacion() {
+        return (double) prestadas.size() / maximo;
+    }
+
+    /**
+     * Devuelve las peticiones que agotaron el tiempo de espera.
+     *
+     * @return Esperas agotadas desde que se creó el pool.
+     */
+    @Override
+    public long getEsperasAgotadas() {
+        return esperasAgotadas.sum();
+    }
+
+    /**
+     * Cuenta una conexión más si con ella no se pasa de un límite. La cuenta
+     * se hace antes de abrirla, de modo que ni los préstamos ni la reposición
+     * del mínimo, aunque ocurran a la vez, abren más conexiones que el máximo.
+     *
+     * @param limite Conexiones que puede haber como mucho contando la nueva.
+     * @return true si se ha reservado el hueco y hay que abrir la conexión con {@link #abrir()}.
+     */
+    private boolean reservar(int limite) {
+        int actuales;
+        do {
+            actuales = abiertas.get();
+            if (actuales >= limite) {
+                return false;
+            }
+        } while (!abiertas.compareAndSet(actuales, actuales + 1));
+        return true;
+    }
+
+    /**
+     * Abre una conexión física nueva en un hueco ya reservado con
+     * {@link #reservar(int)}; si no se puede abrir, libera el hueco.
+     *
+     * @return La conexión abierta en modo autocommit.
+     * @throws SQLException Si no se puede conectar.
+     */
+    private Connection abrir() throws SQLException {
+        Connection conexion = null;
+        try {
+            conexion = DriverManager.getConnection(url, connConfig);
+            conexion.setAutoCommit(true);
+            return conexion;
+        } catch (SQLException | RuntimeException e) {
+            abiertas.decrementAndGet();
+            if (conexion != null) {
+                try {
+                    conexion.close();
+                } catch (SQLException cierre) {
+                    e.addSuppressed(cierre);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Comprueba si una conexión ociosa se puede prestar. Solo se hace una
+     * ida y vuelta al servidor si lleva ociosa más del intervalo de validación.
+     */
+    private boolean esValida(ConexionLibre libre) {
+        try {
+            if (System.currentTimeMillis() - libre.desde < validacionMs) {
+                return !libre.conexion.isClosed();
+            }
+            return libre.conexion.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cierra una conexión física y la descuenta del pool.
+     */
+    private void descartar(Connection conexion) {
+        abiertas.decrementAndGet();
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            System.out.println("Error al cerrar una conexión del pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre conexiones ociosas hasta alcanzar el mínimo configurado.
+     */
+    private void rellenarHastaMinimo() throws SQLException {
+        while (!cerrado && reservar(minimo)) {
+            libres.offerLast(new ConexionLibre(abrir(), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Tarea periódica: valida las conexiones ociosas para mantenerlas vivas,
+     * descarta las rotas, repone el mínimo y avisa de préstamos demasiado largos.
+     */
+    private void mantener() {
+        long ahora = System.currentTimeMillis();
+        int pendientes = libres.size();
+        for (int i = 0; i < pendientes; i++) {
+            ConexionLibre libre = libres.pollLast();
+            if (libre == null) {
+                break;
+            }
+            boolean valida;
+            try {
+                valida = libre.conexion.isValid(2);
+            } catch (SQLException e) {
+                valida = false;
+            }
+            if (valida) {
+                libres.offerLast(new ConexionLibre(libre.conexion, ahora));
+            } else {
+                descartar(libre.conexion);
+            }
+        }
+
+        try {
+            rellenarHastaMinimo();
+        } catch (SQLException e) {
+            System.out.println("Error al reponer conexiones del pool: " + e.getMessage());
+        }
+
+        for (Map.Entry<Connection, Long> prestamo : prestadas.entrySet()) {
+            long duracion = ahora - prestamo.getValue();
+            if (duracion > prestamoMaxMs) {
+                System.out.println("Aviso: conexión prestada desde hace " + duracion + " ms, posible fuga");
+            }
+        }
+    }
+
+    /**
+     * Muestra la información de la base de datos para depuración.
+     */
+    private static void mostrarDatosConexion(Connection conexion) throws SQLException {
+        DatabaseMetaData databaseMetaData = conexion.getMetaData();
+        System.out.println("--- Datos de conexión ------------------------------------------");
+        System.out.printf("Base de datos: %s%n", databaseMetaData.getDatabaseProductName());
+        System.out.printf("Versión: %s%n", databaseMetaData.getDatabaseProductVersion());
+        System.out.printf("Driver: %s%n", databaseMetaData.getDriverName());
+        System.out.printf("Versión: %s%n", databaseMetaData.getDriverVersion());
+        System.out.println("----------------------------------------------------------------");
+    }
+}
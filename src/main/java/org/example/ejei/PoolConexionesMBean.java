@@ -0,0 +1,44 @@
+package org.example.ejei;
+
+/**
+ * Interfaz JMX del estado del pool de conexiones ({@link PoolConexiones}).
+ * El tiempo de obtención de conexiones se publica aparte como la operación
+ * {@code obtenerConexion} de {@link Metricas}.
+ */
+public interface PoolConexionesMBean {
+
+    /**
+     * @return Las conexiones físicas abiertas (ociosas más prestadas).
+     */
+    int getAbiertas();
+
+    /**
+     * @return Las conexiones prestadas en este momento.
+     */
+    int getPrestadas();
+
+    /**
+     * @return Las conexiones ociosas en este momento.
+     */
+    int getLibres();
+
+    /**
+     * @return El número máximo de conexiones físicas.
+     */
+    int getMaximo();
+
+    /**
+     * @return Los hilos esperando una conexión en este momento.
+     */
+    int getEsperando();
+
+    /**
+     * @return La fracción del máximo que está prestada (entre 0 y 1).
+     */
+    double getUtilizacion();
+
+    /**
+     * @return Las peticiones que agotaron el tiempo de espera sin obtener conexión.
+     */
+    long getEsperasAgotadas();
+}
@@ -0,0 +1,976 @@
+package org.example.ejei;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Almacén embebido de personas, alternativo a la base de datos, para
+ * equipos donde no merece la pena un servidor MariaDB. Cada alta,
+ * modificación o baja se añade al final de un registro de solo añadir
+ * (con el mismo formato de longitud, CRC32 y contenido que el WAL de
+ * {@link EscrituraDiferida}) y un índice proyectado en memoria
+ * ({@link FileChannel#map}) guarda, para cada id, la posición de su último
+ * registro, de modo que leer una persona es una sola lectura del fichero.
+ * En memoria solo se mantienen los nombres ordenados (para las búsquedas
+ * por prefijo), las claves de nombre y apellidos (para rechazar
+ * duplicados) y la última versión de cada id (para los refrescos).
+ * <p>
+ * El índice se fija en disco en cada punto de control, junto con la
+ * posición del registro hasta la que es válido; al abrir se vuelven a
+ * aplicar los registros posteriores y se descarta un último registro
+ * incompleto o corrupto. Un hilo en segundo plano hace los puntos de
+ * control y compacta el registro (reescribe solo el último registro de
+ * cada id) cuando más de la mitad de su tamaño son versiones superadas.
+ * Las lecturas pueden ir en paralelo; las escrituras son exclusivas. La
+ * compactación copia los registros vigentes sin bloquear a nadie (el
+ * registro solo crece por el final) y solo es exclusiva al copiar lo
+ * escrito mientras tanto y cambiar de fichero.
+ */
+public class RegistroPersonas implements RepositorioPersonas {
+    private static final int MAGIA = 0x454A4549; // "EJEI" al principio del registro
+    private static final int FORMATO = 1;
+    private static final int CABECERA = 8; // Magia y formato
+    private static final byte ALTA = 'A';
+    private static final byte MODIFICACION = 'M';
+    private static final byte BAJA = 'B';
+    private static final int LECTURA = 256; // Bytes que se leen para una persona suelta; los registros suelen ser más cortos
+    private static final int VENTANA = 16 * 1024; // Lectura anticipada al recorrer por id
+    private static final int VENTANA_RECUPERACION = 256 * 1024; // Lectura anticipada al recorrer el fichero entero
+    private static final int CAPACIDAD_INICIAL = 1 << 16; // Ids que caben en el índice al crearlo
+    private static final long BASURA_MINIMA = 1 << 20; // Bytes superados por debajo de los que no se compacta
+
+    private static final MetricaOperacion M_PAGINA = Metricas.operacion("RegistroPersonas", "cargarPagina");
+    private static final MetricaOperacion M_BUSCAR = Metricas.operacion("RegistroPersonas", "buscarPersonas");
+    private static final MetricaOperacion M_CREAR = Metricas.operacion("RegistroPersonas", "crearPersona");
+    private static final MetricaOperacion M_MODIFICAR = Metricas.operacion("RegistroPersonas", "modificarPersona");
+    private static final MetricaOperacion M_ELIMINAR = Metricas.operacion("RegistroPersonas", "eliminarPersona");
+    private static final MetricaOperacion M_COMPACTAR = Metricas.operacion("RegistroPersonas", "compactar");
+
+    private final Path ruta; // Registro de solo añadir
+    private final Path rutaIndice; // Índice id -> posición del último registro
+    private final boolean sincronizar; // Forzar a disco cada escritura
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService mantenimiento;
+
+    private FileChannel registro;
+    private final FileChannel canalIndice;
+    // Posición 0: bytes del registro ya reflejados en disco por el índice (0 si no es válido).
+    // Posición 8 * id: posición + 1 del último registro del id; negativa si es una baja; 0 si no existe
+    private MappedByteBuffer indice;
+    private long fin; // Tamaño del registro
+    private long marca; // Bytes del registro cubiertos por el último punto de control
+
+    private final NavigableSet<ClaveNombre> nombres = new TreeSet<>(ClaveNombre.ORDEN); // Personas vivas por nombre e id
+    private final Map<String, Integer> claves = new HashMap<>(); // Nombre y apellidos normalizados -> id
+    private final TreeMap<Long, Integer> versiones = new TreeMap<>(); // Última versión de cada id (vivo o borrado) -> id
+    private int maximoId; // Mayor id usado; los ids no se reutilizan
+    private int vivas;
+    private long version; // Versión más alta escrita
+    private long bytesVigentes; // Bytes de los registros a los que apunta el índice
+
+    /**
+     * Nombre normalizado e id de una persona viva, en el orden de las búsquedas.
+     */
+    private static class ClaveNombre {
+        private static final Comparator<ClaveNombre> ORDEN =
+                Comparator.comparing((ClaveNombre c) -> c.nombre).thenComparingInt(c -> c.id);
+
+        private final String nombre;
+        private final int id;
+
+        ClaveNombre(String nombre, int id) {
+            this.nombre = nombre;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Registro leído del fichero.
+     */
+    private static class Fila {
+        private final byte tipo;
+        private final long version;
+        private final int id;
+        private final String nombre;
+        private final String apellidos;
+        private final int edad;
+        private final int bytes; // Tamaño en el fichero, con la cabecera
+
+        Fila(byte tipo, long version, int id, String nombre, String apellidos, int edad, int bytes) {
+            this.tipo = tipo;
+            this.version = version;
+            this.id = id;
+            this.nombre = nombre;
+            this.apellidos = apellidos;
+            this.edad = edad;
+            this.bytes = bytes;
+        }
+
+        Persona persona() {
+            return new Persona(id, nombre, apellidos, edad);
+        }
+    }
+
+    private RegistroPersonas(Path ruta) throws IOException {
+        this.ruta = ruta;
+        this.rutaIndice = Paths.get(ruta + ".idx");
+        sincronizar = Boolean.getBoolean("ejei.registro.fsync");
+        registro = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        canalIndice = FileChannel.open(rutaIndice, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Un solo proceso puede escribir en el registro; el cerrojo se libera al cerrar el canal
+            if (canalIndice.tryLock() == null) {
+                throw new IOException(ruta + " está abierto por otra instancia de la aplicación");
+            }
+            recuperar();
+        } catch (IOException | OverlappingFileLockException e) {
+            registro.close();
+            canalIndice.close();
+            throw e instanceof IOException io ? io : new IOException(ruta + " ya está abierto", e);
+        }
+
+        mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "registro-personas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long intervalo = Long.getLong("ejei.registro.compactar.s", 60L);
+        if (intervalo > 0) {
+            mantenimiento.scheduleWithFixedDelay(this::mantener, intervalo, intervalo, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Abre el registro de personas, creándolo si no existe, y recupera su
+     * índice. Con {@code ejei.registro.fsync=true} cada escritura se fuerza
+     * a disco; por defecto se confía en la caché del sistema operativo, que
+     * sobrevive a un cierre brusco de la aplicación pero no a un corte de luz.
+     *
+     * @param ruta El fichero del registro; el índice se guarda junto a él con extensión .idx.
+     * @return El registro abierto.
+     * @throws IOException Si no se puede abrir o el fichero no es un registro de personas.
+     */
+    public static RegistroPersonas abrir(Path ruta) throws IOException {
+        return new RegistroPersonas(ruta);
+    }
+
+    /**
+     * Deja de compactar, hace un punto de control y cierra los ficheros.
+     */
+    public void cerrar() {
+        mantenimiento.shutdown();
+        try {
+            mantenimiento.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        cerrojo.writeLock().lock();
+        try {
+            puntoDeControl();
+            registro.close();
+            canalIndice.close();
+        } catch (IOException e) {
+            System.out.println("Error al cerrar el registro de personas: " + e.getMessage());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Lecturas
+
+    @Override
+    public ObservableList<Persona> cargarListadoPersonas() {
+        ObservableList<Persona> listado = FXCollections.observableArrayList();
+        cerrojo.readLock().lock();
+        try {
+            List<Persona> personas = new ArrayList<>(vivas);
+            Lector lector = new Lector(registro, VENTANA, false);
+            for (int id = 1; id <= maximoId; id++) {
+                long posicion = entrada(id);
+                if (posicion > 0) {
+                    personas.add(lector.leer(posicion - 1).persona());
+                }
+            }
+            listado.setAll(personas);
+        } catch (IOException e) {
+            System.out.println("Error al cargar listado de personas: " + e.getMessage());
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        return listado;
+    }
+
+    @Override
+    public int contarPersonas() {
+        cerrojo.readLock().lock();
+        try {
+            return vivas;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long versionActual() {
+        cerrojo.readLock().lock();
+        try {
+            return version;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Las escrituras son exclusivas, así que las versiones se confirman en
+     * orden y los huecos solo pueden ser versiones superadas.
+     */
+    @Override
+    public CambiosPersona cargarCambios(long desdeVersion, List<MarcaVersiones.Hueco> huecos) {
+        List<Persona> modificadas = new ArrayList<>();
+        List<Integer> borradas = new ArrayList<>();
+        List<Map.Entry<Long, Integer>> leidas = new ArrayList<>();
+        cerrojo.readLock().lock();
+        try {
+            for (MarcaVersiones.Hueco hueco : huecos) {
+                leidas.addAll(versiones.subMap(hueco.getDesde(), true, hueco.getHasta(), true).entrySet());
+            }
+            leidas.addAll(versiones.tailMap(desdeVersion, false).entrySet());
+            long[] vistas = new long[leidas.size()];
+            for (int i = 0; i < vistas.length; i++) {
+                int id = leidas.get(i).getValue();
+                vistas[i] = leidas.get(i).getKey();
+                long posicion = entrada(id);
+                if (posicion > 0) {
+                    modificadas.add(leer(posicion - 1).persona());
+                } else {
+                    borradas.add(id);
+                }
+            }
+            return new CambiosPersona(modificadas, borradas, vistas, true);
+        } catch (IOException e) {
+            System.out.println("Error al cargar los cambios del registro: " + e.getMessage());
+            return null;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Pagina cargarPagina(long despuesDeId, int tamano) {
+        long inicio = System.nanoTime();
+        cerrojo.readLock().lock();
+        try {
+            List<Persona> filas = new ArrayList<>(tamano);
+            long ultimoId = despuesDeId;
+            Lector lector = new Lector(registro, Math.min(VENTANA, Math.max(LECTURA, tamano * 64)), false);
+            for (int id = (int) Math.max(1, despuesDeId + 1); id <= maximoId && filas.size() < tamano; id++) {
+                long posicion = entrada(id);
+                if (posicion > 0) {
+                    filas.add(lector.leer(posicion - 1).persona());
+                    ultimoId = id;
+                }
+            }
+            M_PAGINA.registrar(inicio, filas.size());
+            return new Pagina(filas, ultimoId);
+        } catch (IOException e) {
+            M_PAGINA.error(inicio);
+            System.out.println("Error al cargar página de personas: " + e.getMessage());
+            return null;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Recorre el índice desde el principio contando las personas vivas,
+     * así que su coste crece con el desplazamiento.
+     */
+    @Override
+    public Pagina cargarPaginaDesde(int desplazamiento, int tamano) {
+        long despuesDeId = 0;
+        cerrojo.readLock().lock();
+        try {
+            int saltadas = 0;
+            for (int id = 1; id <= maximoId && saltadas < desplazamiento; id++) {
+                if (entrada(id) > 0) {
+                    saltadas++;
+                    despuesDeId = id;
+                }
+            }
+            if (saltadas < desplazamiento) {
+                return new Pagina(new ArrayList<>(), 0);
+            }
+            // Con el mismo cerrojo de lectura (es reentrante) para que nada cambie entre el salto y la página
+            return cargarPagina(despuesDeId, tamano);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Pagina buscarPersonas(String texto, Pagina anterior, int tamano) {
+        long inicio = System.nanoTime();
+        if (anterior != null && anterior.getUltimoNombre() == null) {
+            return new Pagina(new ArrayList<>(), anterior.getUltimoId()); // La búsqueda ya terminó
+        }
+        String prefijo = IndiceNombres.normalizar(texto);
+        ClaveNombre desde = anterior == null
+                ? new ClaveNombre(prefijo, Integer.MIN_VALUE)
+                : new ClaveNombre(IndiceNombres.normalizar(anterior.getUltimoNombre()), (int) anterior.getUltimoId());
+        cerrojo.readLock().lock();
+        try {
+            List<Persona> filas = new ArrayList<>(Math.min(tamano, 1024));
+            long ultimoId = anterior == null ? 0 : anterior.getUltimoId();
+            String ultimoNombre = null;
+            for (ClaveNombre clave : nombres.tailSet(desde, false)) {
+                if (filas.size() >= tamano || !clave.nombre.startsWith(prefijo)) {
+                    break;
+                }
+                Persona persona = leer(entrada(clave.id) - 1).persona();
+                filas.add(persona);
+                ultimoId = persona.getId();
+                ultimoNombre = persona.getNombre();
+            }
+            M_BUSCAR.registrar(inicio, filas.size());
+            return new Pagina(filas, ultimoId, ultimoNombre);
+        } catch (IOException e) {
+            M_BUSCAR.error(inicio);
+            System.out.println("Error al buscar personas: " + e.getMessage());
+            return new Pagina(new ArrayList<>(), 0);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Pagina buscarPersonasDesde(String texto, int desplazamiento, int tamano) {
+        String prefijo = IndiceNombres.normalizar(texto);
+        cerrojo.readLock().lock();
+        try {
+            ClaveNombre ultima = null;
+            int saltadas = 0;
+            for (ClaveNombre clave : nombres.tailSet(new ClaveNombre(prefijo, Integer.MIN_VALUE), false)) {
+                if (saltadas >= desplazamiento || !clave.nombre.startsWith(prefijo)) {
+                    break;
+                }
+                ultima = clave;
+                saltadas++;
+            }
+            if (saltadas < desplazamiento) {
+                return new Pagina(new ArrayList<>(), 0);
+            }
+            if (ultima == null) {
+                return buscarPersonas(texto, null, tamano);
+            }
+            Fila fila = leer(entrada(ultima.id) - 1);
+            return buscarPersonas(texto, new Pagina(List.of(), fila.id, fila.nombre), tamano);
+        } catch (IOException e) {
+            System.out.println("Error al buscar personas: " + e.getMessage());
+            return new Pagina(new ArrayList<>(), 0);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int contarBusqueda(String texto) {
+        String prefijo = IndiceNombres.normalizar(texto);
+        cerrojo.readLock().lock();
+        try {
+            int total = 0;
+            for (ClaveNombre clave : nombres.tailSet(new ClaveNombre(prefijo, Integer.MIN_VALUE), false)) {
+                if (!clave.nombre.startsWith(prefijo)) {
+                    break;
+                }
+                total++;
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    // Escrituras
+
+    @Override
+    public Alta crearPersona(Persona persona) {
+        long inicio = System.nanoTime();
+        cerrojo.writeLock().lock();
+        try {
+            if (claves.containsKey(clave(persona.getNombre(), persona.getApellidos()))) {
+                M_CREAR.registrar(inicio, 0);
+                return Alta.DUPLICADA;
+            }
+            int id = maximoId + 1;
+            escribir(ALTA, id, persona.getNombre(), persona.getApellidos(), persona.getEdad());
+            persona.setId(id);
+            M_CREAR.registrar(inicio, 1);
+            return Alta.CREADA;
+        } catch (IOException e) {
+            M_CREAR.error(inicio);
+            System.out.println("Error al crear persona en el registro: " + e.getMessage());
+            return Alta.ERROR;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean modificarPersona(Persona personaAntigua, Persona personaNueva) {
+        long inicio = System.nanoTime();
+        int id = personaAntigua.getId();
+        cerrojo.writeLock().lock();
+        try {
+            if (id <= 0 || id > maximoId || entrada(id) <= 0) {
+                M_MODIFICAR.registrar(inicio, 0);
+                return false;
+            }
+            Integer otra = claves.get(clave(personaNueva.getNombre(), personaNueva.getApellidos()));
+            if (otra != null && otra != id) {
+                M_MODIFICAR.error(inicio);
+                System.out.println("Error al modificar en el registro: ya existe "
+                        + personaNueva.getNombre() + " " + personaNueva.getApellidos());
+                return false;
+            }
+            escribir(MODIFICACION, id, personaNueva.getNombre(), personaNueva.getApellidos(), personaNueva.getEdad());
+            M_MODIFICAR.registrar(inicio, 1);
+            return true;
+        } catch (IOException e) {
+            M_MODIFICAR.error(inicio);
+            System.out.println("Error al modificar en el registro: " + e.getMessage());
+            return false;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean eliminarPersona(Persona personaAEliminar) {
+        long inicio = System.nanoTime();
+        int id = personaAEliminar.getId();
+        cerrojo.writeLock().lock();
+        try {
+            if (id <= 0 || id > maximoId || entrada(id) <= 0) {
+                M_ELIMINAR.registrar(inicio, 0);
+                return false;
+            }
+            escribir(BAJA, id, null, null, 0);
+            M_ELIMINAR.registrar(inicio, 1);
+            return true;
+        } catch (IOException e) {
+            M_ELIMINAR.error(inicio);
+            System.out.println("Error al eliminar en el registro: " + e.getMessage());
+            return false;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Añade un registro con la siguiente versión y lo aplica al índice y a
+     * las estructuras en memoria. Si la escritura o la aplicación fallan, el
+     * registro se recorta y nada cambia, de modo que no queda en el fichero
+     * un cambio que no se ha confirmado. Debe llamarse con el cerrojo de escritura.
+     */
+    private void escribir(byte tipo, int id, String nombre, String apellidos, int edad) throws IOException {
+        ByteBuffer bytes = codificar(tipo, version + 1, id, nombre, apellidos, edad);
+        long posicion = fin;
+        try {
+            while (bytes.hasRemaining()) {
+                registro.write(bytes, posicion + bytes.position());
+            }
+            if (sincronizar) {
+                registro.force(false);
+            }
+            aplicar(new Fila(tipo, version + 1, id, nombre, apellidos, edad, bytes.limit()), posicion);
+        } catch (IOException | RuntimeException e) {
+            registro.truncate(posicion);
+            throw e;
+        }
+        fin = posicion + bytes.limit();
+    }
+
+    /**
+     * Apunta el índice de un id a su nuevo registro y actualiza los nombres,
+     * las claves, las versiones y los contadores. Hace todas las lecturas
+     * (que pueden fallar) antes de cambiar nada.
+     */
+    private void aplicar(Fila fila, long posicion) throws IOException {
+        asegurarCapacidad(fila.id);
+        long anterior = entrada(fila.id);
+        if (anterior != 0) {
+            Fila previa = leer(Math.abs(anterior) - 1);
+            versiones.remove(previa.version);
+            bytesVigentes -= previa.bytes;
+            if (anterior > 0) {
+                olvidar(previa);
+            }
+        }
+        apuntar(fila.id, fila.tipo == BAJA ? -(posicion + 1) : posicion + 1);
+        versiones.put(fila.version, fila.id);
+        bytesVigentes += fila.bytes;
+        version = Math.max(version, fila.version);
+        maximoId = Math.max(maximoId, fila.id);
+        if (fila.tipo != BAJA) {
+            recordar(fila);
+        }
+    }
+
+    private void recordar(Fila fila) {
+        nombres.add(new ClaveNombre(IndiceNombres.normalizar(fila.nombre), fila.id));
+        claves.put(clave(fila.nombre, fila.apellidos), fila.id);
+        vivas++;
+    }
+
+    private void olvidar(Fila fila) {
+        nombres.remove(new ClaveNombre(IndiceNombres.normalizar(fila.nombre), fila.id));
+        claves.remove(clave(fila.nombre, fila.apellidos), fila.id);
+        vivas--;
+    }
+
+    /**
+     * Clave de unicidad: nombre y apellidos sin distinguir mayúsculas, como la restricción de la tabla.
+     */
+    private static String clave(String nombre, String apellidos) {
+        return IndiceNombres.normalizar(nombre) + '\u0000' + IndiceNombres.normalizar(apellidos);
+    }
+
+    // Fichero e índice
+
+    /**
+     * Codifica un registro: longitud, CRC32 y contenido.
+     */
+    private static ByteBuffer codificar(byte tipo, long version, int id, String nombre, String apellidos, int edad)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(tipo);
+            out.writeLong(version);
+            out.writeInt(id);
+            out.writeUTF(nombre == null ? "" : nombre);
+            out.writeUTF(apellidos == null ? "" : apellidos);
+            out.writeInt(edad);
+        }
+        byte[] contenido = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+        ByteBuffer registro = ByteBuffer.allocate(8 + contenido.length);
+        registro.putInt(contenido.length).putInt((int) crc.getValue()).put(contenido).flip();
+        return registro;
+    }
+
+    /**
+     * Lee el registro que empieza en una posición del fichero.
+     */
+    private Fila leer(long posicion) throws IOException {
+        return new Lector(registro, LECTURA, false).leer(posicion);
+    }
+
+    /**
+     * Lector de registros con una ventana de lectura anticipada: si el
+     * siguiente registro pedido ya está en la ventana no se vuelve al
+     * fichero, de modo que recorrer registros contiguos (una página por id
+     * tras escribirlos en orden o compactar, o el fichero entero al
+     * recuperar) cuesta una llamada al sistema por ventana y no por registro.
+     */
+    private static class Lector {
+        private final FileChannel canal;
+        private final boolean comprobar; // Comprobar el CRC (al recuperar)
+        private ByteBuffer ventana;
+        private long inicio = -1; // Posición en el fichero del primer byte de la ventana
+
+        Lector(FileChannel canal, int tamano, boolean comprobar) {
+            this.canal = canal;
+            this.comprobar = comprobar;
+            ventana = ByteBuffer.allocate(tamano);
+        }
+
+        /**
+         * Lee un registro.
+         *
+         * @return El registro, o null si está incompleto o corrupto.
+         */
+        Fila leer(long posicion) throws IOException {
+            if (inicio < 0 || posicion < inicio || posicion + 8 > inicio + ventana.position()) {
+                cargar(posicion);
+            }
+            int desde = (int) (posicion - inicio);
+            if (ventana.position() - desde < 8) {
+                return null;
+            }
+            int longitud = ventana.getInt(desde);
+            if (longitud <= 0) {
+                return null;
+            }
+            if (desde + 8 + longitud > ventana.position()) {
+                if (8 + longitud > ventana.capacity()) {
+                    if (comprobar && longitud > canal.size() - posicion - 8) {
+                        return null; // Longitud corrupta: no reservar memoria para ella
+                    }
+                    ventana = ByteBuffer.allocate(8 + longitud);
+                }
+                cargar(posicion);
+                desde = 0;
+                if (8 + longitud > ventana.position()) {
+                    return null;
+                }
+            }
+            byte[] bytes = ventana.array();
+            if (comprobar) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes, desde + 8, longitud);
+                if ((int) crc.getValue() != ventana.getInt(desde + 4)) {
+                    return null;
+                }
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, desde + 8, longitud))) {
+                return new Fila(in.readByte(), in.readLong(), in.readInt(), in.readUTF(), in.readUTF(), in.readInt(), 8 + longitud);
+            }
+        }
+
+        private void cargar(long posicion) throws IOException {
+            ventana.clear();
+            leerCompleto(canal, ventana, posicion);
+            inicio = posicion;
+        }
+    }
+
+    private static int leerCompleto(FileChannel canal, ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            if (canal.read(destino, posicion + destino.position()) < 0) {
+                break;
+            }
+        }
+        return destino.position();
+    }
+
+    /**
+     * Lee la entrada del índice de un id.
+     */
+    private long entrada(int id) {
+        return indice.getLong(id << 3);
+    }
+
+    /**
+     * Escribe la entrada del índice de un id.
+     */
+    private void apuntar(int id, long valor) {
+        indice.putLong(id << 3, valor);
+    }
+
+    /**
+     * Amplía el índice proyectado para que quepa un id.
+     */
+    private void asegurarCapacidad(int id) throws IOException {
+        long necesario = 8L * (id + 1);
+        if (indice != null && necesario <= indice.capacity()) {
+            return;
+        }
+        long tamano = Math.max(8L * CAPACIDAD_INICIAL, indice == null ? 0 : indice.capacity());
+        while (tamano < necesario) {
+            tamano *= 2;
+        }
+        if (tamano > Integer.MAX_VALUE) {
+            throw new IOException("El índice del registro no admite el id " + id);
+        }
+        indice = canalIndice.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+    }
+
+    /**
+     * Fija el índice en disco junto con la posición del registro hasta la
+     * que es válido. Debe llamarse con el cerrojo de escritura.
+     */
+    private void puntoDeControl() throws IOException {
+        if (marca == fin) {
+            return;
+        }
+        registro.force(false);
+        indice.force();
+        indice.putLong(0, fin);
+        indice.force();
+        marca = fin;
+    }
+
+    /**
+     * Abre el índice y lo pone al día: vuelve a aplicar los registros
+     * escritos después del último punto de control y recorta un último
+     * registro incompleto. Si el índice no corresponde al registro (se
+     * perdió, se interrumpió una compactación o apunta a lo recortado) se
+     * reconstruye leyendo el registro entero.
+     */
+    private void recuperar() throws IOException {
+        if (registro.size() < CABECERA) {
+            registro.truncate(0);
+            registro.write(ByteBuffer.allocate(CABECERA).putInt(MAGIA).putInt(FORMATO).flip(), 0);
+            registro.force(false);
+        } else {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            leerCompleto(registro, cabecera, 0);
+            if (cabecera.getInt(0) != MAGIA || cabecera.getInt(4) != FORMATO) {
+                throw new IOException(ruta + " no es un registro de personas");
+            }
+        }
+        asegurarCapacidad((int) Math.min(Integer.MAX_VALUE / 8 - 1, canalIndice.size() / 8 - 1));
+
+        long desde = indice.getLong(0);
+        boolean valido = desde >= CABECERA && desde <= registro.size() && reaplicar(desde) && cargarMemoria();
+        if (!valido) {
+            if (registro.size() > CABECERA) {
+                System.out.println("Reconstruyendo el índice de " + ruta.toAbsolutePath());
+            }
+            for (int i = 0; i < indice.capacity(); i += 8) {
+                indice.putLong(i, 0);
+            }
+            reaplicar(CABECERA);
+            if (!cargarMemoria()) {
+                throw new IOException("No se pudo reconstruir el índice de " + ruta);
+            }
+        }
+        marca = -1;
+        puntoDeControl();
+    }
+
+    /**
+     * Carga en memoria los nombres, las claves, las versiones y los
+     * contadores a partir del índice.
+     *
+     * @return false si el índice apunta a un registro que no es el de su id.
+     */
+    private boolean cargarMemoria() throws IOException {
+        nombres.clear();
+        claves.clear();
+        versiones.clear();
+        vivas = 0;
+        maximoId = 0;
+        version = 0;
+        bytesVigentes = 0;
+        Lector lector = new Lector(registro, VENTANA, true);
+        for (int id = 1; id < indice.capacity() / 8; id++) {
+            long posicion = entrada(id);
+            if (posicion == 0) {
+                continue;
+            }
+            Fila fila = Math.abs(posicion) - 1 < fin ? lector.leer(Math.abs(posicion) - 1) : null;
+            if (fila == null || fila.id != id) {
+                return false;
+            }
+            versiones.put(fila.version, id);
+            bytesVigentes += fila.bytes;
+            version = Math.max(version, fila.version);
+            maximoId = id;
+            if (posicion > 0) {
+                recordar(fila);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Aplica al índice los registros desde una posición hasta el final,
+     * recortando el fichero en el primer registro incompleto o corrupto.
+     *
+     * @return false si hubo que recortar (el índice podría apuntar a lo recortado).
+     */
+    private boolean reaplicar(long desde) throws IOException {
+        long posicion = desde;
+        Lector lector = new Lector(registro, VENTANA_RECUPERACION, true);
+        while (true) {
+            Fila fila = lector.leer(posicion);
+            if (fila == null) {
+                break;
+            }
+            asegurarCapacidad(fila.id);
+            apuntar(fila.id, fila.tipo == BAJA ? -(posicion + 1) : posicion + 1);
+            posicion += fila.bytes;
+        }
+        fin = posicion;
+        if (posicion < registro.size()) {
+            System.out.println("Descartados " + (registro.size() - posicion)
+                    + " bytes incompletos al final de " + ruta.toAbsolutePath());
+            registro.truncate(posicion);
+            registro.force(false);
+            return false;
+        }
+        return true;
+    }
+
+    // Mantenimiento
+
+    /**
+     * Tarea periódica: compacta si hay bastantes versiones superadas y hace un punto de control.
+     */
+    private void mantener() {
+        try {
+            boolean compactar;
+            cerrojo.readLock().lock();
+            try {
+                long basura = fin - CABECERA - bytesVigentes;
+                compactar = basura > Math.max(BASURA_MINIMA, bytesVigentes);
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+            if (compactar) {
+                compactar();
+            }
+            cerrojo.writeLock().lock();
+            try {
+                puntoDeControl();
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            System.out.println("Error al mantener el registro de personas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reescribe el registro con solo el último registro de cada id (incluidas
+     * las bajas, que los refrescos necesitan) y cambia el fichero de forma
+     * atómica. Toma las posiciones del índice con el cerrojo de lectura y
+     * copia los registros sin cerrojo: lo escrito hasta entonces ya no
+     * cambia. Con el cerrojo de escritura copia tal cual la cola escrita
+     * mientras tanto, cambia de fichero y traslada el índice. El índice se
+     * invalida antes del cambio, de modo que si la aplicación se interrumpe
+     * a medias se reconstruye al abrir a partir del fichero que haya
+     * quedado. Solo debe llamarse desde el hilo de mantenimiento y sin cerrojo.
+     */
+    private void compactar() throws IOException {
+        long inicio = System.nanoTime();
+        Path temporal = Paths.get(ruta + ".compactando");
+        FileChannel origen;
+        long hasta;
+        long[] posiciones;
+        cerrojo.readLock().lock();
+        try {
+            origen = registro;
+            hasta = fin;
+            posiciones = new long[maximoId + 1];
+            for (int id = 1; id <= maximoId; id++) {
+                posiciones[id] = entrada(id);
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+
+        try (FileChannel nuevo = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            copiarVigentes(origen, posiciones, nuevo);
+            nuevo.force(true);
+
+            cerrojo.writeLock().lock();
+            try {
+                long antes = fin;
+                long base = nuevo.position(); // Posición de la cola en el fichero nuevo
+                for (long copiados = 0; copiados < fin - hasta; ) {
+                    copiados += registro.transferTo(hasta + copiados, fin - hasta - copiados, nuevo);
+                }
+                nuevo.force(true);
+
+                indice.putLong(0, 0);
+                indice.force();
+                marca = 0;
+                Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                registro.close();
+                registro = FileChannel.open(ruta, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                for (int id = 1; id <= maximoId; id++) {
+                    long posicion = entrada(id);
+                    if (posicion == 0) {
+                        continue;
+                    }
+                    long anterior = Math.abs(posicion) - 1;
+                    if (anterior >= hasta) {
+                        // Escrito durante la copia: está en la cola, en el mismo orden
+                        long trasladada = base + anterior - hasta + 1;
+                        apuntar(id, posicion > 0 ? trasladada : -trasladada);
+                    } else {
+                        apuntar(id, posiciones[id]);
+                    }
+                }
+                fin = registro.size(); // Los bytes vigentes no cambian: son los mismos registros
+                puntoDeControl();
+                M_COMPACTAR.registrar(inicio, vivas);
+                System.out.println("Registro de personas compactado de " + antes + " a " + fin + " bytes");
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            M_COMPACTAR.error(inicio);
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+    }
+
+    /**
+     * Copia en el fichero nuevo, tras la cabecera, el registro al que
+     * apunta cada posición del índice y sustituye cada posición por la del
+     * fichero nuevo. Deja el canal nuevo al final de lo escrito.
+     */
+    private static void copiarVigentes(FileChannel origen, long[] posiciones, FileChannel nuevo) throws IOException {
+        ByteBuffer salida = ByteBuffer.allocate(64 * 1024);
+        salida.putInt(MAGIA).putInt(FORMATO);
+        long escrito = CABECERA;
+        for (int id = 1; id < posiciones.length; id++) {
+            long posicion = posiciones[id];
+            if (posicion == 0) {
+                continue;
+            }
+            long desde = Math.abs(posicion) - 1;
+            int bytes = 8 + leerLongitud(origen, desde);
+            if (bytes > salida.capacity()) {
+                throw new IOException("Registro demasiado grande en la posición " + desde);
+            }
+            if (salida.remaining() < bytes) {
+                salida.flip();
+                while (salida.hasRemaining()) {
+                    nuevo.write(salida);
+                }
+                salida.clear();
+            }
+            ByteBuffer trozo = salida.slice(salida.position(), bytes);
+            leerCompleto(origen, trozo, desde);
+            salida.position(salida.position() + bytes);
+            posiciones[id] = posicion > 0 ? escrito + 1 : -(escrito + 1);
+            escrito += bytes;
+        }
+        salida.flip();
+        while (salida.hasRemaining()) {
+            nuevo.write(salida);
+        }
+    }
+
+    private static int leerLongitud(FileChannel canal, long posicion) throws IOException {
+        ByteBuffer longitud = ByteBuffer.allocate(4);
+        leerCompleto(canal, longitud, posicion);
+        return longitud.getInt(0);
+    }
+}
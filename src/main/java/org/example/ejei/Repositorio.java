@@ -0,0 +1,88 @@
+package org.example.ejei;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Elige al arrancar dónde se guardan las personas, según la propiedad
+ * {@code ejei.repositorio}: {@code mariadb} (por defecto) usa la base de
+ * datos a través de {@link DaoPersona}; {@code registro} usa el registro
+ * embebido {@link RegistroPersonas} en el fichero {@code ejei.registro.ruta}
+ * (por defecto personas.log), sin servidor ni conexiones.
+ * El resto de la aplicación obtiene el repositorio elegido con {@link #personas()}.
+ */
+public class Repositorio {
+    private static volatile RepositorioPersonas actual = new DaoPersona();
+    private static RegistroPersonas registro; // Null si se usa la base de datos
+
+    private Repositorio() {
+    }
+
+    /**
+     * Abre el repositorio configurado. Debe llamarse una vez al arrancar,
+     * antes de leer o escribir personas.
+     *
+     * @throws IOException Si no se puede abrir o recuperar el registro local.
+     */
+    public static synchronized void iniciar() throws IOException {
+        if (registro != null || !usaRegistro()) {
+            return;
+        }
+        Path ruta = rutaRegistro();
+        registro = RegistroPersonas.abrir(ruta);
+        actual = registro;
+        System.out.println("Registro local de personas en " + ruta.toAbsolutePath() + " con " + registro.contarPersonas() + " personas");
+    }
+
+    /**
+     * Identifica el repositorio configurado (la URL de la base de datos o la
+     * ruta del registro), para no mezclar datos guardados de otro. Solo lee
+     * la configuración, así que puede llamarse antes de {@link #iniciar()}.
+     *
+     * @return Un texto que identifica el repositorio.
+     */
+    public static String origen() {
+        return usaRegistro()
+                ? "registro:" + rutaRegistro().toAbsolutePath()
+                : "mariadb:" + System.getProperty("ejei.bd.url", PoolConexiones.URL_POR_DEFECTO);
+    }
+
+    private static boolean usaRegistro() {
+        return "registro".equalsIgnoreCase(System.getProperty("ejei.repositorio", "mariadb"));
+    }
+
+    private static Path rutaRegistro() {
+        return Paths.get(System.getProperty("ejei.registro.ruta", "personas.log"));
+    }
+
+    /**
+     * Cierra el registro local, si se abrió, dejando su índice al día en disco.
+     */
+    public static synchronized void cerrar() {
+        if (registro != null) {
+            registro.cerrar();
+            registro = null;
+            actual = new DaoPersona();
+        }
+    }
+
+    /**
+     * Obtiene el repositorio de personas elegido.
+     *
+     * @return El repositorio en uso.
+     */
+    public static RepositorioPersonas personas() {
+        return actual;
+    }
+
+    /**
+     * Indica si las personas se guardan en la base de datos, de modo que
+     * están disponibles el pool de conexiones, el esquema y la escritura diferida.
+     *
+     * @return true con MariaDB; false con el registro embebido.
+     */
+    public static boolean esBaseDatos() {
+        return actual instanceof DaoPersona;
+    }
+}
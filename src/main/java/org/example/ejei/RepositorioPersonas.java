@@ -0,0 +1,191 @@
+package org.example.ejei;
+
+import javafx.collections.ObservableList;
+
+import java.util.List;
+
+/**
+ * Operaciones de almacenamiento de personas que usa la aplicación,
+ * independientes del motor que las guarda. Hay dos implementaciones:
+ * {@link DaoPersona}, sobre la base de datos MariaDB, y
+ * {@link RegistroPersonas}, un registro local embebido que no necesita
+ * servidor. {@link Repositorio} elige una de ellas al arrancar.
+ * Los métodos pueden llamarse desde cualquier hilo y no lanzan
+ * excepciones: los errores se informan en la salida estándar y se
+ * devuelve el valor indicado en cada método.
+ */
+public interface RepositorioPersonas {
+
+    /**
+     * Resultado de dar de alta una persona.
+     */
+    enum Alta {
+        CREADA, // Se insertó la persona
+        DUPLICADA, // Ya existía una persona con el mismo nombre y apellidos
+        ERROR // No se pudo acceder al almacenamiento
+    }
+
+    /**
+     * Carga todas las personas.
+     *
+     * @return Una lista con las personas cargadas; vacía si ocurre un error.
+     */
+    ObservableList<Persona> cargarListadoPersonas();
+
+    /**
+     * Cuenta las personas almacenadas.
+     *
+     * @return El número de personas, o -1 si ocurre un error.
+     */
+    int contarPersonas();
+
+    /**
+     * Obtiene la versión más alta de los datos, contando las personas borradas.
+     * Sirve de marca para pedir después solo los cambios posteriores.
+     *
+     * @return La versión actual, o -1 si ocurre un error.
+     */
+    long versionActual();
+
+    /**
+     * Obtiene una versión por debajo de la cual (incluida) ya no puede
+     * quedar ningún cambio sin confirmar, de modo que quien carga los datos
+     * y después pide los cambios posteriores a ella no pierde ninguno (ver
+     * {@link MarcaVersiones}). Si los cambios se confirman en el orden de sus
+     * versiones es la versión actual.
+     *
+     * @return La versión asentada, o -1 si ocurre un error.
+     */
+    default long versionAsentada() {
+        return versionActual();
+    }
+
+    /**
+     * Carga las personas creadas o modificadas y los ids borrados con
+     * versión posterior a una dada o dentro de alguno de los huecos de
+     * versiones aún no vistas por debajo de ella.
+     *
+     * @param desdeVersion La versión a partir de la cual (sin incluirla) se buscan cambios.
+     * @param huecos       Los huecos que se vuelven a pedir (ver {@link MarcaVersiones}).
+     * @return Los cambios, o null si ocurre un error.
+     */
+    CambiosPersona cargarCambios(long desdeVersion, List<MarcaVersiones.Hueco> huecos);
+
+    /**
+     * Borra el historial de cambios y lápidas más antiguo que el que se
+     * conserva, anotando hasta qué versión se ha borrado. Por defecto no hace
+     * nada: solo lo necesitan los almacenes que guardan ese historial aparte.
+     */
+    default void purgarHistorial() {
+    }
+
+    /**
+     * Carga una página de personas por clave: las siguientes {@code tamano}
+     * personas cuyo id es mayor que {@code despuesDeId}, ordenadas por id.
+     *
+     * @param despuesDeId El último id de la página anterior (0 para la primera).
+     * @param tamano      El número máximo de personas de la página.
+     * @return La página cargada, vacía si no hay más personas; o null si ocurre
+     *         un error, para no confundirlo con el final de la tabla.
+     */
+    Pagina cargarPagina(long despuesDeId, int tamano);
+
+    /**
+     * Carga una página de personas por desplazamiento, ordenadas por id.
+     *
+     * @param desplazamiento El número de personas que se saltan.
+     * @param tamano         El número máximo de personas de la página.
+     * @return La página cargada, vacía si no hay más personas; o null si ocurre un error.
+     */
+    Pagina cargarPaginaDesde(int desplazamiento, int tamano);
+
+    /**
+     * Busca personas cuyo nombre empieza por un texto (sin distinguir
+     * mayúsculas), ordenadas por nombre e id, continuando por clave a
+     * partir de la última persona de la página anterior.
+     *
+     * @param texto    El principio del nombre a buscar.
+     * @param anterior La página anterior de la misma búsqueda, o null para la primera.
+     * @param tamano   El número máximo de personas de la página.
+     * @return La página de resultados; vacía si no hay más o si ocurre un error.
+     */
+    Pagina buscarPersonas(String texto, Pagina anterior, int tamano);
+
+    /**
+     * Busca personas cuyo nombre empieza por un texto, saltando un número de resultados.
+     *
+     * @param texto          El principio del nombre a buscar.
+     * @param desplazamiento El número de resultados que se saltan.
+     * @param tamano         El número máximo de personas de la página.
+     * @return La página de resultados; vacía si no hay más o si ocurre un error.
+     */
+    Pagina buscarPersonasDesde(String texto, int desplazamiento, int tamano);
+
+    /**
+     * Cuenta las personas cuyo nombre empieza por un texto.
+     *
+     * @param texto El principio del nombre a buscar.
+     * @return El número de coincidencias, o -1 si ocurre un error.
+     */
+    int contarBusqueda(String texto);
+
+    /**
+     * Calcula las cifras agregadas de todas las personas. Por defecto las
+     * recorre por páginas; las implementaciones que puedan deben calcularlas
+     * donde están los datos.
+     *
+     * @param k El número de apellidos frecuentes y de personas mayores y menores.
+     * @return El resumen, o null si ocurre un error.
+     */
+    default ResumenPersonas resumirPersonas(int k) {
+        ResumenPersonas.Acumulador acumulador = new ResumenPersonas.Acumulador(k);
+        long ultimoId = 0;
+        while (true) {
+            Pagina pagina = cargarPagina(ultimoId, 1_000);
+            if (pagina == null) {
+                return null;
+            }
+            pagina.getPersonas().forEach(acumulador::anadir);
+            if (pagina.getPersonas().size() < 1_000) {
+                return acumulador.resumen();
+            }
+            ultimoId = pagina.getUltimoId();
+        }
+    }
+
+    /**
+     * Modifica una persona, localizándola por su id.
+     *
+     * @param personaAntigua La persona existente que se desea modificar.
+     * @param personaNueva   La nueva persona con los valores actualizados.
+     * @return true si la modificación fue exitosa; false en caso contrario.
+     */
+    boolean modificarPersona(Persona personaAntigua, Persona personaNueva);
+
+    /**
+     * Crea una nueva persona si no existe otra con el mismo nombre y
+     * apellidos, y le asigna su id.
+     *
+     * @param persona La persona a crear.
+     * @return Si se creó, si estaba duplicada o si hubo un error.
+     */
+    Alta crearPersona(Persona persona);
+
+    /**
+     * Crea una nueva persona y le asigna su id.
+     *
+     * @param persona La persona a crear.
+     * @return true si la creación fue exitosa; false si ya existía o hubo un error.
+     */
+    default boolean nuevaPersona(Persona persona) {
+        return crearPersona(persona) == Alta.CREADA;
+    }
+
+    /**
+     * Elimina una persona, localizándola por su id.
+     *
+     * @param personaAEliminar La persona que se desea eliminar.
+     * @return true si la eliminación fue exitosa; false en caso contrario.
+     */
+    boolean eliminarPersona(Persona personaAEliminar);
+}
@@ -0,0 +1,195 @@
+package org.example.ejei;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Cifras agregadas de las personas: el total, cuántas hay de cada edad (de
+ * donde salen la media y la mediana), los apellidos más frecuentes y las
+ * personas de más y menos edad. Lo calculan {@link EstadisticasPersonas}
+ * sobre la lista en memoria y el repositorio sobre los datos guardados.
+ */
+public class ResumenPersonas {
+    private final HistogramaEdades porEdad; // Número de personas de cada edad
+    private final List<Frecuencia> apellidosFrecuentes; // De más a menos frecuente
+    private final List<Persona> mayores; // De más a menos edad
+    private final List<Persona> menores; // De menos a más edad
+
+    /**
+     * Apellidos y el número de personas que los llevan.
+     */
+    public static class Frecuencia {
+        private final String apellidos;
+        private final int personas;
+
+        /**
+         * @param apellidos Los apellidos.
+         * @param personas  El número de personas con esos apellidos.
+         */
+        public Frecuencia(String apellidos, int personas) {
+            this.apellidos = apellidos;
+            this.personas = personas;
+        }
+
+        /**
+         * @return Los apellidos.
+         */
+        public String getApellidos() {
+            return apellidos;
+        }
+
+        /**
+         * @return El número de personas con esos apellidos.
+         */
+        public int getPersonas() {
+            return personas;
+        }
+    }
+
+    /**
+     * Acumula el resumen recorriendo las personas una a una, con montículos
+     * acotados para los apellidos frecuentes y las personas de más y menos edad.
+     */
+    static class Acumulador {
+        private static final Comparator<Persona> POR_EDAD = Comparator.comparingInt(Persona::getEdad);
+
+        private final int k;
+        private final HistogramaEdades porEdad = new HistogramaEdades();
+        private final Map<String, Integer> porApellidos = new HashMap<>();
+        private final PriorityQueue<Persona> mayores; // La de menos edad arriba
+        private final PriorityQueue<Persona> menores; // La de más edad arriba
+
+        /**
+         * @param k El número de apellidos frecuentes y de personas mayores y menores.
+         */
+        Acumulador(int k) {
+            this.k = k;
+            mayores = new PriorityQueue<>(k + 1, POR_EDAD);
+            menores = new PriorityQueue<>(k + 1, POR_EDAD.reversed());
+        }
+
+        /**
+         * Suma una persona al resumen.
+         *
+         * @param persona La persona.
+         */
+        void anadir(Persona persona) {
+            porEdad.anadir(persona.getEdad());
+            if (persona.getApellidos() != null) {
+                porApellidos.merge(persona.getApellidos(), 1, Integer::sum);
+            }
+            acotar(mayores, persona);
+            acotar(menores, persona);
+        }
+
+        /**
+         * Construye el resumen de las personas sumadas.
+         *
+         * @return El resumen.
+         */
+        ResumenPersonas resumen() {
+            PriorityQueue<Map.Entry<String, Integer>> frecuentes = new PriorityQueue<>(k + 1, Map.Entry.comparingByValue());
+            for (Map.Entry<String, Integer> entrada : porApellidos.entrySet()) {
+                frecuentes.add(entrada);
+                if (frecuentes.size() > k) {
+                    frecuentes.poll();
+                }
+            }
+            List<Frecuencia> lista = new ArrayList<>(frecuentes.size());
+            while (!frecuentes.isEmpty()) {
+                Map.Entry<String, Integer> entrada = frecuentes.poll();
+                lista.add(new Frecuencia(entrada.getKey(), entrada.getValue()));
+            }
+            Collections.reverse(lista);
+            return new ResumenPersonas(porEdad, lista, vaciar(mayores), vaciar(menores));
+        }
+
+        private void acotar(PriorityQueue<Persona> monticulo, Persona persona) {
+            monticulo.add(persona);
+            if (monticulo.size() > k) {
+                monticulo.poll();
+            }
+        }
+
+        private static List<Persona> vaciar(PriorityQueue<Persona> monticulo) {
+            List<Persona> personas = new ArrayList<>(monticulo.size());
+            while (!monticulo.isEmpty()) {
+                personas.add(monticulo.poll());
+            }
+            Collections.reverse(personas);
+            return personas;
+        }
+    }
+
+    /**
+     * Constructor que inicializa el resumen.
+     *
+     * @param porEdad             El número de personas de cada edad; no debe modificarse después.
+     * @param apellidosFrecuentes Los apellidos más frecuentes, de más a menos.
+     * @param mayores             Las personas de más edad, de más a menos.
+     * @param menores             Las personas de menos edad, de menos a más.
+     */
+    public ResumenPersonas(HistogramaEdades porEdad, List<Frecuencia> apellidosFrecuentes,
+                           List<Persona> mayores, List<Persona> menores) {
+        this.porEdad = porEdad;
+        this.apellidosFrecuentes = apellidosFrecuentes;
+        this.mayores = mayores;
+        this.menores = menores;
+    }
+
+    /**
+     * @return El número de personas.
+     */
+    public int getTotal() {
+        return porEdad.getTotal();
+    }
+
+    /**
+     * Obtiene el histograma de edades. No debe modificarse.
+     *
+     * @return El número de personas de cada edad.
+     */
+    public HistogramaEdades getPorEdad() {
+        return porEdad;
+    }
+
+    /**
+     * @return La edad media, o 0 si no hay personas.
+     */
+    public double getMedia() {
+        return porEdad.getMedia();
+    }
+
+    /**
+     * @return La mediana de las edades, o 0 si no hay personas.
+     */
+    public double getMediana() {
+        return porEdad.getMediana();
+    }
+
+    /**
+     * @return Los apellidos más frecuentes, de más a menos.
+     */
+    public List<Frecuencia> getApellidosFrecuentes() {
+        return apellidosFrecuentes;
+    }
+
+    /**
+     * @return Las personas de más edad, de más a menos.
+     */
+    public List<Persona> getMayores() {
+        return mayores;
+    }
+
+    /**
+     * @return Las personas de menos edad, de menos a más.
+     */
+    public List<Persona> getMenores() {
+        return menores;
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.ejei;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vigilante de bloqueos del hilo de JavaFX. Un hilo aparte envía
+ * continuamente un latido al hilo de JavaFX con {@link Platform#runLater}
+ * y mide cuánto tarda en atenderse; si un latido tarda más que el umbral
+ * ({@code ejei.vigilante.umbral.ms}, 200 por defecto), el hilo de JavaFX
+ * está bloqueado: se captura su pila y la acción del controlador que se
+ * estaba ejecutando (ver {@link #accion(String, Runnable)}).
+ * Los bloqueos se agrupan por acción y punto de la pila y al cerrar la
+ * aplicación se escribe un resumen en la salida estándar. La latencia de
+ * todos los latidos se publica además como métrica
+ * ({@code type=VigilanteFx,name=latidoFx}).
+ * Está activo salvo que {@code ejei.vigilante} sea false.
+ */
+public class VigilanteFx {
+    private static final int LINEAS_PILA = 12; // Líneas de pila que se muestran por bloqueo
+    private static final int BLOQUEOS_RESUMEN = 10; // Grupos de bloqueos que se muestran al cerrar
+
+    private static volatile VigilanteFx instancia;
+    private static volatile String accionActual; // Acción del controlador en curso (solo la escribe el hilo de JavaFX)
+
+    private final long umbralNanos;
+    private final MetricaOperacion latidos = Metricas.operacion("VigilanteFx", "latidoFx");
+    private final Map<String, Bloqueo> bloqueos = new ConcurrentHashMap<>(); // Acción + punto de la pila -> bloqueos
+    private final ScheduledExecutorService reloj;
+
+    // Estado del latido en curso; los campos volátiles los escribe el hilo de JavaFX y el resto el vigilante
+    private volatile Thread hiloFx; // Hilo de JavaFX, conocido tras el primer latido
+    private volatile long atendido; // Número del último latido atendido
+    private volatile long respondido; // Instante en que se atendió
+    private long enviado; // Número del último latido enviado (0 si aún no se ha enviado ninguno)
+    private long enviadoEn; // Instante en que se envió
+    private StackTraceElement[] pila; // Pila capturada durante el bloqueo en curso
+    private String accionBloqueo; // Acción en curso cuando se capturó la pila
+
+    /**
+     * Bloqueos agrupados por acción y punto de la pila.
+     */
+    private static class Bloqueo {
+        private final String accion;
+        private final StackTraceElement[] pila;
+        private int veces;
+        private long totalNanos;
+        private long maximoNanos;
+
+        Bloqueo(String accion, StackTraceElement[] pila) {
+            this.accion = accion;
+            this.pila = pila;
+        }
+
+        synchronized void sumar(long nanos) {
+            veces++;
+            totalNanos += nanos;
+            maximoNanos = Math.max(maximoNanos, nanos);
+        }
+    }
+
+    private VigilanteFx(long umbralMs, long intervaloMs) {
+        umbralNanos = TimeUnit.MILLISECONDS.toNanos(umbralMs);
+        reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "vigilante-fx");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        reloj.scheduleAtFixedRate(this::comprobar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empieza a vigilar el hilo de JavaFX si no está desactivado con
+     * {@code ejei.vigilante=false}. El intervalo entre comprobaciones se
+     * ajusta con {@code ejei.vigilante.intervalo.ms} (50 por defecto).
+     */
+    public static synchronized void iniciar() {
+        if (instancia != null || "false".equalsIgnoreCase(System.getProperty("ejei.vigilante", "true"))) {
+            return;
+        }
+        long umbral = Math.max(1, Long.getLong("ejei.vigilante.umbral.ms", 200L));
+        long intervalo = Math.max(1, Long.getLong("ejei.vigilante.intervalo.ms", 50L));
+        instancia = new VigilanteFx(umbral, intervalo);
+    }
+
+    /**
+     * Deja de vigilar y escribe el resumen de bloqueos.
+     */
+    public static synchronized void detener() {
+        VigilanteFx actual = instancia;
+        if (actual != null) {
+            instancia = null;
+            actual.reloj.shutdownNow();
+            actual.imprimirResumen();
+        }
+    }
+
+    /**
+     * Ejecuta una acción del controlador anotando su nombre, para que un
+     * bloqueo que ocurra durante ella se le atribuya. Las acciones pueden
+     * anidarse (por ejemplo, guardar dentro de un diálogo modal).
+     * Debe llamarse desde el hilo de JavaFX.
+     *
+     * @param nombre El nombre de la acción.
+     * @param accion La acción a ejecutar.
+     */
+    public static void accion(String nombre, Runnable accion) {
+        String anterior = accionActual;
+        accionActual = nombre;
+        try {
+            accion.run();
+        } finally {
+            accionActual = anterior;
+        }
+    }
+
+    /**
+     * Comprobación periódica en el hilo del vigilante: si el latido pendiente
+     * ya se atendió anota su latencia y envía otro; si lleva esperando más
+     * que el umbral, captura la pila del hilo de JavaFX.
+     */
+    private void comprobar() {
+        long ahora = System.nanoTime();
+        if (enviado != 0) {
+            if (atendido != enviado) {
+                // El latido sigue pendiente: el hilo de JavaFX está ocupado
+                Thread hilo = hiloFx;
+                if (pila == null && hilo != null && ahora - enviadoEn > umbralNanos) {
+                    accionBloqueo = accionActual;
+                    pila = hilo.getStackTrace();
+                }
+                return;
+            }
+            terminarLatido(respondido - enviadoEn);
+        }
+        long numero = enviado + 1;
+        try {
+            enviadoEn = ahora;
+            Platform.runLater(() -> {
+                hiloFx = Thread.currentThread();
+                respondido = System.nanoTime();
+                atendido = numero; // Después de respondido, para que el vigilante lea el instante correcto
+            });
+            enviado = numero;
+        } catch (IllegalStateException e) {
+            // JavaFX aún no ha arrancado o ya se ha cerrado: se vuelve a intentar en la próxima comprobación
+        }
+    }
+
+    /**
+     * Anota la latencia de un latido atendido y, si superó el umbral, el bloqueo.
+     */
+    private void terminarLatido(long latencia) {
+        latidos.registrarDuracion(latencia, 0);
+        if (latencia > umbralNanos) {
+            StackTraceElement[] capturada = pila != null ? pila : new StackTraceElement[0];
+            String accion = pila != null && accionBloqueo != null ? accionBloqueo : "(desconocida)";
+            String clave = accion + '\u0000' + puntoDeBloqueo(capturada);
+            bloqueos.computeIfAbsent(clave, c -> new Bloqueo(accion, capturada)).sumar(latencia);
+            System.out.printf("Aviso: hilo de JavaFX bloqueado %d ms durante %s en %s%n",
+                    TimeUnit.NANOSECONDS.toMillis(latencia), accion, puntoDeBloqueo(capturada));
+        }
+        pila = null;
+        accionBloqueo = null;
+    }
+
+    /**
+     * Escribe los bloqueos agrupados, de más a menos tiempo total, con su pila.
+     */
+    private void imprimirResumen() {
+        List<Bloqueo> ordenados = new ArrayList<>(bloqueos.values());
+        ordenados.sort(Comparator.comparingLong((Bloqueo b) -> b.totalNanos).reversed());
+        StringBuilder texto = new StringBuilder("--- Bloqueos del hilo de JavaFX --------------------------------\n");
+        texto.append(String.format("latidos=%d p50=%dus p99=%dus max=%dus umbral=%dms grupos=%d%n",
+                latidos.getOperaciones(), latidos.getP50Us(), latidos.getP99Us(), latidos.getMaxUs(),
+                TimeUnit.NANOSECONDS.toMillis(umbralNanos), ordenados.size()));
+        for (Bloqueo bloqueo : ordenados.subList(0, Math.min(BLOQUEOS_RESUMEN, ordenados.size()))) {
+            texto.append(String.format("%n%s: %d veces, %d ms en total, máximo %d ms%n", bloqueo.accion, bloqueo.veces,
+                    TimeUnit.NANOSECONDS.toMillis(bloqueo.totalNanos), TimeUnit.NANOSECONDS.toMillis(bloqueo.maximoNanos)));
+            for (int i = 0; i < Math.min(LINEAS_PILA, bloqueo.pila.length); i++) {
+                texto.append("    at ").append(bloqueo.pila[i]).append('\n');
+            }
+        }
+        texto.append("----------------------------------------------------------------");
+        System.out.println(texto);
+    }
+
+    /**
+     * Elige el marco más representativo de una pila: el primero de la
+     * aplicación, o el primero de todos si no hay ninguno.
+     */
+    private static String puntoDeBloqueo(StackTraceElement[] pila) {
+        for (StackTraceElement marco : pila) {
+            if (marco.getClassName().startsWith("org.example.ejei.")
+                    && !marco.getClassName().startsWith(VigilanteFx.class.getName())) {
+                return marco.toString();
+            }
+        }
+        return pila.length > 0 ? pila[0].toString() : "(pila no capturada)";
+    }
+}
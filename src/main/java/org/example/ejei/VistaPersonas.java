@@ -0,0 +1,471 @@
+package org.example.ejei;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+
+/**
+ * Vista filtrada y ordenada de un {@link AlmacenPersonas} para la tabla.
+ * Guarda solo un array con los huecos de las filas visibles, en el orden en
+ * que se muestran: filtra con un predicado sobre los códigos de nombre (el
+ * de {@link IndiceNombres}) y ordena comparando las columnas del almacén, de
+ * modo que solo se crean los objetos {@link Persona} de las filas que pide
+ * la tabla, es decir, las que están a la vista. Las altas y bajas del
+ * almacén se aplican sin rehacer la vista; las ediciones en sitio no la
+ * reordenan ni la vuelven a filtrar (como {@code FilteredList} y
+ * {@code SortedList} sin extractor).
+ * Con muchas filas, un filtro o un orden nuevos se calculan fuera del hilo
+ * de JavaFX sobre una copia de las columnas ({@link AlmacenPersonas#copiarColumnas()})
+ * y se publican de una vez; mientras tanto la vista sigue mostrando, y
+ * manteniendo al día, el resultado anterior. Si el almacén cambia durante
+ * el cálculo, se repite.
+ * Debe usarse únicamente desde el hilo de JavaFX.
+ */
+public class VistaPersonas extends ObservableListBase<Persona> {
+    private static final int UMBRAL_SEGUNDO_PLANO = Integer.getInteger("ejei.vista.segundoPlano", 20_000); // Filas a partir de las que se filtra y ordena fuera del hilo de JavaFX
+
+    private final AlmacenPersonas personas; // Almacén que se muestra
+    private final ListChangeListener<Persona> oyente = this::onCambio;
+    private final AlmacenPersonas.OyenteHuecos oyenteHuecos = new AlmacenPersonas.OyenteHuecos() {
+        @Override
+        public void liberado(int hueco) {
+            salientes.put(hueco, personas.enHueco(hueco)); // El almacén la desliga con sus valores
+        }
+    };
+    private final Map<Integer, Persona> salientes = new HashMap<>(); // Huecos liberados en el cambio en curso -> persona que sale
+    private int[] filas = new int[0]; // Posición en la vista -> hueco
+    private int tamano;
+    private IntPredicate filtro; // Filtro de las filas mostradas; null: todas las filas
+    private Orden orden; // Orden de las filas mostradas; null: el orden del almacén
+    private IntPredicate filtroPedido; // Filtro que se está calculando, o el mostrado
+    private Orden ordenPedido; // Orden que se está calculando, o el mostrado
+    private int generacion; // Identifica el cálculo vigente
+    private int cambios; // Cambios del almacén recibidos, para saber si un cálculo se ha quedado atrás
+
+    /**
+     * Orden entre dos filas del almacén, dadas por sus huecos, que lee las
+     * columnas que recibe: las del almacén o una copia.
+     */
+    @FunctionalInterface
+    public interface Orden {
+        /**
+         * @param columnas Las columnas de las que leer los valores.
+         * @param hueco1   El hueco de la primera fila.
+         * @param hueco2   El hueco de la segunda fila.
+         * @return Negativo, cero o positivo, como {@link java.util.Comparator#compare}.
+         */
+        int comparar(AlmacenPersonas.Columnas columnas, int hueco1, int hueco2);
+
+        /**
+         * @return El orden contrario.
+         */
+        default Orden inverso() {
+            return (columnas, hueco1, hueco2) -> comparar(columnas, hueco2, hueco1);
+        }
+
+        /**
+         * @param otro El orden que desempata.
+         * @return Este orden y, en caso de empate, el otro.
+         */
+        default Orden despues(Orden otro) {
+            return (columnas, hueco1, hueco2) -> {
+                int resultado = comparar(columnas, hueco1, hueco2);
+                return resultado != 0 ? resultado : otro.comparar(columnas, hueco1, hueco2);
+            };
+        }
+    }
+
+    /**
+     * Crea la vista con todas las personas del almacén, en su orden, y empieza a escuchar sus cambios.
+     *
+     * @param personas El almacén de personas.
+     */
+    public VistaPersonas(AlmacenPersonas personas) {
+        this.personas = personas;
+        filas = personas.huecos();
+        tamano = filas.length;
+        personas.escucharHuecos(oyenteHuecos);
+        personas.addListener(oyente);
+    }
+
+    /**
+     * Deja de escuchar los cambios del almacén.
+     */
+    public void desconectar() {
+        generacion++; // Descarta el cálculo en curso
+        personas.removeListener(oyente);
+        personas.dejarDeEscucharHuecos(oyenteHuecos);
+    }
+
+    /**
+     * Muestra solo las filas que acepta un predicado, en el orden actual.
+     * Con muchas filas el resultado se publica cuando termina de calcularse.
+     *
+     * @param filtro El predicado sobre los códigos de nombre del almacén, o null para mostrarlas todas.
+     */
+    public void filtrar(IntPredicate filtro) {
+        filtroPedido = filtro;
+        recalcular();
+    }
+
+    /**
+     * Ordena las filas visibles. Con el mismo orden, las filas conservan el del almacén.
+     * Con muchas filas el resultado se publica cuando termina de calcularse.
+     *
+     * @param orden El orden, o null para mostrar las filas en el orden del almacén.
+     */
+    public void ordenar(Orden orden) {
+        ordenPedido = orden;
+        recalcular();
+    }
+
+    /**
+     * @return El orden por nombre, con los nulos primero (como las columnas de la tabla).
+     */
+    public static Orden porNombre() {
+        return (columnas, hueco1, hueco2) -> compararCadenas(columnas,
+                columnas.codigoNombreDe(hueco1), columnas.codigoNombreDe(hueco2));
+    }
+
+    /**
+     * @return El orden por apellidos, con los nulos primero.
+     */
+    public static Orden porApellidos() {
+        return (columnas, hueco1, hueco2) -> compararCadenas(columnas,
+                columnas.codigoApellidosDe(hueco1), columnas.codigoApellidosDe(hueco2));
+    }
+
+    /**
+     * @return El orden por edad.
+     */
+    public static Orden porEdad() {
+        return (columnas, hueco1, hueco2) -> Integer.compare(columnas.edadDe(hueco1), columnas.edadDe(hueco2));
+    }
+
+    @Override
+    public Persona get(int index) {
+        return personas.enHueco(filas[Objects.checkIndex(index, tamano)]);
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    /**
+     * Busca una persona comparando en las columnas del almacén, sin crear
+     * los objetos de las demás filas.
+     *
+     * @param o La persona a buscar.
+     * @return Su posición en la vista, o -1 si no está.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof PersonaAlmacenada vista && vista.estaEn(personas)) {
+            int hueco = vista.getHueco();
+            for (int i = 0; i < tamano; i++) {
+                if (filas[i] == hueco) {
+                    return i;
+                }
+            }
+        } else if (o instanceof Persona persona) {
+            for (int i = 0; i < tamano; i++) {
+                int hueco = filas[i];
+                if (personas.idDe(hueco) == persona.getId()
+                        && Objects.equals(personas.nombreDe(hueco), persona.getNombre())
+                        && Objects.equals(personas.apellidosDe(hueco), persona.getApellidos())) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Calcula las filas visibles con el filtro y el orden pedidos. Con pocas
+     * filas lo hace al momento; con muchas, en segundo plano sobre una copia
+     * de las columnas y del filtro, y publica el resultado si sigue siendo el
+     * cálculo vigente y el almacén no ha cambiado mientras tanto (si ha
+     * cambiado, vuelve a empezar).
+     */
+    private void recalcular() {
+        int peticion = ++generacion;
+        IntPredicate nuevoFiltro = filtroPedido;
+        Orden nuevoOrden = ordenPedido;
+        if (personas.size() < UMBRAL_SEGUNDO_PLANO) {
+            filtro = nuevoFiltro;
+            orden = nuevoOrden;
+            rehacer();
+            return;
+        }
+        int[] huecos = personas.huecos();
+        AlmacenPersonas.Columnas copia = personas.copiarColumnas();
+        IntPredicate filtroCopia = copiarFiltro(nuevoFiltro);
+        int cambiosPeticion = cambios;
+        CompletableFuture.supplyAsync(() -> calcular(huecos, copia, filtroCopia, nuevoOrden), ForkJoinPool.commonPool())
+                .thenAcceptAsync(resultado -> {
+                    if (peticion != generacion) {
+                        return; // Hay un cálculo posterior
+                    }
+                    if (cambiosPeticion != cambios) {
+                        recalcular(); // Los huecos calculados ya no son los del almacén
+                        return;
+                    }
+                    filtro = nuevoFiltro;
+                    orden = nuevoOrden;
+                    publicar(resultado);
+                }, Platform::runLater);
+    }
+
+    /**
+     * Evalúa el filtro para cada código del diccionario del almacén, de modo
+     * que la copia puede usarse desde otro hilo aunque el filtro lea un
+     * índice que cambia.
+     */
+    private IntPredicate copiarFiltro(IntPredicate filtro) {
+        if (filtro == null) {
+            return null;
+        }
+        boolean[] aceptados = new boolean[personas.getCadenas().tamano() + 1]; // Código + 1 -> pasa el filtro
+        for (int i = 0; i < aceptados.length; i++) {
+            aceptados[i] = filtro.test(i - 1);
+        }
+        return codigo -> aceptados[codigo + 1];
+    }
+
+    /**
+     * Vuelve a calcular al momento las filas visibles con el filtro y el orden mostrados.
+     */
+    private void rehacer() {
+        publicar(calcular(personas.huecos(), personas.columnas(), filtro, orden));
+    }
+
+    /**
+     * Sustituye las filas visibles y lo publica como un único reemplazo. Las
+     * filas que se quitan solo se crean si algún oyente las pide (el
+     * constructor de cambios de {@link ObservableListBase} las pediría todas,
+     * así que el cambio se construye aquí).
+     */
+    private void publicar(int[] nuevas) {
+        int[] anteriores = Arrays.copyOf(filas, tamano);
+        Map<Integer, Persona> liberadas = salientes.isEmpty() ? Map.of() : new HashMap<>(salientes);
+        filas = nuevas;
+        tamano = filas.length;
+        int hasta = tamano;
+        if (anteriores.length == 0 && hasta == 0) {
+            return;
+        }
+        List<Persona> quitadas = new AbstractList<>() {
+            @Override
+            public Persona get(int index) {
+                Persona liberada = liberadas.get(anteriores[index]);
+                return liberada != null ? liberada : personas.enHueco(anteriores[index]);
+            }
+
+            @Override
+            public int size() {
+                return anteriores.length;
+            }
+        };
+        fireChange(new ListChangeListener.Change<>(this) {
+            private int cursor = -1;
+
+            @Override
+            public boolean next() {
+                return ++cursor == 0;
+            }
+
+            @Override
+            public void reset() {
+                cursor = -1;
+            }
+
+            @Override
+            public int getFrom() {
+                return 0;
+            }
+
+            @Override
+            public int getTo() {
+                return hasta;
+            }
+
+            @Override
+            public List<Persona> getRemoved() {
+                return quitadas;
+            }
+
+            @Override
+            protected int[] getPermutation() {
+                return new int[0];
+            }
+        });
+    }
+
+    /**
+     * Devuelve los huecos que pasan el filtro, ordenados. Solo lee lo que
+     * recibe, así que puede ejecutarse en otro hilo si recibe copias.
+     */
+    private static int[] calcular(int[] huecos, AlmacenPersonas.Columnas columnas, IntPredicate filtro, Orden orden) {
+        int[] resultado = new int[huecos.length];
+        int n = 0;
+        for (int hueco : huecos) {
+            if (filtro == null || filtro.test(columnas.codigoNombreDe(hueco))) {
+                resultado[n++] = hueco;
+            }
+        }
+        resultado = Arrays.copyOf(resultado, n);
+        if (orden != null) {
+            ordenar(resultado, columnas, orden);
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica los cambios del almacén: quita las filas de los huecos
+     * liberados y coloca las nuevas que pasan el filtro en su sitio. Si sin
+     * orden las nuevas no van al final del almacén, rehace la vista.
+     */
+    private void onCambio(ListChangeListener.Change<? extends Persona> cambio) {
+        cambios++;
+        int[] nuevas = new int[0];
+        int numNuevas = 0;
+        boolean alFinal = true;
+        boolean rehacer = false;
+        while (cambio.next()) {
+            if (cambio.wasPermutated()) {
+                rehacer = true;
+            } else if (cambio.wasAdded()) {
+                alFinal &= cambio.getTo() == personas.size();
+                nuevas = Arrays.copyOf(nuevas, numNuevas + cambio.getAddedSize());
+                for (int i = cambio.getFrom(); i < cambio.getTo(); i++) {
+                    nuevas[numNuevas++] = personas.huecoEn(i);
+                }
+            }
+        }
+        if (rehacer || orden == null && !alFinal) {
+            rehacer();
+            salientes.clear();
+            return;
+        }
+        beginChange();
+        try {
+            quitarSalientes();
+            anadir(nuevas, numNuevas);
+        } finally {
+            salientes.clear();
+            endChange();
+        }
+    }
+
+    /**
+     * Quita de la vista las filas cuyos huecos se han liberado.
+     */
+    private void quitarSalientes() {
+        if (salientes.isEmpty()) {
+            return;
+        }
+        int escritas = 0;
+        for (int i = 0; i < tamano; i++) {
+            Persona saliente = salientes.get(filas[i]);
+            if (saliente != null) {
+                nextRemove(escritas, saliente);
+            } else {
+                filas[escritas++] = filas[i];
+            }
+        }
+        tamano = escritas;
+    }
+
+    /**
+     * Añade las filas nuevas que pasan el filtro: al final sin orden, o
+     * mezclándolas en su sitio con el orden.
+     */
+    private void anadir(int[] nuevas, int numNuevas) {
+        int aceptadas = 0;
+        for (int i = 0; i < numNuevas; i++) {
+            if (filtro == null || filtro.test(personas.codigoNombreDe(nuevas[i]))) {
+                nuevas[aceptadas++] = nuevas[i];
+            }
+        }
+        if (aceptadas == 0) {
+            return;
+        }
+        int[] resultado = new int[tamano + aceptadas];
+        if (orden == null) {
+            System.arraycopy(filas, 0, resultado, 0, tamano);
+            System.arraycopy(nuevas, 0, resultado, tamano, aceptadas);
+            nextAdd(tamano, tamano + aceptadas);
+        } else {
+            AlmacenPersonas.Columnas columnas = personas.columnas();
+            int[] ordenadas = Arrays.copyOf(nuevas, aceptadas);
+            ordenar(ordenadas, columnas, orden);
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < resultado.length; k++) {
+                if (j < aceptadas && (i == tamano || orden.comparar(columnas, ordenadas[j], filas[i]) < 0)) {
+                    resultado[k] = ordenadas[j++];
+                    nextAdd(k, k + 1);
+                } else {
+                    resultado[k] = filas[i++];
+                }
+            }
+        }
+        filas = resultado;
+        tamano = resultado.length;
+    }
+
+    private static int compararCadenas(AlmacenPersonas.Columnas columnas, int codigo1, int codigo2) {
+        if (codigo1 == codigo2) {
+            return 0;
+        }
+        if (codigo1 < 0 || codigo2 < 0) {
+            return codigo1 < 0 ? -1 : 1;
+        }
+        return columnas.cadena(codigo1).compareTo(columnas.cadena(codigo2));
+    }
+
+    /**
+     * Ordena huecos por mezcla, que es estable: las filas empatadas conservan su orden.
+     */
+    private static void ordenar(int[] huecos, AlmacenPersonas.Columnas columnas, Orden orden) {
+        int[] auxiliar = new int[huecos.length];
+        for (int ancho = 1; ancho < huecos.length; ancho *= 2) {
+            for (int desde = 0; desde < huecos.length - ancho; desde += 2 * ancho) {
+                int medio = desde + ancho;
+                int hasta = Math.min(desde + 2 * ancho, huecos.length);
+                if (orden.comparar(columnas, huecos[medio - 1], huecos[medio]) <= 0) {
+                    continue; // Ya están en orden
+                }
+                int i = desde;
+                int j = medio;
+                int k = desde;
+                while (i < medio && j < hasta) {
+                    auxiliar[k++] = orden.comparar(columnas, huecos[j], huecos[i]) < 0 ? huecos[j++] : huecos[i++];
+                }
+                while (i < medio) {
+                    auxiliar[k++] = huecos[i++];
+                }
+                while (j < hasta) {
+                    auxiliar[k++] = huecos[j++];
+                }
+                System.arraycopy(auxiliar, desde, huecos, desde, hasta - desde);
+            }
+        }
+    }
+}